@@ -0,0 +1,70 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thomasfraser.starlingroundup.benchmark.SyntheticFeed;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each compiled rounding strategy over the same column batch, to compare against the next pound
+ * kernel of {@code RoundUpCalculatorBenchmark.sumRoundUpColumns}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundingStrategyBenchmark {
+
+    private static final int GBP_OUT = TransactionCodes.of("OUT", "GBP");
+
+    @Param({"1000", "1000000"})
+    private int feedSize;
+
+    @Param({"nextPound", "increment", "capped", "category"})
+    private String strategyName;
+
+    private TransactionColumns columns;
+    private RoundingStrategy strategy;
+
+    @Setup
+    public void setUp() {
+        List<TransactionDto> transactions = SyntheticFeed.transactions(feedSize);
+        Random random = new Random(42);
+        columns = new TransactionColumns(feedSize);
+        for (TransactionDto transaction : transactions) {
+            columns.add(transaction.getAmount().getMinorUnits(),
+                    TransactionCodes.of(transaction.getDirection(), transaction.getAmount().getCurrency()),
+                    random.nextInt(SpendingCategory.ID_COUNT));
+        }
+        strategy = switch (strategyName) {
+            case "nextPound" -> RoundingStrategy.compile(RoundingRule.NEXT_POUND, Map.of());
+            case "increment" -> RoundingStrategy.compile(new RoundingRule(500, 2, 0), Map.of());
+            case "capped" -> RoundingStrategy.compile(new RoundingRule(1000, 1, 250), Map.of());
+            case "category" -> RoundingStrategy.compile(RoundingRule.NEXT_POUND, Map.of(
+                    SpendingCategory.EATING_OUT, new RoundingRule(500, 1, 0),
+                    SpendingCategory.GAMBLING, new RoundingRule(100, 10, 500)));
+            default -> throw new IllegalArgumentException(strategyName);
+        };
+    }
+
+    @Benchmark
+    public long sumRoundUps() {
+        return strategy.sumRoundUps(columns.minorUnits(), columns.codes(), columns.categories(), columns.size(), GBP_OUT);
+    }
+}
@@ -0,0 +1,75 @@
+package org.thomasfraser.starlingroundup.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.thomasfraser.starlingroundup.aggregation.PackedFeedDecoder;
+import org.thomasfraser.starlingroundup.aggregation.RoundUpAggregator;
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
+import org.thomasfraser.starlingroundup.client.TransactionFeedReader;
+import org.thomasfraser.starlingroundup.dto.TransactionsResponseDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a feed response body the three ways the client can: binding the whole
+ * {@link TransactionsResponseDto}, streaming one {@code TransactionDto} at a time, and decoding
+ * straight into primitive columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedDeserializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int feedSize;
+
+    private byte[] body;
+    private ObjectReader responseReader;
+    private TransactionFeedReader feedReader;
+    private PackedFeedDecoder feedDecoder;
+
+    @Setup
+    public void setUp() {
+        body = SyntheticFeed.json(feedSize);
+        // Matches the Boot-configured mapper the client is given
+        ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        responseReader = objectMapper.readerFor(TransactionsResponseDto.class);
+        feedReader = new TransactionFeedReader(objectMapper);
+        feedDecoder = new PackedFeedDecoder(objectMapper.getFactory());
+    }
+
+    @Benchmark
+    public TransactionsResponseDto bindResponse() throws IOException {
+        return responseReader.readValue(new ByteArrayInputStream(body));
+    }
+
+    @Benchmark
+    public long streamTransactions(Blackhole blackhole) throws IOException {
+        return feedReader.read(new ByteArrayInputStream(body), blackhole::consume);
+    }
+
+    @Benchmark
+    public long decodeColumns() throws IOException {
+        RoundUpAggregator aggregator = new RoundUpAggregator("GBP");
+        feedDecoder.decode(new ByteArrayInputStream(body), new TransactionColumns(1024), aggregator);
+        return aggregator.getRoundUpTotal();
+    }
+}
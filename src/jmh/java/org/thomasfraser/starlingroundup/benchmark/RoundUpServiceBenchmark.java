@@ -0,0 +1,71 @@
+package org.thomasfraser.starlingroundup.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.thomasfraser.starlingroundup.StarlingRoundUpApplication;
+import org.thomasfraser.starlingroundup.service.RoundUpService;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole {@link RoundUpService#calculateAndTransferRoundUp()} round trip, with the application
+ * context wired as in production but pointed at {@link StubStarlingApi} over loopback HTTP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundUpServiceBenchmark {
+
+    @Param({"100", "10000"})
+    private int feedSize;
+
+    @Param({"false", "true"})
+    private boolean streaming;
+
+    private StubStarlingApi stubStarlingApi;
+    private ConfigurableApplicationContext context;
+    private RoundUpService roundUpService;
+
+    @Setup
+    public void setUp() throws Exception {
+        stubStarlingApi = new StubStarlingApi(SyntheticFeed.json(feedSize));
+        context = new SpringApplicationBuilder(StarlingRoundUpApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--starling.api.baseUrl=" + stubStarlingApi.getBaseUrl(),
+                        "--starling.api.token=benchmark",
+                        "--starling.roundup.feed.streaming=" + streaming,
+                        // Every invocation has to round up the same window
+                        "--starling.roundup.watermark.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        roundUpService = context.getBean(RoundUpService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        stubStarlingApi.close();
+    }
+
+    @Benchmark
+    public BigDecimal calculateAndTransferRoundUp() throws Exception {
+        return roundUpService.calculateAndTransferRoundUp();
+    }
+}
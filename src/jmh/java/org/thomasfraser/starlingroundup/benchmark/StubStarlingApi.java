@@ -0,0 +1,89 @@
+package org.thomasfraser.starlingroundup.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An in-process stand-in for the Starling API on a loopback port, serving one account with an
+ * existing RoundUp2025 savings goal and a fixed transaction feed, and accepting every transfer.
+ */
+public class StubStarlingApi implements AutoCloseable {
+
+    public static final String ACCOUNT_UID = "00000000-0000-4000-8000-000000000001";
+    private static final String SAVINGS_GOAL_UID = "00000000-0000-4000-8000-000000000002";
+
+    private static final byte[] ACCOUNTS = ("{\"accounts\":[{\"accountUid\":\"" + ACCOUNT_UID + "\","
+            + "\"accountType\":\"PRIMARY\",\"defaultCategory\":\"" + ACCOUNT_UID + "\",\"currency\":\"GBP\","
+            + "\"createdAt\":\"2025-01-01T00:00:00.000Z\",\"name\":\"Personal\"}]}").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SAVINGS_GOALS = ("{\"savingsGoalList\":[{\"savingsGoalUid\":\"" + SAVINGS_GOAL_UID + "\","
+            + "\"name\":\"RoundUp2025\",\"target\":{\"currency\":\"GBP\",\"minorUnits\":100000},"
+            + "\"totalSaved\":{\"currency\":\"GBP\",\"minorUnits\":0},\"savedPercentage\":0,\"state\":\"ACTIVE\"}]}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TRANSFER = ("{\"transferUid\":\"" + SAVINGS_GOAL_UID + "\",\"success\":true}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] feed;
+
+    static {
+        // Without TCP_NODELAY, Nagle and delayed ACKs add tens of milliseconds to every exchange
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    public StubStarlingApi(byte[] feed) throws IOException {
+        this.feed = feed;
+        this.executor = Executors.newFixedThreadPool(4);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/v2/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/v2";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream requestBody = exchange.getRequestBody()) {
+            requestBody.readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+
+            if (path.endsWith("/accounts")) {
+                respond(exchange, ACCOUNTS);
+            } else if (path.endsWith("/settled-transactions-between")) {
+                respond(exchange, feed);
+            } else if (path.endsWith("/savings-goals") && "GET".equals(method)) {
+                respond(exchange, SAVINGS_GOALS);
+            } else if (path.contains("/add-money/") && "PUT".equals(method)) {
+                respond(exchange, TRANSFER);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
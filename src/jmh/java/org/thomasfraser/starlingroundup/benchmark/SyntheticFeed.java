@@ -0,0 +1,75 @@
+package org.thomasfraser.starlingroundup.benchmark;
+
+import org.thomasfraser.starlingroundup.dto.AmountDto;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic transaction feeds for the benchmarks: mostly outgoing GBP card payments
+ * with a mix of incoming and foreign-currency items so the filters have work to do.
+ */
+public final class SyntheticFeed {
+
+    private static final long SEED = 20250101L;
+
+    private SyntheticFeed() {
+    }
+
+    public static List<TransactionDto> transactions(int size) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<TransactionDto> transactions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            AmountDto amount = new AmountDto();
+            amount.setCurrency(random.nextInt(10) == 0 ? "EUR" : "GBP");
+            amount.setMinorUnits(random.nextLong(1, 20_000));
+
+            TransactionDto transaction = new TransactionDto();
+            transaction.setDirection(random.nextInt(5) == 0 ? "IN" : "OUT");
+            transaction.setAmount(amount);
+            transaction.setStatus("SETTLED");
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * The same feed as {@link #transactions(int)}, rendered as a Starling feed response body including
+     * the fields the round up ignores.
+     */
+    public static byte[] json(int size) {
+        StringBuilder json = new StringBuilder(size * 400 + 16).append("{\"feedItems\":[");
+        int i = 0;
+        for (TransactionDto transaction : transactions(size)) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"feedItemUid\":\"").append(uid(i)).append('"')
+                    .append(",\"categoryUid\":\"").append(uid(i + 1)).append('"')
+                    .append(",\"amount\":{\"currency\":\"").append(transaction.getAmount().getCurrency())
+                    .append("\",\"minorUnits\":").append(transaction.getAmount().getMinorUnits()).append('}')
+                    .append(",\"sourceAmount\":{\"currency\":\"").append(transaction.getAmount().getCurrency())
+                    .append("\",\"minorUnits\":").append(transaction.getAmount().getMinorUnits()).append('}')
+                    .append(",\"direction\":\"").append(transaction.getDirection()).append('"')
+                    .append(",\"updatedAt\":\"2025-01-01T12:00:00.000Z\"")
+                    .append(",\"transactionTime\":\"2025-01-01T12:00:00.000Z\"")
+                    .append(",\"settlementTime\":\"2025-01-01T12:00:00.000Z\"")
+                    .append(",\"source\":\"MASTER_CARD\"")
+                    .append(",\"status\":\"").append(transaction.getStatus()).append('"')
+                    .append(",\"counterPartyType\":\"MERCHANT\"")
+                    .append(",\"counterPartyName\":\"Benchmark Merchant ").append(i % 97).append('"')
+                    .append(",\"reference\":\"BENCHMARK\"")
+                    .append(",\"country\":\"GB\"")
+                    .append(",\"spendingCategory\":\"GROCERIES\"}");
+            i++;
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String uid(int i) {
+        return String.format("00000000-0000-4000-8000-%012d", i);
+    }
+}
@@ -0,0 +1,75 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.thomasfraser.starlingroundup.aggregation.RoundUpAggregator;
+import org.thomasfraser.starlingroundup.aggregation.TransactionCodes;
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
+import org.thomasfraser.starlingroundup.benchmark.SyntheticFeed;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The round up arithmetic on its own, over feeds that are already in memory: the object path used
+ * by the list and reactive round ups, and the column kernel used by the streaming round up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundUpCalculatorBenchmark {
+
+    private static final String ACCOUNT_CURRENCY = "GBP";
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int feedSize;
+
+    private List<TransactionDto> transactions;
+    private TransactionColumns columns;
+
+    @Setup
+    public void setUp() {
+        transactions = SyntheticFeed.transactions(feedSize);
+        columns = new TransactionColumns(feedSize);
+        for (TransactionDto transaction : transactions) {
+            columns.add(transaction.getAmount().getMinorUnits(),
+                    TransactionCodes.of(transaction.getDirection(), transaction.getAmount().getCurrency()));
+        }
+    }
+
+    @Benchmark
+    public void isValidTransaction(Blackhole blackhole) {
+        for (TransactionDto transaction : transactions) {
+            blackhole.consume(RoundUpCalculator.isValidTransaction(transaction, ACCOUNT_CURRENCY));
+        }
+    }
+
+    @Benchmark
+    public long calculateRoundUp() {
+        List<TransactionDto> validTransactions = transactions.stream()
+                .filter(transaction -> RoundUpCalculator.isValidTransaction(transaction, ACCOUNT_CURRENCY))
+                .toList();
+        return RoundUpCalculator.calculateRoundUp(validTransactions);
+    }
+
+    @Benchmark
+    public long sumRoundUpColumns() {
+        RoundUpAggregator aggregator = new RoundUpAggregator(ACCOUNT_CURRENCY);
+        aggregator.accept(columns);
+        return aggregator.getRoundUpTotal();
+    }
+}
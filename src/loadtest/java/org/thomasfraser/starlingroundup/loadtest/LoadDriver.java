@@ -0,0 +1,181 @@
+package org.thomasfraser.starlingroundup.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.thomasfraser.starlingroundup.StarlingRoundUpApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Drives {@code GET /api/roundup} from a fixed number of closed-loop clients against the whole application,
+ * wired as in production but pointed at {@link StarlingApiSimulator}, and reports throughput and latency
+ * percentiles. Requests that start during the warm up are not counted.
+ * <p>
+ * Settings are read from {@code loadtest.*} system properties; the program arguments are passed to the
+ * application, e.g. {@code --starling.roundup.feed.streaming=false}.
+ */
+public final class LoadDriver {
+
+    private LoadDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+        Duration warmup = duration("loadtest.warmup", "10s");
+        Duration duration = duration("loadtest.duration", "30s");
+
+        SimulatorSettings settings = new SimulatorSettings();
+        settings.setFeedSize(Integer.getInteger("loadtest.feedSize", settings.getFeedSize()));
+        settings.setLatencyMedian(duration("loadtest.latencyMedian", "20ms"));
+        settings.setLatencyP99(duration("loadtest.latencyP99", "200ms"));
+        settings.setErrorRate(Double.parseDouble(System.getProperty("loadtest.errorRate", "0")));
+        settings.setThrottleRate(Double.parseDouble(System.getProperty("loadtest.throttleRate", "0")));
+
+        try (StarlingApiSimulator simulator = new StarlingApiSimulator(settings);
+             ConfigurableApplicationContext context = startApplication(simulator, args)) {
+            String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/roundup";
+            System.out.printf(Locale.ROOT, "Load test:  %d clients, %ds warm up then %ds against %s%n", concurrency,
+                    warmup.toSeconds(), duration.toSeconds(), simulator.getBaseUrl());
+            System.out.printf(Locale.ROOT, "Simulator:  %d feed items, latency p50 %dms p99 %dms, %.1f%% 503s, %.1f%% 429s%n",
+                    settings.getFeedSize(), settings.getLatencyMedian().toMillis(), settings.getLatencyP99().toMillis(),
+                    settings.getErrorRate() * 100, settings.getThrottleRate() * 100);
+
+            Result result = run(url, concurrency, warmup, duration);
+            report(result, duration, simulator);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(StarlingApiSimulator simulator, String[] args) {
+        String[] defaults = {
+                "--server.port=0",
+                "--starling.api.baseUrl=" + simulator.getBaseUrl(),
+                "--starling.api.token=loadtest",
+                // Every request has to round up the same window, and nothing else may call the simulator
+                "--starling.roundup.watermark.enabled=false",
+                "--starling.roundup.schedule.enabled=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"
+        };
+        return new SpringApplicationBuilder(StarlingRoundUpApplication.class)
+                .run(Stream.concat(Arrays.stream(defaults), Arrays.stream(args)).toArray(String[]::new));
+    }
+
+    private static Result run(String url, int concurrency, Duration warmup, Duration duration) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).GET().build();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureTo = measureFrom + duration.toNanos();
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(clients.submit(() -> client(httpClient, request, measureFrom, measureTo)));
+            }
+            Result total = new Result();
+            for (Future<Result> future : futures) {
+                total.add(future.get());
+            }
+            return total;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private static Result client(HttpClient httpClient, HttpRequest request, long measureFrom, long measureTo) {
+        Result result = new Result();
+        long start;
+        while ((start = System.nanoTime()) < measureTo) {
+            boolean succeeded;
+            try {
+                succeeded = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+            } catch (Exception e) {
+                succeeded = false;
+            }
+            long end = System.nanoTime();
+            if (start >= measureFrom && end <= measureTo) {
+                result.record(end - start, succeeded);
+            }
+        }
+        return result;
+    }
+
+    private static void report(Result result, Duration duration, StarlingApiSimulator simulator) {
+        long[] latencies = result.sortedLatencies();
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf(Locale.ROOT, "Requests:   %d (%d ok, %d failed)%n", latencies.length, result.succeeded, result.failed);
+        System.out.printf(Locale.ROOT, "Throughput: %.1f req/s%n", latencies.length / seconds);
+        System.out.printf(Locale.ROOT, "Latency ms: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+        System.out.printf(Locale.ROOT, "Upstream:   %d calls including warm up, %d 503s and %d 429s injected, %d transfers%n",
+                simulator.getRequests(), simulator.getErrorsInjected(), simulator.getThrottlesInjected(), simulator.getTransfers());
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+
+    /**
+     * Latencies of one client, merged once the run is over so the clients never contend while recording.
+     */
+    private static final class Result {
+
+        private long[] latencies = new long[1024];
+        private int size;
+        private long succeeded;
+        private long failed;
+
+        void record(long latencyNanos, boolean success) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            if (success) {
+                succeeded++;
+            } else {
+                failed++;
+            }
+        }
+
+        void add(Result other) {
+            if (size + other.size > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, size + other.size));
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            size += other.size;
+            succeeded += other.succeeded;
+            failed += other.failed;
+        }
+
+        long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.thomasfraser.starlingroundup.loadtest;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * How {@link StarlingApiSimulator} behaves. Latency is drawn from a log-normal distribution fitted to
+ * the median and 99th percentile, which is close to what remote APIs show: mostly fast, with a long tail.
+ */
+@Getter
+@Setter
+public class SimulatorSettings {
+
+    // Items in every feed response
+    private int feedSize = 1000;
+    private Duration latencyMedian = Duration.ofMillis(20);
+    private Duration latencyP99 = Duration.ofMillis(200);
+    // Fraction of calls answered with 503 Service Unavailable
+    private double errorRate = 0.0;
+    // Fraction of calls answered with 429 Too Many Requests
+    private double throttleRate = 0.0;
+    private Duration retryAfter = Duration.ofSeconds(1);
+    // Gzip responses for clients that ask for it
+    private boolean compression = true;
+    private int threads = 64;
+    private long seed = 20250101L;
+}
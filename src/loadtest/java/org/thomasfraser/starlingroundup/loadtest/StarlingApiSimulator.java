@@ -0,0 +1,219 @@
+package org.thomasfraser.starlingroundup.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An embeddable stand-in for the Starling API on a loopback port, for load testing the whole application
+ * offline. It serves one primary GBP account with an existing RoundUp2025 savings goal, a synthetic settled
+ * transaction feed, and accepts every transfer, with latency, 503s and 429s injected as configured.
+ */
+public class StarlingApiSimulator implements AutoCloseable {
+
+    public static final String ACCOUNT_UID = "00000000-0000-4000-8000-000000000001";
+    private static final String SAVINGS_GOAL_UID = "00000000-0000-4000-8000-000000000002";
+
+    private static final byte[] ACCOUNTS = ("{\"accounts\":[{\"accountUid\":\"" + ACCOUNT_UID + "\","
+            + "\"accountType\":\"PRIMARY\",\"defaultCategory\":\"" + ACCOUNT_UID + "\",\"currency\":\"GBP\","
+            + "\"createdAt\":\"2025-01-01T00:00:00.000Z\",\"name\":\"Personal\"}]}").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SAVINGS_GOALS = ("{\"savingsGoalList\":[{\"savingsGoalUid\":\"" + SAVINGS_GOAL_UID + "\","
+            + "\"name\":\"RoundUp2025\",\"target\":{\"currency\":\"GBP\",\"minorUnits\":100000},"
+            + "\"totalSaved\":{\"currency\":\"GBP\",\"minorUnits\":0},\"savedPercentage\":0,\"state\":\"ACTIVE\"}]}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SAVINGS_GOAL_CREATED = ("{\"savingsGoalUid\":\"" + SAVINGS_GOAL_UID + "\",\"success\":true}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TRANSFER = ("{\"transferUid\":\"" + SAVINGS_GOAL_UID + "\",\"success\":true}")
+            .getBytes(StandardCharsets.UTF_8);
+    // Standard normal quantile of the 99th percentile
+    private static final double Z_99 = 2.326;
+
+    private final SimulatorSettings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] feed;
+    private final byte[] gzippedFeed;
+    private final double latencyMu;
+    private final double latencySigma;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errorsInjected = new AtomicLong();
+    private final AtomicLong throttlesInjected = new AtomicLong();
+    private final AtomicLong transfers = new AtomicLong();
+
+    static {
+        // Without TCP_NODELAY, Nagle and delayed ACKs add tens of milliseconds to every exchange
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    public StarlingApiSimulator(SimulatorSettings settings) throws IOException {
+        this.settings = settings;
+        this.feed = feed(settings.getFeedSize(), settings.getSeed());
+        this.gzippedFeed = gzip(feed);
+        double medianMillis = Math.max(settings.getLatencyMedian().toNanos() / 1e6, 0.001);
+        double p99Millis = Math.max(settings.getLatencyP99().toNanos() / 1e6, medianMillis);
+        this.latencyMu = Math.log(medianMillis);
+        this.latencySigma = Math.log(p99Millis / medianMillis) / Z_99;
+
+        this.executor = Executors.newFixedThreadPool(settings.getThreads());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/v2/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/v2";
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getErrorsInjected() {
+        return errorsInjected.get();
+    }
+
+    public long getThrottlesInjected() {
+        return throttlesInjected.get();
+    }
+
+    public long getTransfers() {
+        return transfers.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream requestBody = exchange.getRequestBody()) {
+            requestBody.readAllBytes();
+            requests.incrementAndGet();
+            sleep(sampleLatencyNanos());
+
+            double fault = ThreadLocalRandom.current().nextDouble();
+            if (fault < settings.getThrottleRate()) {
+                throttlesInjected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(Math.max(1, settings.getRetryAfter().toSeconds())));
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+            if (fault < settings.getThrottleRate() + settings.getErrorRate()) {
+                errorsInjected.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.endsWith("/accounts")) {
+                respond(exchange, ACCOUNTS);
+            } else if (path.endsWith("/settled-transactions-between")) {
+                respondWithFeed(exchange);
+            } else if (path.endsWith("/savings-goals") && "GET".equals(method)) {
+                respond(exchange, SAVINGS_GOALS);
+            } else if (path.endsWith("/savings-goals") && "PUT".equals(method)) {
+                respond(exchange, SAVINGS_GOAL_CREATED);
+            } else if (path.contains("/add-money/") && "PUT".equals(method)) {
+                transfers.incrementAndGet();
+                respond(exchange, TRANSFER);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        }
+    }
+
+    private void respondWithFeed(HttpExchange exchange) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (settings.isCompression() && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            respond(exchange, gzippedFeed);
+        } else {
+            respond(exchange, feed);
+        }
+    }
+
+    private long sampleLatencyNanos() {
+        double millis = Math.exp(latencyMu + latencySigma * ThreadLocalRandom.current().nextGaussian());
+        return (long) (millis * 1_000_000);
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    /**
+     * Mostly outgoing GBP card payments, with incoming and foreign-currency items mixed in, rendered with
+     * the fields of a real feed item that the round up ignores.
+     */
+    static byte[] feed(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder json = new StringBuilder(size * 450 + 16).append("{\"feedItems\":[");
+        for (int i = 0; i < size; i++) {
+            String currency = random.nextInt(10) == 0 ? "EUR" : "GBP";
+            long minorUnits = random.nextLong(1, 20_000);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"feedItemUid\":\"").append(uid(i)).append('"')
+                    .append(",\"categoryUid\":\"").append(ACCOUNT_UID).append('"')
+                    .append(",\"amount\":{\"currency\":\"").append(currency).append("\",\"minorUnits\":").append(minorUnits).append('}')
+                    .append(",\"sourceAmount\":{\"currency\":\"").append(currency).append("\",\"minorUnits\":").append(minorUnits).append('}')
+                    .append(",\"direction\":\"").append(random.nextInt(5) == 0 ? "IN" : "OUT").append('"')
+                    .append(",\"updatedAt\":\"2025-01-01T12:00:00.000Z\"")
+                    .append(",\"transactionTime\":\"2025-01-01T12:00:00.000Z\"")
+                    .append(",\"settlementTime\":\"2025-01-01T12:00:00.000Z\"")
+                    .append(",\"source\":\"MASTER_CARD\"")
+                    .append(",\"status\":\"SETTLED\"")
+                    .append(",\"counterPartyType\":\"MERCHANT\"")
+                    .append(",\"counterPartyName\":\"Simulated Merchant ").append(i % 97).append('"')
+                    .append(",\"reference\":\"SIMULATED\"")
+                    .append(",\"country\":\"GB\"")
+                    .append(",\"spendingCategory\":\"GROCERIES\"}");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String uid(int i) {
+        return String.format("00000000-0000-4000-8000-%012d", i);
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,98 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the {@code feedItems} of a transaction feed response straight into {@link TransactionColumns},
+ * reading only the direction and amount of each item and skipping everything else token by token.
+ * No object is created per feed item.
+ */
+public class PackedFeedDecoder {
+
+    private final JsonFactory jsonFactory;
+
+    public PackedFeedDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Fills the columns from the response body, handing them to the consumer each time they are full
+     * and once more at the end. Returns the number of feed items decoded.
+     */
+    public long decode(InputStream body, TransactionColumns columns, Consumer<TransactionColumns> batchConsumer) throws IOException {
+        long itemsDecoded = 0;
+        columns.clear();
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object at the start of the transaction feed");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+
+                if ("feedItems".equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        decodeItem(parser, columns);
+                        itemsDecoded++;
+                        if (columns.isFull()) {
+                            batchConsumer.accept(columns);
+                            columns.clear();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (columns.size() > 0) {
+            batchConsumer.accept(columns);
+            columns.clear();
+        }
+        return itemsDecoded;
+    }
+
+    private void decodeItem(JsonParser parser, TransactionColumns columns) throws IOException {
+        int direction = 0;
+        int currency = 0;
+        long minorUnits = 0;
+        int category = SpendingCategory.UNKNOWN;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            // Field names are canonicalized by the parser, so reading and comparing them allocates nothing
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+
+            if ("direction".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                direction = TransactionCodes.direction(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            } else if ("spendingCategory".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                category = SpendingCategory.idOf(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            } else if ("amount".equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String amountField = parser.currentName();
+                    JsonToken amountToken = parser.nextToken();
+
+                    if ("minorUnits".equals(amountField) && amountToken == JsonToken.VALUE_NUMBER_INT) {
+                        minorUnits = parser.getLongValue();
+                    } else if ("currency".equals(amountField) && amountToken == JsonToken.VALUE_STRING) {
+                        currency = TransactionCodes.currency(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        columns.add(minorUnits, TransactionCodes.pack(direction, currency), category);
+    }
+}
@@ -0,0 +1,40 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+import java.util.function.Consumer;
+
+/**
+ * Accumulates the round up of outgoing transactions in one currency, one column batch at a time,
+ * with the account's {@link RoundingStrategy}.
+ */
+public class RoundUpAggregator implements Consumer<TransactionColumns> {
+
+    private final int acceptedCode;
+    private final RoundingStrategy roundingStrategy;
+    private long roundUpTotal;
+    private long transactionsScanned;
+
+    public RoundUpAggregator(String accountCurrency) {
+        this(accountCurrency, RoundingStrategy.NEXT_POUND);
+    }
+
+    public RoundUpAggregator(String accountCurrency, RoundingStrategy roundingStrategy) {
+        this.roundingStrategy = roundingStrategy;
+        int code = TransactionCodes.of("OUT", accountCurrency);
+        // An unrecognised account currency must not match the 0 code of unrecognised transactions
+        this.acceptedCode = code == 0 ? -1 : code;
+    }
+
+    @Override
+    public void accept(TransactionColumns batch) {
+        roundUpTotal += roundingStrategy.sumRoundUps(batch.minorUnits(), batch.codes(), batch.categories(), batch.size(), acceptedCode);
+        transactionsScanned += batch.size();
+    }
+
+    public long getRoundUpTotal() {
+        return roundUpTotal;
+    }
+
+    public long getTransactionsScanned() {
+        return transactionsScanned;
+    }
+}
@@ -0,0 +1,26 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+/**
+ * Tight loop summing round ups over primitive transaction columns.
+ */
+public final class RoundUpKernel {
+
+    private RoundUpKernel() {
+    }
+
+    /**
+     * Sums the amount needed to round every accepted transaction up to the next 100 minor units.
+     * A transaction is accepted when its code equals {@code acceptedCode} and its amount is positive.
+     */
+    public static long sumRoundUps(long[] minorUnits, int[] codes, int size, int acceptedCode) {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            long amount = minorUnits[i];
+            long remainder = amount % 100;
+            // Branch free so the loop stays predictable on mixed feeds
+            boolean accepted = codes[i] == acceptedCode & amount > 0 & remainder != 0;
+            total += accepted ? 100 - remainder : 0;
+        }
+        return total;
+    }
+}
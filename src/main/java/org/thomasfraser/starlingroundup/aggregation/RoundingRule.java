@@ -0,0 +1,23 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+/**
+ * How a single transaction is rounded up: to the next multiple of {@code increment} minor units,
+ * multiplied by {@code multiplier}, and then limited to {@code cap} minor units (0 for no cap).
+ */
+public record RoundingRule(long increment, long multiplier, long cap) {
+
+    public static final RoundingRule NEXT_POUND = new RoundingRule(100, 1, 0);
+
+    public RoundingRule {
+        if (increment < 1 || multiplier < 1 || cap < 0) {
+            throw new IllegalArgumentException("Invalid rounding rule: increment " + increment
+                    + ", multiplier " + multiplier + ", cap " + cap);
+        }
+    }
+
+    public long roundUp(long minorUnits) {
+        long remainder = minorUnits % increment;
+        long roundUp = remainder == 0 ? 0 : (increment - remainder) * multiplier;
+        return cap == 0 ? roundUp : Math.min(roundUp, cap);
+    }
+}
@@ -0,0 +1,162 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+import java.util.Map;
+
+/**
+ * Evaluates the rounding rules of an account over batches of transaction columns.
+ * Strategies are compiled from the rules once, into the simplest loop that implements them, so the
+ * common cases keep a tight, branch-free loop the JIT can unroll and the default keeps the constant
+ * modulus of {@link RoundUpKernel}.
+ */
+public interface RoundingStrategy {
+
+    RoundingStrategy NEXT_POUND = compile(RoundingRule.NEXT_POUND, Map.of());
+
+    /**
+     * The round up of a single positive amount.
+     */
+    long roundUp(long minorUnits, int category);
+
+    /**
+     * Sums the round ups of every transaction whose code equals {@code acceptedCode} and whose amount is positive.
+     */
+    long sumRoundUps(long[] minorUnits, int[] codes, int[] categories, int size, int acceptedCode);
+
+    static RoundingStrategy compile(RoundingRule defaultRule, Map<SpendingCategory, RoundingRule> categoryRules) {
+        if (!categoryRules.isEmpty()) {
+            return new CategoryRounding(defaultRule, categoryRules);
+        }
+        if (defaultRule.equals(RoundingRule.NEXT_POUND)) {
+            return new NextPoundRounding();
+        }
+        return defaultRule.cap() == 0 ? new IncrementRounding(defaultRule) : new CappedRounding(defaultRule);
+    }
+
+    /**
+     * The original rule, on the kernel the JIT can strength-reduce the modulus of.
+     */
+    final class NextPoundRounding implements RoundingStrategy {
+
+        @Override
+        public long roundUp(long minorUnits, int category) {
+            return RoundingRule.NEXT_POUND.roundUp(minorUnits);
+        }
+
+        @Override
+        public long sumRoundUps(long[] minorUnits, int[] codes, int[] categories, int size, int acceptedCode) {
+            return RoundUpKernel.sumRoundUps(minorUnits, codes, size, acceptedCode);
+        }
+    }
+
+    /**
+     * One increment and multiplier for every transaction. The multiplier distributes over the sum,
+     * so it is applied once at the end rather than per transaction.
+     */
+    final class IncrementRounding implements RoundingStrategy {
+
+        private final RoundingRule rule;
+        private final long increment;
+        private final long multiplier;
+
+        IncrementRounding(RoundingRule rule) {
+            this.rule = rule;
+            this.increment = rule.increment();
+            this.multiplier = rule.multiplier();
+        }
+
+        @Override
+        public long roundUp(long minorUnits, int category) {
+            return rule.roundUp(minorUnits);
+        }
+
+        @Override
+        public long sumRoundUps(long[] minorUnits, int[] codes, int[] categories, int size, int acceptedCode) {
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                long amount = minorUnits[i];
+                long remainder = amount % increment;
+                boolean accepted = codes[i] == acceptedCode & amount > 0 & remainder != 0;
+                total += accepted ? increment - remainder : 0;
+            }
+            return total * multiplier;
+        }
+    }
+
+    /**
+     * One rule for every transaction, with a cap applied to each round up.
+     */
+    final class CappedRounding implements RoundingStrategy {
+
+        private final RoundingRule rule;
+        private final long increment;
+        private final long multiplier;
+        private final long cap;
+
+        CappedRounding(RoundingRule rule) {
+            this.rule = rule;
+            this.increment = rule.increment();
+            this.multiplier = rule.multiplier();
+            this.cap = rule.cap();
+        }
+
+        @Override
+        public long roundUp(long minorUnits, int category) {
+            return rule.roundUp(minorUnits);
+        }
+
+        @Override
+        public long sumRoundUps(long[] minorUnits, int[] codes, int[] categories, int size, int acceptedCode) {
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                long amount = minorUnits[i];
+                long remainder = amount % increment;
+                boolean accepted = codes[i] == acceptedCode & amount > 0 & remainder != 0;
+                total += accepted ? Math.min((increment - remainder) * multiplier, cap) : 0;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Rules that differ by spending category, held as tables indexed by category id so each
+     * transaction looks its rule up without branching on the category.
+     */
+    final class CategoryRounding implements RoundingStrategy {
+
+        private final RoundingRule[] rules = new RoundingRule[SpendingCategory.ID_COUNT];
+        private final long[] increments = new long[SpendingCategory.ID_COUNT];
+        private final long[] multipliers = new long[SpendingCategory.ID_COUNT];
+        private final long[] caps = new long[SpendingCategory.ID_COUNT];
+
+        CategoryRounding(RoundingRule defaultRule, Map<SpendingCategory, RoundingRule> categoryRules) {
+            for (int id = 0; id < SpendingCategory.ID_COUNT; id++) {
+                rules[id] = defaultRule;
+            }
+            categoryRules.forEach((category, rule) -> rules[category.getId()] = rule);
+            for (int id = 0; id < SpendingCategory.ID_COUNT; id++) {
+                increments[id] = rules[id].increment();
+                multipliers[id] = rules[id].multiplier();
+                caps[id] = rules[id].cap() == 0 ? Long.MAX_VALUE : rules[id].cap();
+            }
+        }
+
+        @Override
+        public long roundUp(long minorUnits, int category) {
+            return rules[category].roundUp(minorUnits);
+        }
+
+        @Override
+        public long sumRoundUps(long[] minorUnits, int[] codes, int[] categories, int size, int acceptedCode) {
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                int category = categories[i];
+                long increment = increments[category];
+                long amount = minorUnits[i];
+                long remainder = amount % increment;
+                boolean accepted = codes[i] == acceptedCode & amount > 0 & remainder != 0;
+                total += accepted ? Math.min((increment - remainder) * multipliers[category], caps[category]) : 0;
+            }
+            return total;
+        }
+    }
+}
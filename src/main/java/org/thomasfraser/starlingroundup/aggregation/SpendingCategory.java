@@ -0,0 +1,79 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+/**
+ * The Starling spending categories a feed item can carry, so rounding rules can differ by category.
+ * Each category has a small integer id, with 0 meaning missing or unrecognised. The ids are written to the
+ * local transaction store, so new categories must only ever be added at the end.
+ */
+public enum SpendingCategory {
+
+    BIKE, BILLS_AND_SERVICES, BUCKET_LIST, CAR, CASH, CELEBRATION, CHARITY, CHILDREN, CLOTHES, COFFEE,
+    DEBT_REPAYMENT, DIY, DRINKS, EATING_OUT, EDUCATION, EMERGENCY, ENTERTAINMENT, ESSENTIAL_SPEND, EXPENSES, FAMILY,
+    FITNESS, FUEL, GAMBLING, GAMING, GARDEN, GENERAL, GIFTS, GROCERIES, HOBBY, HOLIDAYS,
+    HOME, IMPULSE_BUY, INCOME, INSURANCE, INVESTMENTS, LIFESTYLE, MAINTENANCE_AND_REPAIRS, MEDICAL, MORTGAGE, NON_ESSENTIAL_SPEND,
+    PAYMENTS, PERSONAL_CARE, PERSONAL_TRANSFERS, PETS, PROJECTS, RELATIONSHIPS, RENT, SAVING, SHOPPING, SUBSCRIPTIONS,
+    TAKEAWAY, TAXI, TRANSPORT, TRAVEL, UTILITIES, VEHICLES, OTHER, NONE;
+
+    public static final int UNKNOWN = 0;
+    // Number of ids including UNKNOWN, the size of a table indexed by category id
+    public static final int ID_COUNT = values().length + 1;
+
+    private static final SpendingCategory[] VALUES = values();
+    private static final int TABLE_MASK = 255;
+    // Open addressing table from the hash of a name to its id, so decoding a category allocates nothing
+    private static final byte[] TABLE = new byte[TABLE_MASK + 1];
+
+    static {
+        for (SpendingCategory category : VALUES) {
+            char[] name = category.name().toCharArray();
+            int slot = hash(name, 0, name.length) & TABLE_MASK;
+            while (TABLE[slot] != 0) {
+                slot = (slot + 1) & TABLE_MASK;
+            }
+            TABLE[slot] = (byte) category.getId();
+        }
+    }
+
+    public int getId() {
+        return ordinal() + 1;
+    }
+
+    public static int idOf(String name) {
+        return name == null ? UNKNOWN : idOf(name.toCharArray(), 0, name.length());
+    }
+
+    /**
+     * Decodes a category name from the given characters, returning {@link #UNKNOWN} for names not listed here.
+     */
+    public static int idOf(char[] chars, int offset, int length) {
+        int slot = hash(chars, offset, length) & TABLE_MASK;
+        while (TABLE[slot] != 0) {
+            int id = TABLE[slot];
+            if (matches(VALUES[id - 1].name(), chars, offset, length)) {
+                return id;
+            }
+            slot = (slot + 1) & TABLE_MASK;
+        }
+        return UNKNOWN;
+    }
+
+    private static int hash(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + chars[offset + i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, char[] chars, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+/**
+ * Packs a transaction's direction and currency into a single int, so transactions can be filtered
+ * with one integer comparison instead of case-insensitive string comparisons.
+ * <p>
+ * Bits 0-23 hold the upper-cased ISO currency code, one ASCII letter per byte, and bits 24-25 hold the direction.
+ * A code of 0 means the direction or currency was missing or unrecognised, and matches nothing.
+ */
+public final class TransactionCodes {
+
+    public static final int DIRECTION_IN = 1 << 24;
+    public static final int DIRECTION_OUT = 2 << 24;
+
+    private static final int CURRENCY_MASK = 0xFFFFFF;
+    private static final int CURRENCY_LENGTH = 3;
+
+    private TransactionCodes() {
+    }
+
+    public static int of(String direction, String currency) {
+        if (direction == null || currency == null) {
+            return 0;
+        }
+        return pack(direction(direction.toCharArray(), 0, direction.length()),
+                currency(currency.toCharArray(), 0, currency.length()));
+    }
+
+    public static int pack(int direction, int currency) {
+        return direction == 0 || currency == 0 ? 0 : direction | currency;
+    }
+
+    /**
+     * Decodes a direction from the given characters, ignoring case.
+     */
+    public static int direction(char[] chars, int offset, int length) {
+        if (length == 3 && upper(chars[offset]) == 'O' && upper(chars[offset + 1]) == 'U' && upper(chars[offset + 2]) == 'T') {
+            return DIRECTION_OUT;
+        }
+        if (length == 2 && upper(chars[offset]) == 'I' && upper(chars[offset + 1]) == 'N') {
+            return DIRECTION_IN;
+        }
+        return 0;
+    }
+
+    /**
+     * Decodes a three letter currency code from the given characters, ignoring case.
+     */
+    public static int currency(char[] chars, int offset, int length) {
+        if (length != CURRENCY_LENGTH) {
+            return 0;
+        }
+
+        int code = 0;
+        for (int i = 0; i < CURRENCY_LENGTH; i++) {
+            char c = upper(chars[offset + i]);
+            if (c < 'A' || c > 'Z') {
+                return 0;
+            }
+            code = (code << 8) | c;
+        }
+        return code;
+    }
+
+    public static int currencyOf(int code) {
+        return code & CURRENCY_MASK;
+    }
+
+    private static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+}
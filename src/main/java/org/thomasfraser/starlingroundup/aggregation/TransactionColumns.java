@@ -0,0 +1,54 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+/**
+ * A fixed-size batch of transactions held as primitive columns: the amount in minor units,
+ * the packed {@link TransactionCodes} code and the {@link SpendingCategory} id. Reused batch after batch, so decoding allocates nothing per item.
+ */
+public class TransactionColumns {
+
+    private final long[] minorUnits;
+    private final int[] codes;
+    private final int[] categories;
+    private int size;
+
+    public TransactionColumns(int capacity) {
+        this.minorUnits = new long[capacity];
+        this.codes = new int[capacity];
+        this.categories = new int[capacity];
+    }
+
+    public void add(long amountMinorUnits, int code) {
+        add(amountMinorUnits, code, SpendingCategory.UNKNOWN);
+    }
+
+    public void add(long amountMinorUnits, int code, int category) {
+        minorUnits[size] = amountMinorUnits;
+        codes[size] = code;
+        categories[size] = category;
+        size++;
+    }
+
+    public boolean isFull() {
+        return size == minorUnits.length;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long[] minorUnits() {
+        return minorUnits;
+    }
+
+    public int[] codes() {
+        return codes;
+    }
+
+    public int[] categories() {
+        return categories;
+    }
+}
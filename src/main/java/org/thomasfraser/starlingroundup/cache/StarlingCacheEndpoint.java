@@ -0,0 +1,45 @@
+package org.thomasfraser.starlingroundup.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint for inspecting and explicitly invalidating the {@link StarlingLookupCache}.
+ * {@code DELETE /actuator/starlingcache} clears everything, {@code DELETE /actuator/starlingcache/{accountUid}}
+ * drops the savings goals of one account.
+ */
+@Component
+@Endpoint(id = "starlingcache")
+public class StarlingCacheEndpoint {
+
+    private final StarlingLookupCache lookupCache;
+
+    @Autowired
+    public StarlingCacheEndpoint(StarlingLookupCache lookupCache) {
+        this.lookupCache = lookupCache;
+    }
+
+    @ReadOperation
+    public Map<String, Long> sizes() {
+        return Map.of(
+                "accounts", lookupCache.accountsSize(),
+                "savingsGoals", lookupCache.savingsGoalsSize()
+        );
+    }
+
+    @DeleteOperation
+    public void invalidateAll() {
+        lookupCache.invalidateAll();
+    }
+
+    @DeleteOperation
+    public void invalidateAccount(@Selector String accountUid) {
+        lookupCache.invalidateSavingsGoals(accountUid);
+    }
+}
@@ -0,0 +1,100 @@
+package org.thomasfraser.starlingroundup.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.thomasfraser.starlingroundup.config.StarlingCacheProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Size-bounded, expiring cache for the accounts and savings goals lookups made on every round up.
+ * Accounts are cached per access token and savings goals per account UID.
+ */
+@Component
+@EnableConfigurationProperties(StarlingCacheProperties.class)
+public class StarlingLookupCache {
+
+    private final boolean enabled;
+    private final Cache<String, List<AccountDto>> accounts;
+    private final Cache<String, List<SavingsAccountDto>> savingsGoals;
+
+    @Autowired
+    public StarlingLookupCache(StarlingCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.accounts = buildCache(properties);
+        this.savingsGoals = buildCache(properties);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, accounts, "starling.accounts");
+        CaffeineCacheMetrics.monitor(meterRegistry, savingsGoals, "starling.savings-goals");
+    }
+
+    public List<AccountDto> getAccounts(String accessToken, Callable<List<AccountDto>> loader) throws Exception {
+        return get(accounts, accessToken, loader);
+    }
+
+    public List<SavingsAccountDto> getSavingsGoals(String accountUid, Callable<List<SavingsAccountDto>> loader) throws Exception {
+        return get(savingsGoals, accountUid, loader);
+    }
+
+    /**
+     * Adds a newly created savings goal to the cached goals of the account, so the next lookup
+     * sees it without going upstream. When the account's goals aren't cached there is nothing to update.
+     */
+    public void addSavingsGoal(String accountUid, SavingsAccountDto savingsGoal) {
+        savingsGoals.asMap().computeIfPresent(accountUid, (key, cachedGoals) -> {
+            List<SavingsAccountDto> updatedGoals = new ArrayList<>(cachedGoals);
+            updatedGoals.add(savingsGoal);
+            return List.copyOf(updatedGoals);
+        });
+    }
+
+    public void invalidateSavingsGoals(String accountUid) {
+        savingsGoals.invalidate(accountUid);
+    }
+
+    public void invalidateAll() {
+        accounts.invalidateAll();
+        savingsGoals.invalidateAll();
+    }
+
+    public long accountsSize() {
+        return accounts.estimatedSize();
+    }
+
+    public long savingsGoalsSize() {
+        return savingsGoals.estimatedSize();
+    }
+
+    private <V> List<V> get(Cache<String, List<V>> cache, String key, Callable<List<V>> loader) throws Exception {
+        if (!enabled) {
+            return loader.call();
+        }
+
+        List<V> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Loaded outside the cache so upstream failures propagate as they are; concurrent misses may both load
+        List<V> loaded = List.copyOf(loader.call());
+        cache.put(key, loaded);
+        return loaded;
+    }
+
+    private static <V> Cache<String, V> buildCache(StarlingCacheProperties properties) {
+        return Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build();
+    }
+}
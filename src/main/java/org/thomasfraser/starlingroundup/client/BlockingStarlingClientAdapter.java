@@ -0,0 +1,64 @@
+package org.thomasfraser.starlingroundup.client;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Exposes the blocking {@link StarlingClient} through {@link ReactiveStarlingApi}.
+ * Each call still holds a thread for its duration, it just runs on the bounded elastic scheduler.
+ */
+@Service
+@ConditionalOnProperty(name = "starling.client.mode", havingValue = "blocking")
+public class BlockingStarlingClientAdapter implements ReactiveStarlingApi {
+
+    private final StarlingClient starlingClient;
+
+    @Autowired
+    public BlockingStarlingClientAdapter(StarlingClient starlingClient) {
+        this.starlingClient = starlingClient;
+    }
+
+    @Override
+    public Flux<AccountDto> fetchClientAccounts() {
+        return Mono.fromCallable(starlingClient::fetchClientAccounts)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapIterable(accounts -> accounts);
+    }
+
+    @Override
+    public Flux<TransactionDto> fetchTransactions(String accountUuid, String minTimestamp, String maxTimestamp) {
+        return Mono.fromCallable(() -> starlingClient.fetchTransactions(accountUuid, minTimestamp, maxTimestamp))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapIterable(transactions -> transactions);
+    }
+
+    @Override
+    public Mono<Void> createSavingsGoal(String accountUuid, String accountCurrency, String savingsGoalsName) {
+        return Mono.<Void>fromCallable(() -> {
+                    starlingClient.createSavingsGoal(accountUuid, accountCurrency, savingsGoalsName);
+                    return null;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Flux<SavingsAccountDto> getSavingsGoals(String accountUuid) {
+        return Mono.fromCallable(() -> starlingClient.getSavingsGoals(accountUuid))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapIterable(savingsGoals -> savingsGoals);
+    }
+
+    @Override
+    public Mono<Boolean> addMoneyToSavingsGoal(String accountUuid, String currency, String savingsGoalUid, String transferUid,
+                                               long roundUpTotal) {
+        return Mono.fromCallable(() -> starlingClient.addMoneyToSavingsGoal(accountUuid, currency, savingsGoalUid, transferUid, roundUpTotal))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,142 @@
+package org.thomasfraser.starlingroundup.client;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decodes a gzip or deflate response body as it is read, counting the bytes on either side.
+ * The counts are recorded once, when the response is closed. Callers see the headers of
+ * an uncompressed response, without {@code Content-Encoding} or {@code Content-Length}.
+ */
+class DecodingClientHttpResponse implements ClientHttpResponse {
+
+    private final ClientHttpResponse delegate;
+    private final Counter wireBytes;
+    private final Counter decodedBytes;
+    private final String contentEncoding;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private CountingInputStream wireBody;
+    private CountingInputStream decodedBody;
+
+    DecodingClientHttpResponse(ClientHttpResponse delegate, Counter wireBytes, Counter decodedBytes) {
+        this.delegate = delegate;
+        this.wireBytes = wireBytes;
+        this.decodedBytes = decodedBytes;
+        String encoding = delegate.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+        this.contentEncoding = encoding == null ? null : encoding.trim().toLowerCase();
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+        return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+        return delegate.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        if (!isDecoded()) {
+            return delegate.getHeaders();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(delegate.getHeaders());
+        headers.remove(HttpHeaders.CONTENT_ENCODING);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        return headers;
+    }
+
+    @Override
+    public synchronized InputStream getBody() throws IOException {
+        // Converters may ask for the body more than once, the decoder has to be the same each time
+        if (decodedBody == null) {
+            wireBody = new CountingInputStream(delegate.getBody());
+            decodedBody = new CountingInputStream(isDecoded() ? decoder(wireBody) : wireBody);
+        }
+        return decodedBody;
+    }
+
+    @Override
+    public void close() {
+        try {
+            delegate.close();
+        } finally {
+            if (closed.compareAndSet(false, true)) {
+                recordBytes();
+            }
+        }
+    }
+
+    private synchronized void recordBytes() {
+        if (decodedBody != null) {
+            wireBytes.increment(wireBody.count);
+            decodedBytes.increment(decodedBody.count);
+        }
+    }
+
+    private boolean isDecoded() {
+        return "gzip".equals(contentEncoding) || "x-gzip".equals(contentEncoding) || "deflate".equals(contentEncoding);
+    }
+
+    private InputStream decoder(InputStream body) throws IOException {
+        // An empty body has no gzip header to read, so it is passed through as it is
+        PushbackInputStream pushback = new PushbackInputStream(body, 1);
+        int first = pushback.read();
+        if (first == -1) {
+            return pushback;
+        }
+        pushback.unread(first);
+        return "deflate".equals(contentEncoding) ? new InflaterInputStream(pushback) : new GZIPInputStream(pushback);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.thomasfraser.starlingroundup.client;
+
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking view of the Starling API operations used for round ups.
+ * The implementation is chosen with {@code starling.client.mode}: {@code reactive} (default) uses
+ * {@link WebClientStarlingClient}, {@code blocking} wraps {@link StarlingClient} so the two can be compared.
+ */
+public interface ReactiveStarlingApi {
+
+    Flux<AccountDto> fetchClientAccounts();
+
+    Flux<TransactionDto> fetchTransactions(String accountUuid, String minTimestamp, String maxTimestamp);
+
+    Mono<Void> createSavingsGoal(String accountUuid, String accountCurrency, String savingsGoalsName);
+
+    Flux<SavingsAccountDto> getSavingsGoals(String accountUuid);
+
+    Mono<Boolean> addMoneyToSavingsGoal(String accountUuid, String currency, String savingsGoalUid, String transferUid, long roundUpTotal);
+}
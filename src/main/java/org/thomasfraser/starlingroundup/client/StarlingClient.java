@@ -1,5 +1,6 @@
 package org.thomasfraser.starlingroundup.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,13 +9,21 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.thomasfraser.starlingroundup.aggregation.PackedFeedDecoder;
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
+import org.thomasfraser.starlingroundup.cache.StarlingLookupCache;
 import org.thomasfraser.starlingroundup.dto.*;
+import org.thomasfraser.starlingroundup.resilience.RetryExecutor;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Client class for interacting with the Starling API.
+ * Calls that are safe to repeat are retried on transient failures through {@link RetryExecutor}.
  */
 @Service
 public class StarlingClient {
@@ -30,7 +39,20 @@ public class StarlingClient {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StarlingLookupCache lookupCache;
+
+    @Autowired
+    private RetryExecutor retryExecutor;
+
     private static HttpEntity<SavingsGoalRequestDto> getSavingsGoalRequestDtoHttpEntity(HttpHeaders headers, String accountCurrency, String savingsGoalsName) {
+        return new HttpEntity<>(buildSavingsGoalRequest(accountCurrency, savingsGoalsName), headers);
+    }
+
+    static SavingsGoalRequestDto buildSavingsGoalRequest(String accountCurrency, String savingsGoalsName) {
         SavingsGoalRequestDto savingsGoalRequestDto = new SavingsGoalRequestDto();
         savingsGoalRequestDto.setName(savingsGoalsName);
         savingsGoalRequestDto.setCurrency(accountCurrency);
@@ -42,17 +64,45 @@ public class StarlingClient {
         savingsGoalRequestDto.setTarget(targetDto);
         savingsGoalRequestDto.setBase64EncodedPhoto("string");
 
-        return new HttpEntity<>(savingsGoalRequestDto, headers);
+        return savingsGoalRequestDto;
+    }
+
+    static TransferAmountDtoWrapper buildTransferAmount(String currency, long roundUpTotal) {
+        AmountDto amountDto = new AmountDto();
+        amountDto.setCurrency(currency);
+        amountDto.setMinorUnits(roundUpTotal);
+
+        TransferAmountDtoWrapper transferAmountDtoWrapper = new TransferAmountDtoWrapper();
+        transferAmountDtoWrapper.setAmount(amountDto);
+        return transferAmountDtoWrapper;
+    }
+
+    private HttpHeaders requestHeaders() {
+        // Batch round ups run on behalf of other customers, so their token replaces the configured one
+        return StarlingTokenContext.currentToken()
+                .map(accessToken -> {
+                    HttpHeaders tokenHeaders = new HttpHeaders();
+                    if (headers != null) {
+                        tokenHeaders.addAll(headers);
+                    }
+                    tokenHeaders.setBearerAuth(accessToken);
+                    return tokenHeaders;
+                })
+                .orElse(headers);
     }
 
     public List<AccountDto> fetchClientAccounts() throws Exception {
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-        ResponseEntity<AccountsResponseDto> response = restTemplate.exchange(
+        return lookupCache.getAccounts(StarlingTokenContext.currentToken().orElse(""), this::requestClientAccounts);
+    }
+
+    private List<AccountDto> requestClientAccounts() throws Exception {
+        HttpEntity<String> entity = new HttpEntity<>(requestHeaders());
+        ResponseEntity<AccountsResponseDto> response = retryExecutor.call(StarlingEndpoint.ACCOUNTS, () -> restTemplate.exchange(
                 baseUrl + "/accounts",
                 HttpMethod.GET,
                 entity,
                 AccountsResponseDto.class
-        );
+        ));
 
         if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null && response.getBody().getAccounts() != null) {
             LOGGER.info("Successfully fetched {} accounts", response.getBody().getAccounts().size());
@@ -63,7 +113,7 @@ public class StarlingClient {
     }
 
     public List<TransactionDto> fetchTransactions(String accountUuid, String minTimestamp, String maxTimestamp) throws Exception {
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+        HttpEntity<String> entity = new HttpEntity<>(requestHeaders());
 
         String urlTemplate = UriComponentsBuilder
                 .fromHttpUrl(baseUrl + "/feed/account/" + accountUuid + "/settled-transactions-between")
@@ -71,12 +121,12 @@ public class StarlingClient {
                 .queryParam("maxTransactionTimestamp", maxTimestamp)
                 .toUriString();
 
-        ResponseEntity<TransactionsResponseDto> response = restTemplate.exchange(
+        ResponseEntity<TransactionsResponseDto> response = retryExecutor.call(StarlingEndpoint.FEED, () -> restTemplate.exchange(
                 urlTemplate,
                 HttpMethod.GET,
                 entity,
                 TransactionsResponseDto.class
-        );
+        ));
 
         if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
             LOGGER.info("Successfully fetched transactions: {}", response.getBody().getFeedItems().size());
@@ -86,40 +136,129 @@ public class StarlingClient {
         }
     }
 
+    /**
+     * Streams the settled transactions in the window to the consumer as they are parsed,
+     * instead of binding the whole feed into a list first. Returns the number of feed items read.
+     */
+    public long streamTransactions(String accountUuid, String minTimestamp, String maxTimestamp, Consumer<TransactionDto> consumer) throws Exception {
+        TransactionFeedReader feedReader = new TransactionFeedReader(objectMapper);
+        AtomicBoolean delivered = new AtomicBoolean();
+        return readTransactionFeed(accountUuid, minTimestamp, maxTimestamp, delivered, body -> feedReader.read(body, transaction -> {
+            delivered.set(true);
+            consumer.accept(transaction);
+        }));
+    }
+
+    /**
+     * Decodes the settled transactions in the window straight into the given primitive columns,
+     * handing them to the batch consumer whenever they fill up. Returns the number of feed items decoded.
+     */
+    public long decodeTransactions(String accountUuid, String minTimestamp, String maxTimestamp,
+                                   TransactionColumns columns, Consumer<TransactionColumns> batchConsumer) throws Exception {
+        PackedFeedDecoder feedDecoder = new PackedFeedDecoder(objectMapper.getFactory());
+        AtomicBoolean delivered = new AtomicBoolean();
+        return readTransactionFeed(accountUuid, minTimestamp, maxTimestamp, delivered, body -> feedDecoder.decode(body, columns, batch -> {
+            delivered.set(true);
+            batchConsumer.accept(batch);
+        }));
+    }
+
+    /**
+     * Reads the feed with the given body reader. A failed read is only retried while nothing has been
+     * {@code delivered} to the caller's consumer, otherwise the retry would count transactions twice.
+     */
+    private long readTransactionFeed(String accountUuid, String minTimestamp, String maxTimestamp,
+                                     AtomicBoolean delivered, FeedBodyReader feedBodyReader) throws Exception {
+        HttpHeaders requestHeaders = requestHeaders();
+
+        String urlTemplate = UriComponentsBuilder
+                .fromHttpUrl(baseUrl + "/feed/account/" + accountUuid + "/settled-transactions-between")
+                .queryParam("minTransactionTimestamp", minTimestamp)
+                .queryParam("maxTransactionTimestamp", maxTimestamp)
+                .toUriString();
+
+        ResponseEntity<Long> response = retryExecutor.call(StarlingEndpoint.FEED, () -> restTemplate.execute(
+                urlTemplate,
+                HttpMethod.GET,
+                request -> {
+                    if (requestHeaders != null) {
+                        request.getHeaders().addAll(requestHeaders);
+                    }
+                },
+                clientResponse -> clientResponse.getStatusCode() == HttpStatus.OK
+                        ? new ResponseEntity<>(feedBodyReader.read(clientResponse.getBody()), HttpStatus.OK)
+                        : new ResponseEntity<>(clientResponse.getStatusCode())
+        ), () -> !delivered.get());
+
+        if (response != null && response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            LOGGER.info("Successfully streamed transactions: {}", response.getBody());
+            return response.getBody();
+        } else {
+            throw new Exception("Failed to fetch transactions: " + (response == null ? null : response.getStatusCode()));
+        }
+    }
+
+    @FunctionalInterface
+    private interface FeedBodyReader {
+        long read(InputStream body) throws IOException;
+    }
+
     public void createSavingsGoal(String accountUuid, String accountCurrency, String savingsGoalsName) throws Exception {
-        HttpEntity<SavingsGoalRequestDto> entity = getSavingsGoalRequestDtoHttpEntity(headers, accountCurrency, savingsGoalsName);
+        HttpEntity<SavingsGoalRequestDto> entity = getSavingsGoalRequestDtoHttpEntity(requestHeaders(), accountCurrency, savingsGoalsName);
 
         String urlTemplate = UriComponentsBuilder
                 .fromHttpUrl(baseUrl + "/account/" + accountUuid + "/savings-goals")
                 .toUriString();
 
-        ResponseEntity<Void> response = restTemplate.exchange(
+        // Not retried: creating a goal twice would leave a duplicate goal behind
+        ResponseEntity<SavingsGoalCreatedDto> response = restTemplate.exchange(
                 urlTemplate,
                 HttpMethod.PUT,
                 entity,
-                Void.class
+                SavingsGoalCreatedDto.class
         );
 
         if (response.getStatusCode() == HttpStatus.OK) {
             LOGGER.info("Successfully created savings goal");
+            cacheCreatedSavingsGoal(accountUuid, accountCurrency, savingsGoalsName, response.getBody());
         } else {
             throw new Exception("Failed to create savings goal: " + response.getStatusCode());
         }
     }
 
+    private void cacheCreatedSavingsGoal(String accountUuid, String accountCurrency, String savingsGoalsName, SavingsGoalCreatedDto created) {
+        if (created == null || created.getSavingsGoalUid() == null) {
+            // Without the new goal's UID the cached goals are stale, so the next lookup has to go upstream
+            lookupCache.invalidateSavingsGoals(accountUuid);
+            return;
+        }
+
+        SavingsGoalRequestDto request = buildSavingsGoalRequest(accountCurrency, savingsGoalsName);
+        SavingsAccountDto savingsGoal = new SavingsAccountDto();
+        savingsGoal.setSavingsGoalUid(created.getSavingsGoalUid());
+        savingsGoal.setName(savingsGoalsName);
+        savingsGoal.setTarget(request.getTarget());
+        savingsGoal.setState("ACTIVE");
+        lookupCache.addSavingsGoal(accountUuid, savingsGoal);
+    }
+
     public List<SavingsAccountDto> getSavingsGoals(String accountUuid) throws Exception {
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+        return lookupCache.getSavingsGoals(accountUuid, () -> requestSavingsGoals(accountUuid));
+    }
+
+    private List<SavingsAccountDto> requestSavingsGoals(String accountUuid) throws Exception {
+        HttpEntity<String> entity = new HttpEntity<>(requestHeaders());
 
         String urlTemplate = UriComponentsBuilder
                 .fromHttpUrl(baseUrl + "/account/" + accountUuid + "/savings-goals")
                 .toUriString();
 
-        ResponseEntity<SavingsAccountsResponseDto> response = restTemplate.exchange(
+        ResponseEntity<SavingsAccountsResponseDto> response = retryExecutor.call(StarlingEndpoint.SAVINGS_GOALS, () -> restTemplate.exchange(
                 urlTemplate,
                 HttpMethod.GET,
                 entity,
                 SavingsAccountsResponseDto.class
-        );
+        ));
 
         if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
             LOGGER.info("Successfully fetched savings goals: {}", response.getBody().getSavingsGoalList().size());
@@ -129,29 +268,24 @@ public class StarlingClient {
         }
     }
 
-    public boolean addMoneyToSavingsGoal(String accountUuid, String currency, String savingsGoalUid, long roundUpTotal) {
-        AmountDto amountDto = new AmountDto();
-        amountDto.setCurrency(currency);
-        amountDto.setMinorUnits(roundUpTotal);
-
-        TransferAmountDtoWrapper transferAmountDtoWrapper = new TransferAmountDtoWrapper();
-        transferAmountDtoWrapper.setAmount(amountDto);
-
-        HttpEntity<TransferAmountDtoWrapper> entity = new HttpEntity<>(transferAmountDtoWrapper, headers);
-
-        // Generating a random transferUid, as it is required by the API
-        String transferUid = UUID.randomUUID().toString();
+    /**
+     * Moves the round up into the savings goal. The transfer UID identifies the transfer upstream, so
+     * sending the same UID again cannot move the money twice; that is what makes the call safe to retry.
+     */
+    public boolean addMoneyToSavingsGoal(String accountUuid, String currency, String savingsGoalUid, String transferUid,
+                                         long roundUpTotal) throws Exception {
+        HttpEntity<TransferAmountDtoWrapper> entity = new HttpEntity<>(buildTransferAmount(currency, roundUpTotal), requestHeaders());
 
         String urlTemplate = UriComponentsBuilder
                 .fromHttpUrl(baseUrl + "/account/" + accountUuid + "/savings-goals/" + savingsGoalUid + "/add-money/" + transferUid)
                 .toUriString();
 
-        ResponseEntity<Void> response = restTemplate.exchange(
+        ResponseEntity<Void> response = retryExecutor.call(StarlingEndpoint.ADD_MONEY, () -> restTemplate.exchange(
                 urlTemplate,
                 HttpMethod.PUT,
                 entity,
                 Void.class
-        );
+        ));
 
         if (response.getStatusCode() == HttpStatus.OK) {
             LOGGER.info("Successfully added money to savings goal");
@@ -0,0 +1,53 @@
+package org.thomasfraser.starlingroundup.client;
+
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.util.regex.Pattern;
+
+/**
+ * The Starling API operations used by {@link StarlingClient}.
+ * Used to apply per-endpoint transport settings and to tag metrics.
+ */
+public enum StarlingEndpoint {
+
+    ACCOUNTS("accounts", HttpMethod.GET, ".*/accounts"),
+    FEED("feed", HttpMethod.GET, ".*/feed/account/[^/]+/settled-transactions-between"),
+    SAVINGS_GOALS("savings-goals", HttpMethod.GET, ".*/account/[^/]+/savings-goals"),
+    CREATE_SAVINGS_GOAL("create-savings-goal", HttpMethod.PUT, ".*/account/[^/]+/savings-goals"),
+    ADD_MONEY("add-money", HttpMethod.PUT, ".*/account/[^/]+/savings-goals/[^/]+/add-money/[^/]+"),
+    OTHER("other", null, null);
+
+    private final String tag;
+    private final HttpMethod method;
+    private final Pattern pathPattern;
+
+    StarlingEndpoint(String tag, HttpMethod method, String pathRegex) {
+        this.tag = tag;
+        this.method = method;
+        this.pathPattern = pathRegex == null ? null : Pattern.compile(pathRegex);
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Resolves the endpoint a request is aimed at from its method and path.
+     * Requests that don't match a known operation resolve to {@link #OTHER}.
+     */
+    public static StarlingEndpoint resolve(HttpMethod method, URI uri) {
+        String path = uri.getPath();
+        if (path == null) {
+            return OTHER;
+        }
+        for (StarlingEndpoint endpoint : values()) {
+            if (endpoint.pathPattern != null
+                    && endpoint.method.equals(method)
+                    && endpoint.pathPattern.matcher(path).matches()) {
+                return endpoint;
+            }
+        }
+        return OTHER;
+    }
+}
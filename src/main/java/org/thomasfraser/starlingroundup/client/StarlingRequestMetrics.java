@@ -0,0 +1,71 @@
+package org.thomasfraser.starlingroundup.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Times every call to the Starling API as {@code starling.client.requests}, tagged by endpoint,
+ * method, HTTP status and client. Installed as an interceptor on the RestTemplate and as a filter on
+ * the WebClient. The timer stops when the response headers arrive, so a streamed feed body is not included.
+ * It is the outermost interceptor, so the time includes any wait imposed by the interceptors after it.
+ */
+@Component
+@Order(StarlingRequestMetrics.ORDER)
+public class StarlingRequestMetrics implements ClientHttpRequestInterceptor {
+
+    public static final int ORDER = 0;
+
+    static final String METRIC_NAME = "starling.client.requests";
+    static final String IO_ERROR = "IO_ERROR";
+
+    private final MeterRegistry meterRegistry;
+
+    public StarlingRequestMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = IO_ERROR;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            status = String.valueOf(response.getStatusCode().value());
+            return response;
+        } finally {
+            sample.stop(timer(request.getMethod(), request.getURI(), status, "blocking"));
+        }
+    }
+
+    public ExchangeFilterFunction exchangeFilter() {
+        return (request, next) -> Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return next.exchange(request)
+                    .doOnSuccess(response -> sample.stop(timer(request.method(), request.url(),
+                            String.valueOf(response.statusCode().value()), "reactive")))
+                    .doOnError(error -> sample.stop(timer(request.method(), request.url(), IO_ERROR, "reactive")));
+        });
+    }
+
+    private Timer timer(HttpMethod method, URI uri, String status, String client) {
+        return Timer.builder(METRIC_NAME)
+                .description("Calls to the Starling API")
+                .tag("endpoint", StarlingEndpoint.resolve(method, uri).getTag())
+                .tag("method", method.name())
+                .tag("status", status)
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,61 @@
+package org.thomasfraser.starlingroundup.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.thomasfraser.starlingroundup.config.StarlingHttpProperties;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Asks the Starling API for gzip or deflate responses and decodes them as the body is read.
+ * Counts the bytes of every response body as {@code starling.client.response.wire.bytes}, as received,
+ * and {@code starling.client.response.decoded.bytes}, as parsed, tagged by endpoint.
+ * It is the innermost interceptor, so the transport underneath has its own decompression turned off
+ * and the wire bytes counted are the ones actually received.
+ */
+@Component
+@Order(StarlingResponseCompression.ORDER)
+public class StarlingResponseCompression implements ClientHttpRequestInterceptor {
+
+    public static final int ORDER = 200;
+
+    static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+
+    private final boolean compressionEnabled;
+    private final Map<StarlingEndpoint, Counter> wireBytes = new EnumMap<>(StarlingEndpoint.class);
+    private final Map<StarlingEndpoint, Counter> decodedBytes = new EnumMap<>(StarlingEndpoint.class);
+
+    public StarlingResponseCompression(StarlingHttpProperties properties, MeterRegistry meterRegistry) {
+        this.compressionEnabled = properties.isCompressionEnabled();
+        for (StarlingEndpoint endpoint : StarlingEndpoint.values()) {
+            wireBytes.put(endpoint, Counter.builder("starling.client.response.wire.bytes")
+                    .description("Response body bytes received from the Starling API, before decompression")
+                    .baseUnit("bytes")
+                    .tag("endpoint", endpoint.getTag())
+                    .register(meterRegistry));
+            decodedBytes.put(endpoint, Counter.builder("starling.client.response.decoded.bytes")
+                    .description("Response body bytes read from the Starling API, after decompression")
+                    .baseUnit("bytes")
+                    .tag("endpoint", endpoint.getTag())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (compressionEnabled && !request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+        }
+        StarlingEndpoint endpoint = StarlingEndpoint.resolve(request.getMethod(), request.getURI());
+        return new DecodingClientHttpResponse(execution.execute(request, body), wireBytes.get(endpoint), decodedBytes.get(endpoint));
+    }
+}
@@ -0,0 +1,38 @@
+package org.thomasfraser.starlingroundup.client;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * Holds the access token to use for Starling API calls made on the current thread.
+ * When no token is set, {@link StarlingClient} falls back to the configured application token.
+ */
+public final class StarlingTokenContext {
+
+    private static final ThreadLocal<String> ACCESS_TOKEN = new ThreadLocal<>();
+
+    private StarlingTokenContext() {
+    }
+
+    public static <T> T callWithToken(String accessToken, Callable<T> callable) throws Exception {
+        if (accessToken == null) {
+            return callable.call();
+        }
+
+        String previousToken = ACCESS_TOKEN.get();
+        ACCESS_TOKEN.set(accessToken);
+        try {
+            return callable.call();
+        } finally {
+            if (previousToken == null) {
+                ACCESS_TOKEN.remove();
+            } else {
+                ACCESS_TOKEN.set(previousToken);
+            }
+        }
+    }
+
+    public static Optional<String> currentToken() {
+        return Optional.ofNullable(ACCESS_TOKEN.get());
+    }
+}
@@ -0,0 +1,177 @@
+package org.thomasfraser.starlingroundup.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads the {@code feedItems} of a transaction feed response one item at a time.
+ * Only the item being handled is held in memory, however large the feed is.
+ */
+public class TransactionFeedReader {
+
+    private static final String FEED_ITEMS_FIELD = "feedItems";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader transactionReader;
+
+    public TransactionFeedReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Real feed items carry many more fields than TransactionDto, those are skipped rather than rejected
+        this.transactionReader = objectMapper.readerFor(TransactionDto.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * Passes every feed item in the response body to the consumer and returns how many were read.
+     */
+    public long read(InputStream body, Consumer<TransactionDto> consumer) throws IOException {
+        long itemsRead = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object at the start of the transaction feed");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken valueToken = parser.nextToken();
+
+                if (FEED_ITEMS_FIELD.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(transactionReader.readValue(parser));
+                        itemsRead++;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        return itemsRead;
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #read(InputStream, Consumer)}: emits every feed item as soon as the buffers
+     * holding it have arrived. Each buffer is released once it has been fed to the parser.
+     */
+    public Flux<TransactionDto> read(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            NonBlockingFeed feed;
+            try {
+                feed = new NonBlockingFeed();
+            } catch (IOException e) {
+                return Flux.error(e);
+            }
+            return body.concatMap(buffer -> {
+                        try {
+                            return Flux.fromIterable(feed.feed(buffer));
+                        } catch (IOException e) {
+                            return Flux.error(e);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Flux.defer(() -> {
+                        try {
+                            return Flux.fromIterable(feed.end());
+                        } catch (IOException e) {
+                            return Flux.error(e);
+                        }
+                    }))
+                    .doFinally(signal -> feed.close());
+        });
+    }
+
+    /**
+     * Tracks where the parser is in the response as bytes are fed to it, copying the tokens of the feed item being
+     * read so it can be bound once its closing brace arrives.
+     */
+    private final class NonBlockingFeed {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private boolean started;
+        private int depth;
+        private boolean inFeedItems;
+        private TokenBuffer item;
+
+        private NonBlockingFeed() throws IOException {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        private List<TransactionDto> feed(DataBuffer buffer) throws IOException {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            feeder.feedInput(bytes, 0, bytes.length);
+            return drain();
+        }
+
+        private List<TransactionDto> end() throws IOException {
+            feeder.endOfInput();
+            List<TransactionDto> items = drain();
+            if (!started || depth != 0) {
+                throw new IOException("Transaction feed ended before its JSON object was complete");
+            }
+            return items;
+        }
+
+        private List<TransactionDto> drain() throws IOException {
+            List<TransactionDto> items = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (!started && token != JsonToken.START_OBJECT) {
+                    throw new IOException("Expected a JSON object at the start of the transaction feed");
+                }
+                started = true;
+                if (item != null) {
+                    item.copyCurrentEvent(parser);
+                }
+
+                if (token.isStructStart()) {
+                    depth++;
+                    if (depth == 2 && token == JsonToken.START_ARRAY && FEED_ITEMS_FIELD.equals(parser.currentName())) {
+                        inFeedItems = true;
+                    } else if (depth == 3 && inFeedItems && token == JsonToken.START_OBJECT) {
+                        item = new TokenBuffer(parser);
+                        item.copyCurrentEvent(parser);
+                    }
+                } else if (token.isStructEnd()) {
+                    depth--;
+                    if (depth == 2 && item != null) {
+                        try (JsonParser itemParser = item.asParser(objectMapper)) {
+                            items.add(transactionReader.readValue(itemParser));
+                        }
+                        item = null;
+                    } else if (depth == 1) {
+                        inFeedItems = false;
+                    }
+                }
+            }
+            return items;
+        }
+
+        private void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // Nothing is left to read from a parser fed from memory
+            }
+        }
+    }
+}
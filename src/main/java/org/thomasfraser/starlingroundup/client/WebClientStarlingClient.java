@@ -0,0 +1,158 @@
+package org.thomasfraser.starlingroundup.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.thomasfraser.starlingroundup.config.StarlingHttpProperties;
+import org.thomasfraser.starlingroundup.config.StarlingRetryProperties;
+import org.thomasfraser.starlingroundup.dto.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking client for the Starling API built on {@link WebClient}.
+ * Calls are multiplexed over a small number of event loop threads, so no thread waits on the upstream.
+ * Calls that are safe to repeat are resubscribed with jittered backoff when the request fails on the wire.
+ * The transaction feed is decoded item by item as the response arrives, like the blocking client's
+ * {@link TransactionFeedReader}, so the feed is never bound as a whole.
+ */
+@Service
+@ConditionalOnProperty(name = "starling.client.mode", havingValue = "reactive", matchIfMissing = true)
+public class WebClientStarlingClient implements ReactiveStarlingApi {
+
+    private static final Logger LOGGER = LogManager.getLogger(WebClientStarlingClient.class);
+
+    private final WebClient webClient;
+    private final StarlingHttpProperties properties;
+    private final StarlingRetryProperties retryProperties;
+    private final TransactionFeedReader transactionFeedReader;
+
+    @Autowired
+    public WebClientStarlingClient(@Qualifier("starlingWebClient") WebClient webClient, StarlingHttpProperties properties,
+                                   StarlingRetryProperties retryProperties, ObjectMapper objectMapper) {
+        this.webClient = webClient;
+        this.properties = properties;
+        this.retryProperties = retryProperties;
+        this.transactionFeedReader = new TransactionFeedReader(objectMapper);
+    }
+
+    @Override
+    public Flux<AccountDto> fetchClientAccounts() {
+        return webClient.get()
+                .uri("/accounts")
+                .httpRequest(responseTimeout(StarlingEndpoint.ACCOUNTS))
+                .exchangeToMono(response -> response.statusCode() == HttpStatus.OK
+                        ? response.bodyToMono(AccountsResponseDto.class)
+                        : Mono.error(new Exception("Failed to fetch accounts: " + response.statusCode())))
+                .retryWhen(retry(StarlingEndpoint.ACCOUNTS))
+                .flatMapIterable(body -> Optional.ofNullable(body.getAccounts()).orElse(List.of()))
+                .doOnComplete(() -> LOGGER.info("Successfully fetched accounts"));
+    }
+
+    @Override
+    public Flux<TransactionDto> fetchTransactions(String accountUuid, String minTimestamp, String maxTimestamp) {
+        return Flux.defer(() -> {
+            // Items are passed on as they are decoded, so the feed is only fetched again while none have been
+            AtomicBoolean delivered = new AtomicBoolean();
+            return webClient.get()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/feed/account/{accountUuid}/settled-transactions-between")
+                            .queryParam("minTransactionTimestamp", minTimestamp)
+                            .queryParam("maxTransactionTimestamp", maxTimestamp)
+                            .build(accountUuid))
+                    .httpRequest(responseTimeout(StarlingEndpoint.FEED))
+                    .exchangeToFlux(response -> response.statusCode() == HttpStatus.OK
+                            ? transactionFeedReader.read(response.bodyToFlux(DataBuffer.class))
+                            : Flux.error(new Exception("Failed to fetch transactions: " + response.statusCode())))
+                    .doOnNext(transaction -> delivered.set(true))
+                    .retryWhen(retry(StarlingEndpoint.FEED, () -> !delivered.get()))
+                    .doOnComplete(() -> LOGGER.info("Successfully fetched transactions"));
+        });
+    }
+
+    @Override
+    public Mono<Void> createSavingsGoal(String accountUuid, String accountCurrency, String savingsGoalsName) {
+        return webClient.put()
+                .uri("/account/{accountUuid}/savings-goals", accountUuid)
+                .httpRequest(responseTimeout(StarlingEndpoint.CREATE_SAVINGS_GOAL))
+                .bodyValue(StarlingClient.buildSavingsGoalRequest(accountCurrency, savingsGoalsName))
+                .exchangeToMono(response -> response.statusCode() == HttpStatus.OK
+                        ? response.releaseBody()
+                        : Mono.error(new Exception("Failed to create savings goal: " + response.statusCode())))
+                .doOnSuccess(ignored -> LOGGER.info("Successfully created savings goal"));
+    }
+
+    @Override
+    public Flux<SavingsAccountDto> getSavingsGoals(String accountUuid) {
+        return webClient.get()
+                .uri("/account/{accountUuid}/savings-goals", accountUuid)
+                .httpRequest(responseTimeout(StarlingEndpoint.SAVINGS_GOALS))
+                .exchangeToMono(response -> response.statusCode() == HttpStatus.OK
+                        ? response.bodyToMono(SavingsAccountsResponseDto.class)
+                        : Mono.error(new Exception("Failed to fetch savings goals: " + response.statusCode())))
+                .retryWhen(retry(StarlingEndpoint.SAVINGS_GOALS))
+                .flatMapIterable(body -> Optional.ofNullable(body.getSavingsGoalList()).orElse(List.of()))
+                .doOnComplete(() -> LOGGER.info("Successfully fetched savings goals"));
+    }
+
+    @Override
+    public Mono<Boolean> addMoneyToSavingsGoal(String accountUuid, String currency, String savingsGoalUid, String transferUid,
+                                               long roundUpTotal) {
+        return webClient.put()
+                .uri("/account/{accountUuid}/savings-goals/{savingsGoalUid}/add-money/{transferUid}",
+                        accountUuid, savingsGoalUid, transferUid)
+                .httpRequest(responseTimeout(StarlingEndpoint.ADD_MONEY))
+                .bodyValue(StarlingClient.buildTransferAmount(currency, roundUpTotal))
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode() == HttpStatus.OK))
+                .retryWhen(retry(StarlingEndpoint.ADD_MONEY))
+                .doOnNext(success -> {
+                    if (success) {
+                        LOGGER.info("Successfully added money to savings goal");
+                    } else {
+                        LOGGER.error("Failed to add money to savings goal");
+                    }
+                });
+    }
+
+    private Retry retry(StarlingEndpoint endpoint) {
+        return retry(endpoint, () -> true);
+    }
+
+    private Retry retry(StarlingEndpoint endpoint, BooleanSupplier retryable) {
+        return Retry.backoff(Math.max(0, retryProperties.getMaxAttempts() - 1), retryProperties.getInitialBackoff())
+                .maxBackoff(retryProperties.getMaxBackoff())
+                .jitter(0.5)
+                // Only failures on the wire; a response with an error status is reported as it was
+                .filter(error -> retryProperties.isEnabled() && error instanceof WebClientRequestException
+                        && retryable.getAsBoolean())
+                .doBeforeRetry(signal -> LOGGER.warn("Retrying {} call after attempt {} failed: {}",
+                        endpoint.getTag(), signal.totalRetries() + 1, signal.failure().getMessage()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private Consumer<ClientHttpRequest> responseTimeout(StarlingEndpoint endpoint) {
+        return request -> {
+            Object nativeRequest = request.getNativeRequest();
+            if (nativeRequest instanceof HttpClientRequest httpClientRequest) {
+                httpClientRequest.responseTimeout(properties.getResponseTimeout(endpoint));
+            }
+        };
+    }
+}
@@ -5,13 +5,20 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.web.client.RestTemplate;
+import org.thomasfraser.starlingroundup.client.StarlingRequestMetrics;
 
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Configuration class for the application.
  * It provides beans for HttpHeaders and RestTemplate.
+ * The RestTemplate is backed by the pooled transport from {@link HttpTransportConfig}
+ * and runs every call through the client interceptors in their {@code @Order}, starting with
+ * {@link StarlingRequestMetrics}.
  */
 @Configuration
 public class AppConfig {
@@ -28,7 +35,10 @@ public class AppConfig {
     }
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(ClientHttpRequestFactory starlingRequestFactory,
+                                     List<ClientHttpRequestInterceptor> starlingInterceptors) {
+        RestTemplate restTemplate = new RestTemplate(starlingRequestFactory);
+        restTemplate.getInterceptors().addAll(starlingInterceptors);
+        return restTemplate;
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package org.thomasfraser.starlingroundup.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration class for the executors that run round ups off the request thread.
+ */
+@Configuration
+@EnableConfigurationProperties(RoundUpProperties.class)
+public class ExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchRoundUpExecutor(RoundUpProperties properties) {
+        // The pool size is the concurrency limit; queued accounts wait for a free worker
+        return Executors.newFixedThreadPool(properties.getBatch().getMaxConcurrency(),
+                new CustomizableThreadFactory("roundup-batch-"));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService roundUpJobExecutor(RoundUpProperties properties) {
+        // Bounded queue with the default abort policy, so a burst is turned away instead of piling up
+        RoundUpProperties.Jobs jobs = properties.getJobs();
+        return new ThreadPoolExecutor(jobs.getMaxConcurrency(), jobs.getMaxConcurrency(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(jobs.getQueueCapacity()), new CustomizableThreadFactory("roundup-job-"));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService roundUpPrefetchExecutor(RoundUpProperties properties) {
+        return Executors.newFixedThreadPool(properties.getPrefetch().getMaxConcurrency(),
+                new CustomizableThreadFactory("roundup-prefetch-"));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService accountRoundUpExecutor(RoundUpProperties properties) {
+        // Separate from the batch pool, so a batch item rounding up several accounts can't wait on its own pool
+        return Executors.newFixedThreadPool(properties.getAccounts().getMaxConcurrency(),
+                new CustomizableThreadFactory("roundup-account-"));
+    }
+}
@@ -0,0 +1,136 @@
+package org.thomasfraser.starlingroundup.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.ChannelOption;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+import org.thomasfraser.starlingroundup.client.StarlingRequestMetrics;
+import org.thomasfraser.starlingroundup.client.StarlingResponseCompression;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration class for the HTTP transport used to call the Starling API.
+ * Connections are pooled and kept alive per route so that consecutive calls in a round up
+ * reuse the same TLS session, and every endpoint gets its own response timeout.
+ * The reactive client shares the same settings and negotiates HTTP/2 when the upstream offers it.
+ * Response compression is negotiated by {@link StarlingResponseCompression} rather than the blocking
+ * transport, so it can count the bytes on the wire.
+ */
+@Configuration
+@EnableConfigurationProperties(StarlingHttpProperties.class)
+public class HttpTransportConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager starlingConnectionManager(StarlingHttpProperties properties) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                .setTimeToLive(TimeValue.of(properties.getConnectionTimeToLive()))
+                .setValidateAfterInactivity(TimeValue.of(properties.getValidateAfterInactivity()))
+                .build();
+
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient starlingHttpClient(PoolingHttpClientConnectionManager starlingConnectionManager,
+                                                  StarlingHttpProperties properties) {
+        return HttpClients.custom()
+                .setConnectionManager(starlingConnectionManager)
+                .setDefaultRequestConfig(requestConfig(properties, StarlingEndpoint.OTHER))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleEvictionTimeout()))
+                .disableContentCompression()
+                .build();
+    }
+
+    @Bean
+    public ClientHttpRequestFactory starlingRequestFactory(CloseableHttpClient starlingHttpClient,
+                                                           StarlingHttpProperties properties) {
+        Map<StarlingEndpoint, RequestConfig> requestConfigs = new EnumMap<>(StarlingEndpoint.class);
+        for (StarlingEndpoint endpoint : StarlingEndpoint.values()) {
+            requestConfigs.put(endpoint, requestConfig(properties, endpoint));
+        }
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(starlingHttpClient);
+        requestFactory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(requestConfigs.get(StarlingEndpoint.resolve(method, uri)));
+            return context;
+        });
+        return requestFactory;
+    }
+
+    @Bean
+    public MeterBinder starlingConnectionPoolMetrics(PoolingHttpClientConnectionManager starlingConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(starlingConnectionManager, "starling");
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider starlingReactiveConnectionProvider(StarlingHttpProperties properties) {
+        return ConnectionProvider.builder("starling")
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireTimeout(properties.getConnectionRequestTimeout())
+                .maxIdleTime(properties.getIdleEvictionTimeout())
+                .maxLifeTime(properties.getConnectionTimeToLive())
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient starlingWebClient(WebClient.Builder webClientBuilder,
+                                       ConnectionProvider starlingReactiveConnectionProvider,
+                                       StarlingHttpProperties properties,
+                                       HttpHeaders httpHeaders,
+                                       StarlingRequestMetrics starlingRequestMetrics,
+                                       @Value("${starling.api.baseUrl}") String baseUrl) {
+        HttpClient httpClient = HttpClient.create(starlingReactiveConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout())
+                .compress(properties.isCompressionEnabled());
+        if (properties.isHttp2Enabled()) {
+            // HTTP/2 is agreed through ALPN during the TLS handshake, HTTP/1.1 remains the fallback
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        return webClientBuilder
+                .baseUrl(baseUrl)
+                .defaultHeaders(headers -> headers.addAll(httpHeaders))
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(starlingRequestMetrics.exchangeFilter())
+                .build();
+    }
+
+    static RequestConfig requestConfig(StarlingHttpProperties properties, StarlingEndpoint endpoint) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(properties.getConnectionRequestTimeout()))
+                .setResponseTimeout(Timeout.of(properties.getResponseTimeout(endpoint)))
+                .build();
+    }
+}
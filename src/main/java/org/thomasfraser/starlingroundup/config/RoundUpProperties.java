@@ -0,0 +1,193 @@
+package org.thomasfraser.starlingroundup.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.thomasfraser.starlingroundup.dto.BatchRoundUpItemDto;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Round up settings, bound from {@code starling.roundup.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "starling.roundup")
+public class RoundUpProperties {
+
+    private Batch batch = new Batch();
+    private Feed feed = new Feed();
+    private Watermark watermark = new Watermark();
+    private Jobs jobs = new Jobs();
+    private Prefetch prefetch = new Prefetch();
+    private TransactionStore transactionStore = new TransactionStore();
+    private Schedule schedule = new Schedule();
+    private Accounts accounts = new Accounts();
+    private Rounding rounding = new Rounding();
+    private Coalescing coalescing = new Coalescing();
+    private WriteBehind writeBehind = new WriteBehind();
+    private Events events = new Events();
+    private Preview preview = new Preview();
+    private Ledger ledger = new Ledger();
+
+    @Getter
+    @Setter
+    public static class Batch {
+        // Upper bound on the number of accounts being rounded up at the same time
+        private int maxConcurrency = 16;
+    }
+
+    @Getter
+    @Setter
+    public static class Feed {
+        // Parse the feed item by item and sum as we go, instead of binding it into a list
+        private boolean streaming = false;
+        // Longest window requested from the feed in one call when streaming
+        private Duration subWindow = Duration.ofDays(7);
+    }
+
+    @Getter
+    @Setter
+    public static class Watermark {
+        // Only fetch transactions after the end of the last completed round up of the account
+        private boolean enabled = false;
+        private Path file = Path.of("data", "watermarks.log");
+    }
+
+    @Getter
+    @Setter
+    public static class Jobs {
+        // Round up jobs running at the same time, independent of the number of HTTP worker threads
+        private int maxConcurrency = 4;
+        // Jobs waiting for a worker; submissions beyond this are rejected
+        private int queueCapacity = 100;
+        // How long a finished job can still be looked up
+        private Duration retention = Duration.ofMinutes(15);
+    }
+
+    @Getter
+    @Setter
+    public static class Prefetch {
+        // Look up the savings goal while the feed is being fetched, instead of after the round up is calculated
+        private boolean enabled = false;
+        // Also create the goal up front when it is missing, even if there turns out to be nothing to transfer
+        private boolean speculativeGoalCreation = false;
+        // Threads shared by all round ups for prefetched lookups
+        private int maxConcurrency = 16;
+    }
+
+    @Getter
+    @Setter
+    public static class TransactionStore {
+        // Keep settled transactions on local disk, so historical round ups only fetch what isn't held yet
+        private boolean enabled = false;
+        private Path directory = Path.of("data", "transactions");
+        // Transactions this recent may still be settling, so they are fetched again rather than trusted as complete
+        private Duration settlementLag = Duration.ofDays(3);
+    }
+
+    @Getter
+    @Setter
+    public static class Schedule {
+        // Round up the registered accounts on a schedule, spread over the nodes sharing the lease directory
+        private boolean enabled = false;
+        // Each account is rounded up once per interval; intervals are counted from the epoch, so all nodes agree on them
+        private Duration interval = Duration.ofDays(1);
+        // How often a node looks for shards that are due and unclaimed
+        private Duration pollInterval = Duration.ofMinutes(1);
+        private int shards = 64;
+        // A lease not renewed for this long is taken to belong to a dead node
+        private Duration leaseDuration = Duration.ofMinutes(5);
+        private Path leaseDirectory = Path.of("data", "leases");
+        // Defaults to pid@host
+        private String nodeId;
+        private List<BatchRoundUpItemDto> accounts = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Accounts {
+        // Account types rounded up by GET /api/roundup/accounts, each into a goal in its own currency
+        private Set<String> eligibleTypes = Set.of("PRIMARY", "ADDITIONAL");
+        // Accounts of one customer being rounded up at the same time
+        private int maxConcurrency = 4;
+    }
+
+    @Getter
+    @Setter
+    public static class Coalescing {
+        // Callers rounding up an account with the same token while a round up of it is in flight share its result
+        private boolean enabled = false;
+    }
+
+    @Getter
+    @Setter
+    public static class WriteBehind {
+        // Journal round ups and move them into the savings goal in fewer, larger transfers
+        private boolean enabled = false;
+        private Path journal = Path.of("data", "transfers.log");
+        // Minor units waiting for a goal that trigger a transfer straight away
+        private long flushThreshold = 1000;
+        // Longest a journaled round up waits before it is transferred regardless of the amount
+        private Duration maxDelay = Duration.ofDays(1);
+        private Duration checkInterval = Duration.ofMinutes(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Events {
+        // Accept signed feed item events and keep a running round up per account from them
+        private boolean enabled = false;
+        // Shared secret the X-Hook-Signature HMAC of each event is checked against, events are refused without one
+        private String secret;
+        private Path checkpoint = Path.of("data", "events.checkpoint");
+        private Duration checkpointInterval = Duration.ofSeconds(30);
+        // How long a feed item UID is remembered to drop redelivered events
+        private Duration dedupRetention = Duration.ofDays(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Preview {
+        // Previews are served from cache for this long, so frequent polling doesn't fetch the feed each time
+        private Duration timeToLive = Duration.ofSeconds(15);
+        private long maximumSize = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Ledger {
+        // Record every completed fixed round up window, so one asked for again is answered from the record
+        private boolean enabled = false;
+        private Path file = Path.of("data", "ledger.log");
+        // Windows that ended longer ago than this are dropped when the ledger is compacted on startup
+        private Duration retention = Duration.ofDays(90);
+    }
+
+    @Getter
+    @Setter
+    public static class Rounding {
+        // Applied to every transaction without a more specific rule
+        private Rule defaults = new Rule();
+        // By Starling spending category, e.g. starling.roundup.rounding.categories.EATING_OUT.multiplier=2
+        private Map<String, Rule> categories = new HashMap<>();
+        // Replaces the default rule for one account, keyed by account UID; category rules still apply on top
+        private Map<String, Rule> accounts = new HashMap<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Rule {
+        // Round up to the next multiple of this many minor units
+        private long increment = 100;
+        private long multiplier = 1;
+        // Most a single transaction can round up by, in minor units; 0 for no cap
+        private long cap = 0;
+    }
+}
@@ -0,0 +1,37 @@
+package org.thomasfraser.starlingroundup.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-endpoint bulkheads for calls to the Starling API, bound from {@code starling.bulkhead.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "starling.bulkhead")
+public class StarlingBulkheadProperties {
+
+    private boolean enabled = false;
+    // Calls in flight to one endpoint, and callers allowed to queue for a slot beyond those
+    private int maxConcurrentCalls = 10;
+    private int maxWaitingCalls = 20;
+    // Longest a queued caller waits for a slot before failing
+    private Duration maxWait = Duration.ofSeconds(5);
+    // Overrides for individual endpoints, e.g. starling.bulkhead.max-concurrent-calls-per-endpoint.feed=4
+    private Map<StarlingEndpoint, Integer> maxConcurrentCallsPerEndpoint = new EnumMap<>(StarlingEndpoint.class);
+    private Map<StarlingEndpoint, Integer> maxWaitingCallsPerEndpoint = new EnumMap<>(StarlingEndpoint.class);
+
+    public int getMaxConcurrentCalls(StarlingEndpoint endpoint) {
+        return maxConcurrentCallsPerEndpoint.getOrDefault(endpoint, maxConcurrentCalls);
+    }
+
+    public int getMaxWaitingCalls(StarlingEndpoint endpoint) {
+        return maxWaitingCallsPerEndpoint.getOrDefault(endpoint, maxWaitingCalls);
+    }
+}
@@ -0,0 +1,20 @@
+package org.thomasfraser.starlingroundup.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for caching Starling lookups that rarely change, bound from {@code starling.cache.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "starling.cache")
+public class StarlingCacheProperties {
+
+    private boolean enabled = true;
+    private Duration timeToLive = Duration.ofMinutes(10);
+    private long maximumSize = 10_000;
+}
@@ -0,0 +1,37 @@
+package org.thomasfraser.starlingroundup.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-endpoint circuit breakers for calls to the Starling API, bound from {@code starling.circuit-breaker.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "starling.circuit-breaker")
+public class StarlingCircuitBreakerProperties {
+
+    private boolean enabled = false;
+    // Number of recent calls the rates are taken over, and how many must be seen before the breaker may open
+    private int slidingWindowSize = 20;
+    private int minimumCalls = 10;
+    // Percentages of failed (I/O error or 5xx) and slow calls that open the breaker
+    private double failureRateThreshold = 50;
+    private double slowCallRateThreshold = 80;
+    private Duration slowCallDuration = Duration.ofSeconds(3);
+    // How long the breaker stays open, and how many trial calls it lets through afterwards
+    private Duration openDuration = Duration.ofSeconds(30);
+    private int halfOpenCalls = 3;
+    // Overrides slowCallDuration for individual endpoints, e.g. starling.circuit-breaker.slow-call-durations.feed=10s
+    private Map<StarlingEndpoint, Duration> slowCallDurations = new EnumMap<>(StarlingEndpoint.class);
+
+    public Duration getSlowCallDuration(StarlingEndpoint endpoint) {
+        return slowCallDurations.getOrDefault(endpoint, slowCallDuration);
+    }
+}
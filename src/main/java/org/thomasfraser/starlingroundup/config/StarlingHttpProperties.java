@@ -0,0 +1,39 @@
+package org.thomasfraser.starlingroundup.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Transport settings for calls to the Starling API, bound from {@code starling.http.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "starling.http")
+public class StarlingHttpProperties {
+
+    private int maxConnections = 50;
+    private int maxConnectionsPerRoute = 20;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    // How long a caller may wait to lease a pooled connection before failing
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+    private Duration idleEvictionTimeout = Duration.ofSeconds(30);
+    private Duration connectionTimeToLive = Duration.ofMinutes(5);
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(5);
+    // Only used by the reactive client, the blocking transport is HTTP/1.1
+    private boolean http2Enabled = true;
+    // Ask for gzip or deflate responses; feed responses are mostly repeated field names and compress well
+    private boolean compressionEnabled = true;
+    // Overrides responseTimeout for individual endpoints, e.g. starling.http.response-timeouts.feed=10s
+    private Map<StarlingEndpoint, Duration> responseTimeouts = new EnumMap<>(StarlingEndpoint.class);
+
+    public Duration getResponseTimeout(StarlingEndpoint endpoint) {
+        return responseTimeouts.getOrDefault(endpoint, responseTimeout);
+    }
+}
@@ -0,0 +1,37 @@
+package org.thomasfraser.starlingroundup.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Client-side rate limiting and adaptive concurrency for calls to the Starling API,
+ * bound from {@code starling.rate-limit.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "starling.rate-limit")
+public class StarlingRateLimitProperties {
+
+    private boolean enabled = false;
+    // Token buckets shared by every call, and kept for each access token
+    private double globalPermitsPerSecond = 50;
+    private int globalBurst = 50;
+    private double perTokenPermitsPerSecond = 10;
+    private int perTokenBurst = 20;
+    // Longest a call may wait for a permit and a concurrency slot before failing
+    private Duration acquireTimeout = Duration.ofSeconds(10);
+    // AIMD bounds on the number of calls in flight
+    private int minConcurrency = 1;
+    private int initialConcurrency = 10;
+    private int maxConcurrency = 50;
+    // Calls slower than this count as congestion and shrink the concurrency limit
+    private Duration latencyThreshold = Duration.ofSeconds(2);
+    private double backoffRatio = 0.5;
+    // How often a 429 is waited out and sent again before it is handed back to the caller
+    private int maxThrottleRetries = 2;
+    // Pause used when a 429 comes without a usable Retry-After
+    private Duration defaultRetryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,25 @@
+package org.thomasfraser.starlingroundup.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retries of transient Starling API failures, bound from {@code starling.retry.*}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "starling.retry")
+public class StarlingRetryProperties {
+
+    private boolean enabled = false;
+    // Attempts per call, including the first one
+    private int maxAttempts = 3;
+    private Duration initialBackoff = Duration.ofMillis(200);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+    private double multiplier = 2;
+    // Total time a call may spend on attempts and backoff before its last failure is returned
+    private Duration budget = Duration.ofSeconds(15);
+}
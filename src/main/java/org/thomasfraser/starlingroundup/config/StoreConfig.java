@@ -0,0 +1,78 @@
+package org.thomasfraser.starlingroundup.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.thomasfraser.starlingroundup.scheduling.FileShardLeaseTable;
+import org.thomasfraser.starlingroundup.store.FileRoundUpLedger;
+import org.thomasfraser.starlingroundup.store.FileWatermarkStore;
+import org.thomasfraser.starlingroundup.store.NoOpRoundUpLedger;
+import org.thomasfraser.starlingroundup.store.NoOpWatermarkStore;
+import org.thomasfraser.starlingroundup.store.RoundUpAccumulator;
+import org.thomasfraser.starlingroundup.store.RoundUpLedger;
+import org.thomasfraser.starlingroundup.store.SegmentTransactionStore;
+import org.thomasfraser.starlingroundup.store.SharedWatermarkStore;
+import org.thomasfraser.starlingroundup.store.TransactionStore;
+import org.thomasfraser.starlingroundup.store.TransferJournal;
+import org.thomasfraser.starlingroundup.store.WatermarkStore;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.util.Optional;
+
+/**
+ * Configuration class for the embedded stores the round up keeps on local disk.
+ */
+@Configuration
+public class StoreConfig {
+
+    /**
+     * Scheduled shards move between nodes, so with scheduling enabled the watermarks are kept next to the shard
+     * leases, where every node reads the one the previous holder of the shard left.
+     */
+    @Bean(destroyMethod = "close")
+    public WatermarkStore watermarkStore(RoundUpProperties properties) throws IOException {
+        RoundUpProperties.Watermark watermark = properties.getWatermark();
+        if (properties.getSchedule().isEnabled()) {
+            return new SharedWatermarkStore(properties.getSchedule().getLeaseDirectory().resolve("watermarks"));
+        }
+        return watermark.isEnabled() ? new FileWatermarkStore(watermark.getFile()) : new NoOpWatermarkStore();
+    }
+
+    @Bean(destroyMethod = "close")
+    public RoundUpLedger roundUpLedger(RoundUpProperties properties) throws IOException {
+        RoundUpProperties.Ledger ledger = properties.getLedger();
+        return ledger.isEnabled()
+                ? new FileRoundUpLedger(ledger.getFile(), ledger.getRetention(), Clock.systemUTC())
+                : new NoOpRoundUpLedger();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "starling.roundup.transaction-store.enabled", havingValue = "true")
+    public TransactionStore transactionStore(RoundUpProperties properties) throws IOException {
+        return new SegmentTransactionStore(properties.getTransactionStore().getDirectory());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "starling.roundup.write-behind.enabled", havingValue = "true")
+    public TransferJournal transferJournal(RoundUpProperties properties) throws IOException {
+        return new TransferJournal(properties.getWriteBehind().getJournal(), Clock.systemUTC());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "starling.roundup.events.enabled", havingValue = "true")
+    public RoundUpAccumulator roundUpAccumulator(RoundUpProperties properties) throws IOException {
+        RoundUpProperties.Events events = properties.getEvents();
+        return new RoundUpAccumulator(events.getCheckpoint(), Clock.systemUTC(), events.getDedupRetention());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "starling.roundup.schedule.enabled", havingValue = "true")
+    public FileShardLeaseTable shardLeaseTable(RoundUpProperties properties) throws IOException {
+        RoundUpProperties.Schedule schedule = properties.getSchedule();
+        String nodeId = Optional.ofNullable(schedule.getNodeId())
+                .orElseGet(() -> ManagementFactory.getRuntimeMXBean().getName());
+        return new FileShardLeaseTable(schedule.getLeaseDirectory(), nodeId, schedule.getLeaseDuration(), Clock.systemUTC());
+    }
+}
@@ -3,12 +3,39 @@ package org.thomasfraser.starlingroundup.controller;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.thomasfraser.starlingroundup.dto.BatchRoundUpItemDto;
+import org.thomasfraser.starlingroundup.dto.BatchRoundUpRequestDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpJobDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpPreviewDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpResultDto;
+import org.thomasfraser.starlingroundup.service.BatchRoundUpService;
+import org.thomasfraser.starlingroundup.service.MultiAccountRoundUpService;
+import org.thomasfraser.starlingroundup.service.ReactiveRoundUpService;
+import org.thomasfraser.starlingroundup.service.RoundUpJobService;
 import org.thomasfraser.starlingroundup.service.RoundUpService;
+import org.thomasfraser.starlingroundup.service.RoundUpWindow;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controller class for handling API requests related to round up operations.
@@ -19,22 +46,172 @@ public class RoundUpController {
 
     private static final Logger LOGGER = LogManager.getLogger(RoundUpController.class);
     private final RoundUpService roundUpService;
+    private final BatchRoundUpService batchRoundUpService;
+    private final ReactiveRoundUpService reactiveRoundUpService;
+    private final RoundUpJobService roundUpJobService;
+    private final MultiAccountRoundUpService multiAccountRoundUpService;
 
     @Autowired
-    public RoundUpController(RoundUpService roundUpService) {
+    public RoundUpController(RoundUpService roundUpService,
+                             BatchRoundUpService batchRoundUpService,
+                             ReactiveRoundUpService reactiveRoundUpService,
+                             RoundUpJobService roundUpJobService,
+                             MultiAccountRoundUpService multiAccountRoundUpService) {
         this.roundUpService = roundUpService;
+        this.batchRoundUpService = batchRoundUpService;
+        this.reactiveRoundUpService = reactiveRoundUpService;
+        this.roundUpJobService = roundUpJobService;
+        this.multiAccountRoundUpService = multiAccountRoundUpService;
     }
 
+    /**
+     * Rounds up the primary account. With write-behind enabled the transfer is only scheduled, to be made together
+     * with others into the same savings goal, and the response says so.
+     */
     @RequestMapping("/roundup")
     public ResponseEntity<String> roundup() {
         LOGGER.info("Round up request received");
 
         try {
-            BigDecimal roundUpAmount = roundUpService.calculateAndTransferRoundUp();
-            return ResponseEntity.ok("Round up completed successfully. Total rounded up: " + roundUpAmount);
+            RoundUpResultDto result = roundUpService.calculateAndScheduleRoundUp();
+            if ("SCHEDULED".equals(result.getStatus())) {
+                return ResponseEntity.ok("Round up scheduled. Total to be rounded up: " + result.getRoundUpAmount());
+            }
+            return ResponseEntity.ok("Round up completed successfully. Total rounded up: " + result.getRoundUpAmount());
         } catch (Exception e) {
             LOGGER.error("Failed to complete round up: {}", e.getMessage());
             return ResponseEntity.badRequest().body("Failed to complete round up");
         }
     }
+
+    /**
+     * Rounds up every eligible account of the customer in parallel, each into a savings goal in its own currency,
+     * and reports the result of each account.
+     */
+    @RequestMapping("/roundup/accounts")
+    public ResponseEntity<List<RoundUpResultDto>> roundupAllAccounts() {
+        LOGGER.info("Round up request received for all accounts");
+
+        try {
+            return ResponseEntity.ok(multiAccountRoundUpService.roundUpAllAccounts());
+        } catch (Exception e) {
+            LOGGER.error("Failed to complete round up for all accounts: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Same as {@link #roundup()}, but runs on the non-blocking client so the request thread is released
+     * while the upstream calls are in flight.
+     */
+    @RequestMapping("/roundup/reactive")
+    public Mono<ResponseEntity<String>> reactiveRoundup() {
+        LOGGER.info("Reactive round up request received");
+
+        return reactiveRoundUpService.calculateAndTransferRoundUp()
+                .map(roundUpAmount -> ResponseEntity.ok("Round up completed successfully. Total rounded up: " + roundUpAmount))
+                .onErrorResume(e -> {
+                    LOGGER.error("Failed to complete round up: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body("Failed to complete round up"));
+                });
+    }
+
+    /**
+     * Calculates the round up between two past times without transferring it, for backfills and reconciliation.
+     * An end in the future is cut back to now.
+     */
+    @GetMapping("/roundup/history")
+    public ResponseEntity<String> historicalRoundup(@RequestParam(required = false) String accountUid,
+                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        LOGGER.info("Historical round up request received");
+
+        LocalDateTime now = LocalDateTime.now();
+        RoundUpWindow window = new RoundUpWindow(from, to.isAfter(now) ? now : to);
+        if (window.isEmpty()) {
+            return ResponseEntity.badRequest().body("Invalid round up window");
+        }
+
+        try {
+            BigDecimal roundUpAmount = roundUpService.calculateHistoricalRoundUp(accountUid, window);
+            return ResponseEntity.ok("Round up between " + window.getMinTimestamp() + " and " + window.getMaxTimestamp()
+                    + ": " + roundUpAmount);
+        } catch (Exception e) {
+            LOGGER.error("Failed to calculate historical round up: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Failed to calculate round up");
+        }
+    }
+
+    /**
+     * Shows what the next round up of the account would transfer, without transferring it. Served from a
+     * short-lived cache, so it can be polled without fetching the feed on every request.
+     */
+    @GetMapping("/roundup/preview")
+    public ResponseEntity<RoundUpPreviewDto> previewRoundup(@RequestParam(required = false) String accountUid) {
+        LOGGER.debug("Round up preview request received");
+
+        try {
+            return ResponseEntity.ok(roundUpService.previewRoundUp(accountUid));
+        } catch (Exception e) {
+            LOGGER.error("Failed to preview round up: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Queues a round up and returns straight away with the job, which can then be polled at its location.
+     * Responds 503 when the job queue is full.
+     */
+    @PostMapping("/roundup/jobs")
+    public ResponseEntity<RoundUpJobDto> submitRoundupJob(@RequestParam(required = false) String accountUid) {
+        LOGGER.info("Round up job request received");
+
+        try {
+            RoundUpJobDto job = roundUpJobService.submit(accountUid);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/roundup/jobs/" + job.getJobId()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/roundup/jobs/{jobId}")
+    public ResponseEntity<RoundUpJobDto> getRoundupJob(@PathVariable String jobId) {
+        return ResponseEntity.of(roundUpJobService.getJob(jobId));
+    }
+
+    /**
+     * Rounds up a batch of accounts concurrently, streaming one JSON line per account as each one finishes.
+     */
+    @PostMapping("/roundup/batch")
+    public ResponseEntity<ResponseBodyEmitter> batchRoundup(@RequestBody BatchRoundUpRequestDto request) {
+        List<BatchRoundUpItemDto> items = Optional.ofNullable(request.getAccounts()).orElse(List.of());
+        LOGGER.info("Batch round up request received for {} accounts", items.size());
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        batchRoundUpService.roundUpAll(items, result -> sendResult(emitter, result))
+                .whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        emitter.complete();
+                    } else {
+                        LOGGER.error("Failed to stream batch round up results: {}", error.getMessage());
+                        emitter.completeWithError(error);
+                    }
+                });
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    private void sendResult(ResponseBodyEmitter emitter, RoundUpResultDto result) {
+        // Results arrive from several worker threads, each line has to be written in one piece
+        synchronized (emitter) {
+            try {
+                emitter.send(result, MediaType.APPLICATION_JSON);
+                emitter.send("\n", MediaType.TEXT_PLAIN);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package org.thomasfraser.starlingroundup.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import org.thomasfraser.starlingroundup.service.RoundUpEventService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Controller class for feed item events pushed to us, and for the running round ups built from them.
+ * Every endpoint answers 404 unless {@code starling.roundup.events.enabled} is set.
+ */
+@RestController
+@RequestMapping("/api")
+public class RoundUpEventController {
+
+    static final String SIGNATURE_HEADER = "X-Hook-Signature";
+
+    private static final Logger LOGGER = LogManager.getLogger(RoundUpEventController.class);
+    private final RoundUpEventService roundUpEventService;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public RoundUpEventController(RoundUpEventService roundUpEventService, ObjectMapper objectMapper) {
+        this.roundUpEventService = roundUpEventService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Accepts a feed item event in the shape of a feed item, with its {@code accountUid}. The raw body is
+     * verified against the signature before it is parsed. A redelivered event is answered 200 as well, so the
+     * sender stops retrying it.
+     */
+    @PostMapping("/roundup/events")
+    public ResponseEntity<String> receiveEvent(@RequestBody byte[] body,
+                                               @RequestHeader(name = SIGNATURE_HEADER, required = false) String signature) {
+        if (!roundUpEventService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!roundUpEventService.isSignatureValid(body, signature)) {
+            LOGGER.warn("Refused feed item event with an invalid signature");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        TransactionDto event;
+        try {
+            event = objectMapper.readValue(body, TransactionDto.class);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("Invalid feed item event");
+        }
+
+        RoundUpEventService.Outcome outcome = roundUpEventService.ingest(event);
+        LOGGER.debug("Feed item event {} for account {}: {}", event.getFeedItemUid(), event.getAccountUid(), outcome);
+        return outcome == RoundUpEventService.Outcome.INVALID
+                ? ResponseEntity.badRequest().body("Invalid feed item event")
+                : ResponseEntity.ok(outcome.name());
+    }
+
+    /**
+     * The round up accumulated for the account from its events and not transferred yet, read without any upstream call.
+     */
+    @GetMapping("/roundup/events/{accountUid}")
+    public ResponseEntity<BigDecimal> getAccumulatedRoundup(@PathVariable String accountUid) {
+        if (!roundUpEventService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.of(roundUpEventService.getAccumulatedRoundUp(accountUid));
+    }
+
+    /**
+     * Transfers the round up accumulated for the account into its savings goal.
+     */
+    @PostMapping("/roundup/events/{accountUid}/transfer")
+    public ResponseEntity<String> transferAccumulatedRoundup(@PathVariable String accountUid) {
+        if (!roundUpEventService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        LOGGER.info("Accumulated round up transfer request received");
+
+        try {
+            BigDecimal roundUpAmount = roundUpEventService.transferAccumulatedRoundUp(accountUid);
+            return ResponseEntity.ok("Round up completed successfully. Total rounded up: " + roundUpAmount);
+        } catch (Exception e) {
+            LOGGER.error("Failed to transfer accumulated round up: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Failed to complete round up");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.thomasfraser.starlingroundup.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+public class BatchRoundUpItemDto {
+    // Optional, the configured token is used when absent
+    private String accessToken;
+    // Optional, the primary account is used when absent
+    private String accountUid;
+    // Optional, both or neither: round up this fixed, already ended window instead of everything since the watermark
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
@@ -0,0 +1,12 @@
+package org.thomasfraser.starlingroundup.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchRoundUpRequestDto {
+    private List<BatchRoundUpItemDto> accounts;
+}
@@ -0,0 +1,20 @@
+package org.thomasfraser.starlingroundup.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Getter
+@Setter
+public class RoundUpJobDto {
+    private String jobId;
+    private String accountUid;
+    private String status;
+    private BigDecimal roundUpAmount;
+    private String error;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant completedAt;
+}
@@ -0,0 +1,18 @@
+package org.thomasfraser.starlingroundup.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Getter
+@Setter
+public class RoundUpPreviewDto {
+    private String accountUid;
+    private String currency;
+    private String from;
+    private String to;
+    private BigDecimal roundUpAmount;
+    private Instant calculatedAt;
+}
@@ -0,0 +1,17 @@
+package org.thomasfraser.starlingroundup.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+public class RoundUpResultDto {
+    private int index;
+    private String accountUid;
+    private String currency;
+    private String status;
+    private BigDecimal roundUpAmount;
+    private String error;
+}
@@ -1,10 +1,12 @@
 package org.thomasfraser.starlingroundup.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class SavingsAccountDto {
     private String savingsGoalUid;
     private String name;
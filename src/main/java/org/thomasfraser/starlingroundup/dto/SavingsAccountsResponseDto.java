@@ -1,5 +1,6 @@
 package org.thomasfraser.starlingroundup.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -7,6 +8,7 @@ import java.util.List;
 
 @Getter
 @Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class SavingsAccountsResponseDto {
     private List<SavingsAccountDto> savingsGoalList;
 }
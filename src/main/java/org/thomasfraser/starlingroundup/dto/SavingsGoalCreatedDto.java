@@ -0,0 +1,13 @@
+package org.thomasfraser.starlingroundup.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SavingsGoalCreatedDto {
+    private String savingsGoalUid;
+    private boolean success;
+}
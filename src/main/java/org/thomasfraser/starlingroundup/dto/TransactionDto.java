@@ -1,12 +1,19 @@
 package org.thomasfraser.starlingroundup.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class TransactionDto {
+    // Only set on feed item events, the feed itself is always fetched for one account
+    private String accountUid;
+    private String feedItemUid;
+    private String transactionTime;
     private String direction;
     private AmountDto amount;
     private String status;
+    private String spendingCategory;
 }
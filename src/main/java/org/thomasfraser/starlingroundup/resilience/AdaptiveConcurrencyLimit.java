@@ -0,0 +1,114 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of calls in flight, adapting the limit by additive increase and multiplicative
+ * decrease (AIMD): every fast success grows the limit by roughly one per limit's worth of calls, while a
+ * slow call, a dropped call or a throttling response cuts it by the backoff ratio. Cuts are applied at most
+ * once per latency threshold, so a burst of failures from the same moment only counts once.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimit(int minLimit, int initialLimit, int maxLimit, long latencyThresholdNanos,
+                                    double backoffRatio, LongSupplier nanoClock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = nanoClock.getAsLong() - latencyThresholdNanos;
+    }
+
+    /**
+     * Takes a slot, waiting up to the timeout for one to free up. Returns false if none did.
+     */
+    public boolean acquire(long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = slotFreed.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long latencyNanos) {
+        lock.lock();
+        try {
+            if (latencyNanos > latencyThresholdNanos) {
+                decrease();
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a call that was throttled upstream or failed without a response.
+     */
+    public void onDropped() {
+        lock.lock();
+        try {
+            decrease();
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease() {
+        long now = nanoClock.getAsLong();
+        if (now - lastDecreaseNanos >= latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            lastDecreaseNanos = now;
+        }
+    }
+
+    private void release() {
+        inFlight--;
+        slotFreed.signalAll();
+    }
+}
@@ -0,0 +1,52 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the calls in flight to one endpoint, with a bounded number of callers allowed to wait for a slot.
+ * Once the queue is full, further callers are turned away at once instead of blocking their threads.
+ */
+public class Bulkhead {
+
+    private final Semaphore slots;
+    private final int maxWaitingCalls;
+    private final AtomicInteger waitingCalls = new AtomicInteger();
+
+    public Bulkhead(int maxConcurrentCalls, int maxWaitingCalls) {
+        this.slots = new Semaphore(maxConcurrentCalls, true);
+        this.maxWaitingCalls = maxWaitingCalls;
+    }
+
+    /**
+     * Takes a slot, waiting up to {@code maxWaitNanos} for one if there is room in the queue.
+     * Returns false when the call should be rejected.
+     */
+    public boolean tryAcquire(long maxWaitNanos) throws InterruptedException {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        if (waitingCalls.incrementAndGet() > maxWaitingCalls) {
+            waitingCalls.decrementAndGet();
+            return false;
+        }
+        try {
+            return slots.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            waitingCalls.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    public int getAvailableSlots() {
+        return slots.availablePermits();
+    }
+
+    public int getWaitingCalls() {
+        return waitingCalls.get();
+    }
+}
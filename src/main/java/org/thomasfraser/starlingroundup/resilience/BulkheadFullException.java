@@ -0,0 +1,11 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+/**
+ * Thrown when the bulkhead of an endpoint has no free slot and no room left to wait for one.
+ */
+public class BulkheadFullException extends StarlingCallRejectedException {
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
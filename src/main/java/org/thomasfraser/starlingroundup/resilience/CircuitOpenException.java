@@ -0,0 +1,11 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+/**
+ * Thrown when a call is not attempted because the circuit breaker of its endpoint is open.
+ */
+public class CircuitOpenException extends StarlingCallRejectedException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
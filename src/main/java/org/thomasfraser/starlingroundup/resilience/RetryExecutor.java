@@ -0,0 +1,128 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+import org.thomasfraser.starlingroundup.config.StarlingRetryProperties;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Retries Starling API calls that failed for a transient reason: an I/O error or timeout, a 5xx, or a 429.
+ * With the {@link StarlingRateLimiter} in place, 429s are left to it, as it already sends a throttled call again
+ * once the {@code Retry-After} has passed. Backoff grows exponentially with jitter, and every call has its own budget of
+ * attempts and elapsed time. Calls are retried around the whole RestTemplate call, so every attempt goes
+ * through the client interceptors again.
+ * Only calls that are safe to repeat should be retried; add money is, because its transfer UID is deterministic.
+ */
+@Component
+@EnableConfigurationProperties(StarlingRetryProperties.class)
+public class RetryExecutor {
+
+    private static final Logger LOGGER = LogManager.getLogger(RetryExecutor.class);
+    private final StarlingRetryProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final boolean retryThrottled;
+
+    @Autowired
+    public RetryExecutor(StarlingRetryProperties properties, MeterRegistry meterRegistry,
+                         Optional<StarlingRateLimiter> rateLimiter) {
+        this(properties, meterRegistry, rateLimiter.isEmpty());
+    }
+
+    /**
+     * Without a rate limiter, so 429s are retried here.
+     */
+    public RetryExecutor(StarlingRetryProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, true);
+    }
+
+    RetryExecutor(StarlingRetryProperties properties, MeterRegistry meterRegistry, boolean retryThrottled) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.retryThrottled = retryThrottled;
+    }
+
+    public <T> T call(StarlingEndpoint endpoint, Callable<T> call) throws Exception {
+        return call(endpoint, call, () -> true);
+    }
+
+    /**
+     * Runs the call, retrying transient failures while {@code retryAllowed} holds, e.g. until a streamed
+     * body has started reaching its consumer.
+     */
+    public <T> T call(StarlingEndpoint endpoint, Callable<T> call, BooleanSupplier retryAllowed) throws Exception {
+        long deadline = System.nanoTime() + properties.getBudget().toNanos();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                if (!properties.isEnabled() || attempt >= properties.getMaxAttempts()
+                        || !isTransient(e) || !retryAllowed.getAsBoolean()) {
+                    throw e;
+                }
+
+                long backoff = backoffNanos(attempt, e);
+                if (System.nanoTime() + backoff > deadline) {
+                    throw e;
+                }
+
+                LOGGER.warn("Retrying {} call after attempt {} failed: {}", endpoint.getTag(), attempt, e.getMessage());
+                retries(endpoint).increment();
+                TimeUnit.NANOSECONDS.sleep(backoff);
+            }
+        }
+    }
+
+    boolean isTransient(Exception e) {
+        if (e instanceof ResourceAccessException) {
+            // Rejected on the client side by the rate limiter, a bulkhead or an open circuit
+            return !(e.getCause() instanceof StarlingCallRejectedException);
+        }
+        return e instanceof HttpServerErrorException || (retryThrottled && e instanceof HttpClientErrorException.TooManyRequests);
+    }
+
+    long backoffNanos(int attempt, Exception e) {
+        double exponential = properties.getInitialBackoff().toNanos() * Math.pow(properties.getMultiplier(), attempt - 1);
+        long ceiling = (long) Math.min(properties.getMaxBackoff().toNanos(), exponential);
+        // Equal jitter: at least half the backoff, so retries spread out without collapsing to zero
+        long backoff = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        return Math.max(backoff, retryAfterNanos(e));
+    }
+
+    private static long retryAfterNanos(Exception e) {
+        if (e instanceof RestClientResponseException responseException && responseException.getResponseHeaders() != null) {
+            String retryAfter = responseException.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+            if (retryAfter != null) {
+                try {
+                    return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(retryAfter.trim())));
+                } catch (NumberFormatException ignored) {
+                    // An HTTP date is left to the jittered backoff
+                }
+            }
+        }
+        return 0;
+    }
+
+    private Counter retries(StarlingEndpoint endpoint) {
+        return Counter.builder("starling.client.retries")
+                .description("Starling API calls retried after a transient failure")
+                .tag("endpoint", endpoint.getTag())
+                .register(meterRegistry);
+    }
+}
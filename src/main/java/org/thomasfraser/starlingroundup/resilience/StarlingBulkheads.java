@@ -0,0 +1,90 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+import org.thomasfraser.starlingroundup.config.StarlingBulkheadProperties;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Gives every Starling API endpoint its own {@link Bulkhead}, so a slow endpoint (typically the feed)
+ * can only tie up its own share of threads and connections while the others keep flowing.
+ * A slot is held until the response is closed, which covers the time spent streaming its body.
+ */
+@Component
+@Order(StarlingBulkheads.ORDER)
+@ConditionalOnProperty(name = "starling.bulkhead.enabled", havingValue = "true")
+@EnableConfigurationProperties(StarlingBulkheadProperties.class)
+public class StarlingBulkheads implements ClientHttpRequestInterceptor {
+
+    public static final int ORDER = 60;
+
+    private static final Logger LOGGER = LogManager.getLogger(StarlingBulkheads.class);
+    private final long maxWaitNanos;
+    private final Map<StarlingEndpoint, Bulkhead> bulkheads = new EnumMap<>(StarlingEndpoint.class);
+    private final Map<StarlingEndpoint, Counter> rejectedCounters = new EnumMap<>(StarlingEndpoint.class);
+
+    public StarlingBulkheads(StarlingBulkheadProperties properties, MeterRegistry meterRegistry) {
+        this.maxWaitNanos = properties.getMaxWait().toNanos();
+        for (StarlingEndpoint endpoint : StarlingEndpoint.values()) {
+            Bulkhead bulkhead = new Bulkhead(properties.getMaxConcurrentCalls(endpoint), properties.getMaxWaitingCalls(endpoint));
+            bulkheads.put(endpoint, bulkhead);
+
+            Gauge.builder("starling.client.bulkhead.available", bulkhead, Bulkhead::getAvailableSlots)
+                    .description("Free call slots in the bulkhead of a Starling API endpoint")
+                    .tag("endpoint", endpoint.getTag())
+                    .register(meterRegistry);
+            Gauge.builder("starling.client.bulkhead.waiting", bulkhead, Bulkhead::getWaitingCalls)
+                    .description("Calls queued for a slot in the bulkhead of a Starling API endpoint")
+                    .tag("endpoint", endpoint.getTag())
+                    .register(meterRegistry);
+            rejectedCounters.put(endpoint, Counter.builder("starling.client.bulkhead.rejected")
+                    .description("Calls turned away by the bulkhead of a Starling API endpoint")
+                    .tag("endpoint", endpoint.getTag())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        StarlingEndpoint endpoint = StarlingEndpoint.resolve(request.getMethod(), request.getURI());
+        Bulkhead bulkhead = bulkheads.get(endpoint);
+
+        try {
+            if (!bulkhead.tryAcquire(maxWaitNanos)) {
+                rejectedCounters.get(endpoint).increment();
+                LOGGER.warn("Bulkhead for Starling API endpoint {} is full", endpoint.getTag());
+                throw new BulkheadFullException("Bulkhead for Starling API endpoint " + endpoint.getTag() + " is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a Starling API bulkhead slot");
+        }
+
+        try {
+            return new ReleasingClientHttpResponse(execution.execute(request, body), bulkhead::release);
+        } catch (IOException | RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+    }
+
+    Bulkhead getBulkhead(StarlingEndpoint endpoint) {
+        return bulkheads.get(endpoint);
+    }
+}
@@ -0,0 +1,15 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a call to the Starling API is turned away on the client side, before reaching the upstream.
+ * As an {@link IOException} it reaches callers of the RestTemplate as a {@code ResourceAccessException}.
+ * These calls are not retried: the component that rejected them has already waited as long as it may.
+ */
+public class StarlingCallRejectedException extends IOException {
+
+    public StarlingCallRejectedException(String message) {
+        super(message);
+    }
+}
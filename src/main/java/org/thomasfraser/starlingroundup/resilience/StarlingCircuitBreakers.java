@@ -0,0 +1,111 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+import org.thomasfraser.starlingroundup.config.StarlingCircuitBreakerProperties;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps a {@link CircuitBreaker} for every Starling API endpoint and fails calls fast while it is open.
+ * I/O errors and 5xx responses count as failures, and the latency of a call runs until its response is
+ * closed. Calls turned away on the client side, by a bulkhead or the rate limiter, are not counted at all.
+ * It sits outside the bulkheads and the rate limiter, so a broken endpoint is rejected before it waits for either.
+ */
+@Component
+@Order(StarlingCircuitBreakers.ORDER)
+@ConditionalOnProperty(name = "starling.circuit-breaker.enabled", havingValue = "true")
+@EnableConfigurationProperties(StarlingCircuitBreakerProperties.class)
+public class StarlingCircuitBreakers implements ClientHttpRequestInterceptor {
+
+    public static final int ORDER = 50;
+
+    private static final Logger LOGGER = LogManager.getLogger(StarlingCircuitBreakers.class);
+    private final LongSupplier nanoClock;
+    private final Map<StarlingEndpoint, CircuitBreaker> breakers = new EnumMap<>(StarlingEndpoint.class);
+    private final Map<StarlingEndpoint, Counter> rejectedCounters = new EnumMap<>(StarlingEndpoint.class);
+
+    @Autowired
+    public StarlingCircuitBreakers(StarlingCircuitBreakerProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    StarlingCircuitBreakers(StarlingCircuitBreakerProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        for (StarlingEndpoint endpoint : StarlingEndpoint.values()) {
+            CircuitBreaker breaker = new CircuitBreaker(properties.getSlidingWindowSize(), properties.getMinimumCalls(),
+                    properties.getFailureRateThreshold(), properties.getSlowCallRateThreshold(),
+                    properties.getSlowCallDuration(endpoint).toNanos(), properties.getOpenDuration().toNanos(),
+                    properties.getHalfOpenCalls(), nanoClock);
+            breakers.put(endpoint, breaker);
+
+            // One gauge per state, set to 1 for the current one, so dashboards can graph and alert on each
+            for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+                Gauge.builder("starling.client.circuit.state", breaker, b -> b.getState() == state ? 1 : 0)
+                        .description("Circuit breaker state of a Starling API endpoint")
+                        .tag("endpoint", endpoint.getTag())
+                        .tag("state", state.name().toLowerCase())
+                        .register(meterRegistry);
+            }
+            rejectedCounters.put(endpoint, Counter.builder("starling.client.circuit.rejected")
+                    .description("Calls failed fast by an open circuit breaker")
+                    .tag("endpoint", endpoint.getTag())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        StarlingEndpoint endpoint = StarlingEndpoint.resolve(request.getMethod(), request.getURI());
+        CircuitBreaker breaker = breakers.get(endpoint);
+
+        if (!breaker.tryAcquirePermission()) {
+            rejectedCounters.get(endpoint).increment();
+            throw new CircuitOpenException("Circuit breaker for Starling API endpoint " + endpoint.getTag() + " is open");
+        }
+
+        long start = nanoClock.getAsLong();
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (StarlingCallRejectedException e) {
+            breaker.releasePermission();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            onResult(endpoint, breaker, true, start);
+            throw e;
+        }
+
+        boolean failure = response.getStatusCode().is5xxServerError();
+        return new ReleasingClientHttpResponse(response, () -> onResult(endpoint, breaker, failure, start));
+    }
+
+    private void onResult(StarlingEndpoint endpoint, CircuitBreaker breaker, boolean failure, long start) {
+        CircuitBreaker.State before = breaker.getState();
+        breaker.onResult(failure, nanoClock.getAsLong() - start);
+        CircuitBreaker.State after = breaker.getState();
+        if (before != after) {
+            LOGGER.warn("Circuit breaker for Starling API endpoint {} went from {} to {}", endpoint.getTag(), before, after);
+        }
+    }
+
+    CircuitBreaker getCircuitBreaker(StarlingEndpoint endpoint) {
+        return breakers.get(endpoint);
+    }
+}
@@ -0,0 +1,11 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+/**
+ * Thrown when a call to the Starling API could not get a rate limit permit or a concurrency slot in time.
+ */
+public class StarlingRateLimitException extends StarlingCallRejectedException {
+
+    public StarlingRateLimitException(String message) {
+        super(message);
+    }
+}
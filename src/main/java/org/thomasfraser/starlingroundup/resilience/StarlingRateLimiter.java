@@ -0,0 +1,187 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.thomasfraser.starlingroundup.config.StarlingRateLimitProperties;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limits calls to the Starling API on the client side. Every call takes a permit from a global token
+ * bucket and from a bucket kept for its access token, and a slot from an {@link AdaptiveConcurrencyLimit}.
+ * A 429 response shrinks the concurrency limit and pauses the token's bucket until its {@code Retry-After},
+ * after which the call is sent again, so a fan-out slows down to what the upstream allows instead of failing.
+ * A 429 given back once those attempts run out is not retried again by the {@link RetryExecutor}.
+ * The concurrency slot is held until the response is closed, so the time spent reading a streamed body is
+ * limited and counted in the latency like the rest of the call.
+ */
+@Component
+@Order(StarlingRateLimiter.ORDER)
+@ConditionalOnProperty(name = "starling.rate-limit.enabled", havingValue = "true")
+@EnableConfigurationProperties(StarlingRateLimitProperties.class)
+public class StarlingRateLimiter implements ClientHttpRequestInterceptor {
+
+    public static final int ORDER = 100;
+
+    private static final Logger LOGGER = LogManager.getLogger(StarlingRateLimiter.class);
+    private final StarlingRateLimitProperties properties;
+    private final LongSupplier nanoClock;
+    private final TokenBucket globalBucket;
+    private final Cache<String, TokenBucket> tokenBuckets;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final Timer permitWaitTimer;
+    private final Counter throttledCounter;
+
+    @Autowired
+    public StarlingRateLimiter(StarlingRateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    StarlingRateLimiter(StarlingRateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.globalBucket = new TokenBucket(properties.getGlobalPermitsPerSecond(), properties.getGlobalBurst(), nanoClock);
+        this.tokenBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(properties.getMinConcurrency(), properties.getInitialConcurrency(),
+                properties.getMaxConcurrency(), properties.getLatencyThreshold().toNanos(), properties.getBackoffRatio(), nanoClock);
+
+        Gauge.builder("starling.client.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive limit on Starling API calls in flight")
+                .register(meterRegistry);
+        Gauge.builder("starling.client.concurrency.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Starling API calls in flight")
+                .register(meterRegistry);
+        this.permitWaitTimer = Timer.builder("starling.client.rate-limit.wait")
+                .description("Time calls spent waiting for a rate limit permit and a concurrency slot")
+                .register(meterRegistry);
+        this.throttledCounter = Counter.builder("starling.client.throttled")
+                .description("429 responses from the Starling API")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long deadline = nanoClock.getAsLong() + properties.getAcquireTimeout().toNanos();
+        TokenBucket tokenBucket = tokenBucket(request.getHeaders());
+
+        for (int attempt = 0; ; attempt++) {
+            acquire(tokenBucket, deadline);
+
+            long start = nanoClock.getAsLong();
+            ClientHttpResponse response;
+            try {
+                response = execution.execute(request, body);
+            } catch (IOException | RuntimeException e) {
+                concurrencyLimit.onDropped();
+                throw e;
+            }
+
+            if (response.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                return new ReleasingClientHttpResponse(response, () -> concurrencyLimit.onSuccess(nanoClock.getAsLong() - start));
+            }
+
+            concurrencyLimit.onDropped();
+            throttledCounter.increment();
+            long resumeAt = nanoClock.getAsLong() + retryAfterNanos(response.getHeaders());
+            (tokenBucket == null ? globalBucket : tokenBucket).pauseUntil(resumeAt);
+            LOGGER.warn("Starling API throttled {} {}, concurrency limit now {}",
+                    request.getMethod(), request.getURI().getPath(), concurrencyLimit.getLimit());
+
+            if (attempt >= properties.getMaxThrottleRetries() || resumeAt > deadline) {
+                return response;
+            }
+            response.close();
+        }
+    }
+
+    private void acquire(TokenBucket tokenBucket, long deadline) throws IOException {
+        long start = nanoClock.getAsLong();
+        try {
+            long wait = reservePermit(tokenBucket, deadline - start);
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            if (!concurrencyLimit.acquire(deadline - nanoClock.getAsLong())) {
+                throw new StarlingRateLimitException("Timed out waiting for a Starling API concurrency slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a Starling API rate limit permit");
+        } finally {
+            permitWaitTimer.record(nanoClock.getAsLong() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private long reservePermit(TokenBucket tokenBucket, long maxWaitNanos) throws StarlingRateLimitException {
+        long globalWait = globalBucket.reserve(maxWaitNanos);
+        if (globalWait < 0) {
+            throw new StarlingRateLimitException("Timed out waiting for a global Starling API rate limit permit");
+        }
+        if (tokenBucket == null) {
+            return globalWait;
+        }
+
+        long tokenWait = tokenBucket.reserve(maxWaitNanos);
+        if (tokenWait < 0) {
+            globalBucket.refund();
+            throw new StarlingRateLimitException("Timed out waiting for a Starling API rate limit permit for the access token");
+        }
+        return Math.max(globalWait, tokenWait);
+    }
+
+    private TokenBucket tokenBucket(HttpHeaders headers) {
+        String authorization = headers.getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null) {
+            return null;
+        }
+        return tokenBuckets.get(authorization, key ->
+                new TokenBucket(properties.getPerTokenPermitsPerSecond(), properties.getPerTokenBurst(), nanoClock));
+    }
+
+    private long retryAfterNanos(HttpHeaders headers) {
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(retryAfter.trim())));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime resumeAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Math.max(0, Duration.between(ZonedDateTime.now(resumeAt.getZone()), resumeAt).toNanos());
+                } catch (DateTimeParseException ignored) {
+                    // Fall through to the default pause
+                }
+            }
+        }
+        return properties.getDefaultRetryAfter().toNanos();
+    }
+
+    AdaptiveConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+}
@@ -0,0 +1,64 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that hands out permits by reservation: a caller takes a permit now and is told how
+ * long to wait before using it, so waiting callers are served in order without polling.
+ * The bucket can also be paused, e.g. until the time given by a {@code Retry-After} header.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double permitsPerNano;
+    private final LongSupplier nanoClock;
+    private double permits;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        this.capacity = burst;
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.nanoClock = nanoClock;
+        this.permits = burst;
+        this.lastRefillNanos = nanoClock.getAsLong();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * Reserves a permit if it can be used within {@code maxWaitNanos}. Returns the nanoseconds to wait
+     * before using it, or -1 without reserving anything when the wait would be longer.
+     */
+    public synchronized long reserve(long maxWaitNanos) {
+        long now = nanoClock.getAsLong();
+        refill(now);
+
+        long waitForPermit = permits >= 1 ? 0 : (long) Math.ceil((1 - permits) / permitsPerNano);
+        long wait = Math.max(waitForPermit, pausedUntilNanos - now);
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+
+        permits -= 1;
+        return wait;
+    }
+
+    /**
+     * Gives back a reserved permit that ended up not being used.
+     */
+    public synchronized void refund() {
+        permits = Math.min(capacity, permits + 1);
+    }
+
+    /**
+     * Holds back every permit until the given time on the bucket's clock.
+     */
+    public synchronized void pauseUntil(long nanoTime) {
+        pausedUntilNanos = Math.max(pausedUntilNanos, nanoTime);
+    }
+
+    private void refill(long now) {
+        permits = Math.min(capacity, permits + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,56 @@
+package org.thomasfraser.starlingroundup.scheduling;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps keys, such as account UIDs, onto a fixed number of shards by consistent hashing.
+ * Every shard is placed on the ring at several points, and a key belongs to the first shard point at or after
+ * its own hash. Changing the number of shards only moves the keys next to the points added or removed,
+ * and the hash is stable across JVMs, so every node agrees on where an account lives.
+ */
+public class ConsistentHashRing {
+
+    private static final int POINTS_PER_SHARD = 64;
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+    private final int shards;
+
+    public ConsistentHashRing(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("A ring needs at least one shard");
+        }
+        this.shards = shards;
+        for (int shard = 0; shard < shards; shard++) {
+            for (int point = 0; point < POINTS_PER_SHARD; point++) {
+                ring.put(hash("shard-" + shard + "-" + point), shard);
+            }
+        }
+    }
+
+    public int shardOf(String key) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(key));
+        return (entry == null ? ring.firstEntry() : entry).getValue();
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to provide MD5
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.thomasfraser.starlingroundup.scheduling;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Lock table through which nodes claim shards of the scheduled round up, kept as one small file per shard
+ * in a directory every node can reach. A lease file holds {@code owner expiresAt completedPeriod}, and it
+ * is only read and written under an exclusive OS file lock, so two nodes can never both hold a shard.
+ * <p>
+ * A lease expires unless renewed, so the shard of a node that dies is picked up by another one. Completing
+ * a shard records the period it was done for, so it is not processed again in that period by any node.
+ */
+public class FileShardLeaseTable {
+
+    private static final Logger LOGGER = LogManager.getLogger(FileShardLeaseTable.class);
+    private static final String NO_OWNER = "-";
+
+    private final Path directory;
+    private final String nodeId;
+    private final long leaseMillis;
+    private final Clock clock;
+
+    public FileShardLeaseTable(Path directory, String nodeId, Duration leaseDuration, Clock clock) throws IOException {
+        if (nodeId.isBlank() || nodeId.contains(" ")) {
+            throw new IllegalArgumentException("Invalid node ID: " + nodeId);
+        }
+        this.directory = directory;
+        this.nodeId = nodeId;
+        this.leaseMillis = leaseDuration.toMillis();
+        this.clock = clock;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Claims the shard for this node, unless another node holds a live lease on it or it was already
+     * completed for the period.
+     */
+    public synchronized boolean tryClaim(int shard, long period) throws IOException {
+        return update(shard, lease -> {
+            if (lease.completedPeriod() >= period) {
+                return null;
+            }
+            if (!lease.owner().equals(nodeId) && lease.expiresAt() > clock.millis()) {
+                return null;
+            }
+            return new Lease(nodeId, clock.millis() + leaseMillis, lease.completedPeriod());
+        });
+    }
+
+    /**
+     * Extends this node's lease on the shard. Returns false when the lease has been lost to another node.
+     */
+    public synchronized boolean renew(int shard) throws IOException {
+        return update(shard, lease -> lease.owner().equals(nodeId)
+                ? new Lease(nodeId, clock.millis() + leaseMillis, lease.completedPeriod())
+                : null);
+    }
+
+    /**
+     * Records the shard as done for the period and gives up the lease.
+     */
+    public synchronized boolean complete(int shard, long period) throws IOException {
+        return update(shard, lease -> lease.owner().equals(nodeId)
+                ? new Lease(NO_OWNER, 0, Math.max(period, lease.completedPeriod()))
+                : null);
+    }
+
+    /**
+     * Gives up the lease without completing the shard, so any node may claim it again straight away.
+     */
+    public synchronized void release(int shard) throws IOException {
+        update(shard, lease -> lease.owner().equals(nodeId)
+                ? new Lease(NO_OWNER, 0, lease.completedPeriod())
+                : null);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Reads the shard's lease under the file lock and writes back whatever the transition returns.
+     * A transition returning null leaves the lease as it is and makes the update report false.
+     */
+    private boolean update(int shard, LeaseTransition transition) throws IOException {
+        Path file = directory.resolve("shard-" + shard + ".lease");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            Lease next = transition.apply(read(channel, file));
+            if (next == null) {
+                return false;
+            }
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap((next.owner() + " " + next.expiresAt() + " " + next.completedPeriod() + "\n")
+                    .getBytes(StandardCharsets.UTF_8)), 0);
+            channel.force(true);
+            return true;
+        }
+    }
+
+    private static Lease read(FileChannel channel, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // Keep reading until the whole lease is in
+        }
+        String content = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim();
+        if (content.isEmpty()) {
+            return new Lease(NO_OWNER, 0, Long.MIN_VALUE);
+        }
+
+        String[] parts = content.split(" ");
+        try {
+            return new Lease(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            // Treated as free, at worst the shard is processed once more
+            LOGGER.warn("Ignoring malformed shard lease in {}: {}", file, content);
+            return new Lease(NO_OWNER, 0, Long.MIN_VALUE);
+        }
+    }
+
+    private record Lease(String owner, long expiresAt, long completedPeriod) {
+    }
+
+    @FunctionalInterface
+    private interface LeaseTransition {
+        Lease apply(Lease current);
+    }
+}
@@ -0,0 +1,96 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.client.StarlingTokenContext;
+import org.thomasfraser.starlingroundup.dto.BatchRoundUpItemDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpResultDto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Service class for running round ups for many accounts concurrently.
+ */
+@Service
+public class BatchRoundUpService {
+
+    private static final Logger LOGGER = LogManager.getLogger(BatchRoundUpService.class);
+    private final RoundUpService roundUpService;
+    private final ExecutorService batchRoundUpExecutor;
+
+    @Autowired
+    public BatchRoundUpService(RoundUpService roundUpService,
+                               @Qualifier("batchRoundUpExecutor") ExecutorService batchRoundUpExecutor) {
+        this.roundUpService = roundUpService;
+        this.batchRoundUpExecutor = batchRoundUpExecutor;
+    }
+
+    /**
+     * Rounds up every account in the batch, handing each result to the consumer as soon as it is ready.
+     * A failed account is reported in its result and does not stop the rest of the batch.
+     */
+    public CompletableFuture<Void> roundUpAll(List<BatchRoundUpItemDto> items, Consumer<RoundUpResultDto> resultConsumer) {
+        return roundUpAll(items, resultConsumer, () -> true);
+    }
+
+    /**
+     * Same as {@link #roundUpAll(List, Consumer)}, but each account is only started while {@code proceed} holds.
+     * Accounts reached after it stops holding are reported as {@code CANCELLED} without being rounded up.
+     */
+    public CompletableFuture<Void> roundUpAll(List<BatchRoundUpItemDto> items, Consumer<RoundUpResultDto> resultConsumer,
+                                              BooleanSupplier proceed) {
+        LOGGER.info("Starting batch round up for {} accounts", items.size());
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            int index = i;
+            futures[i] = CompletableFuture.runAsync(() -> resultConsumer.accept(roundUp(index, items.get(index), proceed)),
+                    batchRoundUpExecutor);
+        }
+
+        return CompletableFuture.allOf(futures);
+    }
+
+    private RoundUpResultDto roundUp(int index, BatchRoundUpItemDto item, BooleanSupplier proceed) {
+        RoundUpResultDto result = new RoundUpResultDto();
+        result.setIndex(index);
+        result.setAccountUid(item.getAccountUid());
+        if (!proceed.getAsBoolean()) {
+            result.setStatus("CANCELLED");
+            return result;
+        }
+
+        try {
+            RoundUpWindow window = fixedWindow(item);
+            BigDecimal roundUpAmount = StarlingTokenContext.callWithToken(item.getAccessToken(), () -> window == null
+                    ? roundUpService.calculateAndTransferRoundUp(item.getAccountUid())
+                    : roundUpService.calculateAndTransferRoundUp(item.getAccountUid(), window));
+            result.setStatus("COMPLETED");
+            result.setRoundUpAmount(roundUpAmount);
+        } catch (Exception e) {
+            LOGGER.error("Failed to complete round up for batch item {}: {}", index, e.getMessage());
+            result.setStatus("FAILED");
+            result.setError(e.getMessage());
+        }
+
+        return result;
+    }
+
+    private static RoundUpWindow fixedWindow(BatchRoundUpItemDto item) throws Exception {
+        if (item.getFrom() == null && item.getTo() == null) {
+            return null;
+        }
+        if (item.getFrom() == null || item.getTo() == null) {
+            throw new Exception("A fixed round up window needs both from and to");
+        }
+        return new RoundUpWindow(item.getFrom(), item.getTo());
+    }
+}
@@ -0,0 +1,89 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.client.StarlingTokenContext;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpResultDto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Service class for rounding up every eligible account of a customer, instead of only the primary one.
+ * The accounts are fetched once and rounded up in parallel, each into a savings goal of its own in its own
+ * currency, since Starling reports every transaction in the currency of the account it belongs to.
+ */
+@Service
+public class MultiAccountRoundUpService {
+
+    private static final Logger LOGGER = LogManager.getLogger(MultiAccountRoundUpService.class);
+    private final RoundUpService roundUpService;
+    private final StarlingClient starlingClient;
+    private final RoundUpProperties properties;
+    private final ExecutorService accountRoundUpExecutor;
+
+    @Autowired
+    public MultiAccountRoundUpService(RoundUpService roundUpService, StarlingClient starlingClient, RoundUpProperties properties,
+                                      @Qualifier("accountRoundUpExecutor") ExecutorService accountRoundUpExecutor) {
+        this.roundUpService = roundUpService;
+        this.starlingClient = starlingClient;
+        this.properties = properties;
+        this.accountRoundUpExecutor = accountRoundUpExecutor;
+    }
+
+    /**
+     * Rounds up every eligible account and returns one result per account, in the order the accounts were listed.
+     * A failed account is reported in its result and does not stop the others.
+     */
+    public List<RoundUpResultDto> roundUpAllAccounts() throws Exception {
+        List<AccountDto> accounts = starlingClient.fetchClientAccounts().stream()
+                .filter(this::isEligible)
+                .toList();
+        LOGGER.info("Rounding up {} eligible accounts", accounts.size());
+
+        // The access token lives in a thread local, so it is handed over to the account threads
+        String accessToken = StarlingTokenContext.currentToken().orElse(null);
+        List<CompletableFuture<RoundUpResultDto>> futures = new ArrayList<>();
+        for (int i = 0; i < accounts.size(); i++) {
+            int index = i;
+            futures.add(CompletableFuture.supplyAsync(() -> roundUp(index, accounts.get(index), accessToken), accountRoundUpExecutor));
+        }
+
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+    }
+
+    private boolean isEligible(AccountDto account) {
+        return account.getAccountType() != null
+                && properties.getAccounts().getEligibleTypes().contains(account.getAccountType().toUpperCase());
+    }
+
+    private RoundUpResultDto roundUp(int index, AccountDto account, String accessToken) {
+        RoundUpResultDto result = new RoundUpResultDto();
+        result.setIndex(index);
+        result.setAccountUid(account.getAccountUid());
+        result.setCurrency(account.getCurrency());
+
+        try {
+            BigDecimal roundUpAmount = StarlingTokenContext.callWithToken(accessToken, () -> roundUpService.roundUpAccount(account));
+            result.setStatus("COMPLETED");
+            result.setRoundUpAmount(roundUpAmount);
+        } catch (Exception e) {
+            LOGGER.error("Failed to complete round up for account {}: {}", account.getAccountUid(), e.getMessage());
+            result.setStatus("FAILED");
+            result.setError(e.getMessage());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,148 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.client.ReactiveStarlingApi;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+import org.thomasfraser.starlingroundup.store.RoundUpLedger;
+import org.thomasfraser.starlingroundup.store.WatermarkStore;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.thomasfraser.starlingroundup.service.RoundUpCalculator.SAVINGS_GOALS_NAME;
+
+/**
+ * Non-blocking counterpart of {@link RoundUpService}.
+ * The round up is summed as the feed streams in, so the transactions are never collected into a list.
+ * It starts from the same watermark as {@link RoundUpService}, with the same rounding strategy, and moves it the same
+ * way, so the two never round up the same transactions twice. The watermark store is file based, so it is read and
+ * written on the bounded elastic scheduler.
+ * With coalescing enabled, a request arriving while a round up is in flight gets its result instead of starting
+ * another. The {@link RoundUpLedger} is not consulted, as it only records fixed windows and this always rounds up
+ * from the watermark.
+ */
+@Service
+public class ReactiveRoundUpService {
+
+    private static final Logger LOGGER = LogManager.getLogger(ReactiveRoundUpService.class);
+    private final ReactiveStarlingApi starlingApi;
+    private final RoundUpProperties properties;
+    private final WatermarkStore watermarkStore;
+    private final RoundingStrategyResolver roundingStrategyResolver;
+    private final AtomicReference<Mono<BigDecimal>> inFlight = new AtomicReference<>();
+
+    @Autowired
+    public ReactiveRoundUpService(ReactiveStarlingApi starlingApi, RoundUpProperties properties, WatermarkStore watermarkStore,
+                                  RoundingStrategyResolver roundingStrategyResolver) {
+        this.starlingApi = starlingApi;
+        this.properties = properties;
+        this.watermarkStore = watermarkStore;
+        this.roundingStrategyResolver = roundingStrategyResolver;
+    }
+
+    public Mono<BigDecimal> calculateAndTransferRoundUp() {
+        if (!properties.getCoalescing().isEnabled()) {
+            return roundUpPrimaryAccount();
+        }
+        // Always the configured token's primary account, so every request joins the one in flight
+        return Mono.defer(() -> inFlight.updateAndGet(current -> current != null ? current
+                : roundUpPrimaryAccount().doFinally(signal -> inFlight.set(null)).cache()));
+    }
+
+    private Mono<BigDecimal> roundUpPrimaryAccount() {
+        return getPrimaryAccount()
+                .flatMap(account -> resolveWindow(account)
+                        .flatMap(window -> {
+                            if (window.isEmpty()) {
+                                LOGGER.info("Account already rounded up to {}.", window.getMaxTimestamp());
+                                return Mono.just(BigDecimal.ZERO);
+                            }
+                            return calculateRoundUp(account, window)
+                                    .flatMap(roundUp -> {
+                                        if (roundUp.getRoundUpTotal() == 0) {
+                                            LOGGER.info("No round up amount to transfer.");
+                                            return advanceWatermark(account, roundUp).thenReturn(BigDecimal.ZERO);
+                                        }
+                                        return ensureSavingsAccountExists(account)
+                                                .flatMap(savingsAccount -> transferRoundUpToSavings(account, savingsAccount, window,
+                                                        roundUp.getRoundUpTotal()))
+                                                // The watermark only moves once the money has, a failed transfer leaves the window to be retried
+                                                .flatMap(roundUpAmount -> advanceWatermark(account, roundUp).thenReturn(roundUpAmount));
+                                    });
+                        }));
+    }
+
+    private Mono<AccountDto> getPrimaryAccount() {
+        // Assuming we use primary account for round up
+        return starlingApi.fetchClientAccounts()
+                .filter(account -> "PRIMARY".equalsIgnoreCase(account.getAccountType()))
+                .next()
+                .switchIfEmpty(Mono.error(new Exception("No primary account found.")));
+    }
+
+    private Mono<RoundUpWindow> resolveWindow(AccountDto account) {
+        return Mono.fromCallable(() -> watermarkStore.get(account.getAccountUid())
+                        .map(RoundUpWindow::after)
+                        .orElseGet(RoundUpWindow::lastSevenDays))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Boolean> advanceWatermark(AccountDto account, WatermarkRoundUp roundUp) {
+        return Mono.fromCallable(() -> {
+                    watermarkStore.advance(account.getAccountUid(), roundUp.getSettledUpTo(), roundUp.getStillSettling());
+                    return true;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<WatermarkRoundUp> calculateRoundUp(AccountDto account, RoundUpWindow window) {
+        // Being safe here and checking for nulls
+        if (account.getAccountUid() == null) {
+            return Mono.error(new Exception("Account UUID cannot be null"));
+        }
+        if (account.getCurrency() == null) {
+            return Mono.error(new Exception("Account currency cannot be null"));
+        }
+
+        return Mono.fromCallable(() -> watermarkStore.getRoundedUp(account.getAccountUid()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(roundedUp -> {
+                    WatermarkRoundUp roundUp = new WatermarkRoundUp(window, properties.getTransactionStore().getSettlementLag(),
+                            account.getCurrency(), roundingStrategyResolver.forAccount(account.getAccountUid()), roundedUp);
+                    return starlingApi.fetchTransactions(account.getAccountUid(), window.getMinTimestamp(), window.getMaxTimestamp())
+                            .doOnNext(roundUp)
+                            .then(Mono.just(roundUp));
+                });
+    }
+
+    private Mono<SavingsAccountDto> ensureSavingsAccountExists(AccountDto account) {
+        return findSavingsAccount(account)
+                .switchIfEmpty(Mono.defer(() -> starlingApi.createSavingsGoal(account.getAccountUid(), account.getCurrency(), SAVINGS_GOALS_NAME)
+                        .then(findSavingsAccount(account))))
+                .switchIfEmpty(Mono.error(new Exception("Savings goal not found after creation.")));
+    }
+
+    private Mono<SavingsAccountDto> findSavingsAccount(AccountDto account) {
+        return starlingApi.getSavingsGoals(account.getAccountUid())
+                .filter(savingsAccount -> savingsAccount.getName().equals(SAVINGS_GOALS_NAME))
+                .filter(savingsAccount -> savingsAccount.getState().equals("ACTIVE"))
+                .next();
+    }
+
+    private Mono<BigDecimal> transferRoundUpToSavings(AccountDto account, SavingsAccountDto savingsAccount, RoundUpWindow window,
+                                                      long roundUpTotal) {
+        String transferUid = RoundUpCalculator.transferUid(account.getAccountUid(), savingsAccount.getSavingsGoalUid(), window);
+        return starlingApi.addMoneyToSavingsGoal(account.getAccountUid(), account.getCurrency(), savingsAccount.getSavingsGoalUid(),
+                        transferUid, roundUpTotal)
+                .flatMap(success -> success
+                        ? Mono.just(RoundUpCalculator.convertToBigDecimal(roundUpTotal))
+                        : Mono.error(new Exception("Failed to transfer round up amount.")));
+    }
+}
@@ -0,0 +1,63 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.thomasfraser.starlingroundup.aggregation.RoundingStrategy;
+import org.thomasfraser.starlingroundup.aggregation.SpendingCategory;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Round up arithmetic shared by the blocking and reactive round up services.
+ */
+final class RoundUpCalculator {
+
+    static final String SAVINGS_GOALS_NAME = "RoundUp2025";
+
+    private RoundUpCalculator() {
+    }
+
+    static long calculateRoundUp(Iterable<TransactionDto> validTransactions) {
+        long totalRoundUp = 0;
+        for (TransactionDto transaction : validTransactions) {
+            totalRoundUp += roundUp(transaction.getAmount().getMinorUnits());
+        }
+
+        return totalRoundUp;
+    }
+
+    static long calculateRoundUp(Iterable<TransactionDto> validTransactions, RoundingStrategy roundingStrategy) {
+        long totalRoundUp = 0;
+        for (TransactionDto transaction : validTransactions) {
+            int category = SpendingCategory.idOf(transaction.getSpendingCategory());
+            totalRoundUp += roundingStrategy.roundUp(transaction.getAmount().getMinorUnits(), category);
+        }
+
+        return totalRoundUp;
+    }
+
+    static long roundUp(long minorUnits) {
+        long remainder = minorUnits % 100;
+        return remainder == 0 ? 0 : 100 - remainder;
+    }
+
+    static boolean isValidTransaction(TransactionDto transaction, String accountCurrency) {
+        return transaction.getDirection().equalsIgnoreCase("OUT")
+                && transaction.getAmount().getMinorUnits() > 0
+                && transaction.getAmount().getCurrency().equalsIgnoreCase(accountCurrency);
+    }
+
+    static BigDecimal convertToBigDecimal(long roundUpTotal) {
+        return new BigDecimal(roundUpTotal).divide(new BigDecimal(100));
+    }
+
+    /**
+     * Transfer UID for moving the round up of a window into a savings goal. It is derived from the account,
+     * the goal and the window, so a retried transfer reuses the UID and the upstream only applies it once.
+     */
+    static String transferUid(String accountUid, String savingsGoalUid, RoundUpWindow window) {
+        String key = accountUid + "|" + savingsGoalUid + "|" + window.getMinTimestamp() + "|" + window.getMaxTimestamp();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
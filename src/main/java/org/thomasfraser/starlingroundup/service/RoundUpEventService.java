@@ -0,0 +1,215 @@
+package org.thomasfraser.starlingroundup.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.aggregation.SpendingCategory;
+import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import org.thomasfraser.starlingroundup.store.RoundUpAccumulator;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps a running round up per account from feed item events pushed to us, as an alternative to scanning the feed.
+ * Each event is checked against the HMAC-SHA256 of its body under the shared secret, deduplicated by feed item UID
+ * and added to the {@link RoundUpAccumulator}, which is checkpointed every {@code checkpoint-interval}.
+ * The accumulated amount is then read without any upstream call, and transferring it drains the accumulator.
+ * <p>
+ * The accumulator knows nothing of the watermark, so an account fed by events should not also be rounded up from
+ * its feed, or its transactions would be rounded up twice.
+ */
+@Service
+public class RoundUpEventService {
+
+    private static final Logger LOGGER = LogManager.getLogger(RoundUpEventService.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    // Both end up in the checkpoint file, which is split on spaces
+    private static final Pattern UID = Pattern.compile("[A-Za-z0-9-]+");
+    private static final Pattern CURRENCY = Pattern.compile("[A-Z]{3}");
+
+    /**
+     * What became of an event.
+     */
+    public enum Outcome {
+        ACCEPTED,
+        DUPLICATE,
+        // Valid, but with nothing to round up, such as an incoming payment or a whole pound
+        IGNORED,
+        INVALID
+    }
+
+    private final StarlingClient starlingClient;
+    private final RoundUpService roundUpService;
+    private final RoundingStrategyResolver roundingStrategyResolver;
+    private final RoundUpProperties.Events events;
+    private final RoundUpAccumulator accumulator;
+    private final MeterRegistry meterRegistry;
+    private ScheduledExecutorService checkpointer;
+
+    @Autowired
+    public RoundUpEventService(StarlingClient starlingClient, RoundUpService roundUpService,
+                               RoundingStrategyResolver roundingStrategyResolver, RoundUpProperties properties,
+                               Optional<RoundUpAccumulator> accumulator, MeterRegistry meterRegistry) {
+        this.starlingClient = starlingClient;
+        this.roundUpService = roundUpService;
+        this.roundingStrategyResolver = roundingStrategyResolver;
+        this.events = properties.getEvents();
+        this.accumulator = accumulator.orElse(null);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (accumulator == null) {
+            return;
+        }
+        if (events.getSecret() == null || events.getSecret().isBlank()) {
+            LOGGER.warn("No starling.roundup.events.secret set, every feed item event will be refused");
+        }
+        long checkpointMillis = events.getCheckpointInterval().toMillis();
+        checkpointer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("roundup-event-checkpoint-"));
+        checkpointer.scheduleWithFixedDelay(this::checkpointSafely, checkpointMillis, checkpointMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (checkpointer != null) {
+            checkpointer.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return accumulator != null;
+    }
+
+    /**
+     * Whether the signature is the Base64 HMAC-SHA256 of the body under the shared secret.
+     */
+    public boolean isSignatureValid(byte[] body, String signature) {
+        if (signature == null || events.getSecret() == null || events.getSecret().isBlank()) {
+            return false;
+        }
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(events.getSecret().getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            byte[] expected = mac.doFinal(body);
+            // Compared in constant time, so the signature cannot be guessed a byte at a time
+            return MessageDigest.isEqual(expected, Base64.getDecoder().decode(signature));
+        } catch (IllegalArgumentException e) {
+            return false;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot verify feed item event signatures", e);
+        }
+    }
+
+    /**
+     * Adds the round up of a verified feed item event to its account.
+     */
+    public Outcome ingest(TransactionDto event) {
+        Outcome outcome = accumulate(event);
+        Counter.builder("roundup.events")
+                .description("Feed item events received, by outcome")
+                .tag("outcome", outcome.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        return outcome;
+    }
+
+    private Outcome accumulate(TransactionDto event) {
+        if (event.getAccountUid() == null || !UID.matcher(event.getAccountUid()).matches()
+                || event.getFeedItemUid() == null || !UID.matcher(event.getFeedItemUid()).matches()
+                || event.getDirection() == null || event.getAmount() == null || event.getAmount().getCurrency() == null
+                || !CURRENCY.matcher(event.getAmount().getCurrency()).matches()) {
+            return Outcome.INVALID;
+        }
+        if (!RoundUpCalculator.isValidTransaction(event, event.getAmount().getCurrency())) {
+            return Outcome.IGNORED;
+        }
+
+        int category = SpendingCategory.idOf(event.getSpendingCategory());
+        long roundUp = roundingStrategyResolver.forAccount(event.getAccountUid()).roundUp(event.getAmount().getMinorUnits(), category);
+        if (roundUp == 0) {
+            return Outcome.IGNORED;
+        }
+        if (!accumulator.add(event.getAccountUid(), event.getFeedItemUid(), event.getAmount().getCurrency(), roundUp)) {
+            return Outcome.DUPLICATE;
+        }
+        return Outcome.ACCEPTED;
+    }
+
+    /**
+     * The round up accumulated for the account and not transferred yet, including a transfer that was started
+     * and not confirmed.
+     */
+    public Optional<BigDecimal> getAccumulatedRoundUp(String accountUid) {
+        return accumulator.get(accountUid)
+                .map(tally -> tally.minorUnits() + (tally.inFlight() == null ? 0 : tally.inFlight().minorUnits()))
+                .map(RoundUpCalculator::convertToBigDecimal);
+    }
+
+    /**
+     * Transfers everything accumulated for the account into its savings goal, with the configured token.
+     * Events only name the account, so it is looked up first and the tally must be in the account's currency.
+     */
+    public BigDecimal transferAccumulatedRoundUp(String accountUid) throws Exception {
+        RoundUpAccumulator.Tally tally = accumulator.get(accountUid)
+                .orElseThrow(() -> new Exception("No feed item events received for account " + accountUid));
+        AccountDto account = roundUpService.lookupAccount(accountUid);
+        if (!account.getCurrency().equals(tally.currency())) {
+            throw new Exception("Feed item events for account " + accountUid + " are in " + tally.currency()
+                    + ", not the account currency " + account.getCurrency());
+        }
+        SavingsAccountDto savingsAccount = roundUpService.resolveSavingsAccount(account);
+
+        Optional<RoundUpAccumulator.Drain> drain = accumulator.beginDrain(accountUid);
+        if (drain.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        long minorUnits = drain.get().minorUnits();
+        boolean success = starlingClient.addMoneyToSavingsGoal(accountUid, account.getCurrency(), savingsAccount.getSavingsGoalUid(),
+                drain.get().transferUid(), minorUnits);
+        if (!success) {
+            throw new Exception("Failed to transfer round up amount.");
+        }
+        accumulator.completeDrain(accountUid, drain.get());
+        Counter.builder("roundup.transferred")
+                .description("Minor units moved into savings goals")
+                .baseUnit("minor-units")
+                .tag("currency", account.getCurrency())
+                .register(meterRegistry)
+                .increment(minorUnits);
+
+        return RoundUpCalculator.convertToBigDecimal(minorUnits);
+    }
+
+    private void checkpointSafely() {
+        try {
+            accumulator.checkpoint();
+        } catch (IOException | RuntimeException e) {
+            // An escaped exception would cancel every later checkpoint
+            LOGGER.error("Failed to checkpoint running round ups: {}", e.getMessage());
+        }
+    }
+}
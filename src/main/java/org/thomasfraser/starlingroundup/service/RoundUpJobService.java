@@ -0,0 +1,111 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.client.StarlingTokenContext;
+import org.thomasfraser.starlingroundup.dto.RoundUpJobDto;
+import org.thomasfraser.starlingroundup.store.RoundUpJobStore;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.thomasfraser.starlingroundup.store.RoundUpJobStore.COMPLETED;
+import static org.thomasfraser.starlingroundup.store.RoundUpJobStore.FAILED;
+import static org.thomasfraser.starlingroundup.store.RoundUpJobStore.QUEUED;
+import static org.thomasfraser.starlingroundup.store.RoundUpJobStore.RUNNING;
+
+/**
+ * Service class for running round ups as background jobs, so the request thread only has to enqueue them.
+ */
+@Service
+public class RoundUpJobService {
+
+    private static final Logger LOGGER = LogManager.getLogger(RoundUpJobService.class);
+    private final RoundUpService roundUpService;
+    private final ExecutorService roundUpJobExecutor;
+    private final RoundUpJobStore jobStore;
+
+    @Autowired
+    public RoundUpJobService(RoundUpService roundUpService,
+                             @Qualifier("roundUpJobExecutor") ExecutorService roundUpJobExecutor,
+                             RoundUpJobStore jobStore) {
+        this.roundUpService = roundUpService;
+        this.roundUpJobExecutor = roundUpJobExecutor;
+        this.jobStore = jobStore;
+    }
+
+    /**
+     * Queues a round up of the given account, or the primary account when no account UID is given.
+     * Throws {@link RejectedExecutionException} when the job queue is full.
+     */
+    public RoundUpJobDto submit(String accountUid) {
+        String accessToken = StarlingTokenContext.currentToken().orElse(null);
+
+        RoundUpJobDto job = new RoundUpJobDto();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setAccountUid(accountUid);
+        job.setStatus(QUEUED);
+        job.setSubmittedAt(Instant.now());
+        jobStore.put(job);
+
+        try {
+            roundUpJobExecutor.execute(() -> run(job, accessToken));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Round up job queue is full, rejecting job {}", job.getJobId());
+            finish(job, null, "Round up job queue is full");
+            throw e;
+        }
+
+        LOGGER.info("Queued round up job {}", job.getJobId());
+        return job;
+    }
+
+    public Optional<RoundUpJobDto> getJob(String jobId) {
+        return jobStore.get(jobId);
+    }
+
+    private void run(RoundUpJobDto queuedJob, String accessToken) {
+        RoundUpJobDto job = copy(queuedJob);
+        job.setStatus(RUNNING);
+        job.setStartedAt(Instant.now());
+        jobStore.put(job);
+
+        try {
+            BigDecimal roundUpAmount = StarlingTokenContext.callWithToken(accessToken,
+                    () -> roundUpService.calculateAndTransferRoundUp(job.getAccountUid()));
+            finish(job, roundUpAmount, null);
+        } catch (Exception e) {
+            LOGGER.error("Failed to complete round up job {}: {}", job.getJobId(), e.getMessage());
+            finish(job, null, e.getMessage());
+        }
+    }
+
+    private void finish(RoundUpJobDto runningJob, BigDecimal roundUpAmount, String error) {
+        RoundUpJobDto job = copy(runningJob);
+        job.setStatus(error == null ? COMPLETED : FAILED);
+        job.setRoundUpAmount(roundUpAmount);
+        job.setError(error);
+        job.setCompletedAt(Instant.now());
+        jobStore.put(job);
+    }
+
+    private static RoundUpJobDto copy(RoundUpJobDto job) {
+        RoundUpJobDto copy = new RoundUpJobDto();
+        copy.setJobId(job.getJobId());
+        copy.setAccountUid(job.getAccountUid());
+        copy.setStatus(job.getStatus());
+        copy.setRoundUpAmount(job.getRoundUpAmount());
+        copy.setError(job.getError());
+        copy.setSubmittedAt(job.getSubmittedAt());
+        copy.setStartedAt(job.getStartedAt());
+        copy.setCompletedAt(job.getCompletedAt());
+        return copy;
+    }
+}
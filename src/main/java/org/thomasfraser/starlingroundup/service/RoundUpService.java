@@ -1,58 +1,336 @@
 package org.thomasfraser.starlingroundup.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.aggregation.RoundUpAggregator;
+import org.thomasfraser.starlingroundup.aggregation.RoundingStrategy;
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
 import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.client.StarlingTokenContext;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
 import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpPreviewDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpResultDto;
 import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
 import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import org.thomasfraser.starlingroundup.store.RoundUpLedger;
+import org.thomasfraser.starlingroundup.store.WatermarkStore;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.thomasfraser.starlingroundup.service.RoundUpCalculator.SAVINGS_GOALS_NAME;
 
 /**
  * Service class for handling round up operations.
+ * Each stage of a round up is timed as {@code roundup.stage}, tagged by stage.
+ * With prefetch enabled the savings goal lookup runs on {@code roundUpPrefetchExecutor} while the feed is
+ * being fetched, as both only need the account.
+ * With coalescing enabled, concurrent round ups of the same account and token, such as a retried or
+ * double-clicked request, join the one already in flight instead of fetching and transferring again.
+ * With write-behind enabled, round ups that ask to be scheduled are journaled by {@link WriteBehindTransferService}
+ * and moved into the savings goal in batches rather than one transfer each.
+ * Previews of the next round up are cached for a short time per token, account and watermark.
+ * The watermark is kept the settlement lag behind the end of the last window, with the feed items after it already
+ * rounded up, so transactions settling late are still rounded up once; see {@link WatermarkRoundUp}.
+ * Every completed fixed window is recorded in the {@link RoundUpLedger}, so one rounded up again, such as by a re-run
+ * nightly batch, is answered from the record without fetching the feed or transferring again.
  */
 @Service
 public class RoundUpService {
 
     private static final Logger LOGGER = LogManager.getLogger(RoundUpService.class);
+    private static final int COLUMN_BATCH_SIZE = 1024;
     private final StarlingClient starlingClient;
-    private final String SAVINGS_GOALS_NAME = "RoundUp2025";
+    private final RoundUpProperties properties;
+    private final WatermarkStore watermarkStore;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService prefetchExecutor;
+    private final TransactionHistoryService transactionHistoryService;
+    private final RoundingStrategyResolver roundingStrategyResolver;
+    private final WriteBehindTransferService writeBehindTransferService;
+    private final RoundUpLedger ledger;
+    private final Timer accountLookupTimer;
+    private final Timer feedFetchTimer;
+    private final Timer aggregationTimer;
+    private final Timer goalResolutionTimer;
+    private final Timer transferTimer;
+    private final Counter transactionsScanned;
+    private final Counter coalescedRoundUps;
+    private final Counter replayedRoundUps;
+    private final SingleFlight<String, RoundUpOutcome> inFlightRoundUps = new SingleFlight<>();
+    private final Cache<String, RoundUpPreviewDto> previews;
+
+    /**
+     * The amount rounded up, and whether its transfer was journaled to be made later rather than made straight away.
+     */
+    private record RoundUpOutcome(BigDecimal roundUpAmount, boolean scheduled) {
+    }
 
     @Autowired
-    public RoundUpService(StarlingClient starlingClient) {
+    public RoundUpService(StarlingClient starlingClient, RoundUpProperties properties, WatermarkStore watermarkStore,
+                          MeterRegistry meterRegistry, @Qualifier("roundUpPrefetchExecutor") ExecutorService prefetchExecutor,
+                          TransactionHistoryService transactionHistoryService, RoundingStrategyResolver roundingStrategyResolver,
+                          WriteBehindTransferService writeBehindTransferService, RoundUpLedger ledger) {
         this.starlingClient = starlingClient;
+        this.properties = properties;
+        this.watermarkStore = watermarkStore;
+        this.meterRegistry = meterRegistry;
+        this.prefetchExecutor = prefetchExecutor;
+        this.transactionHistoryService = transactionHistoryService;
+        this.roundingStrategyResolver = roundingStrategyResolver;
+        this.writeBehindTransferService = writeBehindTransferService;
+        this.ledger = ledger;
+        this.accountLookupTimer = stageTimer(meterRegistry, "account-lookup");
+        this.feedFetchTimer = stageTimer(meterRegistry, "feed-fetch");
+        this.aggregationTimer = stageTimer(meterRegistry, "aggregation");
+        this.goalResolutionTimer = stageTimer(meterRegistry, "goal-resolution");
+        this.transferTimer = stageTimer(meterRegistry, "transfer");
+        this.transactionsScanned = Counter.builder("roundup.transactions.scanned")
+                .description("Feed items read while calculating round ups")
+                .register(meterRegistry);
+        this.coalescedRoundUps = Counter.builder("roundup.coalesced")
+                .description("Round ups that joined one already in flight for the same account")
+                .register(meterRegistry);
+        this.replayedRoundUps = Counter.builder("roundup.ledger.replayed")
+                .description("Round ups of a window already completed, answered from the ledger")
+                .register(meterRegistry);
+        this.previews = Caffeine.newBuilder()
+                .maximumSize(properties.getPreview().getMaximumSize())
+                .expireAfterWrite(properties.getPreview().getTimeToLive())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, previews, "roundup.previews");
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("roundup.stage")
+                .description("Time spent in each stage of a round up")
+                .tag("stage", stage)
+                .register(meterRegistry);
     }
 
     public BigDecimal calculateAndTransferRoundUp() throws Exception {
-        List<AccountDto> accounts = starlingClient.fetchClientAccounts();
-        AccountDto account = getPrimaryAccount(accounts);
-        List<TransactionDto> transactions = fetchValidTransactions(account);
-        long roundUpTotal = calculateRoundUp(transactions);
+        return calculateAndTransferRoundUp(null);
+    }
+
+    /**
+     * Rounds up the given account, or the primary account when no account UID is given.
+     */
+    public BigDecimal calculateAndTransferRoundUp(String accountUid) throws Exception {
+        AccountDto account = accountLookupTimer.recordCallable(() -> lookupAccount(accountUid));
+        return transferRoundUp(account, null, false).roundUpAmount();
+    }
+
+    /**
+     * Rounds up the primary account like {@link #calculateAndTransferRoundUp()}, except that with write-behind enabled
+     * the transfer is journaled and made later, together with others into the same savings goal. The result is
+     * {@code SCHEDULED} when the transfer was journaled and {@code COMPLETED} when it was made straight away.
+     */
+    public RoundUpResultDto calculateAndScheduleRoundUp() throws Exception {
+        AccountDto account = accountLookupTimer.recordCallable(() -> lookupAccount(null));
+        RoundUpOutcome outcome = transferRoundUp(account, null, writeBehindTransferService.isEnabled());
+
+        RoundUpResultDto result = new RoundUpResultDto();
+        result.setAccountUid(account.getAccountUid());
+        result.setCurrency(account.getCurrency());
+        result.setStatus(outcome.scheduled() ? "SCHEDULED" : "COMPLETED");
+        result.setRoundUpAmount(outcome.roundUpAmount());
+        return result;
+    }
 
-        if (roundUpTotal == 0) {
-            LOGGER.info("No round up amount to transfer.");
-            return BigDecimal.ZERO;
+    /**
+     * Rounds up a fixed window of the given account, or the primary account, that ended at least the settlement lag
+     * ago, so its transactions have all settled and its round up can no longer change.
+     * The account is looked up with the caller's token before the ledger is consulted, so a window already completed
+     * is only answered from it for an account the caller can see.
+     * The watermark is left alone, so an account should be rounded up either by fixed windows or from its watermark.
+     */
+    public BigDecimal calculateAndTransferRoundUp(String accountUid, RoundUpWindow window) throws Exception {
+        LocalDateTime settledUpTo = LocalDateTime.now().minus(properties.getTransactionStore().getSettlementLag());
+        if (window.isEmpty() || window.getEnd().isAfter(settledUpTo)) {
+            throw new Exception("Round up window must be non-empty and have ended at least the settlement lag ago");
         }
 
-        SavingsAccountDto savingsAccount = ensureSavingsAccountExists(account);
-        if (savingsAccount == null) {
-            starlingClient.createSavingsGoal(account.getAccountUid(), account.getCurrency(), SAVINGS_GOALS_NAME);
-            savingsAccount = ensureSavingsAccountExists(account);
+        AccountDto account = accountLookupTimer.recordCallable(() -> lookupAccount(accountUid));
+        return transferRoundUp(account, window, false).roundUpAmount();
+    }
+
+    /**
+     * Rounds up an account that has already been looked up, such as one of several from a single accounts fetch.
+     */
+    public BigDecimal roundUpAccount(AccountDto account) throws Exception {
+        validateAccount(account);
+        return transferRoundUp(account, null, false).roundUpAmount();
+    }
+
+    private RoundUpOutcome transferRoundUp(AccountDto account, RoundUpWindow fixedWindow, boolean schedule) throws Exception {
+        if (!properties.getCoalescing().isEnabled()) {
+            return runRoundUp(account, fixedWindow, schedule);
+        }
+
+        // The token is part of the key, so a caller only ever shares a result it could have fetched itself
+        String key = StarlingTokenContext.currentToken().orElse("") + "|" + account.getAccountUid()
+                + (fixedWindow == null ? "" : "|" + fixedWindow.getStart() + "|" + fixedWindow.getEnd())
+                + (schedule ? "|scheduled" : "");
+        SingleFlight.Outcome<RoundUpOutcome> outcome = inFlightRoundUps.call(key, () -> runRoundUp(account, fixedWindow, schedule));
+        if (outcome.joined()) {
+            LOGGER.info("Joined the round up already in flight for account {}", account.getAccountUid());
+            coalescedRoundUps.increment();
+        }
+        return outcome.value();
+    }
+
+    private RoundUpOutcome runRoundUp(AccountDto account, RoundUpWindow fixedWindow, boolean schedule) throws Exception {
+        if (fixedWindow != null) {
+            // Only once the account has been looked up with the caller's token, and again for a coalesced repeat
+            Optional<RoundUpLedger.Entry> recorded = ledger.get(account.getAccountUid(), fixedWindow.getStart(), fixedWindow.getEnd());
+            if (recorded.isPresent()) {
+                return new RoundUpOutcome(replay(account.getAccountUid(), recorded.get()), false);
+            }
+        }
+
+        RoundUpWindow window = fixedWindow == null ? resolveWindow(account) : fixedWindow;
+        if (window.isEmpty()) {
+            LOGGER.info("Account already rounded up to {}.", window.getMaxTimestamp());
+            return new RoundUpOutcome(BigDecimal.ZERO, false);
+        }
+
+        Future<SavingsAccountDto> savingsAccountLookup = properties.getPrefetch().isEnabled()
+                ? prefetchSavingsAccount(account)
+                : null;
+
+        WatermarkRoundUp sinceWatermark;
+        long roundUpTotal;
+        SavingsAccountDto savingsAccount;
+        boolean lookupAwaited = false;
+        try {
+            sinceWatermark = fixedWindow == null ? roundUpSinceWatermark(account, window) : null;
+            roundUpTotal = sinceWatermark == null ? calculateRoundUp(account, window) : sinceWatermark.getRoundUpTotal();
+
+            if (roundUpTotal == 0) {
+                LOGGER.info("No round up amount to transfer.");
+                complete(account, window, sinceWatermark, new RoundUpLedger.Entry(0, null));
+                return new RoundUpOutcome(BigDecimal.ZERO, false);
+            }
+
+            lookupAwaited = savingsAccountLookup != null;
+            savingsAccount = savingsAccountLookup == null
+                    ? goalResolutionTimer.recordCallable(() -> resolveSavingsAccount(account))
+                    : awaitSavingsAccount(account, savingsAccountLookup);
+        } finally {
+            // Left behind when the round up fails or has nothing to move. A lookup still queued then never runs,
+            // so it cannot create a goal speculatively, and one already running is interrupted
+            if (savingsAccountLookup != null && !lookupAwaited) {
+                savingsAccountLookup.cancel(true);
+            }
+        }
+
+        // The journal moves watermarks up to what it holds on startup, so fixed windows are never deferred
+        String transferUid = null;
+        boolean scheduled = schedule && fixedWindow == null;
+        if (scheduled) {
+            writeBehindTransferService.defer(account, savingsAccount, window, roundUpTotal);
+        } else {
+            transferUid = RoundUpCalculator.transferUid(account.getAccountUid(), savingsAccount.getSavingsGoalUid(), window);
+            String uid = transferUid;
+            boolean success = transferTimer.recordCallable(() -> transferRoundUpToSavings(account, savingsAccount, uid, roundUpTotal));
+            if (!success) {
+                throw new Exception("Failed to transfer round up amount.");
+            }
+            recordTransferred(account.getCurrency(), roundUpTotal);
+        }
+        // Only recorded once the money has moved or been journaled, a failed transfer leaves the window to be retried
+        complete(account, window, sinceWatermark, new RoundUpLedger.Entry(roundUpTotal, transferUid));
+
+        return new RoundUpOutcome(convertToBigDecimal(roundUpTotal), scheduled);
+    }
+
+    private void complete(AccountDto account, RoundUpWindow window, WatermarkRoundUp sinceWatermark, RoundUpLedger.Entry entry)
+            throws Exception {
+        if (sinceWatermark == null) {
+            // A window read from the watermark ends now, so it is never asked for again
+            ledger.record(account.getAccountUid(), window.getStart(), window.getEnd(), entry);
+        } else {
+            watermarkStore.advance(account.getAccountUid(), sinceWatermark.getSettledUpTo(), sinceWatermark.getStillSettling());
         }
+    }
+
+    private BigDecimal replay(String accountUid, RoundUpLedger.Entry recorded) {
+        LOGGER.info("Round up window of account {} already completed, answering from the ledger", accountUid);
+        replayedRoundUps.increment();
+        return convertToBigDecimal(recorded.minorUnits());
+    }
 
-        boolean success = transferRoundUpToSavings(account, savingsAccount, roundUpTotal);
-        if (!success) {
-            throw new Exception("Failed to transfer round up amount.");
+    /**
+     * Calculates the round up of the given account, or the primary account, over any window without transferring it.
+     * Meant for backfills and reconciliation, so the watermark is left alone.
+     */
+    public BigDecimal calculateHistoricalRoundUp(String accountUid, RoundUpWindow window) throws Exception {
+        AccountDto account = accountLookupTimer.recordCallable(() -> lookupAccount(accountUid));
+        return convertToBigDecimal(transactionHistoryService.calculateRoundUp(account, window));
+    }
+
+    /**
+     * Calculates what the next round up of the given account, or the primary account, would transfer, without
+     * transferring it or moving the watermark. The result is cached for the preview time to live. A round up moves
+     * the watermark and so changes the key, so a preview never outlives the window it was calculated for.
+     */
+    public RoundUpPreviewDto previewRoundUp(String accountUid) throws Exception {
+        AccountDto account = accountLookupTimer.recordCallable(() -> lookupAccount(accountUid));
+        String key = StarlingTokenContext.currentToken().orElse("") + "|" + account.getAccountUid() + "|"
+                + watermarkStore.get(account.getAccountUid()).map(LocalDateTime::toString).orElse("");
+        try {
+            // Concurrent misses for the same key wait for the one load instead of each fetching the feed
+            return previews.get(key, ignored -> {
+                try {
+                    return calculatePreview(account);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
         }
+    }
+
+    private RoundUpPreviewDto calculatePreview(AccountDto account) throws Exception {
+        RoundUpWindow window = resolveWindow(account);
+        long roundUpTotal = window.isEmpty() ? 0 : roundUpSinceWatermark(account, window).getRoundUpTotal();
+
+        RoundUpPreviewDto preview = new RoundUpPreviewDto();
+        preview.setAccountUid(account.getAccountUid());
+        preview.setCurrency(account.getCurrency());
+        preview.setFrom(window.getMinTimestamp());
+        preview.setTo(window.getMaxTimestamp());
+        preview.setRoundUpAmount(convertToBigDecimal(roundUpTotal));
+        preview.setCalculatedAt(Instant.now());
+        return preview;
+    }
 
-        return convertToBigDecimal(roundUpTotal);
+    AccountDto lookupAccount(String accountUid) throws Exception {
+        List<AccountDto> accounts = starlingClient.fetchClientAccounts();
+        AccountDto account = accountUid == null ? getPrimaryAccount(accounts) : getAccount(accounts, accountUid);
+        validateAccount(account);
+        return account;
     }
 
     private AccountDto getPrimaryAccount(List<AccountDto> accounts) throws Exception {
@@ -63,28 +341,159 @@ public class RoundUpService {
                 .orElseThrow(() -> new Exception("No primary account found."));
     }
 
-    private List<TransactionDto> fetchValidTransactions(AccountDto account) throws Exception {
+    private AccountDto getAccount(List<AccountDto> accounts, String accountUid) throws Exception {
+        return accounts.stream()
+                .filter(account -> accountUid.equals(account.getAccountUid()))
+                .findFirst()
+                .orElseThrow(() -> new Exception("No account found with UID " + accountUid));
+    }
+
+    private void validateAccount(AccountDto account) throws Exception {
         // Being safe here and checking for nulls
-        String accountUuid = Optional.ofNullable(account.getAccountUid())
+        Optional.ofNullable(account.getAccountUid())
                 .orElseThrow(() -> new Exception("Account UUID cannot be null"));
 
-        String accountCurrency = Optional.ofNullable(account.getCurrency())
+        Optional.ofNullable(account.getCurrency())
                 .orElseThrow(() -> new Exception("Account currency cannot be null"));
+    }
+
+    private RoundUpWindow resolveWindow(AccountDto account) {
+        return watermarkStore.get(account.getAccountUid())
+                .map(RoundUpWindow::after)
+                .orElseGet(RoundUpWindow::lastSevenDays);
+    }
+
+    private long calculateRoundUp(AccountDto account, RoundUpWindow window) throws Exception {
+        String accountUuid = account.getAccountUid();
+        String accountCurrency = account.getCurrency();
+        RoundingStrategy roundingStrategy = roundingStrategyResolver.forAccount(accountUuid);
+
+        if (properties.getFeed().isStreaming()) {
+            return streamRoundUp(accountUuid, accountCurrency, roundingStrategy, window);
+        }
 
-        // Assumption: We are fetching transactions from curren time to 7 days ago.
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime sevenDaysAgo = now.minusDays(7);
+        List<TransactionDto> transactions = feedFetchTimer.recordCallable(() ->
+                starlingClient.fetchTransactions(accountUuid, window.getMinTimestamp(), window.getMaxTimestamp()));
+        transactionsScanned.increment(transactions.size());
+        return aggregationTimer.recordCallable(() -> RoundUpCalculator.calculateRoundUp(validTransactions(transactions, accountCurrency), roundingStrategy));
+    }
+
+    private WatermarkRoundUp roundUpSinceWatermark(AccountDto account, RoundUpWindow window) throws Exception {
+        String accountUuid = account.getAccountUid();
+        RoundingStrategy roundingStrategy = roundingStrategyResolver.forAccount(accountUuid);
+        WatermarkRoundUp roundUp = new WatermarkRoundUp(window, properties.getTransactionStore().getSettlementLag(),
+                account.getCurrency(), roundingStrategy, watermarkStore.getRoundedUp(accountUuid));
+
+        if (properties.getFeed().isStreaming()) {
+            long[] aggregationNanos = new long[1];
+            long start = System.nanoTime();
+            RoundUpWindow fullySettled = roundUp.getFullySettled();
+            if (fullySettled.isEmpty()) {
+                readTransactions(accountUuid, window, roundUp, aggregationNanos);
+            } else {
+                // Only the items either side of it need their UID and time, the rest is decoded into columns
+                readTransactions(accountUuid, new RoundUpWindow(window.getStart(), fullySettled.getStart()), roundUp, aggregationNanos);
+                RoundUpAggregator aggregator = new RoundUpAggregator(account.getCurrency(), roundingStrategy);
+                decodeTransactions(accountUuid, fullySettled, aggregator, aggregationNanos);
+                roundUp.addFullySettled(aggregator.getRoundUpTotal());
+                transactionsScanned.increment(aggregator.getTransactionsScanned());
+                readTransactions(accountUuid, new RoundUpWindow(fullySettled.getEnd(), window.getEnd()), roundUp, aggregationNanos);
+            }
+            feedFetchTimer.record(System.nanoTime() - start - aggregationNanos[0], TimeUnit.NANOSECONDS);
+            aggregationTimer.record(aggregationNanos[0], TimeUnit.NANOSECONDS);
+        } else {
+            List<TransactionDto> transactions = feedFetchTimer.recordCallable(() ->
+                    starlingClient.fetchTransactions(accountUuid, window.getMinTimestamp(), window.getMaxTimestamp()));
+            transactionsScanned.increment(transactions.size());
+            aggregationTimer.record(() -> transactions.forEach(roundUp));
+        }
+        return roundUp;
+    }
+
+    private void readTransactions(String accountUuid, RoundUpWindow window, WatermarkRoundUp roundUp, long[] aggregationNanos)
+            throws Exception {
+        if (window.isEmpty()) {
+            return;
+        }
+        for (RoundUpWindow subWindow : window.split(properties.getFeed().getSubWindow())) {
+            transactionsScanned.increment(starlingClient.streamTransactions(accountUuid, subWindow.getMinTimestamp(),
+                    subWindow.getMaxTimestamp(), transaction -> {
+                        long itemStart = System.nanoTime();
+                        roundUp.accept(transaction);
+                        aggregationNanos[0] += System.nanoTime() - itemStart;
+                    }));
+        }
+    }
 
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-        String minTimestamp = sevenDaysAgo.format(formatter);
-        String maxTimestamp = now.format(formatter);
+    private void decodeTransactions(String accountUuid, RoundUpWindow window, RoundUpAggregator aggregator, long[] aggregationNanos)
+            throws Exception {
+        // Large feeds are requested in sub-windows so no single response gets too big to stream.
+        // Items are decoded into one reused column batch, so nothing is allocated per transaction.
+        // Decoding and aggregation interleave, so the time spent aggregating is taken out of the fetch time.
+        TransactionColumns columns = new TransactionColumns(COLUMN_BATCH_SIZE);
+        for (RoundUpWindow subWindow : window.split(properties.getFeed().getSubWindow())) {
+            starlingClient.decodeTransactions(accountUuid, subWindow.getMinTimestamp(), subWindow.getMaxTimestamp(), columns, batch -> {
+                long batchStart = System.nanoTime();
+                aggregator.accept(batch);
+                aggregationNanos[0] += System.nanoTime() - batchStart;
+            });
+        }
+    }
 
-        return starlingClient.fetchTransactions(accountUuid, minTimestamp, maxTimestamp)
-                .stream()
-                .filter(transaction -> isValidTransaction(transaction, accountCurrency))
+    private List<TransactionDto> validTransactions(List<TransactionDto> transactions, String accountCurrency) {
+        return transactions.stream()
+                .filter(transaction -> RoundUpCalculator.isValidTransaction(transaction, accountCurrency))
                 .toList();
     }
 
+    private long streamRoundUp(String accountUuid, String accountCurrency, RoundingStrategy roundingStrategy, RoundUpWindow window) throws Exception {
+        RoundUpAggregator aggregator = new RoundUpAggregator(accountCurrency, roundingStrategy);
+        long[] aggregationNanos = new long[1];
+        long start = System.nanoTime();
+        decodeTransactions(accountUuid, window, aggregator, aggregationNanos);
+        feedFetchTimer.record(System.nanoTime() - start - aggregationNanos[0], TimeUnit.NANOSECONDS);
+        aggregationTimer.record(aggregationNanos[0], TimeUnit.NANOSECONDS);
+        transactionsScanned.increment(aggregator.getTransactionsScanned());
+
+        LOGGER.debug("Streamed {} transactions for account {}", aggregator.getTransactionsScanned(), accountUuid);
+        return aggregator.getRoundUpTotal();
+    }
+
+    SavingsAccountDto resolveSavingsAccount(AccountDto account) throws Exception {
+        SavingsAccountDto savingsAccount = ensureSavingsAccountExists(account);
+        return savingsAccount == null ? createSavingsAccount(account) : savingsAccount;
+    }
+
+    private SavingsAccountDto createSavingsAccount(AccountDto account) throws Exception {
+        starlingClient.createSavingsGoal(account.getAccountUid(), account.getCurrency(), SAVINGS_GOALS_NAME);
+        return ensureSavingsAccountExists(account);
+    }
+
+    private Future<SavingsAccountDto> prefetchSavingsAccount(AccountDto account) {
+        // The access token lives in a thread local, so it is handed over to the prefetch thread
+        String accessToken = StarlingTokenContext.currentToken().orElse(null);
+        Callable<SavingsAccountDto> lookup = properties.getPrefetch().isSpeculativeGoalCreation()
+                ? () -> resolveSavingsAccount(account)
+                : () -> ensureSavingsAccountExists(account);
+
+        return prefetchExecutor.submit(() -> StarlingTokenContext.callWithToken(accessToken,
+                () -> goalResolutionTimer.recordCallable(lookup)));
+    }
+
+    private SavingsAccountDto awaitSavingsAccount(AccountDto account, Future<SavingsAccountDto> savingsAccountLookup)
+            throws Exception {
+        SavingsAccountDto savingsAccount;
+        try {
+            savingsAccount = savingsAccountLookup.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+        // Without speculative creation a missing goal is only created once there is money to move
+        return savingsAccount == null
+                ? goalResolutionTimer.recordCallable(() -> createSavingsAccount(account))
+                : savingsAccount;
+    }
+
     private SavingsAccountDto ensureSavingsAccountExists(AccountDto account) throws Exception {
         String accountUuid = account.getAccountUid();
         return starlingClient.getSavingsGoals(accountUuid).stream()
@@ -94,34 +503,25 @@ public class RoundUpService {
                 .orElse(null);
     }
 
-    private boolean transferRoundUpToSavings(AccountDto account, SavingsAccountDto savingsAccount, long roundUpTotal) {
-        return starlingClient.addMoneyToSavingsGoal(account.getAccountUid(), account.getCurrency(), savingsAccount.getSavingsGoalUid(), roundUpTotal);
+    private boolean transferRoundUpToSavings(AccountDto account, SavingsAccountDto savingsAccount, String transferUid,
+                                             long roundUpTotal) throws Exception {
+        return starlingClient.addMoneyToSavingsGoal(account.getAccountUid(), account.getCurrency(), savingsAccount.getSavingsGoalUid(),
+                transferUid, roundUpTotal);
+    }
+
+    private void recordTransferred(String currency, long roundUpTotal) {
+        Counter.builder("roundup.transferred")
+                .description("Minor units moved into savings goals")
+                .baseUnit("minor-units")
+                .tag("currency", currency)
+                .register(meterRegistry)
+                .increment(roundUpTotal);
     }
 
     private BigDecimal convertToBigDecimal(long roundUpTotal) {
-        BigDecimal formattedRoundUp = new BigDecimal(roundUpTotal).divide(new BigDecimal(100));
+        BigDecimal formattedRoundUp = RoundUpCalculator.convertToBigDecimal(roundUpTotal);
 
         LOGGER.debug("Converting {}, to {}", roundUpTotal, formattedRoundUp);
         return formattedRoundUp;
     }
-
-    private long calculateRoundUp(List<TransactionDto> validTransactions) {
-        long totalRoundUp = 0;
-        for (TransactionDto transaction : validTransactions) {
-            long minorUnits = transaction.getAmount().getMinorUnits();
-            if (minorUnits % 100 == 0) {
-                continue;
-            }
-            long remainder = minorUnits % 100;
-            totalRoundUp += 100 - remainder;
-        }
-
-        return totalRoundUp;
-    }
-
-    private boolean isValidTransaction(TransactionDto transaction, String accountCurrency) {
-        return transaction.getDirection().equalsIgnoreCase("OUT")
-                && transaction.getAmount().getMinorUnits() > 0
-                && transaction.getAmount().getCurrency().equalsIgnoreCase(accountCurrency);
-    }
 }
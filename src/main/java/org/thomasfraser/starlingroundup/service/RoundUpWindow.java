@@ -0,0 +1,81 @@
+package org.thomasfraser.starlingroundup.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The time window whose settled transactions are rounded up.
+ * The start is inclusive and the end exclusive, as for the feed's transaction timestamps, so consecutive windows
+ * share their boundary.
+ */
+public class RoundUpWindow {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    public RoundUpWindow(LocalDateTime start, LocalDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Assumption: We are fetching transactions from current time to 7 days ago.
+     */
+    public static RoundUpWindow lastSevenDays() {
+        LocalDateTime now = LocalDateTime.now();
+        return new RoundUpWindow(now.minusDays(7), now);
+    }
+
+    /**
+     * The window from the given watermark up to now.
+     */
+    public static RoundUpWindow after(LocalDateTime watermark) {
+        return new RoundUpWindow(watermark, LocalDateTime.now());
+    }
+
+    public boolean isEmpty() {
+        return !start.isBefore(end);
+    }
+
+    /**
+     * Splits the window into consecutive sub-windows no longer than {@code maxLength}.
+     * Each sub-window starts where the previous one ends, and the end is exclusive, so no transaction falls into
+     * two of them.
+     */
+    public List<RoundUpWindow> split(Duration maxLength) {
+        if (maxLength.isNegative() || maxLength.isZero()) {
+            throw new IllegalArgumentException("Sub-window length must be positive: " + maxLength);
+        }
+        List<RoundUpWindow> subWindows = new ArrayList<>();
+        LocalDateTime subWindowStart = start;
+        while (subWindowStart.plus(maxLength).isBefore(end)) {
+            LocalDateTime subWindowEnd = subWindowStart.plus(maxLength);
+            subWindows.add(new RoundUpWindow(subWindowStart, subWindowEnd));
+            subWindowStart = subWindowEnd;
+        }
+        subWindows.add(new RoundUpWindow(subWindowStart, end));
+
+        return subWindows;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    public String getMinTimestamp() {
+        return start.format(FORMATTER);
+    }
+
+    public String getMaxTimestamp() {
+        return end.format(FORMATTER);
+    }
+}
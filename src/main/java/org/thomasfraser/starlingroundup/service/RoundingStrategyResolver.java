@@ -0,0 +1,45 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+import org.thomasfraser.starlingroundup.aggregation.RoundingRule;
+import org.thomasfraser.starlingroundup.aggregation.RoundingStrategy;
+import org.thomasfraser.starlingroundup.aggregation.SpendingCategory;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles the configured rounding rules into one {@link RoundingStrategy} per account at startup,
+ * so a round up only looks its strategy up. Unknown categories and invalid rules fail startup.
+ */
+@Component
+public class RoundingStrategyResolver {
+
+    private static final Logger LOGGER = LogManager.getLogger(RoundingStrategyResolver.class);
+    private final RoundingStrategy defaultStrategy;
+    private final Map<String, RoundingStrategy> accountStrategies = new HashMap<>();
+
+    public RoundingStrategyResolver(RoundUpProperties properties) {
+        RoundUpProperties.Rounding rounding = properties.getRounding();
+        Map<SpendingCategory, RoundingRule> categoryRules = new EnumMap<>(SpendingCategory.class);
+        rounding.getCategories().forEach((category, rule) -> categoryRules.put(SpendingCategory.valueOf(category), toRule(rule)));
+
+        this.defaultStrategy = RoundingStrategy.compile(toRule(rounding.getDefaults()), categoryRules);
+        rounding.getAccounts().forEach((accountUid, rule) ->
+                accountStrategies.put(accountUid, RoundingStrategy.compile(toRule(rule), categoryRules)));
+        LOGGER.info("Compiled rounding strategy {} with {} account overrides",
+                defaultStrategy.getClass().getSimpleName(), accountStrategies.size());
+    }
+
+    public RoundingStrategy forAccount(String accountUid) {
+        return accountStrategies.getOrDefault(accountUid, defaultStrategy);
+    }
+
+    private static RoundingRule toRule(RoundUpProperties.Rule rule) {
+        return new RoundingRule(rule.getIncrement(), rule.getMultiplier(), rule.getCap());
+    }
+}
@@ -0,0 +1,187 @@
+package org.thomasfraser.starlingroundup.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.BatchRoundUpItemDto;
+import org.thomasfraser.starlingroundup.scheduling.ConsistentHashRing;
+import org.thomasfraser.starlingroundup.scheduling.FileShardLeaseTable;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rounds up the registered accounts once per interval, without an external cron.
+ * Accounts are spread over shards by a {@link ConsistentHashRing}, and each node polls for shards that are
+ * due, claims them through the {@link FileShardLeaseTable} and rounds up their accounts on the batch executor.
+ * Nodes sharing a lease directory split the work between them, and a shard is done once per interval.
+ * The watermarks are kept in the lease directory too (see {@code StoreConfig}), so a node taking a shard over
+ * starts each account from where the previous holder left it. The lease is renewed before each account is
+ * started, and once it is lost no further account of the shard is started.
+ */
+@Service
+@ConditionalOnProperty(name = "starling.roundup.schedule.enabled", havingValue = "true")
+public class ScheduledRoundUpService {
+
+    private static final Logger LOGGER = LogManager.getLogger(ScheduledRoundUpService.class);
+    private final BatchRoundUpService batchRoundUpService;
+    private final FileShardLeaseTable leaseTable;
+    private final RoundUpProperties.Schedule schedule;
+    private final Clock clock;
+    private final ConsistentHashRing ring;
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+            new CustomizableThreadFactory("roundup-scheduler-"));
+
+    @Autowired
+    public ScheduledRoundUpService(BatchRoundUpService batchRoundUpService, RoundUpProperties properties,
+                                   FileShardLeaseTable leaseTable) {
+        this(batchRoundUpService, properties, leaseTable, Clock.systemUTC());
+    }
+
+    ScheduledRoundUpService(BatchRoundUpService batchRoundUpService, RoundUpProperties properties,
+                            FileShardLeaseTable leaseTable, Clock clock) {
+        this.batchRoundUpService = batchRoundUpService;
+        this.leaseTable = leaseTable;
+        this.schedule = properties.getSchedule();
+        this.clock = clock;
+        this.ring = new ConsistentHashRing(schedule.getShards());
+    }
+
+    @PostConstruct
+    public void start() {
+        long pollMillis = schedule.getPollInterval().toMillis();
+        poller.scheduleWithFixedDelay(this::pollSafely, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("Scheduled round ups for {} accounts over {} shards as node {}", schedule.getAccounts().size(),
+                ring.getShards(), leaseTable.getNodeId());
+    }
+
+    @PreDestroy
+    public void stop() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * Claims and processes every shard that is due in the current interval and not held by another node.
+     * Returns the number of shards this node processed.
+     */
+    public int runDueShards() {
+        long period = clock.millis() / schedule.getInterval().toMillis();
+        Map<Integer, List<BatchRoundUpItemDto>> accountsByShard = accountsByShard();
+
+        // Nodes start at different shards, so ones polling at the same moment don't all queue on the same lease
+        List<Integer> shards = new ArrayList<>(accountsByShard.keySet());
+        Collections.rotate(shards, Math.floorMod(leaseTable.getNodeId().hashCode(), Math.max(1, shards.size())));
+
+        int processed = 0;
+        for (int shard : shards) {
+            try {
+                if (!leaseTable.tryClaim(shard, period)) {
+                    continue;
+                }
+                if (processShard(shard, accountsByShard.get(shard))) {
+                    leaseTable.complete(shard, period);
+                } else {
+                    leaseTable.release(shard);
+                }
+                processed++;
+            } catch (IOException e) {
+                LOGGER.error("Failed to update the lease of shard {}: {}", shard, e.getMessage());
+            }
+        }
+        return processed;
+    }
+
+    private void pollSafely() {
+        try {
+            runDueShards();
+        } catch (RuntimeException e) {
+            // An escaped exception would cancel every later poll
+            LOGGER.error("Scheduled round up poll failed: {}", e.getMessage());
+        }
+    }
+
+    private Map<Integer, List<BatchRoundUpItemDto>> accountsByShard() {
+        Map<Integer, List<BatchRoundUpItemDto>> accountsByShard = new TreeMap<>();
+        for (BatchRoundUpItemDto account : schedule.getAccounts()) {
+            // Accounts without a UID stand for the primary account of their token
+            String key = account.getAccountUid() != null ? account.getAccountUid() : Objects.toString(account.getAccessToken(), "");
+            accountsByShard.computeIfAbsent(ring.shardOf(key), shard -> new ArrayList<>()).add(account);
+        }
+        return accountsByShard;
+    }
+
+    /**
+     * Rounds up the shard's accounts, renewing the lease while they run and before each account is started.
+     * Returns false when the lease was lost, so the shard is not recorded as done by this node.
+     */
+    private boolean processShard(int shard, List<BatchRoundUpItemDto> accounts) {
+        AtomicInteger failed = new AtomicInteger();
+        AtomicBoolean leaseHeld = new AtomicBoolean(true);
+        CompletableFuture<Void> roundUps = batchRoundUpService.roundUpAll(accounts, result -> {
+            if (!"COMPLETED".equals(result.getStatus())) {
+                failed.incrementAndGet();
+            }
+        }, () -> renew(shard, leaseHeld));
+
+        long renewMillis = Math.max(1, schedule.getLeaseDuration().toMillis() / 3);
+        while (true) {
+            try {
+                roundUps.get(renewMillis, TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException e) {
+                // Keeps the lease alive through long round ups, the accounts already started are left to finish
+                renew(shard, leaseHeld);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException e) {
+                LOGGER.error("Round ups of shard {} failed: {}", shard, e.getCause().getMessage());
+                return false;
+            }
+        }
+
+        LOGGER.info("Rounded up shard {}: {} accounts, {} failed", shard, accounts.size(), failed.get());
+        return leaseHeld.get();
+    }
+
+    /**
+     * Renews the shard's lease, unless it has already been lost. Returns whether the lease is still held.
+     */
+    private boolean renew(int shard, AtomicBoolean leaseHeld) {
+        synchronized (leaseHeld) {
+            if (!leaseHeld.get()) {
+                return false;
+            }
+            try {
+                if (!leaseTable.renew(shard)) {
+                    LOGGER.warn("Lost the lease of shard {} while rounding it up, starting no more of its accounts", shard);
+                    leaseHeld.set(false);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to renew the lease of shard {}, starting no more of its accounts: {}", shard, e.getMessage());
+                leaseHeld.set(false);
+            }
+            return leaseHeld.get();
+        }
+    }
+}
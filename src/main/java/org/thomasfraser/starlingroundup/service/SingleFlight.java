@@ -0,0 +1,56 @@
+package org.thomasfraser.starlingroundup.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs at most one call per key at a time. Callers arriving while a call for their key is in flight
+ * wait for it and get its result, or its exception, instead of starting their own. Once the call is
+ * over the key is free again, so later callers start a new one.
+ * The in-flight calls are held in a {@link ConcurrentHashMap}, which locks per bin, so callers for
+ * different keys do not contend.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Result of {@link #call}, telling whether the caller ran the call or joined one already in flight.
+     */
+    record Outcome<V>(V value, boolean joined) {
+    }
+
+    Outcome<V> call(K key, Callable<V> callable) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            return new Outcome<>(await(leader), true);
+        }
+
+        try {
+            V value = callable.call();
+            flight.complete(value);
+            return new Outcome<>(value, false);
+        } catch (Throwable t) {
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    int getInFlight() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> leader) throws Exception {
+        try {
+            return leader.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+}
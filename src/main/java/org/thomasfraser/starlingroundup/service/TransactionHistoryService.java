@@ -0,0 +1,128 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.aggregation.RoundUpAggregator;
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
+import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import org.thomasfraser.starlingroundup.store.StoredRange;
+import org.thomasfraser.starlingroundup.store.TransactionStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Calculates round ups over arbitrary windows, such as a month or a year, for backfills and reconciliation.
+ * With the {@link TransactionStore} enabled, only the parts of the window before or after the account's
+ * stored range are fetched upstream, and the round up is then calculated from local disk.
+ */
+@Service
+public class TransactionHistoryService {
+
+    private static final Logger LOGGER = LogManager.getLogger(TransactionHistoryService.class);
+    private static final int COLUMN_BATCH_SIZE = 1024;
+    private static final int APPEND_BATCH_SIZE = 1024;
+    private final StarlingClient starlingClient;
+    private final RoundUpProperties properties;
+    private final TransactionStore transactionStore;
+    private final RoundingStrategyResolver roundingStrategyResolver;
+
+    @Autowired
+    public TransactionHistoryService(StarlingClient starlingClient, RoundUpProperties properties,
+                                     Optional<TransactionStore> transactionStore, RoundingStrategyResolver roundingStrategyResolver) {
+        this.starlingClient = starlingClient;
+        this.properties = properties;
+        this.transactionStore = transactionStore.orElse(null);
+        this.roundingStrategyResolver = roundingStrategyResolver;
+    }
+
+    /**
+     * Returns the round up of the account's outgoing transactions in the window, in minor units.
+     */
+    public long calculateRoundUp(AccountDto account, RoundUpWindow window) throws Exception {
+        String accountUid = account.getAccountUid();
+        RoundUpAggregator aggregator = new RoundUpAggregator(account.getCurrency(), roundingStrategyResolver.forAccount(accountUid));
+        TransactionColumns columns = new TransactionColumns(COLUMN_BATCH_SIZE);
+
+        if (transactionStore == null) {
+            for (RoundUpWindow subWindow : window.split(properties.getFeed().getSubWindow())) {
+                starlingClient.decodeTransactions(accountUid, subWindow.getMinTimestamp(), subWindow.getMaxTimestamp(), columns, aggregator);
+            }
+        } else {
+            synchronise(accountUid, window);
+            transactionStore.scan(accountUid, window.getStart(), window.getEnd(), columns, aggregator);
+        }
+
+        LOGGER.debug("Scanned {} transactions between {} and {} for account {}", aggregator.getTransactionsScanned(),
+                window.getStart(), window.getEnd(), accountUid);
+        return aggregator.getRoundUpTotal();
+    }
+
+    private void synchronise(String accountUid, RoundUpWindow window) throws Exception {
+        // The stored range is kept contiguous, so a window clear of it also fetches the gap in between
+        List<RoundUpWindow> missing = new ArrayList<>();
+        Optional<StoredRange> storedRange = transactionStore.getStoredRange(accountUid);
+        if (storedRange.isEmpty()) {
+            missing.add(window);
+        } else {
+            StoredRange range = storedRange.get();
+            if (window.getStart().isBefore(range.start())) {
+                missing.add(new RoundUpWindow(window.getStart(), range.start()));
+            }
+            if (window.getEnd().isAfter(range.end())) {
+                missing.add(new RoundUpWindow(range.end(), window.getEnd()));
+            }
+        }
+
+        // Recent transactions may still be settling, those are stored but fetched again next time
+        LocalDateTime settledUpTo = LocalDateTime.now().minus(properties.getTransactionStore().getSettlementLag());
+        for (RoundUpWindow part : missing) {
+            fetch(accountUid, part);
+            LocalDateTime settledEnd = part.getEnd().isAfter(settledUpTo) ? settledUpTo : part.getEnd();
+            if (settledEnd.isAfter(part.getStart())) {
+                transactionStore.extendStoredRange(accountUid, new StoredRange(part.getStart(), settledEnd));
+            }
+        }
+    }
+
+    private void fetch(String accountUid, RoundUpWindow window) throws Exception {
+        for (RoundUpWindow subWindow : window.split(properties.getFeed().getSubWindow())) {
+            // Stored in batches as the feed streams in, so memory does not grow with the sub-window
+            TransactionStore.Appender appender = transactionStore.appender(accountUid);
+            List<TransactionDto> batch = new ArrayList<>(APPEND_BATCH_SIZE);
+            long fetched;
+            try {
+                fetched = starlingClient.streamTransactions(accountUid, subWindow.getMinTimestamp(), subWindow.getMaxTimestamp(),
+                        transaction -> {
+                            batch.add(transaction);
+                            if (batch.size() == APPEND_BATCH_SIZE) {
+                                appendBatch(appender, batch);
+                            }
+                        });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            appendBatch(appender, batch);
+            LOGGER.info("Stored {} transactions between {} and {} for account {}", fetched,
+                    subWindow.getStart(), subWindow.getEnd(), accountUid);
+        }
+    }
+
+    private static void appendBatch(TransactionStore.Appender appender, List<TransactionDto> batch) {
+        try {
+            appender.append(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        batch.clear();
+    }
+}
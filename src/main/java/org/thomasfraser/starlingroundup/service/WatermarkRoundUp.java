@@ -0,0 +1,107 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.thomasfraser.starlingroundup.aggregation.RoundingStrategy;
+import org.thomasfraser.starlingroundup.aggregation.SpendingCategory;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Sums the round up of a window read from an account's watermark, item by item.
+ * Transactions can settle after the window covering them was read, so the watermark only moves up to
+ * {@link #getSettledUpTo()}, the settlement lag before the end of the window. The next window reads that stretch
+ * again, so the feed items in it are remembered by UID and those already rounded up are skipped.
+ * Only items read item by item are checked this way; the round up of {@link #getFullySettled()} can be summed
+ * without them and added with {@link #addFullySettled(long)}.
+ */
+class WatermarkRoundUp implements Consumer<TransactionDto> {
+
+    private final String accountCurrency;
+    private final RoundingStrategy roundingStrategy;
+    private final Set<String> roundedUp;
+    private final LocalDateTime settledUpTo;
+    private final RoundUpWindow fullySettled;
+    private final Set<String> stillSettling = new HashSet<>();
+    private long roundUpTotal;
+
+    /**
+     * Starts the round up of the window, skipping the given feed items rounded up by an earlier window.
+     */
+    WatermarkRoundUp(RoundUpWindow window, Duration settlementLag, String accountCurrency, RoundingStrategy roundingStrategy,
+                     Set<String> roundedUp) {
+        this.accountCurrency = accountCurrency;
+        this.roundingStrategy = roundingStrategy;
+        this.roundedUp = roundedUp;
+        LocalDateTime settled = window.getEnd().minus(settlementLag);
+        // A watermark never moves backwards, so a window shorter than the lag leaves it where it is
+        this.settledUpTo = settled.isBefore(window.getStart()) ? window.getStart() : settled;
+        // Items an earlier window rounded up were still settling then, so they are within the lag after its watermark
+        LocalDateTime afterRoundedUp = roundedUp.isEmpty() ? window.getStart() : window.getStart().plus(settlementLag);
+        this.fullySettled = new RoundUpWindow(afterRoundedUp.isBefore(settledUpTo) ? afterRoundedUp : settledUpTo, settledUpTo);
+    }
+
+    @Override
+    public void accept(TransactionDto transaction) {
+        if (!RoundUpCalculator.isValidTransaction(transaction, accountCurrency)) {
+            return;
+        }
+        String feedItemUid = transaction.getFeedItemUid();
+        boolean settled = isBefore(transaction, settledUpTo);
+        if (feedItemUid == null && !settled) {
+            // Cannot be remembered, so it is left for a window read once the watermark has passed it
+            return;
+        }
+        if (!settled) {
+            stillSettling.add(feedItemUid);
+        }
+        if (feedItemUid == null || !roundedUp.contains(feedItemUid)) {
+            roundUpTotal += roundingStrategy.roundUp(transaction.getAmount().getMinorUnits(),
+                    SpendingCategory.idOf(transaction.getSpendingCategory()));
+        }
+    }
+
+    /**
+     * Adds the round up of the items in {@link #getFullySettled()}, summed without reading them item by item.
+     */
+    void addFullySettled(long roundUpTotal) {
+        this.roundUpTotal += roundUpTotal;
+    }
+
+    long getRoundUpTotal() {
+        return roundUpTotal;
+    }
+
+    /**
+     * Where the watermark moves to once the round up is complete.
+     */
+    LocalDateTime getSettledUpTo() {
+        return settledUpTo;
+    }
+
+    /**
+     * The part of the window whose items have all settled and cannot have been rounded up by an earlier window,
+     * so neither their UID nor their time is needed. Empty when there is no such part.
+     */
+    RoundUpWindow getFullySettled() {
+        return fullySettled;
+    }
+
+    /**
+     * Feed items at or after {@link #getSettledUpTo()} that are rounded up once the round up is complete.
+     */
+    Set<String> getStillSettling() {
+        return stillSettling;
+    }
+
+    private static boolean isBefore(TransactionDto transaction, LocalDateTime time) {
+        // Window bounds are sent as UTC, so feed item times are read as UTC too
+        return transaction.getTransactionTime() == null
+                || LocalDateTime.ofInstant(Instant.parse(transaction.getTransactionTime()), ZoneOffset.UTC).isBefore(time);
+    }
+}
@@ -0,0 +1,204 @@
+package org.thomasfraser.starlingroundup.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+import org.thomasfraser.starlingroundup.store.TransferJournal;
+import org.thomasfraser.starlingroundup.store.WatermarkStore;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves round ups into savings goals in batches. With write-behind enabled, a round up is recorded in the
+ * {@link TransferJournal} instead of being transferred, and everything waiting for a goal is moved in one
+ * add-money call once it reaches the flush threshold or has waited for the maximum delay.
+ * <p>
+ * Only round ups that ask to be scheduled are deferred, which {@code GET /api/roundup} does. Every other round up,
+ * such as batch, job and scheduled ones, is still transferred straight away.
+ */
+@Service
+public class WriteBehindTransferService {
+
+    private static final Logger LOGGER = LogManager.getLogger(WriteBehindTransferService.class);
+    private final StarlingClient starlingClient;
+    private final RoundUpProperties.WriteBehind writeBehind;
+    private final TransferJournal journal;
+    private final WatermarkStore watermarkStore;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Counter deferredRoundUps;
+    private final Counter flushedTransfers;
+    private final Map<TransferJournal.Goal, ReentrantLock> flushLocks = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public WriteBehindTransferService(StarlingClient starlingClient, RoundUpProperties properties,
+                                      Optional<TransferJournal> journal, WatermarkStore watermarkStore,
+                                      MeterRegistry meterRegistry) {
+        this(starlingClient, properties, journal, watermarkStore, meterRegistry, Clock.systemUTC());
+    }
+
+    WriteBehindTransferService(StarlingClient starlingClient, RoundUpProperties properties,
+                               Optional<TransferJournal> journal, WatermarkStore watermarkStore,
+                               MeterRegistry meterRegistry, Clock clock) {
+        this.starlingClient = starlingClient;
+        this.writeBehind = properties.getWriteBehind();
+        this.journal = journal.orElse(null);
+        this.watermarkStore = watermarkStore;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.deferredRoundUps = Counter.builder("roundup.transfers.deferred")
+                .description("Round ups journaled to be transferred with others into the same savings goal")
+                .register(meterRegistry);
+        this.flushedTransfers = Counter.builder("roundup.transfers.flushed")
+                .description("Add-money calls moving journaled round ups into savings goals")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        // A round up is journaled before its watermark moves, so a crash in between must not round it up again.
+        // Which items of the window were still settling is not journaled, so the watermark goes to the window's end.
+        for (Map.Entry<String, LocalDateTime> entry : journal.getJournaledUpTo().entrySet()) {
+            watermarkStore.advance(entry.getKey(), entry.getValue());
+        }
+
+        long checkMillis = writeBehind.getCheckInterval().toMillis();
+        flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("roundup-transfer-flusher-"));
+        flusher.scheduleWithFixedDelay(this::flushDueSafely, 0, checkMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("Deferring round up transfers until {} minor units or {} per savings goal",
+                writeBehind.getFlushThreshold(), writeBehind.getMaxDelay());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+    }
+
+    /**
+     * Whether round ups that ask to be scheduled are journaled rather than transferred straight away.
+     */
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Journals the round up of the window for the savings goal, flushing the goal if it has reached the threshold.
+     * Once this returns the round up is durable, whether or not the flush succeeded.
+     */
+    public void defer(AccountDto account, SavingsAccountDto savingsAccount, RoundUpWindow window, long roundUpTotal)
+            throws IOException {
+        TransferJournal.Goal goal = new TransferJournal.Goal(account.getAccountUid(), savingsAccount.getSavingsGoalUid(),
+                account.getCurrency());
+        long pending = journal.record(goal, roundUpTotal, window.getEnd());
+        deferredRoundUps.increment();
+        LOGGER.info("Journaled round up of {} for account {}, {} now waiting", roundUpTotal, account.getAccountUid(), pending);
+
+        if (pending >= writeBehind.getFlushThreshold()) {
+            flushSafely(goal);
+        }
+    }
+
+    /**
+     * Flushes every goal that has reached the threshold, has waited for the maximum delay, or has a flush
+     * that was started and not confirmed. Returns the number of goals flushed.
+     */
+    public int flushDue() {
+        if (journal == null) {
+            return 0;
+        }
+        long now = clock.millis();
+        int flushed = 0;
+        for (Map.Entry<TransferJournal.Goal, TransferJournal.Pending> entry : journal.getPending().entrySet()) {
+            TransferJournal.Pending pending = entry.getValue();
+            boolean due = pending.inFlight() != null
+                    || pending.minorUnits() >= writeBehind.getFlushThreshold()
+                    || (pending.minorUnits() > 0 && now - pending.oldestRecordedAtMillis() >= writeBehind.getMaxDelay().toMillis());
+            if (due && flushSafely(entry.getKey())) {
+                flushed++;
+            }
+        }
+        return flushed;
+    }
+
+    private boolean flush(TransferJournal.Goal goal) throws Exception {
+        // One flush per goal at a time, and a goal already being flushed is left to it rather than waited on,
+        // so a slow add-money call never holds up a round up or the flush of another goal
+        ReentrantLock lock = flushLocks.computeIfAbsent(goal, key -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            return flushLocked(goal);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean flushLocked(TransferJournal.Goal goal) throws Exception {
+        Optional<TransferJournal.Flush> flush = journal.beginFlush(goal);
+        if (flush.isEmpty()) {
+            return false;
+        }
+
+        long minorUnits = flush.get().minorUnits();
+        boolean success = starlingClient.addMoneyToSavingsGoal(goal.accountUid(), goal.currency(), goal.savingsGoalUid(),
+                flush.get().transferUid(), minorUnits);
+        if (!success) {
+            throw new Exception("Failed to transfer round up amount.");
+        }
+        journal.completeFlush(goal, flush.get());
+        flushedTransfers.increment();
+        Counter.builder("roundup.transferred")
+                .description("Minor units moved into savings goals")
+                .baseUnit("minor-units")
+                .tag("currency", goal.currency())
+                .register(meterRegistry)
+                .increment(minorUnits);
+        LOGGER.info("Transferred {} journaled round up minor units to savings goal {}", minorUnits, goal.savingsGoalUid());
+        return true;
+    }
+
+    private boolean flushSafely(TransferJournal.Goal goal) {
+        try {
+            return flush(goal);
+        } catch (Exception e) {
+            // The amount stays journaled, the flush is retried with the same transfer UID on the next check
+            LOGGER.error("Failed to flush round ups for account {}: {}", goal.accountUid(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void flushDueSafely() {
+        try {
+            flushDue();
+        } catch (RuntimeException e) {
+            // An escaped exception would cancel every later check
+            LOGGER.error("Round up transfer flush failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link RoundUpLedger} kept in memory and persisted to an append-only log file.
+ * Each record appends one {@code accountUid windowStart windowEnd minorUnits transferUid} line, with {@code -} for
+ * no transfer UID, and forces it to disk before it is visible. The log is compacted on startup, dropping windows
+ * that ended longer than the retention ago.
+ */
+public class FileRoundUpLedger implements RoundUpLedger {
+
+    private static final Logger LOGGER = LogManager.getLogger(FileRoundUpLedger.class);
+    private static final String NO_TRANSFER = "-";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final FileChannel log;
+
+    public FileRoundUpLedger(Path file, Duration retention, Clock clock) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (Files.exists(file)) {
+            List<String> retained = replay(Files.readAllLines(file, StandardCharsets.UTF_8), LocalDateTime.now(clock).minus(retention));
+            compact(file, retained);
+        }
+
+        this.log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        LOGGER.info("Loaded {} completed round up windows from {}", entries.size(), file);
+    }
+
+    @Override
+    public Optional<Entry> get(String accountUid, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        return Optional.ofNullable(entries.get(key(accountUid, windowStart, windowEnd)));
+    }
+
+    @Override
+    public synchronized void record(String accountUid, LocalDateTime windowStart, LocalDateTime windowEnd, Entry entry)
+            throws IOException {
+        String line = accountUid + " " + windowStart + " " + windowEnd + " " + entry.minorUnits() + " "
+                + (entry.transferUid() == null ? NO_TRANSFER : entry.transferUid()) + "\n";
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        log.force(false);
+        entries.put(key(accountUid, windowStart, windowEnd), entry);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    private List<String> replay(List<String> lines, LocalDateTime oldestRetained) {
+        List<String> retained = new ArrayList<>();
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            if (parts.length != 5) {
+                // A torn final line from a crash mid-write, the round up it recorded is simply done again
+                LOGGER.warn("Skipping malformed round up ledger entry: {}", line);
+                continue;
+            }
+            try {
+                LocalDateTime windowStart = LocalDateTime.parse(parts[1]);
+                LocalDateTime windowEnd = LocalDateTime.parse(parts[2]);
+                if (windowEnd.isBefore(oldestRetained)) {
+                    continue;
+                }
+                String transferUid = NO_TRANSFER.equals(parts[4]) ? null : parts[4];
+                entries.put(key(parts[0], windowStart, windowEnd), new Entry(Long.parseLong(parts[3]), transferUid));
+                retained.add(line);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                LOGGER.warn("Skipping malformed round up ledger entry: {}", line);
+            }
+        }
+        return retained;
+    }
+
+    private static void compact(Path file, List<String> retained) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, retained, StandardCharsets.UTF_8);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(String accountUid, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        return accountUid + "|" + windowStart + "|" + windowEnd;
+    }
+}
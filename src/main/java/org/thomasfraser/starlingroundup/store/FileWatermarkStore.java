@@ -0,0 +1,117 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link WatermarkStore} kept in memory and persisted to an append-only log file.
+ * Each advance appends one {@code accountUid timestamp [feedItemUid,...]} line, listing the feed items after the
+ * watermark already rounded up, and forces it to disk before it is visible, so a watermark is never ahead of what
+ * would survive a crash. The log is compacted on startup.
+ */
+public class FileWatermarkStore implements WatermarkStore {
+
+    private static final Logger LOGGER = LogManager.getLogger(FileWatermarkStore.class);
+
+    private record Watermark(LocalDateTime processedUpTo, Set<String> roundedUp) {
+    }
+
+    private final Map<String, Watermark> watermarks = new ConcurrentHashMap<>();
+    private final FileChannel log;
+
+    public FileWatermarkStore(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (Files.exists(file)) {
+            replay(Files.readString(file, StandardCharsets.UTF_8));
+            compact(file);
+        }
+
+        this.log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        LOGGER.info("Loaded {} round up watermarks from {}", watermarks.size(), file);
+    }
+
+    @Override
+    public Optional<LocalDateTime> get(String accountUid) {
+        return Optional.ofNullable(watermarks.get(accountUid)).map(Watermark::processedUpTo);
+    }
+
+    @Override
+    public Set<String> getRoundedUp(String accountUid) {
+        Watermark watermark = watermarks.get(accountUid);
+        return watermark == null ? Set.of() : watermark.roundedUp();
+    }
+
+    @Override
+    public synchronized void advance(String accountUid, LocalDateTime processedUpTo, Set<String> roundedUp) throws IOException {
+        Watermark current = watermarks.get(accountUid);
+        if (current != null && processedUpTo.isBefore(current.processedUpTo())) {
+            return;
+        }
+
+        Watermark watermark = new Watermark(processedUpTo, Set.copyOf(roundedUp));
+        log.write(ByteBuffer.wrap(line(accountUid, watermark).getBytes(StandardCharsets.UTF_8)));
+        log.force(false);
+        watermarks.put(accountUid, watermark);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    private void replay(String log) {
+        List<String> lines = log.lines().toList();
+        if (!log.isEmpty() && !log.endsWith("\n")) {
+            // A torn final line from a crash mid-write, the advance it recorded never completed.
+            // Its list of rounded up items may have been cut short, so it is dropped even if it parses.
+            LOGGER.warn("Skipping torn watermark entry: {}", lines.get(lines.size() - 1));
+            lines = lines.subList(0, lines.size() - 1);
+        }
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            if (parts.length != 2 && parts.length != 3) {
+                LOGGER.warn("Skipping malformed watermark entry: {}", line);
+                continue;
+            }
+            try {
+                Set<String> roundedUp = parts.length == 3 ? Set.of(parts[2].split(",")) : Set.of();
+                watermarks.merge(parts[0], new Watermark(LocalDateTime.parse(parts[1]), roundedUp),
+                        (a, b) -> b.processedUpTo().isBefore(a.processedUpTo()) ? a : b);
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                LOGGER.warn("Skipping malformed watermark entry: {}", line);
+            }
+        }
+    }
+
+    private void compact(Path file) throws IOException {
+        StringBuilder snapshot = new StringBuilder();
+        watermarks.forEach((accountUid, watermark) -> snapshot.append(line(accountUid, watermark)));
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temporary, snapshot, StandardCharsets.UTF_8);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String line(String accountUid, Watermark watermark) {
+        return accountUid + " " + watermark.processedUpTo()
+                + (watermark.roundedUp().isEmpty() ? "" : " " + String.join(",", watermark.roundedUp())) + "\n";
+    }
+}
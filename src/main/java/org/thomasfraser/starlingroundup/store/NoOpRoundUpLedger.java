@@ -0,0 +1,23 @@
+package org.thomasfraser.starlingroundup.store;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Used when the ledger is disabled: nothing is recorded and every window is rounded up from the feed.
+ */
+public class NoOpRoundUpLedger implements RoundUpLedger {
+
+    @Override
+    public Optional<Entry> get(String accountUid, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void record(String accountUid, LocalDateTime windowStart, LocalDateTime windowEnd, Entry entry) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
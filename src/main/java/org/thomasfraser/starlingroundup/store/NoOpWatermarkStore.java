@@ -0,0 +1,29 @@
+package org.thomasfraser.starlingroundup.store;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Used when watermarks are disabled: nothing is remembered and every run uses the default window.
+ */
+public class NoOpWatermarkStore implements WatermarkStore {
+
+    @Override
+    public Optional<LocalDateTime> get(String accountUid) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Set<String> getRoundedUp(String accountUid) {
+        return Set.of();
+    }
+
+    @Override
+    public void advance(String accountUid, LocalDateTime processedUpTo, Set<String> roundedUp) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
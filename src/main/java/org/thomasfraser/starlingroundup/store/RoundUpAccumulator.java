@@ -0,0 +1,198 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Running round up of each account, built from feed item events as they arrive rather than from feed scans.
+ * Held in memory, so the accumulated amount of an account is read without touching the feed or the disk.
+ * <p>
+ * Feed item UIDs already counted are remembered for the dedup retention, so an event delivered twice is only
+ * counted once. State is written to a checkpoint file when {@link #checkpoint()} is called and loaded again on
+ * startup, so a crash loses at most the events since the last checkpoint. Draining an account for a transfer
+ * is checkpointed straight away: the drain is kept with its transfer UID until it is confirmed, so a transfer
+ * cut short is sent again with the same UID, which the upstream only applies once.
+ * Checkpoint lines are {@code ACCOUNT accountUid currency minorUnits}, {@code DRAIN accountUid transferUid minorUnits}
+ * and {@code SEEN accountUid feedItemUid receivedAtMillis}.
+ */
+public class RoundUpAccumulator implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(RoundUpAccumulator.class);
+
+    /**
+     * What has been accumulated for an account and not transferred yet, and a drain that was started but not
+     * confirmed, if any.
+     */
+    public record Tally(String currency, long minorUnits, Drain inFlight) {
+    }
+
+    /**
+     * A transfer of {@code minorUnits} taken out of an account under {@code transferUid}.
+     */
+    public record Drain(String transferUid, long minorUnits) {
+    }
+
+    private final Path file;
+    private final Clock clock;
+    private final Duration dedupRetention;
+    private final Map<String, Tally> tallies = new HashMap<>();
+    private final Map<String, LinkedHashMap<String, Long>> seenFeedItems = new HashMap<>();
+    private boolean changed;
+
+    public RoundUpAccumulator(Path file, Clock clock, Duration dedupRetention) throws IOException {
+        this.file = file;
+        this.clock = clock;
+        this.dedupRetention = dedupRetention;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (Files.exists(file)) {
+            load(Files.readAllLines(file, StandardCharsets.UTF_8));
+        }
+        LOGGER.info("Loaded running round ups of {} accounts from {}", tallies.size(), file);
+    }
+
+    /**
+     * Adds the round up of a feed item to its account. Returns false, and leaves the account as it was, when the
+     * feed item has already been counted or is in a different currency from the ones before it.
+     */
+    public synchronized boolean add(String accountUid, String feedItemUid, String currency, long roundUp) {
+        Tally tally = tallies.get(accountUid);
+        if (tally != null && !tally.currency().equals(currency)) {
+            return false;
+        }
+        LinkedHashMap<String, Long> seen = seenFeedItems.computeIfAbsent(accountUid, uid -> new LinkedHashMap<>());
+        if (seen.putIfAbsent(feedItemUid, clock.millis()) != null) {
+            return false;
+        }
+
+        tallies.put(accountUid, tally == null
+                ? new Tally(currency, roundUp, null)
+                : new Tally(currency, tally.minorUnits() + roundUp, tally.inFlight()));
+        changed = true;
+        return true;
+    }
+
+    public synchronized Optional<Tally> get(String accountUid) {
+        return Optional.ofNullable(tallies.get(accountUid));
+    }
+
+    /**
+     * Returns the drain to transfer for the account: one already started, or a new one taking everything
+     * accumulated. Empty when nothing is waiting.
+     */
+    public synchronized Optional<Drain> beginDrain(String accountUid) throws IOException {
+        Tally tally = tallies.get(accountUid);
+        if (tally == null) {
+            return Optional.empty();
+        }
+        if (tally.inFlight() != null) {
+            return Optional.of(tally.inFlight());
+        }
+        if (tally.minorUnits() == 0) {
+            return Optional.empty();
+        }
+
+        Drain drain = new Drain(UUID.randomUUID().toString(), tally.minorUnits());
+        tallies.put(accountUid, new Tally(tally.currency(), 0, drain));
+        changed = true;
+        checkpoint();
+        return Optional.of(drain);
+    }
+
+    /**
+     * Marks the drain as transferred.
+     */
+    public synchronized void completeDrain(String accountUid, Drain drain) throws IOException {
+        Tally tally = tallies.get(accountUid);
+        if (tally == null || tally.inFlight() == null || !tally.inFlight().transferUid().equals(drain.transferUid())) {
+            return;
+        }
+        tallies.put(accountUid, new Tally(tally.currency(), tally.minorUnits(), null));
+        changed = true;
+        checkpoint();
+    }
+
+    /**
+     * Writes the state to the checkpoint file if anything changed since the last one, dropping feed item UIDs
+     * older than the dedup retention.
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (!changed) {
+            return;
+        }
+        long cutoff = clock.millis() - dedupRetention.toMillis();
+        StringBuilder snapshot = new StringBuilder();
+        tallies.forEach((accountUid, tally) -> {
+            snapshot.append("ACCOUNT ").append(accountUid).append(' ').append(tally.currency()).append(' ')
+                    .append(tally.minorUnits()).append('\n');
+            if (tally.inFlight() != null) {
+                snapshot.append("DRAIN ").append(accountUid).append(' ').append(tally.inFlight().transferUid()).append(' ')
+                        .append(tally.inFlight().minorUnits()).append('\n');
+            }
+        });
+        seenFeedItems.forEach((accountUid, seen) -> {
+            // Kept in the order they arrived, so the expired ones are all at the front
+            Iterator<Map.Entry<String, Long>> entries = seen.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Long> entry = entries.next();
+                if (entry.getValue() < cutoff) {
+                    entries.remove();
+                    continue;
+                }
+                snapshot.append("SEEN ").append(accountUid).append(' ').append(entry.getKey()).append(' ')
+                        .append(entry.getValue()).append('\n');
+            }
+        });
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temporary, snapshot, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        changed = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+    }
+
+    private void load(List<String> lines) {
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            try {
+                if ("ACCOUNT".equals(parts[0]) && parts.length == 4) {
+                    Tally tally = tallies.get(parts[1]);
+                    tallies.put(parts[1], new Tally(parts[2], Long.parseLong(parts[3]), tally == null ? null : tally.inFlight()));
+                } else if ("DRAIN".equals(parts[0]) && parts.length == 4 && tallies.containsKey(parts[1])) {
+                    Tally tally = tallies.get(parts[1]);
+                    tallies.put(parts[1], new Tally(tally.currency(), tally.minorUnits(), new Drain(parts[2], Long.parseLong(parts[3]))));
+                } else if ("SEEN".equals(parts[0]) && parts.length == 4) {
+                    seenFeedItems.computeIfAbsent(parts[1], uid -> new LinkedHashMap<>()).put(parts[2], Long.parseLong(parts[3]));
+                } else {
+                    // Checkpoints are replaced atomically, so this is a hand edit rather than a torn write
+                    LOGGER.warn("Skipping malformed round up checkpoint entry: {}", line);
+                }
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Skipping malformed round up checkpoint entry: {}", line);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.thomasfraser.starlingroundup.store;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.RoundUpJobDto;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * In-memory store for asynchronous round up jobs. Queued and running jobs are kept until they finish,
+ * finished jobs are evicted once they have been retained for the configured time.
+ * Jobs are replaced rather than modified, so a reader never sees a job halfway through an update.
+ */
+@Component
+public class RoundUpJobStore {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private final Cache<String, RoundUpJobDto> jobs;
+
+    @Autowired
+    public RoundUpJobStore(RoundUpProperties properties) {
+        this(properties.getJobs().getRetention(), Ticker.systemTicker());
+    }
+
+    RoundUpJobStore(Duration retention, Ticker ticker) {
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new FinishedJobExpiry(retention.toNanos()))
+                .ticker(ticker)
+                .build();
+    }
+
+    public void put(RoundUpJobDto job) {
+        jobs.put(job.getJobId(), job);
+    }
+
+    public Optional<RoundUpJobDto> get(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    public long size() {
+        jobs.cleanUp();
+        return jobs.estimatedSize();
+    }
+
+    private static boolean isFinished(RoundUpJobDto job) {
+        return COMPLETED.equals(job.getStatus()) || FAILED.equals(job.getStatus());
+    }
+
+    private record FinishedJobExpiry(long retentionNanos) implements Expiry<String, RoundUpJobDto> {
+
+        @Override
+        public long expireAfterCreate(String jobId, RoundUpJobDto job, long currentTime) {
+            return isFinished(job) ? retentionNanos : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String jobId, RoundUpJobDto job, long currentTime, long currentDuration) {
+            return expireAfterCreate(jobId, job, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String jobId, RoundUpJobDto job, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.thomasfraser.starlingroundup.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Records, per account and window, the round up that was completed for it and the transfer UID it was sent with,
+ * so a window that has already been rounded up can be answered again without any upstream call.
+ */
+public interface RoundUpLedger extends Closeable {
+
+    /**
+     * A completed round up. The transfer UID is null when nothing was transferred, or when the transfer was
+     * handed to the write-behind journal.
+     */
+    record Entry(long minorUnits, String transferUid) {
+    }
+
+    Optional<Entry> get(String accountUid, LocalDateTime windowStart, LocalDateTime windowEnd);
+
+    void record(String accountUid, LocalDateTime windowStart, LocalDateTime windowEnd, Entry entry) throws IOException;
+}
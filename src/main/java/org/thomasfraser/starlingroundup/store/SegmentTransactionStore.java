@@ -0,0 +1,260 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.thomasfraser.starlingroundup.aggregation.SpendingCategory;
+import org.thomasfraser.starlingroundup.aggregation.TransactionCodes;
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * {@link TransactionStore} kept as fixed-width binary segments, one directory per account and one segment
+ * file per day, so the days of a window are found from their file names and nothing else is read.
+ * <p>
+ * Each record holds the transaction time (epoch millis), the amount in minor units, the packed
+ * {@link TransactionCodes} code, the {@link SpendingCategory} id and the feed item UID. Segments are only
+ * ever appended to and are read memory-mapped, straight into {@link TransactionColumns}. A torn record at
+ * the end of a segment from a crash mid-write is ignored when reading and cut off before the next append,
+ * so later records stay aligned. The stored range is only moved once the records it covers are on disk.
+ * Times are taken as UTC throughout, in line with the timestamps sent to the feed.
+ */
+public class SegmentTransactionStore implements TransactionStore {
+
+    static final int RECORD_SIZE = 40;
+
+    private static final Logger LOGGER = LogManager.getLogger(SegmentTransactionStore.class);
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String RANGE_FILE = "range";
+    private static final Pattern ACCOUNT_UID = Pattern.compile("[A-Za-z0-9-]+");
+
+    private final Path directory;
+    private final Map<String, Optional<StoredRange>> storedRanges = new ConcurrentHashMap<>();
+
+    public SegmentTransactionStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        LOGGER.info("Storing settled transactions under {}", directory);
+    }
+
+    @Override
+    public Optional<StoredRange> getStoredRange(String accountUid) {
+        return storedRanges.computeIfAbsent(accountUid, this::readStoredRange);
+    }
+
+    @Override
+    public Appender appender(String accountUid) {
+        // Kept for the whole fetch, so identical items without a UID in different batches are still both kept
+        Map<String, Integer> occurrences = new HashMap<>();
+        return transactions -> append(accountUid, transactions, occurrences);
+    }
+
+    private synchronized void append(String accountUid, List<TransactionDto> transactions, Map<String, Integer> occurrences)
+            throws IOException {
+        Map<LocalDate, ByteBuffer> recordsByDay = new TreeMap<>();
+        Map<LocalDate, Set<UUID>> storedUids = new TreeMap<>();
+
+        for (TransactionDto transaction : transactions) {
+            Instant transactionTime = transactionTime(transaction);
+            if (transactionTime == null) {
+                LOGGER.warn("Skipping transaction {} without a usable transaction time", transaction.getFeedItemUid());
+                continue;
+            }
+            LocalDate day = LocalDate.ofInstant(transactionTime, ZoneOffset.UTC);
+            UUID uid = feedItemUid(transaction, transactionTime, occurrences);
+
+            Set<UUID> dayUids = storedUids.get(day);
+            if (dayUids == null) {
+                dayUids = readUids(segment(accountUid, day));
+                storedUids.put(day, dayUids);
+            }
+            if (!dayUids.add(uid)) {
+                continue;
+            }
+
+            ByteBuffer records = recordsByDay.computeIfAbsent(day, d -> ByteBuffer.allocate(transactions.size() * RECORD_SIZE));
+            writeRecord(records, transactionTime.toEpochMilli(), transaction, uid);
+        }
+
+        for (Map.Entry<LocalDate, ByteBuffer> entry : recordsByDay.entrySet()) {
+            Path segment = segment(accountUid, entry.getKey());
+            Files.createDirectories(segment.getParent());
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                long size = channel.size();
+                if (size % RECORD_SIZE != 0) {
+                    // A torn record left by a crash mid-write, appending after it would misalign every later record
+                    channel.truncate(size - size % RECORD_SIZE);
+                }
+                ByteBuffer records = entry.getValue().flip();
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                channel.force(false);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void extendStoredRange(String accountUid, StoredRange fetched) throws IOException {
+        StoredRange extended = getStoredRange(accountUid).map(range -> range.union(fetched)).orElse(fetched);
+
+        Path rangeFile = accountDirectory(accountUid).resolve(RANGE_FILE);
+        Files.createDirectories(rangeFile.getParent());
+        Path temporary = rangeFile.resolveSibling(RANGE_FILE + ".tmp");
+        Files.writeString(temporary, extended.start() + " " + extended.end() + "\n", StandardCharsets.UTF_8);
+        Files.move(temporary, rangeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        storedRanges.put(accountUid, Optional.of(extended));
+    }
+
+    @Override
+    public long scan(String accountUid, LocalDateTime from, LocalDateTime to, TransactionColumns columns,
+                     Consumer<TransactionColumns> batchConsumer) throws IOException {
+        long fromMillis = from.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long toMillis = to.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long scanned = 0;
+
+        columns.clear();
+        for (LocalDate day = from.toLocalDate(); !day.isAfter(to.toLocalDate()); day = day.plusDays(1)) {
+            MappedByteBuffer records = map(segment(accountUid, day));
+            if (records == null) {
+                continue;
+            }
+            for (int offset = 0; offset + RECORD_SIZE <= records.limit(); offset += RECORD_SIZE) {
+                long time = records.getLong(offset);
+                if (time < fromMillis || time >= toMillis) {
+                    continue;
+                }
+                columns.add(records.getLong(offset + 8), records.getInt(offset + 16), records.getInt(offset + 20));
+                scanned++;
+                if (columns.isFull()) {
+                    batchConsumer.accept(columns);
+                    columns.clear();
+                }
+            }
+        }
+        if (columns.size() > 0) {
+            batchConsumer.accept(columns);
+            columns.clear();
+        }
+
+        return scanned;
+    }
+
+    @Override
+    public void close() {
+        // Segments are opened per append and mapped per scan, nothing is held open
+    }
+
+    private Optional<StoredRange> readStoredRange(String accountUid) {
+        Path rangeFile = accountDirectory(accountUid).resolve(RANGE_FILE);
+        if (!Files.exists(rangeFile)) {
+            return Optional.empty();
+        }
+        try {
+            String[] parts = Files.readString(rangeFile, StandardCharsets.UTF_8).trim().split(" ");
+            return Optional.of(new StoredRange(LocalDateTime.parse(parts[0]), LocalDateTime.parse(parts[1])));
+        } catch (IOException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            // The segments are still intact, an unreadable range only means fetching the window again
+            LOGGER.warn("Ignoring unreadable stored range for account {}: {}", accountUid, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Set<UUID> readUids(Path segment) throws IOException {
+        Set<UUID> uids = new HashSet<>();
+        MappedByteBuffer records = map(segment);
+        if (records != null) {
+            for (int offset = 0; offset + RECORD_SIZE <= records.limit(); offset += RECORD_SIZE) {
+                uids.add(new UUID(records.getLong(offset + 24), records.getLong(offset + 32)));
+            }
+        }
+        return uids;
+    }
+
+    private static MappedByteBuffer map(Path segment) throws IOException {
+        if (!Files.exists(segment)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Only whole records are mapped, a torn one at the end is left out
+            long wholeRecords = size - size % RECORD_SIZE;
+            return wholeRecords == 0 ? null : channel.map(FileChannel.MapMode.READ_ONLY, 0, wholeRecords);
+        }
+    }
+
+    private static void writeRecord(ByteBuffer records, long timeMillis, TransactionDto transaction, UUID uid) {
+        boolean hasAmount = transaction.getAmount() != null;
+        records.putLong(timeMillis);
+        records.putLong(hasAmount ? transaction.getAmount().getMinorUnits() : 0);
+        records.putInt(hasAmount ? TransactionCodes.of(transaction.getDirection(), transaction.getAmount().getCurrency()) : 0);
+        records.putInt(SpendingCategory.idOf(transaction.getSpendingCategory()));
+        records.putLong(uid.getMostSignificantBits());
+        records.putLong(uid.getLeastSignificantBits());
+    }
+
+    private static Instant transactionTime(TransactionDto transaction) {
+        if (transaction.getTransactionTime() == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(transaction.getTransactionTime());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static UUID feedItemUid(TransactionDto transaction, Instant transactionTime, Map<String, Integer> occurrences) {
+        String feedItemUid = transaction.getFeedItemUid();
+        if (feedItemUid != null) {
+            try {
+                return UUID.fromString(feedItemUid);
+            } catch (IllegalArgumentException e) {
+                return UUID.nameUUIDFromBytes(feedItemUid.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        // Without a UID the item is identified by what it holds and by how many identical items came before it in
+        // the fetch. The same item fetched twice is still stored once, while two identical items are both kept.
+        String key = transactionTime + "|" + transaction.getDirection() + "|"
+                + (transaction.getAmount() == null ? "" : transaction.getAmount().getCurrency() + transaction.getAmount().getMinorUnits());
+        int occurrence = occurrences.merge(key, 1, Integer::sum);
+        return UUID.nameUUIDFromBytes((key + "|" + occurrence).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Path segment(String accountUid, LocalDate day) {
+        return accountDirectory(accountUid).resolve(day + SEGMENT_SUFFIX);
+    }
+
+    private Path accountDirectory(String accountUid) {
+        if (!ACCOUNT_UID.matcher(accountUid).matches()) {
+            throw new IllegalArgumentException("Invalid account UID: " + accountUid);
+        }
+        return directory.resolve(accountUid);
+    }
+}
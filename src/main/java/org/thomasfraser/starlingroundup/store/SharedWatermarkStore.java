@@ -0,0 +1,119 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * {@link WatermarkStore} kept as one small file per account in a directory every node can reach, for round ups
+ * that move between nodes, such as the shards of the scheduled round up.
+ * <p>
+ * Nothing is cached: a watermark is read from its file on every lookup, so a node taking over an account always
+ * starts from where the previous node left it. Files are read under a shared and written under an exclusive
+ * OS file lock, and an advance is forced to disk before it returns. A file holds the watermark on its first line
+ * and the feed items after it already rounded up, comma separated, on the second. A watermark that cannot be read,
+ * including one cut short by a crash mid-write, fails the round up rather than falling back to the default window,
+ * which would transfer that window again.
+ */
+public class SharedWatermarkStore implements WatermarkStore {
+
+    private static final Logger LOGGER = LogManager.getLogger(SharedWatermarkStore.class);
+    private static final String SUFFIX = ".watermark";
+    private static final Pattern ACCOUNT_UID = Pattern.compile("[A-Za-z0-9-]+");
+
+    private record Watermark(LocalDateTime processedUpTo, Set<String> roundedUp) {
+    }
+
+    private final Path directory;
+
+    public SharedWatermarkStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        LOGGER.info("Sharing round up watermarks under {}", directory);
+    }
+
+    @Override
+    public Optional<LocalDateTime> get(String accountUid) {
+        return load(accountUid).map(Watermark::processedUpTo);
+    }
+
+    @Override
+    public Set<String> getRoundedUp(String accountUid) {
+        return load(accountUid).map(Watermark::roundedUp).orElse(Set.of());
+    }
+
+    @Override
+    public void advance(String accountUid, LocalDateTime processedUpTo, Set<String> roundedUp) throws IOException {
+        Path file = file(accountUid);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            Optional<Watermark> current = read(channel, file);
+            if (current.isPresent() && processedUpTo.isBefore(current.get().processedUpTo())) {
+                return;
+            }
+            String content = processedUpTo + "\n" + String.join(",", roundedUp) + "\n";
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)), 0);
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        // Files are opened per lookup, nothing is held open
+    }
+
+    private Optional<Watermark> load(String accountUid) {
+        Path file = file(accountUid);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             FileLock ignored = channel.lock(0, Long.MAX_VALUE, true)) {
+            return read(channel, file);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read the watermark of account " + accountUid, e);
+        }
+    }
+
+    private static Optional<Watermark> read(FileChannel channel, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // Keep reading until the whole watermark is in
+        }
+        String content = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        if (content.isEmpty()) {
+            return Optional.empty();
+        }
+        String[] lines = content.split("\n", -1);
+        if (!content.endsWith("\n") || lines.length > 3) {
+            throw new IOException("Malformed watermark in " + file + ": " + content);
+        }
+        try {
+            Set<String> roundedUp = lines.length == 3 && !lines[1].isEmpty() ? Set.of(lines[1].split(",")) : Set.of();
+            return Optional.of(new Watermark(LocalDateTime.parse(lines[0]), roundedUp));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IOException("Malformed watermark in " + file + ": " + content, e);
+        }
+    }
+
+    private Path file(String accountUid) {
+        if (!ACCOUNT_UID.matcher(accountUid).matches()) {
+            throw new IllegalArgumentException("Invalid account UID: " + accountUid);
+        }
+        return directory.resolve(accountUid + SUFFIX);
+    }
+}
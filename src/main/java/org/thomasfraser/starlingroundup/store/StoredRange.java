@@ -0,0 +1,20 @@
+package org.thomasfraser.starlingroundup.store;
+
+import java.time.LocalDateTime;
+
+/**
+ * A span of time, from its start inclusive to its end exclusive like a {@code RoundUpWindow}, for which every settled transaction of an account is held locally.
+ */
+public record StoredRange(LocalDateTime start, LocalDateTime end) {
+
+    public boolean contains(LocalDateTime time) {
+        return !time.isBefore(start) && time.isBefore(end);
+    }
+
+    /**
+     * The smallest range covering both this one and the other.
+     */
+    public StoredRange union(StoredRange other) {
+        return new StoredRange(start.isBefore(other.start) ? start : other.start, end.isAfter(other.end) ? end : other.end);
+    }
+}
@@ -0,0 +1,59 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Local, append-only copy of the settled transactions of each account, so round ups over long windows
+ * can be calculated from disk and only the part of the window not held yet has to be fetched upstream.
+ */
+public interface TransactionStore extends Closeable {
+
+    /**
+     * The range whose transactions are all held for the account, if any have been stored.
+     */
+    Optional<StoredRange> getStoredRange(String accountUid);
+
+    /**
+     * Stores the transactions, skipping any already held. Transactions don't count as covering a range until
+     * {@link #extendStoredRange} is called, so a crash half way through a fetch only means fetching it again.
+     */
+    default void append(String accountUid, List<TransactionDto> transactions) throws IOException {
+        appender(accountUid).append(transactions);
+    }
+
+    /**
+     * Stores one fetch of the account's transactions as it arrives, a batch at a time, so the fetch is never held
+     * in memory as a whole. Each batch is stored as by {@link #append(String, List)}, with items in the fetch that
+     * have no UID told apart across all of its batches.
+     */
+    Appender appender(String accountUid);
+
+    /**
+     * Appends the batches of one fetch.
+     */
+    interface Appender {
+
+        void append(List<TransactionDto> transactions) throws IOException;
+    }
+
+    /**
+     * Extends the account's stored range to include {@code fetched}, which must touch or overlap it.
+     */
+    void extendStoredRange(String accountUid, StoredRange fetched) throws IOException;
+
+    /**
+     * Decodes the stored transactions from {@code from} (inclusive) to {@code to} (exclusive) into the given columns,
+     * handing them to the batch consumer whenever they fill up and once more at the end.
+     * Returns the number of transactions scanned.
+     */
+    long scan(String accountUid, LocalDateTime from, LocalDateTime to, TransactionColumns columns,
+              Consumer<TransactionColumns> batchConsumer) throws IOException;
+}
@@ -0,0 +1,208 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Durable journal of round ups waiting to be transferred, accumulated per savings goal so they can be
+ * moved in one add-money call. Kept in memory and persisted to an append-only log that is forced to disk
+ * before each change is visible, replayed and compacted on startup.
+ * <p>
+ * A flush is journaled with its transfer UID before the money is moved and marked done after, so a flush
+ * interrupted by a crash is sent again with the same UID, which the upstream only applies once.
+ * Log lines are {@code ADD goal minorUnits windowEnd recordedAtMillis}, {@code FLUSH goal minorUnits transferUid},
+ * {@code DONE goal transferUid} and, in compacted logs, {@code UPTO accountUid windowEnd}, where a goal is written
+ * as {@code accountUid savingsGoalUid currency}. A flush always takes everything waiting for its goal.
+ */
+public class TransferJournal implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(TransferJournal.class);
+
+    /**
+     * The savings goal of an account that round ups are accumulated for.
+     */
+    public record Goal(String accountUid, String savingsGoalUid, String currency) {
+    }
+
+    /**
+     * A transfer of {@code minorUnits} journaled under {@code transferUid} and not yet confirmed as done.
+     */
+    public record Flush(String transferUid, long minorUnits) {
+    }
+
+    /**
+     * What is waiting for a goal: the accumulated minor units, when the oldest of them was recorded,
+     * and a flush that was started but not confirmed, if any.
+     */
+    public record Pending(long minorUnits, long oldestRecordedAtMillis, Flush inFlight) {
+    }
+
+    private final Clock clock;
+    private final Map<Goal, Pending> pending = new LinkedHashMap<>();
+    private final Map<String, LocalDateTime> journaledUpTo = new HashMap<>();
+    private final FileChannel log;
+
+    public TransferJournal(Path file, Clock clock) throws IOException {
+        this.clock = clock;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (Files.exists(file)) {
+            replay(Files.readAllLines(file, StandardCharsets.UTF_8));
+            compact(file);
+        }
+
+        this.log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        LOGGER.info("Loaded {} savings goals with pending round ups from {}", pending.size(), file);
+    }
+
+    /**
+     * Adds a round up to what is waiting for the goal, returning the new total.
+     */
+    public synchronized long record(Goal goal, long minorUnits, LocalDateTime windowEnd) throws IOException {
+        long now = clock.millis();
+        append("ADD " + goal(goal) + " " + minorUnits + " " + windowEnd + " " + now);
+        return apply(goal, minorUnits, windowEnd, now).minorUnits();
+    }
+
+    /**
+     * Returns the flush to send for the goal: one already started, or a new one for everything waiting.
+     * Empty when nothing is waiting.
+     */
+    public synchronized Optional<Flush> beginFlush(Goal goal) throws IOException {
+        Pending current = pending.get(goal);
+        if (current == null) {
+            return Optional.empty();
+        }
+        if (current.inFlight() != null) {
+            return Optional.of(current.inFlight());
+        }
+
+        Flush flush = new Flush(UUID.randomUUID().toString(), current.minorUnits());
+        append("FLUSH " + goal(goal) + " " + flush.minorUnits() + " " + flush.transferUid());
+        pending.put(goal, new Pending(0, 0, flush));
+        return Optional.of(flush);
+    }
+
+    /**
+     * Marks the flush as transferred.
+     */
+    public synchronized void completeFlush(Goal goal, Flush flush) throws IOException {
+        Pending current = pending.get(goal);
+        if (current == null || current.inFlight() == null || !current.inFlight().transferUid().equals(flush.transferUid())) {
+            return;
+        }
+        append("DONE " + goal(goal) + " " + flush.transferUid());
+        applyDone(goal);
+    }
+
+    public synchronized Map<Goal, Pending> getPending() {
+        return Map.copyOf(pending);
+    }
+
+    /**
+     * The end of the latest window journaled for each account, as replayed on startup.
+     * A round up is journaled before its watermark moves, so this can be ahead of the watermark after a crash.
+     */
+    public synchronized Map<String, LocalDateTime> getJournaledUpTo() {
+        return Map.copyOf(journaledUpTo);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    private Pending apply(Goal goal, long minorUnits, LocalDateTime windowEnd, long recordedAtMillis) {
+        journaledUpTo.merge(goal.accountUid(), windowEnd, (a, b) -> a.isAfter(b) ? a : b);
+        Pending current = pending.get(goal);
+        Pending updated = current == null || current.minorUnits() == 0
+                ? new Pending(minorUnits, recordedAtMillis, current == null ? null : current.inFlight())
+                : new Pending(current.minorUnits() + minorUnits, current.oldestRecordedAtMillis(), current.inFlight());
+        pending.put(goal, updated);
+        return updated;
+    }
+
+    private void applyDone(Goal goal) {
+        Pending current = pending.get(goal);
+        if (current.minorUnits() == 0) {
+            pending.remove(goal);
+        } else {
+            pending.put(goal, new Pending(current.minorUnits(), current.oldestRecordedAtMillis(), null));
+        }
+    }
+
+    private void replay(List<String> lines) {
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            try {
+                Goal goal = parts.length > 3 ? new Goal(parts[1], parts[2], parts[3]) : null;
+                if ("ADD".equals(parts[0]) && parts.length == 7) {
+                    apply(goal, Long.parseLong(parts[4]), LocalDateTime.parse(parts[5]), Long.parseLong(parts[6]));
+                } else if ("FLUSH".equals(parts[0]) && parts.length == 6) {
+                    pending.put(goal, new Pending(0, 0, new Flush(parts[5], Long.parseLong(parts[4]))));
+                } else if ("UPTO".equals(parts[0]) && parts.length == 3) {
+                    journaledUpTo.merge(parts[1], LocalDateTime.parse(parts[2]), (a, b) -> a.isAfter(b) ? a : b);
+                } else if ("DONE".equals(parts[0]) && parts.length == 5 && pending.containsKey(goal)) {
+                    applyDone(goal);
+                } else {
+                    // A torn final line from a crash mid-write, the change it recorded never became visible
+                    LOGGER.warn("Skipping malformed transfer journal entry: {}", line);
+                }
+            } catch (NumberFormatException | DateTimeParseException e) {
+                LOGGER.warn("Skipping malformed transfer journal entry: {}", line);
+            }
+        }
+    }
+
+    private void compact(Path file) throws IOException {
+        StringBuilder snapshot = new StringBuilder();
+        journaledUpTo.forEach((accountUid, upTo) -> snapshot.append("UPTO ").append(accountUid).append(' ').append(upTo).append('\n'));
+        pending.forEach((goal, current) -> {
+            LocalDateTime upTo = journaledUpTo.get(goal.accountUid());
+            if (current.inFlight() != null) {
+                snapshot.append("FLUSH ").append(goal(goal)).append(' ').append(current.inFlight().minorUnits()).append(' ')
+                        .append(current.inFlight().transferUid()).append('\n');
+            }
+            if (current.minorUnits() > 0) {
+                snapshot.append("ADD ").append(goal(goal)).append(' ').append(current.minorUnits()).append(' ')
+                        .append(upTo).append(' ').append(current.oldestRecordedAtMillis()).append('\n');
+            }
+        });
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temporary, snapshot, StandardCharsets.UTF_8);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void append(String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        log.force(false);
+    }
+
+    private static String goal(Goal goal) {
+        return goal.accountUid() + " " + goal.savingsGoalUid() + " " + goal.currency();
+    }
+}
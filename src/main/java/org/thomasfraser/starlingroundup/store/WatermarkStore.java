@@ -0,0 +1,36 @@
+package org.thomasfraser.starlingroundup.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Remembers, per account, how far its transactions have been rounded up, so the next run only has to look at
+ * transactions after it. Transactions can settle late, so the watermark is kept behind the end of the last
+ * window by the settlement lag, together with the feed items after it that were already rounded up.
+ */
+public interface WatermarkStore extends Closeable {
+
+    Optional<LocalDateTime> get(String accountUid);
+
+    /**
+     * Feed item UIDs at or after the account's watermark that have already been rounded up, to be skipped
+     * when the next window reads them again.
+     */
+    Set<String> getRoundedUp(String accountUid);
+
+    /**
+     * Moves the account's watermark forward to {@code processedUpTo}, with nothing after it rounded up yet.
+     */
+    default void advance(String accountUid, LocalDateTime processedUpTo) throws IOException {
+        advance(accountUid, processedUpTo, Set.of());
+    }
+
+    /**
+     * Moves the account's watermark forward to {@code processedUpTo} and replaces the feed items after it that
+     * have already been rounded up. A watermark never moves backwards.
+     */
+    void advance(String accountUid, LocalDateTime processedUpTo, Set<String> roundedUp) throws IOException;
+}
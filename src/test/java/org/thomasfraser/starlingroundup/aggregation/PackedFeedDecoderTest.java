@@ -0,0 +1,88 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PackedFeedDecoderTest {
+
+    private final PackedFeedDecoder decoder = new PackedFeedDecoder(new JsonFactory());
+
+    @Test
+    void decodesDirectionCurrencyAndAmountTest() throws IOException {
+        String body = """
+                {"feedItems":[
+                  {"feedItemUid":"a","amount":{"currency":"GBP","minorUnits":1001},"sourceAmount":{"currency":"EUR","minorUnits":1},
+                   "direction":"OUT","roundUp":{"amount":{"currency":"GBP","minorUnits":99}},"tags":[1,[2]]},
+                  {"direction":"in","amount":{"minorUnits":500,"currency":"usd"}},
+                  {"direction":"OUT"}
+                ]}""";
+        List<long[]> amounts = new ArrayList<>();
+        List<int[]> codes = new ArrayList<>();
+
+        long decoded = decoder.decode(stream(body), new TransactionColumns(16), batch -> {
+            amounts.add(Arrays.copyOf(batch.minorUnits(), batch.size()));
+            codes.add(Arrays.copyOf(batch.codes(), batch.size()));
+        });
+
+        assertEquals(3, decoded);
+        assertArrayEquals(new long[]{1001, 500, 0}, amounts.get(0));
+        assertArrayEquals(new int[]{TransactionCodes.of("OUT", "GBP"), TransactionCodes.of("IN", "USD"), 0}, codes.get(0));
+    }
+
+    @Test
+    void decodesSpendingCategoryTest() throws IOException {
+        String body = """
+                {"feedItems":[
+                  {"direction":"OUT","spendingCategory":"EATING_OUT","amount":{"currency":"GBP","minorUnits":1001}},
+                  {"spendingCategory":"SOMETHING_NEW","direction":"OUT"},
+                  {"direction":"OUT","spendingCategory":null}
+                ]}""";
+        List<int[]> categories = new ArrayList<>();
+
+        decoder.decode(stream(body), new TransactionColumns(16), batch -> categories.add(Arrays.copyOf(batch.categories(), batch.size())));
+
+        assertArrayEquals(new int[]{SpendingCategory.EATING_OUT.getId(), SpendingCategory.UNKNOWN, SpendingCategory.UNKNOWN},
+                categories.get(0));
+    }
+
+    @Test
+    void flushesFullBatchesAndRemainderTest() throws IOException {
+        StringBuilder body = new StringBuilder("{\"feedItems\":[");
+        for (int i = 0; i < 5; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"direction\":\"OUT\",\"amount\":{\"currency\":\"GBP\",\"minorUnits\":1050}}");
+        }
+        body.append("]}");
+        List<Integer> batchSizes = new ArrayList<>();
+        RoundUpAggregator aggregator = new RoundUpAggregator("GBP");
+
+        decoder.decode(stream(body.toString()), new TransactionColumns(2), batch -> {
+            batchSizes.add(batch.size());
+            aggregator.accept(batch);
+        });
+
+        assertEquals(List.of(2, 2, 1), batchSizes);
+        assertEquals(250, aggregator.getRoundUpTotal());
+        assertEquals(5, aggregator.getTransactionsScanned());
+    }
+
+    @Test
+    void rejectsBodyThatIsNotAnObjectTest() {
+        assertThrows(IOException.class, () -> decoder.decode(stream("[]"), new TransactionColumns(1), batch -> {
+        }));
+    }
+
+    private ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
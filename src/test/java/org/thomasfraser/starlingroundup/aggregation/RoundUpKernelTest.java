@@ -0,0 +1,69 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class RoundUpKernelTest {
+
+    private static final int GBP_OUT = TransactionCodes.of("OUT", "GBP");
+
+    @Test
+    void roundsUpAcceptedTransactionsOnlyTest() {
+        TransactionColumns columns = new TransactionColumns(8);
+        columns.add(1001, GBP_OUT);
+        columns.add(999, GBP_OUT);
+        columns.add(50, GBP_OUT);
+        columns.add(12345674249L, GBP_OUT);
+        columns.add(5600, GBP_OUT);
+        columns.add(0, GBP_OUT);
+        columns.add(1001, TransactionCodes.of("IN", "GBP"));
+        columns.add(1001, TransactionCodes.of("OUT", "USD"));
+
+        assertEquals(201, RoundUpKernel.sumRoundUps(columns.minorUnits(), columns.codes(), columns.size(), GBP_OUT));
+    }
+
+    @Test
+    void matchesPerTransactionArithmeticTest() {
+        Random random = new Random(42);
+        int[] candidateCodes = {GBP_OUT, TransactionCodes.of("IN", "GBP"), TransactionCodes.of("OUT", "EUR"), 0};
+        TransactionColumns columns = new TransactionColumns(10_000);
+        long expected = 0;
+
+        while (!columns.isFull()) {
+            long minorUnits = random.nextInt(200_000) - 1_000;
+            int code = candidateCodes[random.nextInt(candidateCodes.length)];
+            columns.add(minorUnits, code);
+            if (code == GBP_OUT && minorUnits > 0 && minorUnits % 100 != 0) {
+                expected += 100 - minorUnits % 100;
+            }
+        }
+
+        assertEquals(expected, RoundUpKernel.sumRoundUps(columns.minorUnits(), columns.codes(), columns.size(), GBP_OUT));
+    }
+
+    @Test
+    void codesIgnoreCaseAndRejectUnknownValuesTest() {
+        assertEquals(GBP_OUT, TransactionCodes.of("out", "gbp"));
+        assertNotEquals(GBP_OUT, TransactionCodes.of("OUT", "USD"));
+        assertEquals(0, TransactionCodes.of("SIDEWAYS", "GBP"));
+        assertEquals(0, TransactionCodes.of("OUT", "POUNDS"));
+        assertEquals(0, TransactionCodes.of(null, "GBP"));
+    }
+
+    @Test
+    void aggregatorWithUnknownCurrencyAcceptsNothingTest() {
+        TransactionColumns columns = new TransactionColumns(2);
+        columns.add(1001, 0);
+        columns.add(1001, GBP_OUT);
+        RoundUpAggregator aggregator = new RoundUpAggregator("POUNDS");
+
+        aggregator.accept(columns);
+
+        assertEquals(0, aggregator.getRoundUpTotal());
+        assertEquals(2, aggregator.getTransactionsScanned());
+    }
+}
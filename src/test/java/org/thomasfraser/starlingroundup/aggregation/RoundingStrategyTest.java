@@ -0,0 +1,103 @@
+package org.thomasfraser.starlingroundup.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RoundingStrategyTest {
+
+    private static final int GBP_OUT = TransactionCodes.of("OUT", "GBP");
+    private static final int GBP_IN = TransactionCodes.of("IN", "GBP");
+
+    @Test
+    void compilesSimplestStrategyForRulesTest() {
+        assertInstanceOf(RoundingStrategy.NextPoundRounding.class, RoundingStrategy.compile(RoundingRule.NEXT_POUND, Map.of()));
+        assertInstanceOf(RoundingStrategy.IncrementRounding.class, RoundingStrategy.compile(new RoundingRule(500, 2, 0), Map.of()));
+        assertInstanceOf(RoundingStrategy.CappedRounding.class, RoundingStrategy.compile(new RoundingRule(100, 1, 50), Map.of()));
+        assertInstanceOf(RoundingStrategy.CategoryRounding.class, RoundingStrategy.compile(RoundingRule.NEXT_POUND,
+                Map.of(SpendingCategory.COFFEE, new RoundingRule(500, 1, 0))));
+    }
+
+    @Test
+    void appliesIncrementMultiplierAndCapTest() {
+        RoundingRule rule = new RoundingRule(500, 2, 600);
+
+        assertEquals(0, rule.roundUp(1000));
+        assertEquals(2, rule.roundUp(1499));
+        assertEquals(600, rule.roundUp(1001));
+        assertEquals(0, RoundingRule.NEXT_POUND.roundUp(500));
+        assertEquals(99, RoundingRule.NEXT_POUND.roundUp(501));
+    }
+
+    @Test
+    void categoryRulesOverrideDefaultTest() {
+        RoundingStrategy strategy = RoundingStrategy.compile(RoundingRule.NEXT_POUND,
+                Map.of(SpendingCategory.EATING_OUT, new RoundingRule(1000, 1, 0), SpendingCategory.GAMBLING, new RoundingRule(100, 10, 250)));
+        TransactionColumns columns = new TransactionColumns(4);
+        columns.add(1250, GBP_OUT, SpendingCategory.EATING_OUT.getId());
+        columns.add(1250, GBP_OUT, SpendingCategory.GAMBLING.getId());
+        columns.add(1250, GBP_OUT, SpendingCategory.UNKNOWN);
+        columns.add(1250, GBP_IN, SpendingCategory.EATING_OUT.getId());
+
+        assertEquals(750 + 250 + 50, strategy.sumRoundUps(columns.minorUnits(), columns.codes(), columns.categories(),
+                columns.size(), GBP_OUT));
+    }
+
+    @Test
+    void batchMatchesPerTransactionRulesTest() {
+        Map<SpendingCategory, RoundingRule> categoryRules = Map.of(
+                SpendingCategory.COFFEE, new RoundingRule(500, 1, 0),
+                SpendingCategory.SHOPPING, new RoundingRule(1000, 3, 1200),
+                SpendingCategory.TAXI, new RoundingRule(1, 5, 0));
+        RoundingRule[] defaultRules = {RoundingRule.NEXT_POUND, new RoundingRule(1000, 1, 0), new RoundingRule(500, 3, 0),
+                new RoundingRule(100, 2, 75)};
+
+        for (RoundingRule defaultRule : defaultRules) {
+            assertMatchesPerTransaction(defaultRule, Map.of());
+            assertMatchesPerTransaction(defaultRule, categoryRules);
+        }
+    }
+
+    @Test
+    void rejectsInvalidRulesTest() {
+        assertThrows(IllegalArgumentException.class, () -> new RoundingRule(0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RoundingRule(100, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RoundingRule(100, 1, -1));
+    }
+
+    @Test
+    void resolvesCategoryNamesTest() {
+        for (SpendingCategory category : SpendingCategory.values()) {
+            assertEquals(category.getId(), SpendingCategory.idOf(category.name()));
+        }
+        assertEquals(SpendingCategory.UNKNOWN, SpendingCategory.idOf("eating_out"));
+        assertEquals(SpendingCategory.UNKNOWN, SpendingCategory.idOf(""));
+        assertEquals(SpendingCategory.UNKNOWN, SpendingCategory.idOf((String) null));
+    }
+
+    private static void assertMatchesPerTransaction(RoundingRule defaultRule, Map<SpendingCategory, RoundingRule> categoryRules) {
+        RoundingStrategy strategy = RoundingStrategy.compile(defaultRule, categoryRules);
+        Random random = new Random(42);
+        int[] candidateCodes = {GBP_OUT, GBP_IN, 0};
+        TransactionColumns columns = new TransactionColumns(10_000);
+        long expected = 0;
+
+        while (!columns.isFull()) {
+            long minorUnits = random.nextInt(200_000) - 1_000;
+            int code = candidateCodes[random.nextInt(candidateCodes.length)];
+            int category = random.nextInt(SpendingCategory.ID_COUNT);
+            columns.add(minorUnits, code, category);
+            if (code == GBP_OUT && minorUnits > 0) {
+                expected += strategy.roundUp(minorUnits, category);
+            }
+        }
+
+        assertEquals(expected, strategy.sumRoundUps(columns.minorUnits(), columns.codes(), columns.categories(),
+                columns.size(), GBP_OUT));
+    }
+}
@@ -0,0 +1,91 @@
+package org.thomasfraser.starlingroundup.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.thomasfraser.starlingroundup.config.StarlingCacheProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+class StarlingLookupCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void secondLookupIsServedFromCacheTest() throws Exception {
+        StarlingLookupCache lookupCache = new StarlingLookupCache(new StarlingCacheProperties(), meterRegistry);
+        Callable<List<AccountDto>> loader = mock(Callable.class);
+        when(loader.call()).thenReturn(List.of(new AccountDto()));
+
+        lookupCache.getAccounts("token", loader);
+        lookupCache.getAccounts("token", loader);
+        lookupCache.getAccounts("other token", loader);
+
+        verify(loader, times(2)).call();
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "starling.accounts").tag("result", "hit").functionCounter().count());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "starling.accounts").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void failedLoadIsNotCachedTest() throws Exception {
+        StarlingLookupCache lookupCache = new StarlingLookupCache(new StarlingCacheProperties(), meterRegistry);
+
+        assertThrows(Exception.class, () -> lookupCache.getSavingsGoals("1234", () -> {
+            throw new Exception("Failed to fetch savings goals: 500");
+        }));
+
+        assertEquals(List.of(), lookupCache.getSavingsGoals("1234", List::of));
+    }
+
+    @Test
+    void createdSavingsGoalIsAddedToCachedGoalsTest() throws Exception {
+        StarlingLookupCache lookupCache = new StarlingLookupCache(new StarlingCacheProperties(), meterRegistry);
+        lookupCache.getSavingsGoals("1234", List::of);
+        SavingsAccountDto created = new SavingsAccountDto();
+        created.setSavingsGoalUid("5678");
+
+        lookupCache.addSavingsGoal("1234", created);
+        lookupCache.addSavingsGoal("9999", created);
+
+        assertEquals(List.of(created), lookupCache.getSavingsGoals("1234", () -> {
+            throw new AssertionError("Should be served from the cache");
+        }));
+        assertEquals(1, lookupCache.savingsGoalsSize());
+    }
+
+    @Test
+    void invalidationForcesReloadTest() throws Exception {
+        StarlingLookupCache lookupCache = new StarlingLookupCache(new StarlingCacheProperties(), meterRegistry);
+        lookupCache.getSavingsGoals("1234", List::of);
+        lookupCache.getAccounts("token", List::of);
+
+        lookupCache.invalidateSavingsGoals("1234");
+        assertEquals(0, lookupCache.savingsGoalsSize());
+        assertEquals(1, lookupCache.accountsSize());
+
+        lookupCache.invalidateAll();
+        assertEquals(0, lookupCache.accountsSize());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void disabledCacheAlwaysLoadsTest() throws Exception {
+        StarlingCacheProperties properties = new StarlingCacheProperties();
+        properties.setEnabled(false);
+        StarlingLookupCache lookupCache = new StarlingLookupCache(properties, meterRegistry);
+        Callable<List<AccountDto>> loader = mock(Callable.class);
+        when(loader.call()).thenReturn(List.of());
+
+        lookupCache.getAccounts("token", loader);
+        lookupCache.getAccounts("token", loader);
+
+        verify(loader, times(2)).call();
+    }
+}
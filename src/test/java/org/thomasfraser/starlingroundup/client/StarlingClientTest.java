@@ -1,25 +1,46 @@
 package org.thomasfraser.starlingroundup.client;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.thomasfraser.starlingroundup.aggregation.RoundUpAggregator;
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
+import org.thomasfraser.starlingroundup.cache.StarlingLookupCache;
 import org.thomasfraser.starlingroundup.config.AppConfig;
+import org.thomasfraser.starlingroundup.config.StarlingCacheProperties;
+import org.thomasfraser.starlingroundup.config.StarlingRetryProperties;
 import org.thomasfraser.starlingroundup.dto.*;
+import org.thomasfraser.starlingroundup.resilience.RetryExecutor;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class StarlingClientTest {
@@ -30,12 +51,22 @@ class StarlingClientTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Spy
+    private StarlingLookupCache lookupCache = new StarlingLookupCache(new StarlingCacheProperties(), new SimpleMeterRegistry());
+
+    @Spy
+    private RetryExecutor retryExecutor = new RetryExecutor(retryProperties(), new SimpleMeterRegistry());
+
+    @Captor
+    private ArgumentCaptor<HttpEntity<?>> entityCaptor;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
         AppConfig appConfig = new AppConfig();
         ReflectionTestUtils.setField(appConfig, "apiToken", "<api token>");
         ReflectionTestUtils.setField(starlingClient, "baseUrl", "https://api-sandbox.starling.com/api/v2");
+        ReflectionTestUtils.setField(starlingClient, "objectMapper", new ObjectMapper());
     }
 
     @Test
@@ -86,6 +117,47 @@ class StarlingClientTest {
         assertFalse(result.isEmpty());
     }
 
+    @Test
+    void streamTransactionsPassesEachFeedItemToConsumerTest() throws Exception {
+        byte[] body = "{\"feedItems\":[{\"direction\":\"OUT\"},{\"direction\":\"IN\"}]}".getBytes(StandardCharsets.UTF_8);
+        when(restTemplate.execute(any(String.class), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> invocation.<ResponseExtractor<?>>getArgument(3)
+                        .extractData(new MockClientHttpResponse(body, HttpStatus.OK)));
+        List<TransactionDto> transactions = new ArrayList<>();
+
+        long itemsRead = starlingClient.streamTransactions("uuid", "minTimestamp", "maxTimestamp", transactions::add);
+
+        assertEquals(2, itemsRead);
+        assertEquals("OUT", transactions.get(0).getDirection());
+        assertEquals("IN", transactions.get(1).getDirection());
+    }
+
+    @Test
+    void decodeTransactionsFillsColumnsTest() throws Exception {
+        byte[] body = "{\"feedItems\":[{\"direction\":\"OUT\",\"amount\":{\"currency\":\"GBP\",\"minorUnits\":1001}}]}".getBytes(StandardCharsets.UTF_8);
+        when(restTemplate.execute(any(String.class), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> invocation.<ResponseExtractor<?>>getArgument(3)
+                        .extractData(new MockClientHttpResponse(body, HttpStatus.OK)));
+        RoundUpAggregator aggregator = new RoundUpAggregator("GBP");
+
+        long itemsDecoded = starlingClient.decodeTransactions("uuid", "minTimestamp", "maxTimestamp", new TransactionColumns(4), aggregator);
+
+        assertEquals(1, itemsDecoded);
+        assertEquals(99, aggregator.getRoundUpTotal());
+    }
+
+    @Test
+    void streamTransactionsThrowsExceptionWhenResponseIsNotOkTest() {
+        when(restTemplate.execute(any(String.class), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> invocation.<ResponseExtractor<?>>getArgument(3)
+                        .extractData(new MockClientHttpResponse(new byte[0], HttpStatus.NO_CONTENT)));
+
+        Exception exception = assertThrows(Exception.class,
+                () -> starlingClient.streamTransactions("uuid", "minTimestamp", "maxTimestamp", transaction -> {
+                }));
+        assertEquals("Failed to fetch transactions: " + HttpStatus.NO_CONTENT, exception.getMessage());
+    }
+
     @Test
     void createSavingsGoalThrowsExceptionWhenResponseIsNotOkTest() {
         when(restTemplate.exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), any(Class.class)))
@@ -103,6 +175,43 @@ class StarlingClientTest {
         assertDoesNotThrow(() -> starlingClient.createSavingsGoal("uuid", "GBP", "savingsGoalsName"));
     }
 
+    @Test
+    void fetchClientAccountsIsServedFromCacheOnRepeatTest() throws Exception {
+        AccountsResponseDto accountsResponseDto = new AccountsResponseDto();
+        accountsResponseDto.setAccounts(List.of(new AccountDto()));
+        when(restTemplate.exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), eq(AccountsResponseDto.class)))
+                .thenReturn(new ResponseEntity<>(accountsResponseDto, HttpStatus.OK));
+
+        starlingClient.fetchClientAccounts();
+        List<AccountDto> result = starlingClient.fetchClientAccounts();
+
+        assertEquals(1, result.size());
+        verify(restTemplate, times(1)).exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), eq(AccountsResponseDto.class));
+    }
+
+    @Test
+    void createdSavingsGoalIsServedFromCacheTest() throws Exception {
+        SavingsAccountsResponseDto savingsAccountsResponseDto = new SavingsAccountsResponseDto();
+        savingsAccountsResponseDto.setSavingsGoalList(List.of());
+        when(restTemplate.exchange(any(String.class), eq(HttpMethod.GET), any(HttpEntity.class), eq(SavingsAccountsResponseDto.class)))
+                .thenReturn(new ResponseEntity<>(savingsAccountsResponseDto, HttpStatus.OK));
+        SavingsGoalCreatedDto created = new SavingsGoalCreatedDto();
+        created.setSavingsGoalUid("5678");
+        created.setSuccess(true);
+        when(restTemplate.exchange(any(String.class), eq(HttpMethod.PUT), any(HttpEntity.class), eq(SavingsGoalCreatedDto.class)))
+                .thenReturn(new ResponseEntity<>(created, HttpStatus.OK));
+
+        assertTrue(starlingClient.getSavingsGoals("uuid").isEmpty());
+        starlingClient.createSavingsGoal("uuid", "GBP", "RoundUp2025");
+        List<SavingsAccountDto> result = starlingClient.getSavingsGoals("uuid");
+
+        assertEquals(1, result.size());
+        assertEquals("5678", result.get(0).getSavingsGoalUid());
+        assertEquals("RoundUp2025", result.get(0).getName());
+        assertEquals("ACTIVE", result.get(0).getState());
+        verify(restTemplate, times(1)).exchange(any(String.class), eq(HttpMethod.GET), any(HttpEntity.class), eq(SavingsAccountsResponseDto.class));
+    }
+
     @Test
     void getSavingsGoalsThrowsExceptionWhenResponseIsNotOkTest() {
         when(restTemplate.exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), any(Class.class)))
@@ -128,18 +237,67 @@ class StarlingClientTest {
     }
 
     @Test
-    void addMoneyToSavingsGoalReturnsFalseWhenResponseIsNotOkTest() {
+    void addMoneyToSavingsGoalReturnsFalseWhenResponseIsNotOkTest() throws Exception {
         when(restTemplate.exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), any(Class.class)))
                 .thenReturn(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
 
-        assertFalse(starlingClient.addMoneyToSavingsGoal("accountUuid", "GBP", "savingsGoalUid", 100));
+        assertFalse(starlingClient.addMoneyToSavingsGoal("accountUuid", "GBP", "savingsGoalUid", "transferUid", 100));
     }
 
     @Test
-    void addMoneyToSavingsGoalReturnsTrueWhenResponseIsOkTest() {
+    void addMoneyToSavingsGoalReturnsTrueWhenResponseIsOkTest() throws Exception {
         when(restTemplate.exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), any(Class.class)))
                 .thenReturn(new ResponseEntity<>(HttpStatus.OK));
 
-        assertTrue(starlingClient.addMoneyToSavingsGoal("accountUuid", "GBP", "savingsGoalUid", 100));
+        assertTrue(starlingClient.addMoneyToSavingsGoal("accountUuid", "GBP", "savingsGoalUid", "transferUid", 100));
+    }
+
+    @Test
+    void addMoneyToSavingsGoalRetriesWithSameTransferUidTest() throws Exception {
+        when(restTemplate.exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), any(Class.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        assertTrue(starlingClient.addMoneyToSavingsGoal("accountUuid", "GBP", "savingsGoalUid", "transferUid", 100));
+
+        String expectedUrl = "https://api-sandbox.starling.com/api/v2/account/accountUuid/savings-goals/savingsGoalUid/add-money/transferUid";
+        verify(restTemplate, times(2)).exchange(eq(expectedUrl), eq(HttpMethod.PUT), any(HttpEntity.class), eq(Void.class));
+    }
+
+    @Test
+    void createSavingsGoalIsNotRetriedTest() {
+        when(restTemplate.exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), eq(SavingsGoalCreatedDto.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThrows(HttpServerErrorException.class, () -> starlingClient.createSavingsGoal("uuid", "GBP", "RoundUp2025"));
+        verify(restTemplate, times(1)).exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), eq(SavingsGoalCreatedDto.class));
+    }
+
+    @Test
+    void tokenFromContextReplacesConfiguredTokenTest() throws Exception {
+        HttpHeaders configuredHeaders = new HttpHeaders();
+        configuredHeaders.setBearerAuth("<api token>");
+        ReflectionTestUtils.setField(starlingClient, "headers", configuredHeaders);
+
+        AccountsResponseDto accountsResponseDto = new AccountsResponseDto();
+        accountsResponseDto.setAccounts(List.of(new AccountDto()));
+        when(restTemplate.exchange(any(String.class), any(HttpMethod.class), any(HttpEntity.class), eq(AccountsResponseDto.class)))
+                .thenReturn(new ResponseEntity<>(accountsResponseDto, HttpStatus.OK));
+
+        StarlingTokenContext.callWithToken("customer token", () -> starlingClient.fetchClientAccounts());
+        starlingClient.fetchClientAccounts();
+
+        verify(restTemplate, times(2)).exchange(any(String.class), any(HttpMethod.class), entityCaptor.capture(), eq(AccountsResponseDto.class));
+        assertEquals("Bearer customer token", entityCaptor.getAllValues().get(0).getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        assertEquals("Bearer <api token>", entityCaptor.getAllValues().get(1).getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        assertEquals("Bearer <api token>", configuredHeaders.getFirst(HttpHeaders.AUTHORIZATION));
+    }
+
+    private static StarlingRetryProperties retryProperties() {
+        StarlingRetryProperties retryProperties = new StarlingRetryProperties();
+        retryProperties.setEnabled(true);
+        retryProperties.setInitialBackoff(Duration.ofMillis(1));
+        retryProperties.setMaxBackoff(Duration.ofMillis(5));
+        return retryProperties;
     }
-}
\ No newline at end of file
+}
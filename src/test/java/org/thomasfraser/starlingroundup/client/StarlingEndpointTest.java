@@ -0,0 +1,46 @@
+package org.thomasfraser.starlingroundup.client;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StarlingEndpointTest {
+
+    private static final String BASE_URL = "https://api-sandbox.starlingbank.com/api/v2";
+
+    @Test
+    void resolvesAccountsEndpointTest() {
+        assertEquals(StarlingEndpoint.ACCOUNTS, StarlingEndpoint.resolve(HttpMethod.GET, URI.create(BASE_URL + "/accounts")));
+    }
+
+    @Test
+    void resolvesFeedEndpointIgnoringQueryTest() {
+        URI uri = URI.create(BASE_URL + "/feed/account/1234/settled-transactions-between?minTransactionTimestamp=a&maxTransactionTimestamp=b");
+
+        assertEquals(StarlingEndpoint.FEED, StarlingEndpoint.resolve(HttpMethod.GET, uri));
+    }
+
+    @Test
+    void resolvesSavingsGoalEndpointsByMethodTest() {
+        URI uri = URI.create(BASE_URL + "/account/1234/savings-goals");
+
+        assertEquals(StarlingEndpoint.SAVINGS_GOALS, StarlingEndpoint.resolve(HttpMethod.GET, uri));
+        assertEquals(StarlingEndpoint.CREATE_SAVINGS_GOAL, StarlingEndpoint.resolve(HttpMethod.PUT, uri));
+    }
+
+    @Test
+    void resolvesAddMoneyEndpointTest() {
+        URI uri = URI.create(BASE_URL + "/account/1234/savings-goals/5678/add-money/9abc");
+
+        assertEquals(StarlingEndpoint.ADD_MONEY, StarlingEndpoint.resolve(HttpMethod.PUT, uri));
+    }
+
+    @Test
+    void unknownRequestResolvesToOtherTest() {
+        assertEquals(StarlingEndpoint.OTHER, StarlingEndpoint.resolve(HttpMethod.DELETE, URI.create(BASE_URL + "/accounts")));
+        assertEquals(StarlingEndpoint.OTHER, StarlingEndpoint.resolve(HttpMethod.GET, URI.create(BASE_URL + "/identity/token")));
+    }
+}
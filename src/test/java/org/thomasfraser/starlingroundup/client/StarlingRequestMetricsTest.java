@@ -0,0 +1,74 @@
+package org.thomasfraser.starlingroundup.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StarlingRequestMetricsTest {
+
+    private static final String BASE_URL = "https://api.example.com/api/v2";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StarlingRequestMetrics starlingRequestMetrics = new StarlingRequestMetrics(meterRegistry);
+
+    @Test
+    void blockingCallsAreTimedByEndpointAndStatusTest() {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(starlingRequestMetrics);
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo(BASE_URL + "/accounts"))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/account/1234/savings-goals"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+        restTemplate.getForObject(BASE_URL + "/accounts", String.class);
+        assertThrows(HttpClientErrorException.class,
+                () -> restTemplate.getForObject(BASE_URL + "/account/1234/savings-goals", String.class));
+
+        assertEquals(1, timerCount("accounts", "200", "blocking"));
+        assertEquals(1, timerCount("savings-goals", "404", "blocking"));
+    }
+
+    @Test
+    void reactiveCallsAreTimedByEndpointAndStatusTest() {
+        WebClient webClient = WebClient.builder()
+                .baseUrl(BASE_URL)
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK).build()))
+                .filter(starlingRequestMetrics.exchangeFilter())
+                .build();
+
+        StepVerifier.create(webClient.method(HttpMethod.PUT)
+                        .uri("/account/1234/savings-goals/5678/add-money/9012")
+                        .retrieve()
+                        .toBodilessEntity())
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, timerCount("add-money", "200", "reactive"));
+    }
+
+    private long timerCount(String endpoint, String status, String client) {
+        return meterRegistry.get(StarlingRequestMetrics.METRIC_NAME)
+                .tag("endpoint", endpoint)
+                .tag("status", status)
+                .tag("client", client)
+                .timer()
+                .count();
+    }
+}
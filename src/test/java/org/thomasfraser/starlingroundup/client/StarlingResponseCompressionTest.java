@@ -0,0 +1,108 @@
+package org.thomasfraser.starlingroundup.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.thomasfraser.starlingroundup.config.StarlingHttpProperties;
+import org.thomasfraser.starlingroundup.dto.TransactionsResponseDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.headerDoesNotExist;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StarlingResponseCompressionTest {
+
+    private static final String FEED_URL = "https://api.example.com/api/v2/feed/account/1234/settled-transactions-between";
+    private static final String FEED = """
+            {"feedItems":[{"feedItemUid":"a","direction":"OUT","amount":{"currency":"GBP","minorUnits":1001},
+             "counterPartyName":"Coffee Shop","roundUp":{"goalCategoryUid":"b","amount":{"currency":"GBP","minorUnits":99}}}]}""";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StarlingHttpProperties properties = new StarlingHttpProperties();
+
+    @Test
+    void gzipResponseIsDecodedAndCountedTest() throws IOException {
+        byte[] gzipped = gzip(FEED.getBytes(StandardCharsets.UTF_8));
+        RestTemplate restTemplate = restTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo(FEED_URL))
+                .andExpect(header(HttpHeaders.ACCEPT_ENCODING, StarlingResponseCompression.ACCEPTED_ENCODINGS))
+                .andRespond(withSuccess(gzipped, MediaType.APPLICATION_JSON).header(HttpHeaders.CONTENT_ENCODING, "gzip"));
+
+        TransactionsResponseDto response = restTemplate.getForObject(FEED_URL, TransactionsResponseDto.class);
+
+        assertEquals(1001, response.getFeedItems().get(0).getAmount().getMinorUnits());
+        assertEquals(gzipped.length, counter("starling.client.response.wire.bytes", "feed"));
+        assertEquals(FEED.getBytes(StandardCharsets.UTF_8).length, counter("starling.client.response.decoded.bytes", "feed"));
+    }
+
+    @Test
+    void deflateResponseIsDecodedTest() throws IOException {
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated)) {
+            out.write(FEED.getBytes(StandardCharsets.UTF_8));
+        }
+        RestTemplate restTemplate = restTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo(FEED_URL))
+                .andRespond(withSuccess(deflated.toByteArray(), MediaType.APPLICATION_JSON).header(HttpHeaders.CONTENT_ENCODING, "deflate"));
+
+        assertEquals(FEED, restTemplate.getForObject(FEED_URL, String.class));
+    }
+
+    @Test
+    void uncompressedResponseCountsSameBytesTwiceTest() {
+        properties.setCompressionEnabled(false);
+        RestTemplate restTemplate = restTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo(FEED_URL))
+                .andExpect(headerDoesNotExist(HttpHeaders.ACCEPT_ENCODING))
+                .andRespond(withSuccess(FEED, MediaType.APPLICATION_JSON));
+
+        assertEquals(FEED, restTemplate.getForObject(FEED_URL, String.class));
+
+        assertEquals(FEED.getBytes(StandardCharsets.UTF_8).length, counter("starling.client.response.wire.bytes", "feed"));
+        assertEquals(FEED.getBytes(StandardCharsets.UTF_8).length, counter("starling.client.response.decoded.bytes", "feed"));
+    }
+
+    @Test
+    void emptyGzipResponseIsPassedThroughTest() {
+        RestTemplate restTemplate = restTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo(FEED_URL))
+                .andRespond(withSuccess().header(HttpHeaders.CONTENT_ENCODING, "gzip"));
+
+        assertNull(restTemplate.getForObject(FEED_URL, String.class));
+    }
+
+    private RestTemplate restTemplate() {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(new StarlingResponseCompression(properties, meterRegistry));
+        return restTemplate;
+    }
+
+    private double counter(String name, String endpoint) {
+        return meterRegistry.get(name).tag("endpoint", endpoint).counter().count();
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
+        }
+        return compressed.toByteArray();
+    }
+}
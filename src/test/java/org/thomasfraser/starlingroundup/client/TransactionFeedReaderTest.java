@@ -0,0 +1,65 @@
+package org.thomasfraser.starlingroundup.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionFeedReaderTest {
+
+    private final TransactionFeedReader feedReader = new TransactionFeedReader(new ObjectMapper());
+
+    @Test
+    void readsEveryFeedItemTest() throws IOException {
+        String body = """
+                {"feedItems":[
+                  {"feedItemUid":"a","direction":"OUT","amount":{"currency":"GBP","minorUnits":1001},"status":"SETTLED",
+                   "counterPartyName":"Shop","roundUp":{"goalCategoryUid":"x","amount":{"currency":"GBP","minorUnits":99}}},
+                  {"direction":"IN","amount":{"currency":"GBP","minorUnits":500},"tags":["a",["b"]]}
+                ]}""";
+        List<TransactionDto> transactions = new ArrayList<>();
+
+        long itemsRead = feedReader.read(stream(body), transactions::add);
+
+        assertEquals(2, itemsRead);
+        assertEquals("OUT", transactions.get(0).getDirection());
+        assertEquals(1001, transactions.get(0).getAmount().getMinorUnits());
+        assertEquals("IN", transactions.get(1).getDirection());
+        assertEquals(500, transactions.get(1).getAmount().getMinorUnits());
+    }
+
+    @Test
+    void skipsOtherTopLevelFieldsTest() throws IOException {
+        String body = """
+                {"metadata":{"feedItems":[{"direction":"OUT"}]},"feedItems":[{"direction":"OUT"}],"next":null}""";
+        List<TransactionDto> transactions = new ArrayList<>();
+
+        assertEquals(1, feedReader.read(stream(body), transactions::add));
+    }
+
+    @Test
+    void emptyOrMissingFeedReadsNothingTest() throws IOException {
+        assertEquals(0, feedReader.read(stream("{\"feedItems\":[]}"), transaction -> {
+        }));
+        assertEquals(0, feedReader.read(stream("{}"), transaction -> {
+        }));
+    }
+
+    @Test
+    void rejectsBodyThatIsNotAnObjectTest() {
+        assertThrows(IOException.class, () -> feedReader.read(stream("[]"), transaction -> {
+        }));
+    }
+
+    private ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,158 @@
+package org.thomasfraser.starlingroundup.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.thomasfraser.starlingroundup.config.StarlingHttpProperties;
+import org.thomasfraser.starlingroundup.config.StarlingRetryProperties;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebClientStarlingClientTest {
+
+    private static final String BASE_URL = "https://api-sandbox.starling.com/api/v2";
+
+    private final AtomicReference<ClientRequest> lastRequest = new AtomicReference<>();
+
+    @Test
+    void fetchClientAccountsReturnsAccountsWhenResponseIsOkTest() {
+        WebClientStarlingClient client = clientRespondingWith(HttpStatus.OK, "{\"accounts\":[{\"accountUid\":\"1234\",\"accountType\":\"PRIMARY\"}]}");
+
+        StepVerifier.create(client.fetchClientAccounts())
+                .assertNext(account -> assertEquals("1234", account.getAccountUid()))
+                .verifyComplete();
+        assertEquals(BASE_URL + "/accounts", lastRequest.get().url().toString());
+    }
+
+    @Test
+    void fetchClientAccountsErrorsWhenResponseIsNotOkTest() {
+        WebClientStarlingClient client = clientRespondingWith(HttpStatus.BAD_REQUEST, "{}");
+
+        StepVerifier.create(client.fetchClientAccounts())
+                .expectErrorMessage("Failed to fetch accounts: " + HttpStatus.BAD_REQUEST)
+                .verify();
+    }
+
+    @Test
+    void fetchTransactionsStreamsFeedItemsTest() {
+        WebClientStarlingClient client = clientRespondingWith(HttpStatus.OK,
+                "{\"feedItems\":[{\"direction\":\"OUT\",\"amount\":{\"currency\":\"GBP\",\"minorUnits\":1001}},{\"direction\":\"IN\"}]}");
+
+        StepVerifier.create(client.fetchTransactions("1234", "min", "max"))
+                .assertNext(transaction -> assertEquals(1001, transaction.getAmount().getMinorUnits()))
+                .assertNext(transaction -> assertEquals("IN", transaction.getDirection()))
+                .verifyComplete();
+        assertEquals(BASE_URL + "/feed/account/1234/settled-transactions-between?minTransactionTimestamp=min&maxTransactionTimestamp=max",
+                lastRequest.get().url().toString());
+    }
+
+    @Test
+    void fetchTransactionsEmitsFeedItemsBeforeTheBodyHasArrivedTest() {
+        String firstItem = "{\"feedItems\":[{\"feedItemUid\":\"1\",\"amount\":{\"currency\":\"GBP\",\"minorUnits\":1001}},";
+        // Split into 7 byte buffers, then the connection drops before the second item is complete
+        Flux<DataBuffer> body = Flux.range(0, (firstItem.length() + 6) / 7)
+                .map(chunk -> firstItem.substring(chunk * 7, Math.min(firstItem.length(), chunk * 7 + 7)))
+                .concatWith(Flux.just("{\"feedItemUid\":\"2\""))
+                .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)))
+                .cast(DataBuffer.class)
+                .concatWith(Flux.error(new IOException("Connection reset")));
+        WebClient webClient = WebClient.builder()
+                .baseUrl(BASE_URL)
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(body)
+                        .build()))
+                .build();
+        StarlingRetryProperties retryProperties = new StarlingRetryProperties();
+        retryProperties.setEnabled(true);
+        WebClientStarlingClient client = new WebClientStarlingClient(webClient, new StarlingHttpProperties(), retryProperties,
+                new ObjectMapper());
+
+        StepVerifier.create(client.fetchTransactions("1234", "min", "max"))
+                .assertNext(transaction -> assertEquals("1", transaction.getFeedItemUid()))
+                .expectErrorMessage("Connection reset")
+                .verify();
+    }
+
+    @Test
+    void createSavingsGoalErrorsWhenResponseIsNotOkTest() {
+        WebClientStarlingClient client = clientRespondingWith(HttpStatus.BAD_REQUEST, "{}");
+
+        StepVerifier.create(client.createSavingsGoal("1234", "GBP", "RoundUp2025"))
+                .expectErrorMessage("Failed to create savings goal: " + HttpStatus.BAD_REQUEST)
+                .verify();
+        assertEquals(HttpMethod.PUT, lastRequest.get().method());
+    }
+
+    @Test
+    void addMoneyToSavingsGoalReportsStatusTest() {
+        StepVerifier.create(clientRespondingWith(HttpStatus.OK, "{}").addMoneyToSavingsGoal("1234", "GBP", "5678", "9012", 100))
+                .expectNext(true)
+                .verifyComplete();
+        assertEquals("/api/v2/account/1234/savings-goals/5678/add-money/9012", lastRequest.get().url().getPath());
+
+        StepVerifier.create(clientRespondingWith(HttpStatus.BAD_REQUEST, "{}").addMoneyToSavingsGoal("1234", "GBP", "5678", "9012", 100))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void addMoneyToSavingsGoalRetriesFailedRequestTest() {
+        AtomicInteger attempts = new AtomicInteger();
+        WebClient webClient = WebClient.builder()
+                .baseUrl(BASE_URL)
+                .exchangeFunction(request -> {
+                    lastRequest.set(request);
+                    return attempts.incrementAndGet() == 1
+                            ? Mono.error(new WebClientRequestException(new IOException("Connection reset"),
+                                    request.method(), request.url(), request.headers()))
+                            : Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                })
+                .build();
+        StarlingRetryProperties retryProperties = new StarlingRetryProperties();
+        retryProperties.setEnabled(true);
+        retryProperties.setInitialBackoff(Duration.ofMillis(1));
+        WebClientStarlingClient client = new WebClientStarlingClient(webClient, new StarlingHttpProperties(), retryProperties,
+                new ObjectMapper());
+
+        StepVerifier.create(client.addMoneyToSavingsGoal("1234", "GBP", "5678", "9012", 100))
+                .expectNext(true)
+                .verifyComplete();
+        assertEquals(2, attempts.get());
+        assertEquals("/api/v2/account/1234/savings-goals/5678/add-money/9012", lastRequest.get().url().getPath());
+    }
+
+    private WebClientStarlingClient clientRespondingWith(HttpStatus status, String body) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl(BASE_URL)
+                .exchangeFunction(request -> {
+                    lastRequest.set(request);
+                    return Mono.just(ClientResponse.create(status)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+        return new WebClientStarlingClient(webClient, new StarlingHttpProperties(), new StarlingRetryProperties(),
+                new ObjectMapper());
+    }
+}
@@ -0,0 +1,41 @@
+package org.thomasfraser.starlingroundup.config;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Test;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpTransportConfigTest {
+
+    private final HttpTransportConfig httpTransportConfig = new HttpTransportConfig();
+
+    @Test
+    void endpointResponseTimeoutOverridesDefaultTest() {
+        StarlingHttpProperties properties = new StarlingHttpProperties();
+        properties.setResponseTimeout(Duration.ofSeconds(5));
+        properties.getResponseTimeouts().put(StarlingEndpoint.FEED, Duration.ofSeconds(15));
+
+        RequestConfig feedConfig = HttpTransportConfig.requestConfig(properties, StarlingEndpoint.FEED);
+        RequestConfig accountsConfig = HttpTransportConfig.requestConfig(properties, StarlingEndpoint.ACCOUNTS);
+
+        assertEquals(Timeout.ofSeconds(15), feedConfig.getResponseTimeout());
+        assertEquals(Timeout.ofSeconds(5), accountsConfig.getResponseTimeout());
+    }
+
+    @Test
+    void connectionManagerIsSizedFromPropertiesTest() {
+        StarlingHttpProperties properties = new StarlingHttpProperties();
+        properties.setMaxConnections(30);
+        properties.setMaxConnectionsPerRoute(10);
+
+        try (PoolingHttpClientConnectionManager connectionManager = httpTransportConfig.starlingConnectionManager(properties)) {
+            assertEquals(30, connectionManager.getMaxTotal());
+            assertEquals(10, connectionManager.getDefaultMaxPerRoute());
+        }
+    }
+}
@@ -5,12 +5,36 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.thomasfraser.starlingroundup.dto.BatchRoundUpItemDto;
+import org.thomasfraser.starlingroundup.dto.BatchRoundUpRequestDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpJobDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpPreviewDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpResultDto;
+import org.thomasfraser.starlingroundup.service.BatchRoundUpService;
+import org.thomasfraser.starlingroundup.service.MultiAccountRoundUpService;
+import org.thomasfraser.starlingroundup.service.ReactiveRoundUpService;
+import org.thomasfraser.starlingroundup.service.RoundUpJobService;
 import org.thomasfraser.starlingroundup.service.RoundUpService;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class RoundUpControllerTest {
@@ -18,6 +42,18 @@ class RoundUpControllerTest {
     @Mock
     private RoundUpService roundUpService;
 
+    @Mock
+    private BatchRoundUpService batchRoundUpService;
+
+    @Mock
+    private ReactiveRoundUpService reactiveRoundUpService;
+
+    @Mock
+    private RoundUpJobService roundUpJobService;
+
+    @Mock
+    private MultiAccountRoundUpService multiAccountRoundUpService;
+
     @InjectMocks
     private RoundUpController roundUpController;
 
@@ -29,20 +65,169 @@ class RoundUpControllerTest {
     @Test
     void shouldReturnSuccessMessageWhenRoundUpIsSuccessfulTest() throws Exception {
         BigDecimal roundUpAmount = new BigDecimal("10.00");
-        when(roundUpService.calculateAndTransferRoundUp()).thenReturn(roundUpAmount);
+        when(roundUpService.calculateAndScheduleRoundUp()).thenReturn(result("COMPLETED", roundUpAmount));
 
         ResponseEntity<String> response = roundUpController.roundup();
 
         assertEquals(ResponseEntity.ok("Round up completed successfully. Total rounded up: " + roundUpAmount), response);
     }
 
+    @Test
+    void shouldReturnScheduledMessageWhenTransferIsDeferredTest() throws Exception {
+        BigDecimal roundUpAmount = new BigDecimal("10.00");
+        when(roundUpService.calculateAndScheduleRoundUp()).thenReturn(result("SCHEDULED", roundUpAmount));
+
+        ResponseEntity<String> response = roundUpController.roundup();
+
+        assertEquals(ResponseEntity.ok("Round up scheduled. Total to be rounded up: " + roundUpAmount), response);
+    }
+
     @Test
     void shouldReturnErrorMessageWhenRoundUpFailsTest() throws Exception {
         String errorMessage = "Failed to complete round up";
-        when(roundUpService.calculateAndTransferRoundUp()).thenThrow(new Exception("Error message"));
+        when(roundUpService.calculateAndScheduleRoundUp()).thenThrow(new Exception("Error message"));
 
         ResponseEntity<String> response = roundUpController.roundup();
 
         assertEquals(ResponseEntity.badRequest().body(errorMessage), response);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturnResultPerAccountTest() throws Exception {
+        RoundUpResultDto result = new RoundUpResultDto();
+        result.setAccountUid("account-1");
+        result.setCurrency("EUR");
+        result.setStatus("COMPLETED");
+        when(multiAccountRoundUpService.roundUpAllAccounts()).thenReturn(List.of(result));
+
+        ResponseEntity<List<RoundUpResultDto>> response = roundUpController.roundupAllAccounts();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(result), response.getBody());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenAccountsCannotBeFetchedTest() throws Exception {
+        when(multiAccountRoundUpService.roundUpAllAccounts()).thenThrow(new Exception("Error message"));
+
+        ResponseEntity<List<RoundUpResultDto>> response = roundUpController.roundupAllAccounts();
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void shouldReturnPreviewTest() throws Exception {
+        RoundUpPreviewDto preview = new RoundUpPreviewDto();
+        preview.setAccountUid("account-1");
+        preview.setRoundUpAmount(new BigDecimal("1.23"));
+        when(roundUpService.previewRoundUp("account-1")).thenReturn(preview);
+
+        assertEquals(ResponseEntity.ok(preview), roundUpController.previewRoundup("account-1"));
+        verify(roundUpService, never()).calculateAndTransferRoundUp(any());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenPreviewFailsTest() throws Exception {
+        when(roundUpService.previewRoundUp(null)).thenThrow(new Exception("Error message"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, roundUpController.previewRoundup(null).getStatusCode());
+    }
+
+    @Test
+    void shouldReturnHistoricalRoundUpTest() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 12, 31, 23, 59, 59);
+        when(roundUpService.calculateHistoricalRoundUp(eq("account-1"), any())).thenReturn(new BigDecimal("123.45"));
+
+        ResponseEntity<String> response = roundUpController.historicalRoundup("account-1", from, to);
+
+        assertEquals(ResponseEntity.ok("Round up between 2024-01-01T00:00:00.000Z and 2024-12-31T23:59:59.000Z: 123.45"), response);
+    }
+
+    @Test
+    void shouldRejectHistoricalRoundUpWithInvertedWindowTest() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2024, 12, 31, 0, 0);
+
+        ResponseEntity<String> response = roundUpController.historicalRoundup(null, from, from.minusDays(1));
+
+        assertEquals(ResponseEntity.badRequest().body("Invalid round up window"), response);
+        verify(roundUpService, never()).calculateHistoricalRoundUp(any(), any());
+    }
+
+    @Test
+    void shouldReturnSuccessMessageWhenReactiveRoundUpIsSuccessfulTest() {
+        BigDecimal roundUpAmount = new BigDecimal("10.00");
+        when(reactiveRoundUpService.calculateAndTransferRoundUp()).thenReturn(Mono.just(roundUpAmount));
+
+        ResponseEntity<String> response = roundUpController.reactiveRoundup().block();
+
+        assertEquals(ResponseEntity.ok("Round up completed successfully. Total rounded up: " + roundUpAmount), response);
+    }
+
+    @Test
+    void shouldReturnErrorMessageWhenReactiveRoundUpFailsTest() {
+        when(reactiveRoundUpService.calculateAndTransferRoundUp()).thenReturn(Mono.error(new Exception("Error message")));
+
+        ResponseEntity<String> response = roundUpController.reactiveRoundup().block();
+
+        assertEquals(ResponseEntity.badRequest().body("Failed to complete round up"), response);
+    }
+
+    @Test
+    void shouldStreamBatchResultsAsNdjsonTest() {
+        BatchRoundUpRequestDto request = new BatchRoundUpRequestDto();
+        List<BatchRoundUpItemDto> items = List.of(new BatchRoundUpItemDto());
+        request.setAccounts(items);
+        when(batchRoundUpService.roundUpAll(eq(items), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        ResponseEntity<ResponseBodyEmitter> response = roundUpController.batchRoundup(request);
+
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertNotNull(response.getBody());
+        verify(batchRoundUpService).roundUpAll(eq(items), any());
+    }
+
+    @Test
+    void shouldTreatMissingBatchAccountsAsEmptyTest() {
+        when(batchRoundUpService.roundUpAll(eq(List.of()), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        roundUpController.batchRoundup(new BatchRoundUpRequestDto());
+
+        verify(batchRoundUpService).roundUpAll(eq(List.of()), any());
+    }
+
+    @Test
+    void shouldAcceptRoundUpJobTest() {
+        RoundUpJobDto job = new RoundUpJobDto();
+        job.setJobId("job-1");
+        job.setStatus("QUEUED");
+        when(roundUpJobService.submit("1234")).thenReturn(job);
+
+        ResponseEntity<RoundUpJobDto> response = roundUpController.submitRoundupJob("1234");
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(URI.create("/api/roundup/jobs/job-1"), response.getHeaders().getLocation());
+        assertEquals(job, response.getBody());
+    }
+
+    @Test
+    void shouldReturnServiceUnavailableWhenJobQueueIsFullTest() {
+        when(roundUpJobService.submit(any())).thenThrow(new RejectedExecutionException());
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, roundUpController.submitRoundupJob(null).getStatusCode());
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownJobTest() {
+        when(roundUpJobService.getJob("job-1")).thenReturn(Optional.empty());
+
+        assertEquals(HttpStatus.NOT_FOUND, roundUpController.getRoundupJob("job-1").getStatusCode());
+    }
+
+    private RoundUpResultDto result(String status, BigDecimal roundUpAmount) {
+        RoundUpResultDto result = new RoundUpResultDto();
+        result.setStatus(status);
+        result.setRoundUpAmount(roundUpAmount);
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package org.thomasfraser.starlingroundup.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import org.thomasfraser.starlingroundup.service.RoundUpEventService;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoundUpEventControllerTest {
+
+    private static final byte[] EVENT = ("{\"accountUid\":\"1234\",\"feedItemUid\":\"item-1\",\"direction\":\"OUT\","
+            + "\"amount\":{\"currency\":\"GBP\",\"minorUnits\":435},\"source\":\"CARD\"}").getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private RoundUpEventService roundUpEventService;
+
+    private RoundUpEventController controller;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(roundUpEventService.isEnabled()).thenReturn(true);
+        controller = new RoundUpEventController(roundUpEventService, new ObjectMapper());
+    }
+
+    @Test
+    void signedEventIsIngestedTest() {
+        when(roundUpEventService.isSignatureValid(EVENT, "signature")).thenReturn(true);
+        when(roundUpEventService.ingest(any())).thenReturn(RoundUpEventService.Outcome.ACCEPTED);
+
+        ResponseEntity<String> response = controller.receiveEvent(EVENT, "signature");
+
+        assertEquals(ResponseEntity.ok("ACCEPTED"), response);
+        ArgumentCaptor<TransactionDto> event = ArgumentCaptor.forClass(TransactionDto.class);
+        verify(roundUpEventService).ingest(event.capture());
+        assertEquals("1234", event.getValue().getAccountUid());
+        assertEquals(435, event.getValue().getAmount().getMinorUnits());
+    }
+
+    @Test
+    void eventWithInvalidSignatureIsRefusedTest() {
+        when(roundUpEventService.isSignatureValid(EVENT, "forged")).thenReturn(false);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.receiveEvent(EVENT, "forged").getStatusCode());
+        verify(roundUpEventService, never()).ingest(any());
+    }
+
+    @Test
+    void malformedEventIsRejectedTest() {
+        byte[] body = "{\"feedItemUid\":".getBytes(StandardCharsets.UTF_8);
+        when(roundUpEventService.isSignatureValid(body, "signature")).thenReturn(true);
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.receiveEvent(body, "signature").getStatusCode());
+        verify(roundUpEventService, never()).ingest(any());
+    }
+
+    @Test
+    void endpointsAreNotFoundWhenDisabledTest() {
+        when(roundUpEventService.isEnabled()).thenReturn(false);
+
+        assertEquals(HttpStatus.NOT_FOUND, controller.receiveEvent(EVENT, "signature").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.getAccumulatedRoundup("1234").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.transferAccumulatedRoundup("1234").getStatusCode());
+    }
+
+    @Test
+    void accumulatedRoundUpIsReturnedTest() {
+        when(roundUpEventService.getAccumulatedRoundUp("1234")).thenReturn(Optional.of(new BigDecimal("1.45")));
+
+        assertEquals(ResponseEntity.ok(new BigDecimal("1.45")), controller.getAccumulatedRoundup("1234"));
+        assertEquals(HttpStatus.NOT_FOUND, controller.getAccumulatedRoundup("5678").getStatusCode());
+    }
+}
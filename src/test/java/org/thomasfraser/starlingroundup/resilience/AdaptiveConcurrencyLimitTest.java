@@ -0,0 +1,61 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long THRESHOLD = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void fastSuccessesGrowLimitAdditivelyTest() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 4, 10, THRESHOLD, 0.5, nanos::get);
+
+        // Roughly one more slot per limit's worth of fast calls
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limit.acquire(0));
+            limit.onSuccess(THRESHOLD / 10);
+        }
+
+        assertEquals(4, limit.getLimit());
+        assertTrue(limit.acquire(0));
+        limit.onSuccess(THRESHOLD / 10);
+        assertEquals(5, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    void droppedCallsCutLimitOncePerThresholdTest() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 8, 10, THRESHOLD, 0.5, nanos::get);
+
+        limit.acquire(0);
+        limit.acquire(0);
+        limit.onDropped();
+        limit.onDropped();
+        assertEquals(4, limit.getLimit());
+
+        nanos.addAndGet(THRESHOLD);
+        limit.acquire(0);
+        limit.onSuccess(2 * THRESHOLD);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void acquireTimesOutWhenLimitIsReachedTest() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 1, THRESHOLD, 0.5, nanos::get);
+
+        assertTrue(limit.acquire(0));
+        assertFalse(limit.acquire(TimeUnit.MILLISECONDS.toNanos(10)));
+
+        limit.onSuccess(0);
+        assertTrue(limit.acquire(0));
+    }
+}
@@ -0,0 +1,57 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    private static final long LONG_WAIT = TimeUnit.SECONDS.toNanos(5);
+
+    @Test
+    void rejectsImmediatelyWhenQueueIsFullTest() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1);
+        assertTrue(bulkhead.tryAcquire(0));
+
+        CountDownLatch waiting = new CountDownLatch(1);
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> {
+            waiting.countDown();
+            try {
+                return bulkhead.tryAcquire(LONG_WAIT);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        waiting.await();
+        while (bulkhead.getWaitingCalls() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // Queue is full, so this caller is turned away without waiting
+        long start = System.nanoTime();
+        assertFalse(bulkhead.tryAcquire(LONG_WAIT));
+        assertTrue(System.nanoTime() - start < LONG_WAIT);
+
+        bulkhead.release();
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.getWaitingCalls());
+    }
+
+    @Test
+    void queuedCallerTimesOutTest() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead(1, 1);
+        assertTrue(bulkhead.tryAcquire(0));
+
+        assertFalse(bulkhead.tryAcquire(TimeUnit.MILLISECONDS.toNanos(10)));
+
+        assertEquals(0, bulkhead.getWaitingCalls());
+        bulkhead.release();
+        assertEquals(1, bulkhead.getAvailableSlots());
+    }
+}
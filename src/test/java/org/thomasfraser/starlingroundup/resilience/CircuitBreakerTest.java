@@ -0,0 +1,115 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+    private static final long OPEN = TimeUnit.SECONDS.toNanos(30);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 50, 80, SLOW, OPEN, 2, nanos::get);
+
+    @Test
+    void opensOnceFailureRateCrossesThresholdTest() {
+        call(false, 0);
+        call(true, 0);
+        call(true, 0);
+        // Two failures in three calls, but below the minimum number of calls
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        call(false, 0);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void opensOnceSlowCallRateCrossesThresholdTest() {
+        for (int i = 0; i < 4; i++) {
+            call(false, SLOW * 2);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void oldOutcomesSlideOutOfWindowTest() {
+        for (int i = 0; i < 4; i++) {
+            call(i == 0, 0);
+        }
+        for (int i = 0; i < 10; i++) {
+            call(false, 0);
+        }
+        // The first failure is gone, so four failures in the window are 40%
+        for (int i = 0; i < 4; i++) {
+            call(true, 0);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        call(true, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenTrialsCloseBreakerTest() {
+        open();
+        nanos.addAndGet(OPEN);
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        // Only the trial calls are let through
+        assertFalse(breaker.tryAcquirePermission());
+
+        breaker.onResult(false, 0);
+        breaker.onResult(false, 0);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void failedHalfOpenTrialsReopenBreakerTest() {
+        open();
+        nanos.addAndGet(OPEN);
+
+        call(true, 0);
+        call(false, 0);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        nanos.addAndGet(OPEN - 1);
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void releasedPermissionCanBeTakenAgainTest() {
+        open();
+        nanos.addAndGet(OPEN);
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.releasePermission();
+
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(true, 0);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void call(boolean failure, long durationNanos) {
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.onResult(failure, durationNanos);
+    }
+}
@@ -0,0 +1,133 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+import org.thomasfraser.starlingroundup.config.StarlingRetryProperties;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryExecutorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StarlingRetryProperties properties = new StarlingRetryProperties();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private RetryExecutor retryExecutor;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setInitialBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(5));
+        retryExecutor = new RetryExecutor(properties, meterRegistry);
+    }
+
+    @Test
+    void transientFailuresAreRetriedUntilSuccessTest() throws Exception {
+        String result = retryExecutor.call(StarlingEndpoint.ACCOUNTS, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ResourceAccessException("Read timed out", new SocketTimeoutException());
+            }
+            return "accounts";
+        });
+
+        assertEquals("accounts", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, meterRegistry.get("starling.client.retries").tag("endpoint", "accounts").counter().count());
+    }
+
+    @Test
+    void attemptsAreBoundedTest() {
+        assertThrows(HttpServerErrorException.class, () -> retryExecutor.call(StarlingEndpoint.FEED, () -> {
+            attempts.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        }));
+
+        assertEquals(properties.getMaxAttempts(), attempts.get());
+    }
+
+    @Test
+    void permanentFailuresAreNotRetriedTest() {
+        assertThrows(HttpClientErrorException.class, () -> retryExecutor.call(StarlingEndpoint.FEED, () -> {
+            attempts.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        }));
+        assertThrows(ResourceAccessException.class, () -> retryExecutor.call(StarlingEndpoint.FEED, () -> {
+            attempts.incrementAndGet();
+            throw new ResourceAccessException("No permit", new StarlingRateLimitException("No permit"));
+        }));
+
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void throttlingIsOnlyRetriedWithoutRateLimiterTest() {
+        assertThrows(HttpClientErrorException.TooManyRequests.class, () -> retryExecutor.call(StarlingEndpoint.FEED, () -> {
+            attempts.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null);
+        }));
+        assertEquals(properties.getMaxAttempts(), attempts.get());
+
+        // The rate limiter has already sent a throttled call again before handing the 429 back
+        RetryExecutor rateLimited = new RetryExecutor(properties, meterRegistry, false);
+        assertThrows(HttpClientErrorException.TooManyRequests.class, () -> rateLimited.call(StarlingEndpoint.FEED, () -> {
+            attempts.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null);
+        }));
+        assertEquals(properties.getMaxAttempts() + 1, attempts.get());
+    }
+
+    @Test
+    void failureIsNotRetriedOnceCallerSaysSoTest() {
+        assertThrows(ResourceAccessException.class, () -> retryExecutor.call(StarlingEndpoint.FEED, () -> {
+            attempts.incrementAndGet();
+            throw new ResourceAccessException("Connection reset", new IOException());
+        }, () -> false));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void retryIsAbandonedWhenBackoffExceedsBudgetTest() {
+        properties.setBudget(Duration.ofMillis(100));
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "5");
+
+        assertThrows(HttpClientErrorException.class, () -> retryExecutor.call(StarlingEndpoint.ADD_MONEY, () -> {
+            attempts.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null);
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void backoffGrowsWithJitterUpToMaximumTest() {
+        properties.setInitialBackoff(Duration.ofMillis(100));
+        properties.setMaxBackoff(Duration.ofMillis(300));
+        Exception failure = new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+
+        for (int i = 0; i < 100; i++) {
+            long first = retryExecutor.backoffNanos(1, failure);
+            long third = retryExecutor.backoffNanos(3, failure);
+            assertTrue(first >= TimeUnit.MILLISECONDS.toNanos(50) && first <= TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(third >= TimeUnit.MILLISECONDS.toNanos(150) && third <= TimeUnit.MILLISECONDS.toNanos(300));
+        }
+    }
+}
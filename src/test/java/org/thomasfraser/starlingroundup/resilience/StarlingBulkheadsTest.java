@@ -0,0 +1,61 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+import org.thomasfraser.starlingroundup.config.StarlingBulkheadProperties;
+
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StarlingBulkheadsTest {
+
+    private static final String FEED_URL =
+            "https://api.example.com/api/v2/feed/account/acc-1/settled-transactions-between?minTransactionTimestamp=a";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StarlingBulkheadProperties properties = new StarlingBulkheadProperties();
+
+    private StarlingBulkheads bulkheads;
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setMaxConcurrentCalls(5);
+        properties.getMaxConcurrentCallsPerEndpoint().put(StarlingEndpoint.FEED, 2);
+        bulkheads = new StarlingBulkheads(properties, meterRegistry);
+        restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(bulkheads);
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    @Test
+    void slotIsHeldUntilStreamedBodyIsReadTest() {
+        server.expect(requestTo(FEED_URL)).andRespond(withSuccess("{\"feedItems\":[]}", MediaType.APPLICATION_JSON));
+        Bulkhead feedBulkhead = bulkheads.getBulkhead(StarlingEndpoint.FEED);
+
+        int availableWhileReading = restTemplate.execute(FEED_URL, HttpMethod.GET, null, response -> {
+            try (InputStream body = response.getBody()) {
+                body.readAllBytes();
+            }
+            return feedBulkhead.getAvailableSlots();
+        });
+
+        server.verify();
+        assertEquals(1, availableWhileReading);
+        assertEquals(2, feedBulkhead.getAvailableSlots());
+        assertEquals(5, bulkheads.getBulkhead(StarlingEndpoint.ACCOUNTS).getAvailableSlots());
+        assertEquals(2, meterRegistry.get("starling.client.bulkhead.available").tag("endpoint", "feed").gauge().value());
+    }
+}
@@ -0,0 +1,110 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.thomasfraser.starlingroundup.client.StarlingEndpoint;
+import org.thomasfraser.starlingroundup.config.StarlingBulkheadProperties;
+import org.thomasfraser.starlingroundup.config.StarlingCircuitBreakerProperties;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StarlingCircuitBreakersTest {
+
+    private static final String ACCOUNTS_URL = "https://api.example.com/api/v2/accounts";
+    private static final String GOALS_URL = "https://api.example.com/api/v2/account/acc-1/savings-goals";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StarlingCircuitBreakerProperties properties = new StarlingCircuitBreakerProperties();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private StarlingCircuitBreakers circuitBreakers;
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setMinimumCalls(2);
+        properties.setOpenDuration(Duration.ofSeconds(30));
+        properties.setHalfOpenCalls(1);
+        circuitBreakers = new StarlingCircuitBreakers(properties, meterRegistry, nanos::get);
+        restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(circuitBreakers);
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    @Test
+    void serverErrorsOpenBreakerForThatEndpointOnlyTest() {
+        server.expect(ExpectedCount.times(2), requestTo(ACCOUNTS_URL)).andRespond(withServerError());
+        server.expect(requestTo(GOALS_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+        assertThrows(HttpServerErrorException.class, () -> restTemplate.getForObject(ACCOUNTS_URL, String.class));
+        assertThrows(HttpServerErrorException.class, () -> restTemplate.getForObject(ACCOUNTS_URL, String.class));
+
+        // Fails fast without reaching the server
+        ResourceAccessException e = assertThrows(ResourceAccessException.class,
+                () -> restTemplate.getForObject(ACCOUNTS_URL, String.class));
+        assertInstanceOf(CircuitOpenException.class, e.getCause());
+        assertEquals("{}", restTemplate.getForObject(GOALS_URL, String.class));
+
+        server.verify();
+        assertEquals(1, state("accounts", "open"));
+        assertEquals(1, state("savings-goals", "closed"));
+        assertEquals(1, meterRegistry.get("starling.client.circuit.rejected").tag("endpoint", "accounts").counter().count());
+    }
+
+    @Test
+    void successfulTrialCallClosesBreakerTest() {
+        server.expect(ExpectedCount.times(2), requestTo(ACCOUNTS_URL)).andRespond(withServerError());
+        server.expect(requestTo(ACCOUNTS_URL)).andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+        assertThrows(HttpServerErrorException.class, () -> restTemplate.getForObject(ACCOUNTS_URL, String.class));
+        assertThrows(HttpServerErrorException.class, () -> restTemplate.getForObject(ACCOUNTS_URL, String.class));
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertEquals("{}", restTemplate.getForObject(ACCOUNTS_URL, String.class));
+
+        server.verify();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.getCircuitBreaker(StarlingEndpoint.ACCOUNTS).getState());
+    }
+
+    @Test
+    void bulkheadRejectionsAreNotCountedAsFailuresTest() throws InterruptedException {
+        StarlingBulkheadProperties bulkheadProperties = new StarlingBulkheadProperties();
+        bulkheadProperties.setMaxConcurrentCalls(1);
+        bulkheadProperties.setMaxWaitingCalls(0);
+        StarlingBulkheads bulkheads = new StarlingBulkheads(bulkheadProperties, meterRegistry);
+        restTemplate.getInterceptors().add(bulkheads);
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        bulkheads.getBulkhead(StarlingEndpoint.ACCOUNTS).tryAcquire(0);
+
+        for (int i = 0; i < 3; i++) {
+            ResourceAccessException e = assertThrows(ResourceAccessException.class,
+                    () -> restTemplate.getForObject(ACCOUNTS_URL, String.class));
+            assertInstanceOf(BulkheadFullException.class, e.getCause());
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.getCircuitBreaker(StarlingEndpoint.ACCOUNTS).getState());
+        assertEquals(3, meterRegistry.get("starling.client.bulkhead.rejected").tag("endpoint", "accounts").counter().count());
+    }
+
+    private double state(String endpoint, String state) {
+        return meterRegistry.get("starling.client.circuit.state").tag("endpoint", endpoint).tag("state", state).gauge().value();
+    }
+}
@@ -0,0 +1,97 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.thomasfraser.starlingroundup.config.StarlingRateLimitProperties;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StarlingRateLimiterTest {
+
+    private static final String ACCOUNTS_URL = "https://api.example.com/api/v2/accounts";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StarlingRateLimitProperties properties = new StarlingRateLimitProperties();
+
+    private StarlingRateLimiter rateLimiter;
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setInitialConcurrency(8);
+        properties.setLatencyThreshold(Duration.ofSeconds(5));
+        rateLimiter = new StarlingRateLimiter(properties, meterRegistry);
+        restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add(rateLimiter);
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    @Test
+    void throttledCallIsSentAgainAfterRetryAfterTest() {
+        server.expect(requestTo(ACCOUNTS_URL))
+                .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "0"));
+        server.expect(requestTo(ACCOUNTS_URL))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+        assertEquals("{}", restTemplate.getForObject(ACCOUNTS_URL, String.class));
+
+        server.verify();
+        assertEquals(1, meterRegistry.get("starling.client.throttled").counter().count());
+        assertEquals(4, rateLimiter.getConcurrencyLimit().getLimit());
+        assertEquals(0, rateLimiter.getConcurrencyLimit().getInFlight());
+    }
+
+    @Test
+    void concurrencySlotIsHeldUntilBodyIsReadTest() {
+        server.expect(requestTo(ACCOUNTS_URL))
+                .andRespond(withSuccess("{}", MediaType.APPLICATION_JSON));
+
+        int inFlightWhileReading = restTemplate.execute(ACCOUNTS_URL, HttpMethod.GET, null,
+                response -> rateLimiter.getConcurrencyLimit().getInFlight());
+
+        server.verify();
+        assertEquals(1, inFlightWhileReading);
+        assertEquals(0, rateLimiter.getConcurrencyLimit().getInFlight());
+    }
+
+    @Test
+    void throttlingBeyondRetriesIsHandedBackTest() {
+        properties.setMaxThrottleRetries(1);
+        server.expect(ExpectedCount.times(2), requestTo(ACCOUNTS_URL))
+                .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "0"));
+
+        assertThrows(HttpClientErrorException.TooManyRequests.class, () -> restTemplate.getForObject(ACCOUNTS_URL, String.class));
+
+        server.verify();
+        assertEquals(0, rateLimiter.getConcurrencyLimit().getInFlight());
+    }
+
+    @Test
+    void throttlingLongerThanAcquireTimeoutIsHandedBackTest() {
+        properties.setAcquireTimeout(Duration.ofSeconds(1));
+        server.expect(ExpectedCount.once(), requestTo(ACCOUNTS_URL))
+                .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "60"));
+
+        assertThrows(HttpClientErrorException.TooManyRequests.class, () -> restTemplate.getForObject(ACCOUNTS_URL, String.class));
+
+        server.verify();
+    }
+}
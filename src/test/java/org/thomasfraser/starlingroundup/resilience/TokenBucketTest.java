@@ -0,0 +1,56 @@
+package org.thomasfraser.starlingroundup.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void burstIsServedImmediatelyThenPermitsAreSpacedTest() {
+        TokenBucket bucket = new TokenBucket(10, 2, nanos::get);
+
+        assertEquals(0, bucket.reserve(SECOND));
+        assertEquals(0, bucket.reserve(SECOND));
+        // Reservations queue up behind each other at the refill rate
+        assertEquals(SECOND / 10, bucket.reserve(SECOND));
+        assertEquals(2 * SECOND / 10, bucket.reserve(SECOND));
+    }
+
+    @Test
+    void reservationBeyondMaxWaitIsNotTakenTest() {
+        TokenBucket bucket = new TokenBucket(1, 1, nanos::get);
+        bucket.reserve(0);
+
+        assertEquals(-1, bucket.reserve(SECOND / 2));
+        // The refused reservation did not push later callers back
+        nanos.addAndGet(SECOND);
+        assertEquals(0, bucket.reserve(0));
+    }
+
+    @Test
+    void refundedPermitCanBeReusedTest() {
+        TokenBucket bucket = new TokenBucket(1, 1, nanos::get);
+        bucket.reserve(0);
+        bucket.refund();
+
+        assertEquals(0, bucket.reserve(0));
+    }
+
+    @Test
+    void pausedBucketHoldsPermitsBackTest() {
+        TokenBucket bucket = new TokenBucket(10, 5, nanos::get);
+        bucket.pauseUntil(3 * SECOND);
+
+        assertEquals(3 * SECOND, bucket.reserve(5 * SECOND));
+        nanos.set(3 * SECOND);
+        assertEquals(0, bucket.reserve(0));
+    }
+}
@@ -0,0 +1,56 @@
+package org.thomasfraser.starlingroundup.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 10_000;
+
+    @Test
+    void sameKeyAlwaysMapsToSameShardTest() {
+        ConsistentHashRing ring = new ConsistentHashRing(16);
+
+        assertEquals(ring.shardOf("account-42"), new ConsistentHashRing(16).shardOf("account-42"));
+    }
+
+    @Test
+    void keysAreSpreadOverEveryShardTest() {
+        ConsistentHashRing ring = new ConsistentHashRing(16);
+        int[] counts = new int[16];
+
+        for (int i = 0; i < KEYS; i++) {
+            counts[ring.shardOf("account-" + i)]++;
+        }
+
+        for (int count : counts) {
+            // An even spread would be 625 per shard
+            assertTrue(count > 300 && count < 1000, "shard holds " + count);
+        }
+    }
+
+    @Test
+    void addingShardOnlyMovesKeysToItTest() {
+        ConsistentHashRing before = new ConsistentHashRing(16);
+        ConsistentHashRing after = new ConsistentHashRing(17);
+        Set<Integer> targets = new HashSet<>();
+        int moved = 0;
+
+        for (int i = 0; i < KEYS; i++) {
+            int from = before.shardOf("account-" + i);
+            int to = after.shardOf("account-" + i);
+            if (from != to) {
+                moved++;
+                targets.add(to);
+            }
+        }
+
+        assertEquals(Set.of(16), targets);
+        assertTrue(moved < KEYS / 8, moved + " keys moved");
+    }
+}
@@ -0,0 +1,90 @@
+package org.thomasfraser.starlingroundup.scheduling;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileShardLeaseTableTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong millis = new AtomicLong(1_000_000);
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    };
+
+    @Test
+    void liveLeaseCannotBeClaimedByAnotherNodeTest() throws IOException {
+        FileShardLeaseTable nodeA = new FileShardLeaseTable(directory, "node-a", LEASE, clock);
+        FileShardLeaseTable nodeB = new FileShardLeaseTable(directory, "node-b", LEASE, clock);
+
+        assertTrue(nodeA.tryClaim(3, 1));
+        assertFalse(nodeB.tryClaim(3, 1));
+        assertTrue(nodeB.tryClaim(4, 1));
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverTest() throws IOException {
+        FileShardLeaseTable nodeA = new FileShardLeaseTable(directory, "node-a", LEASE, clock);
+        FileShardLeaseTable nodeB = new FileShardLeaseTable(directory, "node-b", LEASE, clock);
+        assertTrue(nodeA.tryClaim(3, 1));
+
+        millis.addAndGet(LEASE.toMillis() + 1);
+
+        assertTrue(nodeB.tryClaim(3, 1));
+        // Node A finds out it lost the shard when it next renews
+        assertFalse(nodeA.renew(3));
+        assertFalse(nodeA.complete(3, 1));
+    }
+
+    @Test
+    void completedShardIsNotClaimedAgainInSamePeriodTest() throws IOException {
+        FileShardLeaseTable nodeA = new FileShardLeaseTable(directory, "node-a", LEASE, clock);
+        FileShardLeaseTable nodeB = new FileShardLeaseTable(directory, "node-b", LEASE, clock);
+        assertTrue(nodeA.tryClaim(3, 1));
+
+        assertTrue(nodeA.complete(3, 1));
+
+        assertFalse(nodeB.tryClaim(3, 1));
+        assertFalse(nodeA.tryClaim(3, 1));
+        assertTrue(nodeB.tryClaim(3, 2));
+    }
+
+    @Test
+    void releasedShardCanBeClaimedStraightAwayTest() throws IOException {
+        FileShardLeaseTable nodeA = new FileShardLeaseTable(directory, "node-a", LEASE, clock);
+        FileShardLeaseTable nodeB = new FileShardLeaseTable(directory, "node-b", LEASE, clock);
+        assertTrue(nodeA.tryClaim(3, 1));
+
+        nodeA.release(3);
+
+        assertTrue(nodeB.tryClaim(3, 1));
+    }
+}
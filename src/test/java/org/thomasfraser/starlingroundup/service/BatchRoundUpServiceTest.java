@@ -0,0 +1,123 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.thomasfraser.starlingroundup.client.StarlingTokenContext;
+import org.thomasfraser.starlingroundup.dto.BatchRoundUpItemDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpResultDto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchRoundUpServiceTest {
+
+    @Mock
+    private RoundUpService roundUpService;
+
+    private ExecutorService executor;
+
+    private BatchRoundUpService batchRoundUpService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        executor = Executors.newFixedThreadPool(2);
+        batchRoundUpService = new BatchRoundUpService(roundUpService, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void returnsResultForEveryAccountTest() throws Exception {
+        when(roundUpService.calculateAndTransferRoundUp("account-1")).thenReturn(new BigDecimal("1.50"));
+        when(roundUpService.calculateAndTransferRoundUp("account-2")).thenThrow(new Exception("No account found with UID account-2"));
+
+        List<RoundUpResultDto> results = roundUpAll(List.of(item(null, "account-1"), item(null, "account-2")));
+
+        assertEquals(2, results.size());
+        assertEquals("COMPLETED", results.get(0).getStatus());
+        assertEquals(new BigDecimal("1.50"), results.get(0).getRoundUpAmount());
+        assertNull(results.get(0).getError());
+        assertEquals("FAILED", results.get(1).getStatus());
+        assertEquals("No account found with UID account-2", results.get(1).getError());
+    }
+
+    @Test
+    void runsEachItemWithItsOwnAccessTokenTest() throws Exception {
+        when(roundUpService.calculateAndTransferRoundUp(any())).thenAnswer(invocation ->
+                new BigDecimal(StarlingTokenContext.currentToken().orElse("0")));
+
+        List<RoundUpResultDto> results = roundUpAll(List.of(item("1", null), item("2", null), item(null, null)));
+
+        assertEquals(new BigDecimal("1"), results.get(0).getRoundUpAmount());
+        assertEquals(new BigDecimal("2"), results.get(1).getRoundUpAmount());
+        assertEquals(new BigDecimal("0"), results.get(2).getRoundUpAmount());
+    }
+
+    @Test
+    void itemWithFixedWindowRoundsUpThatWindowTest() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 1, 8, 0, 0);
+        when(roundUpService.calculateAndTransferRoundUp(eq("account-1"), any())).thenReturn(new BigDecimal("2.01"));
+        BatchRoundUpItemDto fixed = item(null, "account-1");
+        fixed.setFrom(from);
+        fixed.setTo(to);
+        BatchRoundUpItemDto halfOpen = item(null, "account-2");
+        halfOpen.setFrom(from);
+
+        List<RoundUpResultDto> results = roundUpAll(List.of(fixed, halfOpen));
+
+        assertEquals(new BigDecimal("2.01"), results.get(0).getRoundUpAmount());
+        assertEquals("FAILED", results.get(1).getStatus());
+        verify(roundUpService).calculateAndTransferRoundUp(eq("account-1"),
+                argThat(window -> window.getStart().equals(from) && window.getEnd().equals(to)));
+        verify(roundUpService, never()).calculateAndTransferRoundUp(any());
+    }
+
+    @Test
+    void accountsAreNotStartedOnceProceedStopsHoldingTest() throws Exception {
+        ConcurrentLinkedQueue<RoundUpResultDto> results = new ConcurrentLinkedQueue<>();
+
+        batchRoundUpService.roundUpAll(List.of(item(null, "account-1")), results::add, () -> false).get(5, TimeUnit.SECONDS);
+
+        assertEquals("CANCELLED", results.peek().getStatus());
+        verify(roundUpService, never()).calculateAndTransferRoundUp(any());
+    }
+
+    private List<RoundUpResultDto> roundUpAll(List<BatchRoundUpItemDto> items) throws Exception {
+        ConcurrentLinkedQueue<RoundUpResultDto> results = new ConcurrentLinkedQueue<>();
+        batchRoundUpService.roundUpAll(items, results::add).get(5, TimeUnit.SECONDS);
+
+        return results.stream()
+                .sorted(Comparator.comparingInt(RoundUpResultDto::getIndex))
+                .toList();
+    }
+
+    private BatchRoundUpItemDto item(String accessToken, String accountUid) {
+        BatchRoundUpItemDto item = new BatchRoundUpItemDto();
+        item.setAccessToken(accessToken);
+        item.setAccountUid(accountUid);
+        return item;
+    }
+}
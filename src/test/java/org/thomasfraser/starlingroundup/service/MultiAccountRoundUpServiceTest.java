@@ -0,0 +1,93 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.client.StarlingTokenContext;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpResultDto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MultiAccountRoundUpServiceTest {
+
+    @Mock
+    private RoundUpService roundUpService;
+
+    @Mock
+    private StarlingClient starlingClient;
+
+    private ExecutorService executor;
+
+    private MultiAccountRoundUpService multiAccountRoundUpService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        executor = Executors.newFixedThreadPool(2);
+        multiAccountRoundUpService = new MultiAccountRoundUpService(roundUpService, starlingClient, new RoundUpProperties(), executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void roundsUpEveryEligibleAccountInItsOwnCurrencyTest() throws Exception {
+        AccountDto primary = account("account-1", "PRIMARY", "GBP");
+        AccountDto euros = account("account-2", "ADDITIONAL", "EUR");
+        AccountDto loan = account("account-3", "LOAN", "GBP");
+        when(starlingClient.fetchClientAccounts()).thenReturn(List.of(primary, euros, loan));
+        when(roundUpService.roundUpAccount(primary)).thenReturn(new BigDecimal("1.50"));
+        when(roundUpService.roundUpAccount(euros)).thenThrow(new Exception("Failed to transfer round up amount."));
+
+        List<RoundUpResultDto> results = multiAccountRoundUpService.roundUpAllAccounts();
+
+        assertEquals(2, results.size());
+        assertEquals("account-1", results.get(0).getAccountUid());
+        assertEquals("GBP", results.get(0).getCurrency());
+        assertEquals("COMPLETED", results.get(0).getStatus());
+        assertEquals(new BigDecimal("1.50"), results.get(0).getRoundUpAmount());
+        assertEquals("EUR", results.get(1).getCurrency());
+        assertEquals("FAILED", results.get(1).getStatus());
+        assertEquals("Failed to transfer round up amount.", results.get(1).getError());
+        verify(starlingClient, times(1)).fetchClientAccounts();
+        verify(roundUpService, never()).roundUpAccount(loan);
+    }
+
+    @Test
+    void accessTokenIsUsedForEveryAccountTest() throws Exception {
+        ConcurrentLinkedQueue<String> tokens = new ConcurrentLinkedQueue<>();
+        when(starlingClient.fetchClientAccounts()).thenReturn(List.of(account("account-1", "PRIMARY", "GBP"),
+                account("account-2", "ADDITIONAL", "USD")));
+        when(roundUpService.roundUpAccount(any())).thenAnswer(invocation -> {
+            tokens.add(StarlingTokenContext.currentToken().orElse("none"));
+            return BigDecimal.ZERO;
+        });
+
+        StarlingTokenContext.callWithToken("customer-token", () -> multiAccountRoundUpService.roundUpAllAccounts());
+
+        assertEquals(List.of("customer-token", "customer-token"), List.copyOf(tokens));
+    }
+
+    private static AccountDto account(String accountUid, String accountType, String currency) {
+        AccountDto account = new AccountDto();
+        account.setAccountUid(accountUid);
+        account.setAccountType(accountType);
+        account.setCurrency(currency);
+        return account;
+    }
+}
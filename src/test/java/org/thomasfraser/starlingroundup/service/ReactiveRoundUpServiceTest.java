@@ -0,0 +1,190 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.thomasfraser.starlingroundup.client.ReactiveStarlingApi;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.AmountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import org.thomasfraser.starlingroundup.store.WatermarkStore;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReactiveRoundUpServiceTest {
+
+    @Mock
+    private ReactiveStarlingApi starlingApi;
+
+    @Spy
+    private RoundUpProperties roundUpProperties = new RoundUpProperties();
+
+    @Mock
+    private WatermarkStore watermarkStore;
+
+    @Spy
+    private RoundingStrategyResolver roundingStrategyResolver = new RoundingStrategyResolver(new RoundUpProperties());
+
+    @InjectMocks
+    private ReactiveRoundUpService reactiveRoundUpService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void validSimpleRoundUpTest() {
+        when(starlingApi.fetchClientAccounts()).thenReturn(Flux.just(createAccount("GBP")));
+        when(starlingApi.fetchTransactions(any(), any(), any())).thenReturn(createTransactions("GBP"));
+        when(starlingApi.getSavingsGoals(any())).thenReturn(Flux.just(createSavingsAccount("ACTIVE")));
+        when(starlingApi.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(reactiveRoundUpService.calculateAndTransferRoundUp())
+                .expectNext(new BigDecimal(201).divide(new BigDecimal(100)))
+                .verifyComplete();
+        verify(starlingApi).addMoneyToSavingsGoal(eq("1234"), eq("GBP"), eq("1234"), any(), eq(201L));
+    }
+
+    @Test
+    void accountCurrencyDoesntMatchTransactionCurrencyTest() {
+        when(starlingApi.fetchClientAccounts()).thenReturn(Flux.just(createAccount("GBP")));
+        when(starlingApi.fetchTransactions(any(), any(), any())).thenReturn(createTransactions("USD"));
+
+        StepVerifier.create(reactiveRoundUpService.calculateAndTransferRoundUp())
+                .expectNext(BigDecimal.ZERO)
+                .verifyComplete();
+        verify(starlingApi, never()).getSavingsGoals(any());
+    }
+
+    @Test
+    void noAccountFoundRoundUpTest() {
+        when(starlingApi.fetchClientAccounts()).thenReturn(Flux.just(new AccountDto()));
+
+        StepVerifier.create(reactiveRoundUpService.calculateAndTransferRoundUp())
+                .expectErrorMessage("No primary account found.")
+                .verify();
+    }
+
+    @Test
+    void noCurrencyFoundInPrimaryAccountTest() {
+        when(starlingApi.fetchClientAccounts()).thenReturn(Flux.just(createAccount(null)));
+
+        StepVerifier.create(reactiveRoundUpService.calculateAndTransferRoundUp())
+                .expectErrorMessage("Account currency cannot be null")
+                .verify();
+    }
+
+    @Test
+    void createSavingsAccountIfNoneExistTest() {
+        when(starlingApi.fetchClientAccounts()).thenReturn(Flux.just(createAccount("GBP")));
+        when(starlingApi.fetchTransactions(any(), any(), any())).thenReturn(createTransactions("GBP"));
+        when(starlingApi.getSavingsGoals(any()))
+                .thenReturn(Flux.just(createSavingsAccount("INACTIVE")))
+                .thenReturn(Flux.just(createSavingsAccount("ACTIVE")));
+        when(starlingApi.createSavingsGoal(any(), any(), any())).thenReturn(Mono.empty());
+        when(starlingApi.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(reactiveRoundUpService.calculateAndTransferRoundUp())
+                .expectNext(new BigDecimal(201).divide(new BigDecimal(100)))
+                .verifyComplete();
+        verify(starlingApi, times(1)).createSavingsGoal("1234", "GBP", "RoundUp2025");
+        verify(starlingApi, times(2)).getSavingsGoals("1234");
+    }
+
+    @Test
+    void roundsUpFromWatermarkAndAdvancesItTest() throws Exception {
+        LocalDateTime watermark = LocalDateTime.of(2025, 1, 8, 12, 0);
+        when(watermarkStore.get("1234")).thenReturn(Optional.of(watermark));
+        when(starlingApi.fetchClientAccounts()).thenReturn(Flux.just(createAccount("GBP")));
+        when(starlingApi.fetchTransactions(any(), any(), any())).thenReturn(createTransactions("GBP"));
+        when(starlingApi.getSavingsGoals(any())).thenReturn(Flux.just(createSavingsAccount("ACTIVE")));
+        when(starlingApi.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(Mono.just(true));
+
+        StepVerifier.create(reactiveRoundUpService.calculateAndTransferRoundUp())
+                .expectNext(new BigDecimal(201).divide(new BigDecimal(100)))
+                .verifyComplete();
+        verify(starlingApi).fetchTransactions(eq("1234"), eq("2025-01-08T12:00:00.000Z"), any());
+        verify(watermarkStore).advance(eq("1234"), any(LocalDateTime.class), any());
+    }
+
+    @Test
+    void transferRoundUpFailsTest() throws Exception {
+        when(starlingApi.fetchClientAccounts()).thenReturn(Flux.just(createAccount("GBP")));
+        when(starlingApi.fetchTransactions(any(), any(), any())).thenReturn(createTransactions("GBP"));
+        when(starlingApi.getSavingsGoals(any())).thenReturn(Flux.just(createSavingsAccount("ACTIVE")));
+        when(starlingApi.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(Mono.just(false));
+
+        StepVerifier.create(reactiveRoundUpService.calculateAndTransferRoundUp())
+                .expectErrorMessage("Failed to transfer round up amount.")
+                .verify();
+        verify(watermarkStore, never()).advance(any(), any(), any());
+    }
+
+    @Test
+    void concurrentRoundUpsShareTheOneInFlightTest() {
+        roundUpProperties.getCoalescing().setEnabled(true);
+        Sinks.One<Boolean> transferred = Sinks.one();
+        when(starlingApi.fetchClientAccounts()).thenReturn(Flux.just(createAccount("GBP")));
+        when(starlingApi.fetchTransactions(any(), any(), any())).thenReturn(createTransactions("GBP"));
+        when(starlingApi.getSavingsGoals(any())).thenReturn(Flux.just(createSavingsAccount("ACTIVE")));
+        when(starlingApi.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(transferred.asMono());
+
+        Mono<BigDecimal> first = reactiveRoundUpService.calculateAndTransferRoundUp().cache();
+        Mono<BigDecimal> second = reactiveRoundUpService.calculateAndTransferRoundUp().cache();
+        first.subscribe();
+        second.subscribe();
+        transferred.tryEmitValue(true);
+
+        StepVerifier.create(first).expectNext(new BigDecimal("2.01")).verifyComplete();
+        StepVerifier.create(second).expectNext(new BigDecimal("2.01")).verifyComplete();
+        verify(starlingApi, times(1)).fetchClientAccounts();
+        verify(starlingApi, times(1)).addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong());
+    }
+
+    private AccountDto createAccount(String currency) {
+        AccountDto accountDto = new AccountDto();
+        accountDto.setAccountUid("1234");
+        accountDto.setAccountType("PRIMARY");
+        accountDto.setCurrency(currency);
+        return accountDto;
+    }
+
+    private SavingsAccountDto createSavingsAccount(String state) {
+        SavingsAccountDto savingsAccountDto = new SavingsAccountDto();
+        savingsAccountDto.setSavingsGoalUid("1234");
+        savingsAccountDto.setName("RoundUp2025");
+        savingsAccountDto.setState(state);
+        return savingsAccountDto;
+    }
+
+    private Flux<TransactionDto> createTransactions(String currency) {
+        return Flux.just(1001L, 0L, 999L, 50L, 12345674249L)
+                .map(minorUnits -> {
+                    AmountDto amountDto = new AmountDto();
+                    amountDto.setCurrency(currency);
+                    amountDto.setMinorUnits(minorUnits);
+
+                    TransactionDto transactionDto = new TransactionDto();
+                    transactionDto.setAmount(amountDto);
+                    transactionDto.setDirection("OUT");
+                    return transactionDto;
+                });
+    }
+}
@@ -0,0 +1,31 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class RoundUpCalculatorTest {
+
+    private static final LocalDateTime END = LocalDateTime.of(2025, 1, 8, 12, 0);
+
+    @Test
+    void transferUidIsStableForSameWindowTest() {
+        RoundUpWindow window = new RoundUpWindow(END.minusDays(7), END);
+
+        assertEquals(RoundUpCalculator.transferUid("1234", "5678", window),
+                RoundUpCalculator.transferUid("1234", "5678", new RoundUpWindow(END.minusDays(7), END)));
+    }
+
+    @Test
+    void transferUidDiffersByAccountGoalAndWindowTest() {
+        RoundUpWindow window = new RoundUpWindow(END.minusDays(7), END);
+        String transferUid = RoundUpCalculator.transferUid("1234", "5678", window);
+
+        assertNotEquals(transferUid, RoundUpCalculator.transferUid("4321", "5678", window));
+        assertNotEquals(transferUid, RoundUpCalculator.transferUid("1234", "8765", window));
+        assertNotEquals(transferUid, RoundUpCalculator.transferUid("1234", "5678", new RoundUpWindow(END.minusDays(6), END)));
+    }
+}
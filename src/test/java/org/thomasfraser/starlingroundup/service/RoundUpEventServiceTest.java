@@ -0,0 +1,175 @@
+package org.thomasfraser.starlingroundup.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.AmountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import org.thomasfraser.starlingroundup.store.RoundUpAccumulator;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoundUpEventServiceTest {
+
+    private static final String SECRET = "webhook-secret";
+
+    @Mock
+    private StarlingClient starlingClient;
+
+    @Mock
+    private RoundUpService roundUpService;
+
+    @TempDir
+    Path directory;
+
+    private final RoundUpProperties properties = new RoundUpProperties();
+    private RoundUpAccumulator accumulator;
+    private RoundUpEventService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        properties.getEvents().setSecret(SECRET);
+        accumulator = new RoundUpAccumulator(directory.resolve("events.checkpoint"), Clock.systemUTC(), Duration.ofDays(30));
+        service = new RoundUpEventService(starlingClient, roundUpService, new RoundingStrategyResolver(properties), properties,
+                Optional.of(accumulator), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        accumulator.close();
+    }
+
+    @Test
+    void signatureIsCheckedAgainstBodyTest() throws Exception {
+        byte[] body = "{\"feedItemUid\":\"item-1\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(service.isSignatureValid(body, sign(body)));
+        assertFalse(service.isSignatureValid("{\"feedItemUid\":\"item-2\"}".getBytes(StandardCharsets.UTF_8), sign(body)));
+        assertFalse(service.isSignatureValid(body, "not base64!"));
+        assertFalse(service.isSignatureValid(body, null));
+
+        properties.getEvents().setSecret(null);
+        assertFalse(service.isSignatureValid(body, sign(body)));
+    }
+
+    @Test
+    void eventsAreAccumulatedOncePerFeedItemTest() {
+        assertEquals(RoundUpEventService.Outcome.ACCEPTED, service.ingest(event("item-1", "OUT", 435)));
+        assertEquals(RoundUpEventService.Outcome.ACCEPTED, service.ingest(event("item-2", "OUT", 520)));
+        assertEquals(RoundUpEventService.Outcome.DUPLICATE, service.ingest(event("item-1", "OUT", 435)));
+        assertEquals(RoundUpEventService.Outcome.IGNORED, service.ingest(event("item-3", "IN", 1000)));
+        assertEquals(RoundUpEventService.Outcome.IGNORED, service.ingest(event("item-4", "OUT", 300)));
+        assertEquals(RoundUpEventService.Outcome.INVALID, service.ingest(event("item 5", "OUT", 435)));
+
+        assertEquals(Optional.of(new BigDecimal("1.45")), service.getAccumulatedRoundUp("1234"));
+        assertEquals(Optional.empty(), service.getAccumulatedRoundUp("5678"));
+    }
+
+    @Test
+    void transferDrainsAccumulatedRoundUpTest() throws Exception {
+        SavingsAccountDto savingsAccount = new SavingsAccountDto();
+        savingsAccount.setSavingsGoalUid("goal-1");
+        when(roundUpService.lookupAccount("1234")).thenReturn(account("GBP"));
+        when(roundUpService.resolveSavingsAccount(any())).thenReturn(savingsAccount);
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+        service.ingest(event("item-1", "OUT", 435));
+
+        assertEquals(new BigDecimal("0.65"), service.transferAccumulatedRoundUp("1234"));
+
+        verify(starlingClient, times(1)).addMoneyToSavingsGoal(eq("1234"), eq("GBP"), eq("goal-1"), any(), eq(65L));
+        assertEquals(Optional.of(BigDecimal.ZERO), service.getAccumulatedRoundUp("1234"));
+        assertEquals(BigDecimal.ZERO, service.transferAccumulatedRoundUp("1234"));
+        assertThrows(Exception.class, () -> service.transferAccumulatedRoundUp("5678"));
+    }
+
+    @Test
+    void failedTransferIsKeptForRetryTest() throws Exception {
+        SavingsAccountDto savingsAccount = new SavingsAccountDto();
+        savingsAccount.setSavingsGoalUid("goal-1");
+        when(roundUpService.lookupAccount("1234")).thenReturn(account("GBP"));
+        when(roundUpService.resolveSavingsAccount(any())).thenReturn(savingsAccount);
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(false).thenReturn(true);
+        service.ingest(event("item-1", "OUT", 435));
+
+        assertThrows(Exception.class, () -> service.transferAccumulatedRoundUp("1234"));
+        assertEquals(Optional.of(new BigDecimal("0.65")), service.getAccumulatedRoundUp("1234"));
+
+        assertEquals(new BigDecimal("0.65"), service.transferAccumulatedRoundUp("1234"));
+        ArgumentCaptor<String> transferUids = ArgumentCaptor.forClass(String.class);
+        verify(starlingClient, times(2)).addMoneyToSavingsGoal(eq("1234"), eq("GBP"), eq("goal-1"), transferUids.capture(), eq(65L));
+        assertEquals(transferUids.getAllValues().get(0), transferUids.getAllValues().get(1));
+    }
+
+    @Test
+    void eventsForAccountThatCannotBeSeenOrInAnotherCurrencyAreNotTransferredTest() throws Exception {
+        service.ingest(event("item-1", "OUT", 435));
+
+        when(roundUpService.lookupAccount("1234")).thenThrow(new Exception("No account found with UID 1234"));
+        assertThrows(Exception.class, () -> service.transferAccumulatedRoundUp("1234"));
+
+        reset(roundUpService);
+        when(roundUpService.lookupAccount("1234")).thenReturn(account("EUR"));
+        Exception exception = assertThrows(Exception.class, () -> service.transferAccumulatedRoundUp("1234"));
+        assertEquals("Feed item events for account 1234 are in GBP, not the account currency EUR", exception.getMessage());
+
+        verify(roundUpService, never()).resolveSavingsAccount(any());
+        verify(starlingClient, never()).addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong());
+        assertEquals(Optional.of(new BigDecimal("0.65")), service.getAccumulatedRoundUp("1234"));
+    }
+
+    private static AccountDto account(String currency) {
+        AccountDto account = new AccountDto();
+        account.setAccountUid("1234");
+        account.setCurrency(currency);
+        return account;
+    }
+
+    private static TransactionDto event(String feedItemUid, String direction, long minorUnits) {
+        AmountDto amount = new AmountDto();
+        amount.setCurrency("GBP");
+        amount.setMinorUnits(minorUnits);
+        TransactionDto event = new TransactionDto();
+        event.setAccountUid("1234");
+        event.setFeedItemUid(feedItemUid);
+        event.setDirection(direction);
+        event.setAmount(amount);
+        return event;
+    }
+
+    private static String sign(byte[] body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(body));
+    }
+}
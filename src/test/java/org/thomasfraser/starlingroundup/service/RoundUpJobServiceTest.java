@@ -0,0 +1,120 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.thomasfraser.starlingroundup.client.StarlingTokenContext;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.RoundUpJobDto;
+import org.thomasfraser.starlingroundup.store.RoundUpJobStore;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class RoundUpJobServiceTest {
+
+    @Mock
+    private RoundUpService roundUpService;
+
+    private ExecutorService executor;
+
+    private RoundUpJobStore jobStore;
+
+    private RoundUpJobService roundUpJobService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        jobStore = new RoundUpJobStore(new RoundUpProperties());
+        roundUpJobService = new RoundUpJobService(roundUpService, executor, jobStore);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void completedJobReportsRoundUpAmountTest() throws Exception {
+        when(roundUpService.calculateAndTransferRoundUp("1234")).thenReturn(new BigDecimal("2.01"));
+
+        RoundUpJobDto submitted = roundUpJobService.submit("1234");
+        assertEquals(RoundUpJobStore.QUEUED, submitted.getStatus());
+
+        RoundUpJobDto job = awaitFinished(submitted.getJobId());
+        assertEquals(RoundUpJobStore.COMPLETED, job.getStatus());
+        assertEquals(new BigDecimal("2.01"), job.getRoundUpAmount());
+        assertNull(job.getError());
+        assertNotNull(job.getStartedAt());
+        assertNotNull(job.getCompletedAt());
+    }
+
+    @Test
+    void failedJobReportsErrorTest() throws Exception {
+        when(roundUpService.calculateAndTransferRoundUp(any())).thenThrow(new Exception("No primary account found."));
+
+        RoundUpJobDto job = awaitFinished(roundUpJobService.submit(null).getJobId());
+
+        assertEquals(RoundUpJobStore.FAILED, job.getStatus());
+        assertEquals("No primary account found.", job.getError());
+    }
+
+    @Test
+    void jobRunsWithSubmittersTokenTest() throws Exception {
+        AtomicReference<String> tokenSeen = new AtomicReference<>();
+        when(roundUpService.calculateAndTransferRoundUp(any())).thenAnswer(invocation -> {
+            tokenSeen.set(StarlingTokenContext.currentToken().orElse(null));
+            return BigDecimal.ONE;
+        });
+
+        RoundUpJobDto submitted = StarlingTokenContext.callWithToken("token-a", () -> roundUpJobService.submit(null));
+        awaitFinished(submitted.getJobId());
+
+        assertEquals("token-a", tokenSeen.get());
+    }
+
+    @Test
+    void submissionIsRejectedWhenQueueIsFullTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(roundUpService.calculateAndTransferRoundUp(any())).thenAnswer(invocation -> {
+            release.await();
+            return BigDecimal.ONE;
+        });
+
+        // One job running and one queued fill the executor
+        roundUpJobService.submit(null);
+        roundUpJobService.submit(null);
+        assertThrows(RejectedExecutionException.class, () -> roundUpJobService.submit(null));
+
+        release.countDown();
+    }
+
+    private RoundUpJobDto awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            RoundUpJobDto job = roundUpJobService.getJob(jobId).orElseThrow();
+            if (RoundUpJobStore.COMPLETED.equals(job.getStatus()) || RoundUpJobStore.FAILED.equals(job.getStatus())) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Job " + jobId + " did not finish");
+    }
+}
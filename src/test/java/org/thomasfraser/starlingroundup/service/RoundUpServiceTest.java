@@ -1,22 +1,47 @@
 package org.thomasfraser.starlingroundup.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.thomasfraser.starlingroundup.aggregation.TransactionCodes;
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
 import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.client.StarlingTokenContext;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
 import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpPreviewDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpResultDto;
 import org.thomasfraser.starlingroundup.dto.AmountDto;
 import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
 import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import org.thomasfraser.starlingroundup.store.RoundUpLedger;
+import org.thomasfraser.starlingroundup.store.WatermarkStore;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class RoundUpServiceTest {
@@ -24,6 +49,27 @@ class RoundUpServiceTest {
     @Mock
     private StarlingClient starlingClient;
 
+    @Spy
+    private RoundUpProperties roundUpProperties = new RoundUpProperties();
+
+    @Mock
+    private WatermarkStore watermarkStore;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private TransactionHistoryService transactionHistoryService;
+
+    @Mock
+    private WriteBehindTransferService writeBehindTransferService;
+
+    @Mock
+    private RoundUpLedger ledger;
+
+    @Spy
+    private RoundingStrategyResolver roundingStrategyResolver = new RoundingStrategyResolver(new RoundUpProperties());
+
     @InjectMocks
     private RoundUpService roundUpService;
 
@@ -37,7 +83,7 @@ class RoundUpServiceTest {
         when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
         when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
         when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
-        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), anyLong())).thenReturn(true);
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
 
         BigDecimal expected = new BigDecimal(201).divide(new BigDecimal(100));
 
@@ -50,7 +96,7 @@ class RoundUpServiceTest {
         when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccountUSD());
         when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("USD"));
         when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
-        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), anyLong())).thenReturn(true);
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
 
         BigDecimal expected = new BigDecimal(201).divide(new BigDecimal(100));
 
@@ -58,6 +104,35 @@ class RoundUpServiceTest {
         verify(starlingClient, times(1)).getSavingsGoals(any());
     }
 
+    @Test
+    void scheduledRoundUpIsJournaledInsteadOfTransferredTest() throws Exception {
+        when(writeBehindTransferService.isEnabled()).thenReturn(true);
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+
+        RoundUpResultDto result = roundUpService.calculateAndScheduleRoundUp();
+
+        assertEquals("SCHEDULED", result.getStatus());
+        assertEquals(new BigDecimal("2.01"), result.getRoundUpAmount());
+        verify(writeBehindTransferService).defer(any(), any(), any(), eq(201L));
+        verify(starlingClient, never()).addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong());
+        verify(watermarkStore).advance(any(), any(), any());
+    }
+
+    @Test
+    void roundUpNotAskingToBeScheduledIsTransferredTest() throws Exception {
+        when(writeBehindTransferService.isEnabled()).thenReturn(true);
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        assertEquals(new BigDecimal("2.01"), roundUpService.calculateAndTransferRoundUp());
+        verify(writeBehindTransferService, never()).defer(any(), any(), any(), anyLong());
+        verify(starlingClient).addMoneyToSavingsGoal(any(), any(), any(), any(), eq(201L));
+    }
+
     @Test
     void accountCurrencyDoesntMatchTransactionCurrencyTest() throws Exception {
         when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
@@ -109,7 +184,7 @@ class RoundUpServiceTest {
         when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
         when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
         when(starlingClient.getSavingsGoals(any())).thenReturn(List.of()).thenReturn(createValidSavingsAccount());
-        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), anyLong())).thenReturn(true);
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
 
         BigDecimal expected = new BigDecimal(201).divide(new BigDecimal(100));
         assertEquals(expected, roundUpService.calculateAndTransferRoundUp());
@@ -123,7 +198,7 @@ class RoundUpServiceTest {
         when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
         when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
         when(starlingClient.getSavingsGoals(any())).thenReturn(createInvalidSavingsAccount()).thenReturn(createValidSavingsAccount());
-        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), anyLong())).thenReturn(true);
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
 
         BigDecimal expected = new BigDecimal(201).divide(new BigDecimal(100));
         assertEquals(expected, roundUpService.calculateAndTransferRoundUp());
@@ -137,7 +212,7 @@ class RoundUpServiceTest {
         when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
         when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
         when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
-        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), anyLong())).thenReturn(false);
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(false);
 
         String expectedMessage = "Failed to transfer round up amount.";
 
@@ -146,6 +221,473 @@ class RoundUpServiceTest {
         assertTrue(exception.getMessage().contains(expectedMessage));
     }
 
+    @Test
+    void roundUpRequestedAccountTest() throws Exception {
+        AccountDto additionalAccount = new AccountDto();
+        additionalAccount.setAccountUid("5678");
+        additionalAccount.setAccountType("ADDITIONAL");
+        additionalAccount.setCurrency("GBP");
+        when(starlingClient.fetchClientAccounts()).thenReturn(List.of(createValidAccount().get(0), additionalAccount));
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        BigDecimal expected = new BigDecimal(201).divide(new BigDecimal(100));
+
+        assertEquals(expected, roundUpService.calculateAndTransferRoundUp("5678"));
+        verify(starlingClient, times(1)).fetchTransactions(eq("5678"), any(), any());
+        verify(starlingClient, times(1)).addMoneyToSavingsGoal(eq("5678"), eq("GBP"), eq("1234"), any(), anyLong());
+    }
+
+    @Test
+    void requestedAccountNotFoundTest() throws Exception {
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+
+        Exception exception = assertThrows(Exception.class, () -> roundUpService.calculateAndTransferRoundUp("5678"));
+
+        assertEquals("No account found with UID 5678", exception.getMessage());
+    }
+
+    @Test
+    void streamingRoundUpAcrossSubWindowsTest() throws Exception {
+        roundUpProperties.getFeed().setStreaming(true);
+        roundUpProperties.getFeed().setSubWindow(Duration.ofDays(3));
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.streamTransactions(any(), any(), any(), any())).thenAnswer(invocation -> {
+            Consumer<TransactionDto> consumer = invocation.getArgument(3);
+            createValidTransaction("GBP").forEach(consumer);
+            createInvalidTransactions().forEach(consumer);
+            return 7L;
+        });
+        when(starlingClient.decodeTransactions(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            TransactionColumns columns = invocation.getArgument(3);
+            Consumer<TransactionColumns> batchConsumer = invocation.getArgument(4);
+            for (TransactionDto transaction : Stream.concat(createValidTransaction("GBP").stream(), createInvalidTransactions().stream()).toList()) {
+                columns.add(transaction.getAmount().getMinorUnits(),
+                        TransactionCodes.of(transaction.getDirection(), transaction.getAmount().getCurrency()));
+            }
+            batchConsumer.accept(columns);
+            columns.clear();
+            return 7L;
+        });
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        // Seven days in three day sub-windows, each one returning the same feed: the four settled days are decoded
+        // into columns and only the last three, still settling, are read item by item
+        BigDecimal expected = new BigDecimal(201 * 3).divide(new BigDecimal(100));
+
+        assertEquals(expected, roundUpService.calculateAndTransferRoundUp());
+        verify(starlingClient, times(2)).decodeTransactions(eq("1234"), any(), any(), any(), any());
+        verify(starlingClient, times(1)).streamTransactions(eq("1234"), any(), any(), any());
+        verify(starlingClient, never()).fetchTransactions(any(), any(), any());
+        int itemsPerWindow = createValidTransaction("GBP").size() + createInvalidTransactions().size();
+        assertEquals(3 * itemsPerWindow, meterRegistry.get("roundup.transactions.scanned").counter().count());
+        assertEquals(1, meterRegistry.get("roundup.stage").tag("stage", "aggregation").timer().count());
+    }
+
+    @Test
+    void streamingRoundUpReadsItemsAfterWatermarkThatMayHaveBeenRoundedUpTest() throws Exception {
+        roundUpProperties.getFeed().setStreaming(true);
+        roundUpProperties.getFeed().setSubWindow(Duration.ofDays(7));
+        LocalDateTime watermark = LocalDateTime.of(2025, 1, 8, 12, 0);
+        when(watermarkStore.get("1234")).thenReturn(Optional.of(watermark));
+        when(watermarkStore.getRoundedUp("1234")).thenReturn(Set.of("already"));
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+
+        assertEquals(BigDecimal.ZERO, roundUpService.calculateAndTransferRoundUp());
+        // Items an earlier window rounded up can only be within the settlement lag after the watermark
+        verify(starlingClient).streamTransactions(eq("1234"), eq("2025-01-08T12:00:00.000Z"), eq("2025-01-11T12:00:00.000Z"), any());
+        verify(starlingClient).decodeTransactions(eq("1234"), eq("2025-01-11T12:00:00.000Z"), any(), any(), any());
+    }
+
+    @Test
+    void fetchesOnlyTransactionsAfterWatermarkTest() throws Exception {
+        LocalDateTime watermark = LocalDateTime.of(2025, 1, 8, 12, 0);
+        when(watermarkStore.get("1234")).thenReturn(Optional.of(watermark));
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        roundUpService.calculateAndTransferRoundUp();
+
+        verify(starlingClient).fetchTransactions(eq("1234"), eq("2025-01-08T12:00:00.000Z"), any());
+        verify(watermarkStore).advance(eq("1234"), any(LocalDateTime.class), any());
+    }
+
+    @Test
+    void settlingTransactionsAreRoundedUpOnceAcrossOverlappingWindowsTest() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        when(watermarkStore.get("1234")).thenReturn(Optional.of(now.minusDays(4)));
+        when(watermarkStore.getRoundedUp("1234")).thenReturn(Set.of("already"));
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(List.of(
+                transaction("already", now.minusDays(1), 1001),
+                transaction("late", now.minusDays(1), 999),
+                transaction("settled", now.minusDays(3).minusHours(12), 50),
+                transaction(null, now.minusDays(1), 1050)));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        // Only the late and the settled items; one without a UID waits until it is behind the watermark
+        assertEquals(new BigDecimal("0.51"), roundUpService.calculateAndTransferRoundUp());
+        verify(watermarkStore).advance(eq("1234"), argThat(watermark ->
+                        Duration.between(now.minusDays(3), watermark).abs().compareTo(Duration.ofMinutes(1)) < 0),
+                eq(Set.of("already", "late")));
+    }
+
+    @Test
+    void watermarkAdvancedWhenNothingToTransferTest() throws Exception {
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransactionHundreds());
+
+        assertEquals(BigDecimal.ZERO, roundUpService.calculateAndTransferRoundUp());
+        verify(watermarkStore).advance(eq("1234"), any(LocalDateTime.class), any());
+        verify(ledger, never()).record(any(), any(), any(), any());
+    }
+
+    @Test
+    void watermarkNotAdvancedWhenTransferFailsTest() throws Exception {
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(false);
+
+        assertThrows(Exception.class, () -> roundUpService.calculateAndTransferRoundUp());
+        verify(watermarkStore, never()).advance(any(), any(), any());
+    }
+
+    @Test
+    void watermarkInFutureSkipsFetchTest() throws Exception {
+        when(watermarkStore.get("1234")).thenReturn(Optional.of(LocalDateTime.now().plusMinutes(5)));
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+
+        assertEquals(BigDecimal.ZERO, roundUpService.calculateAndTransferRoundUp());
+        verify(starlingClient, never()).fetchTransactions(any(), any(), any());
+    }
+
+    @Test
+    void stagesAndAmountsAreRecordedTest() throws Exception {
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        roundUpService.calculateAndTransferRoundUp();
+
+        for (String stage : List.of("account-lookup", "feed-fetch", "aggregation", "goal-resolution", "transfer")) {
+            assertEquals(1, meterRegistry.get("roundup.stage").tag("stage", stage).timer().count(), stage);
+        }
+        assertEquals(createValidTransaction("GBP").size(), meterRegistry.get("roundup.transactions.scanned").counter().count());
+        assertEquals(201, meterRegistry.get("roundup.transferred").tag("currency", "GBP").counter().count());
+    }
+
+    @Test
+    void accountRoundingRuleIsAppliedTest() throws Exception {
+        RoundUpProperties.Rule rule = new RoundUpProperties.Rule();
+        rule.setIncrement(1000);
+        rule.setCap(300);
+        roundUpProperties.getRounding().getAccounts().put("1234", rule);
+        RoundUpService roundingService = new RoundUpService(starlingClient, roundUpProperties, watermarkStore, meterRegistry,
+                null, transactionHistoryService, new RoundingStrategyResolver(roundUpProperties), writeBehindTransferService, ledger);
+
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        // 1001, 50 and 12345674249 each round up by more than the cap, 999 by 1
+        assertEquals(new BigDecimal("9.01"), roundingService.calculateAndTransferRoundUp());
+        verify(starlingClient).addMoneyToSavingsGoal(any(), any(), any(), any(), eq(901L));
+    }
+
+    @Test
+    void concurrentRoundUpsOfSameAccountAreCoalescedTest() throws Exception {
+        roundUpProperties.getCoalescing().setEnabled(true);
+        CountDownLatch feedRequested = new CountDownLatch(1);
+        CountDownLatch releaseFeed = new CountDownLatch(1);
+
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenAnswer(invocation -> {
+            feedRequested.countDown();
+            assertTrue(releaseFeed.await(5, TimeUnit.SECONDS));
+            return createValidTransaction("GBP");
+        });
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        CompletableFuture<BigDecimal> first = new CompletableFuture<>();
+        CompletableFuture<BigDecimal> second = new CompletableFuture<>();
+        Thread firstCaller = new Thread(() -> roundUpWithToken(first));
+        Thread secondCaller = new Thread(() -> roundUpWithToken(second));
+        firstCaller.start();
+        assertTrue(feedRequested.await(5, TimeUnit.SECONDS));
+        secondCaller.start();
+        // The second caller parks on the round up in flight rather than fetching the feed itself
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (secondCaller.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        releaseFeed.countDown();
+
+        BigDecimal expected = new BigDecimal(201).divide(new BigDecimal(100));
+        assertEquals(expected, first.get(5, TimeUnit.SECONDS));
+        assertEquals(expected, second.get(5, TimeUnit.SECONDS));
+        verify(starlingClient, times(1)).fetchTransactions(any(), any(), any());
+        verify(starlingClient, times(1)).addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong());
+        assertEquals(1, meterRegistry.get("roundup.coalesced").counter().count());
+    }
+
+    private void roundUpWithToken(CompletableFuture<BigDecimal> result) {
+        try {
+            result.complete(StarlingTokenContext.callWithToken("customer-token", () -> roundUpService.calculateAndTransferRoundUp()));
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    @Test
+    void prefetchLooksUpGoalWhileFeedIsFetchedTest() throws Exception {
+        ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+        roundUpProperties.getPrefetch().setEnabled(true);
+        RoundUpService prefetchingService = new RoundUpService(starlingClient, roundUpProperties, watermarkStore, meterRegistry,
+                prefetchExecutor, transactionHistoryService, roundingStrategyResolver, writeBehindTransferService, ledger);
+        CountDownLatch goalsRequested = new CountDownLatch(1);
+        AtomicReference<String> prefetchToken = new AtomicReference<>();
+
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.getSavingsGoals(any())).thenAnswer(invocation -> {
+            prefetchToken.set(StarlingTokenContext.currentToken().orElse(null));
+            goalsRequested.countDown();
+            return createValidSavingsAccount();
+        });
+        // The feed only completes once the goal lookup has started alongside it
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenAnswer(invocation -> {
+            assertTrue(goalsRequested.await(5, TimeUnit.SECONDS));
+            return createValidTransaction("GBP");
+        });
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        try {
+            BigDecimal expected = new BigDecimal(201).divide(new BigDecimal(100));
+            assertEquals(expected, StarlingTokenContext.callWithToken("customer-token",
+                    () -> prefetchingService.calculateAndTransferRoundUp()));
+        } finally {
+            prefetchExecutor.shutdown();
+        }
+
+        assertEquals("customer-token", prefetchToken.get());
+        verify(starlingClient, times(1)).getSavingsGoals(any());
+    }
+
+    @Test
+    void prefetchCreatesMissingGoalOnlyWhenThereIsMoneyToMoveTest() throws Exception {
+        ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+        roundUpProperties.getPrefetch().setEnabled(true);
+        RoundUpService prefetchingService = new RoundUpService(starlingClient, roundUpProperties, watermarkStore, meterRegistry,
+                prefetchExecutor, transactionHistoryService, roundingStrategyResolver, writeBehindTransferService, ledger);
+
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransactionHundreds());
+        when(starlingClient.getSavingsGoals(any())).thenReturn(List.of());
+
+        try {
+            assertEquals(BigDecimal.ZERO, prefetchingService.calculateAndTransferRoundUp());
+        } finally {
+            prefetchExecutor.shutdown();
+        }
+
+        verify(starlingClient, never()).createSavingsGoal(any(), any(), any());
+    }
+
+    @Test
+    void speculativeGoalCreationTest() throws Exception {
+        ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+        roundUpProperties.getPrefetch().setEnabled(true);
+        roundUpProperties.getPrefetch().setSpeculativeGoalCreation(true);
+        RoundUpService prefetchingService = new RoundUpService(starlingClient, roundUpProperties, watermarkStore, meterRegistry,
+                prefetchExecutor, transactionHistoryService, roundingStrategyResolver, writeBehindTransferService, ledger);
+
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(List.of()).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        try {
+            BigDecimal expected = new BigDecimal(201).divide(new BigDecimal(100));
+            assertEquals(expected, prefetchingService.calculateAndTransferRoundUp());
+        } finally {
+            prefetchExecutor.shutdown();
+        }
+
+        verify(starlingClient, times(1)).createSavingsGoal(any(), any(), any());
+        verify(starlingClient).addMoneyToSavingsGoal(eq("1234"), eq("GBP"), eq("1234"), any(), eq(201L));
+    }
+
+    @Test
+    void prefetchNotNeededIsCancelledBeforeItCreatesGoalTest() throws Exception {
+        ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+        roundUpProperties.getPrefetch().setEnabled(true);
+        roundUpProperties.getPrefetch().setSpeculativeGoalCreation(true);
+        RoundUpService prefetchingService = new RoundUpService(starlingClient, roundUpProperties, watermarkStore, meterRegistry,
+                prefetchExecutor, transactionHistoryService, roundingStrategyResolver, writeBehindTransferService, ledger);
+
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any()))
+                .thenReturn(createValidTransactionHundreds())
+                .thenThrow(new IllegalStateException("Feed unavailable"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(List.of());
+
+        // The prefetch thread is busy, so both lookups are still queued when the round up no longer needs them
+        CountDownLatch release = new CountDownLatch(1);
+        prefetchExecutor.submit(() -> release.await(10, TimeUnit.SECONDS));
+        try {
+            assertEquals(BigDecimal.ZERO, prefetchingService.calculateAndTransferRoundUp());
+            assertThrows(IllegalStateException.class, () -> prefetchingService.calculateAndTransferRoundUp());
+        } finally {
+            release.countDown();
+            prefetchExecutor.shutdown();
+            assertTrue(prefetchExecutor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        verify(starlingClient, never()).getSavingsGoals(any());
+        verify(starlingClient, never()).createSavingsGoal(any(), any(), any());
+    }
+
+    @Test
+    void prefetchedLookupFailureIsRethrownTest() throws Exception {
+        ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+        roundUpProperties.getPrefetch().setEnabled(true);
+        RoundUpService prefetchingService = new RoundUpService(starlingClient, roundUpProperties, watermarkStore, meterRegistry,
+                prefetchExecutor, transactionHistoryService, roundingStrategyResolver, writeBehindTransferService, ledger);
+
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenThrow(new IllegalStateException("Goals unavailable"));
+
+        try {
+            Exception exception = assertThrows(IllegalStateException.class, () -> prefetchingService.calculateAndTransferRoundUp());
+            assertEquals("Goals unavailable", exception.getMessage());
+        } finally {
+            prefetchExecutor.shutdown();
+        }
+
+        verify(starlingClient, never()).addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong());
+        verify(watermarkStore, never()).advance(any(), any(), any());
+    }
+
+    @Test
+    void roundUpGivenAccountSkipsAccountLookupTest() throws Exception {
+        AccountDto account = createValidAccountUSD().get(0);
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("USD"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        assertEquals(new BigDecimal("2.01"), roundUpService.roundUpAccount(account));
+
+        verify(starlingClient, never()).fetchClientAccounts();
+        verify(starlingClient).addMoneyToSavingsGoal(eq("1234"), eq("USD"), eq("1234"), any(), eq(201L));
+    }
+
+    @Test
+    void historicalRoundUpLeavesWatermarkAloneTest() throws Exception {
+        RoundUpWindow window = new RoundUpWindow(LocalDateTime.now().minusYears(1), LocalDateTime.now());
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(transactionHistoryService.calculateRoundUp(any(), eq(window))).thenReturn(12345L);
+
+        assertEquals(new BigDecimal("123.45"), roundUpService.calculateHistoricalRoundUp(null, window));
+
+        verify(watermarkStore, never()).advance(any(), any(), any());
+        verify(starlingClient, never()).addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void previewIsServedFromCacheWithoutTransferringTest() throws Exception {
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+
+        RoundUpPreviewDto preview = roundUpService.previewRoundUp(null);
+        assertSame(preview, roundUpService.previewRoundUp(null));
+
+        assertEquals("1234", preview.getAccountUid());
+        assertEquals(new BigDecimal("2.01"), preview.getRoundUpAmount());
+        verify(starlingClient, times(1)).fetchTransactions(any(), any(), any());
+        verify(starlingClient, never()).addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong());
+        verify(watermarkStore, never()).advance(any(), any(), any());
+    }
+
+    @Test
+    void previewIsCalculatedAgainOnceWatermarkMovesTest() throws Exception {
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+
+        roundUpService.previewRoundUp("1234");
+        when(watermarkStore.get("1234")).thenReturn(Optional.of(LocalDateTime.now().minusMinutes(5)));
+        roundUpService.previewRoundUp("1234");
+
+        verify(starlingClient, times(2)).fetchTransactions(any(), any(), any());
+    }
+
+    @Test
+    void completedFixedWindowIsAnsweredFromLedgerTest() throws Exception {
+        RoundUpWindow window = new RoundUpWindow(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 8, 0, 0));
+        when(ledger.get("1234", window.getStart(), window.getEnd())).thenReturn(Optional.of(new RoundUpLedger.Entry(201, "transfer-1")));
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+
+        assertEquals(new BigDecimal("2.01"), roundUpService.calculateAndTransferRoundUp("1234", window));
+
+        verify(starlingClient).fetchClientAccounts();
+        verifyNoMoreInteractions(starlingClient);
+        assertEquals(1, meterRegistry.get("roundup.ledger.replayed").counter().count());
+    }
+
+    @Test
+    void ledgerDoesNotAnswerForAccountTheCallerCannotSeeTest() throws Exception {
+        RoundUpWindow window = new RoundUpWindow(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 8, 0, 0));
+        when(ledger.get("5678", window.getStart(), window.getEnd())).thenReturn(Optional.of(new RoundUpLedger.Entry(201, "transfer-1")));
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+
+        Exception exception = assertThrows(Exception.class, () -> roundUpService.calculateAndTransferRoundUp("5678", window));
+
+        assertEquals("No account found with UID 5678", exception.getMessage());
+        assertEquals(0, meterRegistry.get("roundup.ledger.replayed").counter().count());
+    }
+
+    @Test
+    void fixedWindowIsRecordedInLedgerAndLeavesWatermarkAloneTest() throws Exception {
+        RoundUpWindow window = new RoundUpWindow(LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 1, 8, 0, 0));
+        when(starlingClient.fetchClientAccounts()).thenReturn(createValidAccount());
+        when(starlingClient.fetchTransactions(any(), any(), any())).thenReturn(createValidTransaction("GBP"));
+        when(starlingClient.getSavingsGoals(any())).thenReturn(createValidSavingsAccount());
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+
+        assertEquals(new BigDecimal("2.01"), roundUpService.calculateAndTransferRoundUp("1234", window));
+
+        String transferUid = RoundUpCalculator.transferUid("1234", "1234", window);
+        verify(starlingClient).fetchTransactions("1234", window.getMinTimestamp(), window.getMaxTimestamp());
+        verify(starlingClient).addMoneyToSavingsGoal("1234", "GBP", "1234", transferUid, 201L);
+        verify(ledger).record("1234", window.getStart(), window.getEnd(), new RoundUpLedger.Entry(201, transferUid));
+        verify(watermarkStore, never()).advance(any(), any(), any());
+    }
+
+    @Test
+    void fixedWindowMustHaveEndedTest() {
+        RoundUpWindow window = new RoundUpWindow(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+
+        assertThrows(Exception.class, () -> roundUpService.calculateAndTransferRoundUp("1234", window));
+        verifyNoInteractions(starlingClient);
+    }
+
+    @Test
+    void fixedWindowMustHaveSettledTest() {
+        roundUpProperties.getTransactionStore().setSettlementLag(Duration.ofDays(3));
+        RoundUpWindow window = new RoundUpWindow(LocalDateTime.now().minusDays(8), LocalDateTime.now().minusDays(1));
+
+        assertThrows(Exception.class, () -> roundUpService.calculateAndTransferRoundUp("1234", window));
+        verifyNoInteractions(starlingClient);
+    }
 
     private List<SavingsAccountDto> createValidSavingsAccount() {
         SavingsAccountDto savingsAccountDto = new SavingsAccountDto();
@@ -268,6 +810,19 @@ class RoundUpServiceTest {
         return List.of(transactionDto1, transactionDto2, transactionDto3, transactionDto4, transactionDto5);
     }
 
+    private TransactionDto transaction(String feedItemUid, LocalDateTime transactionTime, long minorUnits) {
+        AmountDto amountDto = new AmountDto();
+        amountDto.setCurrency("GBP");
+        amountDto.setMinorUnits(minorUnits);
+
+        TransactionDto transactionDto = new TransactionDto();
+        transactionDto.setFeedItemUid(feedItemUid);
+        transactionDto.setTransactionTime(transactionTime + "Z");
+        transactionDto.setAmount(amountDto);
+        transactionDto.setDirection("OUT");
+        return transactionDto;
+    }
+
     private List<TransactionDto> createInvalidTransactions() {
         AmountDto amountDto1 = new AmountDto();
         amountDto1.setCurrency("GBP");
@@ -0,0 +1,63 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoundUpWindowTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Test
+    void formatsTimestampsWithMillisecondsTest() {
+        RoundUpWindow window = new RoundUpWindow(START, START.plusDays(7));
+
+        assertEquals("2025-01-01T12:00:00.000Z", window.getMinTimestamp());
+        assertEquals("2025-01-08T12:00:00.000Z", window.getMaxTimestamp());
+    }
+
+    @Test
+    void splitsIntoContiguousSubWindowsTest() {
+        RoundUpWindow window = new RoundUpWindow(START, START.plusDays(2).plusHours(12));
+
+        List<RoundUpWindow> subWindows = window.split(Duration.ofDays(1));
+
+        assertEquals(3, subWindows.size());
+        assertEquals("2025-01-01T12:00:00.000Z", subWindows.get(0).getMinTimestamp());
+        assertEquals("2025-01-02T12:00:00.000Z", subWindows.get(0).getMaxTimestamp());
+        assertEquals("2025-01-02T12:00:00.000Z", subWindows.get(1).getMinTimestamp());
+        assertEquals("2025-01-03T12:00:00.000Z", subWindows.get(1).getMaxTimestamp());
+        assertEquals("2025-01-03T12:00:00.000Z", subWindows.get(2).getMinTimestamp());
+        assertEquals("2025-01-04T00:00:00.000Z", subWindows.get(2).getMaxTimestamp());
+    }
+
+    @Test
+    void windowShorterThanSubWindowIsNotSplitTest() {
+        RoundUpWindow window = new RoundUpWindow(START, START.plusDays(7));
+
+        List<RoundUpWindow> subWindows = window.split(Duration.ofDays(7));
+
+        assertEquals(1, subWindows.size());
+        assertEquals(window.getMinTimestamp(), subWindows.get(0).getMinTimestamp());
+        assertEquals(window.getMaxTimestamp(), subWindows.get(0).getMaxTimestamp());
+    }
+
+    @Test
+    void splitRejectsNonPositiveSubWindowTest() {
+        RoundUpWindow window = new RoundUpWindow(START, START.plusDays(7));
+
+        assertThrows(IllegalArgumentException.class, () -> window.split(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> window.split(Duration.ofDays(-1)));
+    }
+
+    @Test
+    void windowEndingWhereItStartsIsEmptyTest() {
+        assertTrue(new RoundUpWindow(START, START).isEmpty());
+    }
+}
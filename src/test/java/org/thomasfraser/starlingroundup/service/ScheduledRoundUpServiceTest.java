@@ -0,0 +1,155 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.BatchRoundUpItemDto;
+import org.thomasfraser.starlingroundup.dto.RoundUpResultDto;
+import org.thomasfraser.starlingroundup.scheduling.ConsistentHashRing;
+import org.thomasfraser.starlingroundup.scheduling.FileShardLeaseTable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScheduledRoundUpServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-08T12:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private BatchRoundUpService batchRoundUpService;
+
+    @TempDir
+    Path directory;
+
+    private final RoundUpProperties properties = new RoundUpProperties();
+    private final List<String> roundedUp = new ArrayList<>();
+    private Runnable beforeEachAccount = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties.getSchedule().setShards(8);
+        for (int i = 0; i < 20; i++) {
+            BatchRoundUpItemDto account = new BatchRoundUpItemDto();
+            account.setAccountUid("account-" + i);
+            properties.getSchedule().getAccounts().add(account);
+        }
+
+        when(batchRoundUpService.roundUpAll(any(), any(), any())).thenAnswer(invocation -> {
+            List<BatchRoundUpItemDto> accounts = invocation.getArgument(0);
+            Consumer<RoundUpResultDto> consumer = invocation.getArgument(1);
+            BooleanSupplier proceed = invocation.getArgument(2);
+            for (BatchRoundUpItemDto account : accounts) {
+                RoundUpResultDto result = new RoundUpResultDto();
+                if (proceed.getAsBoolean()) {
+                    roundedUp.add(account.getAccountUid());
+                    beforeEachAccount.run();
+                    result.setStatus("COMPLETED");
+                } else {
+                    result.setStatus("CANCELLED");
+                }
+                consumer.accept(result);
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    @Test
+    void everyAccountIsRoundedUpOncePerIntervalTest() throws Exception {
+        ScheduledRoundUpService scheduler = scheduler("node-a");
+
+        int shards = scheduler.runDueShards();
+
+        assertEquals(shardsInUse(), shards);
+        assertEquals(20, roundedUp.size());
+        assertEquals(20, new HashSet<>(roundedUp).size());
+
+        assertEquals(0, scheduler.runDueShards());
+        assertEquals(20, roundedUp.size());
+    }
+
+    @Test
+    void shardsHeldByAnotherNodeAreSkippedTest() throws Exception {
+        FileShardLeaseTable otherNode = new FileShardLeaseTable(directory, "node-b", Duration.ofMinutes(5), CLOCK);
+        int heldShard = new ConsistentHashRing(8).shardOf("account-0");
+        long period = CLOCK.millis() / Duration.ofDays(1).toMillis();
+        otherNode.tryClaim(heldShard, period);
+
+        scheduler("node-a").runDueShards();
+
+        Set<String> skipped = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            if (new ConsistentHashRing(8).shardOf("account-" + i) == heldShard) {
+                skipped.add("account-" + i);
+            }
+        }
+        assertEquals(20 - skipped.size(), roundedUp.size());
+        roundedUp.forEach(accountUid -> assertFalse(skipped.contains(accountUid)));
+    }
+
+    @Test
+    void noMoreAccountsAreStartedOnceLeaseIsLostTest() throws Exception {
+        properties.getSchedule().setShards(1);
+        FileShardLeaseTable otherNode = new FileShardLeaseTable(directory, "node-b", Duration.ofMinutes(5), CLOCK);
+        ScheduledRoundUpService scheduler = scheduler("node-a");
+        // Another node takes the shard over as soon as the first account has started
+        beforeEachAccount = () -> {
+            try {
+                forceRelease(0);
+                otherNode.tryClaim(0, CLOCK.millis() / Duration.ofDays(1).toMillis());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        scheduler.runDueShards();
+
+        assertEquals(1, roundedUp.size());
+        assertTrue(otherNode.renew(0));
+    }
+
+    @Test
+    void nothingRunsWithoutRegisteredAccountsTest() throws Exception {
+        properties.getSchedule().getAccounts().clear();
+
+        assertEquals(0, scheduler("node-a").runDueShards());
+
+        verify(batchRoundUpService, never()).roundUpAll(any(), any(), any());
+    }
+
+    private ScheduledRoundUpService scheduler(String nodeId) throws Exception {
+        FileShardLeaseTable leaseTable = new FileShardLeaseTable(directory, nodeId, Duration.ofMinutes(5), CLOCK);
+        return new ScheduledRoundUpService(batchRoundUpService, properties, leaseTable, CLOCK);
+    }
+
+    private void forceRelease(int shard) throws Exception {
+        Files.writeString(directory.resolve("shard-" + shard + ".lease"), "- 0 " + Long.MIN_VALUE + "\n");
+    }
+
+    private long shardsInUse() {
+        ConsistentHashRing ring = new ConsistentHashRing(8);
+        return properties.getSchedule().getAccounts().stream().map(account -> ring.shardOf(account.getAccountUid())).distinct().count();
+    }
+}
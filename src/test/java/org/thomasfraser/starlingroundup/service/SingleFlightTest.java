@@ -0,0 +1,113 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallersForSameKeyShareOneCallTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<SingleFlight.Outcome<Integer>> leader = callInThread("account", () -> {
+            calls.incrementAndGet();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return 42;
+        });
+        waitUntilInFlight();
+        CompletableFuture<SingleFlight.Outcome<Integer>> follower = new CompletableFuture<>();
+        Thread followerThread = new Thread(() -> complete(follower, () -> singleFlight.call("account", () -> {
+            calls.incrementAndGet();
+            return 7;
+        })));
+        followerThread.start();
+        awaitJoined(followerThread);
+        // A different key is not held up by the call in flight
+        assertEquals(new SingleFlight.Outcome<>(1, false), singleFlight.call("other", () -> 1));
+
+        release.countDown();
+
+        assertEquals(new SingleFlight.Outcome<>(42, false), leader.get(5, TimeUnit.SECONDS));
+        assertEquals(new SingleFlight.Outcome<>(42, true), follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void followersGetLeadersExceptionTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Exception failure = new Exception("No account found");
+
+        CompletableFuture<SingleFlight.Outcome<Integer>> leader = callInThread("account", () -> {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            throw failure;
+        });
+        waitUntilInFlight();
+        CompletableFuture<SingleFlight.Outcome<Integer>> follower = new CompletableFuture<>();
+        Thread followerThread = new Thread(() -> complete(follower, () -> singleFlight.call("account", () -> 7)));
+        followerThread.start();
+        awaitJoined(followerThread);
+
+        release.countDown();
+
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertSame(failure, leaderFailure.getCause());
+        assertSame(failure, followerFailure.getCause());
+    }
+
+    @Test
+    void keyIsFreedOnceCallIsOverTest() throws Exception {
+        assertFalse(singleFlight.call("account", () -> 1).joined());
+        assertEquals(0, singleFlight.getInFlight());
+        assertThrows(IllegalStateException.class, () -> singleFlight.call("account", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(0, singleFlight.getInFlight());
+
+        assertEquals(new SingleFlight.Outcome<>(2, false), singleFlight.call("account", () -> 2));
+    }
+
+    private CompletableFuture<SingleFlight.Outcome<Integer>> callInThread(String key, Callable<Integer> callable) {
+        CompletableFuture<SingleFlight.Outcome<Integer>> result = new CompletableFuture<>();
+        new Thread(() -> complete(result, () -> singleFlight.call(key, callable))).start();
+        return result;
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, Callable<T> callable) {
+        try {
+            result.complete(callable.call());
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void waitUntilInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (singleFlight.getInFlight() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitJoined(Thread follower) throws InterruptedException {
+        // A follower that joined the call in flight parks until the leader completes it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (follower.getState() != Thread.State.WAITING && follower.isAlive() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.thomasfraser.starlingroundup.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.AmountDto;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+import org.thomasfraser.starlingroundup.store.SegmentTransactionStore;
+import org.thomasfraser.starlingroundup.store.StoredRange;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransactionHistoryServiceTest {
+
+    private static final LocalDateTime JANUARY = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Mock
+    private StarlingClient starlingClient;
+
+    @TempDir
+    Path directory;
+
+    private final RoundUpProperties properties = new RoundUpProperties();
+    private SegmentTransactionStore transactionStore;
+    private TransactionHistoryService historyService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        properties.getFeed().setSubWindow(Duration.ofDays(31));
+        transactionStore = new SegmentTransactionStore(directory);
+        historyService = new TransactionHistoryService(starlingClient, properties, Optional.of(transactionStore),
+                new RoundingStrategyResolver(properties));
+
+        // One 1.50 transaction at noon on the first day of every requested window
+        when(starlingClient.streamTransactions(any(), any(), any(), any())).thenAnswer(invocation -> {
+            String minTimestamp = invocation.getArgument(1);
+            Consumer<TransactionDto> consumer = invocation.getArgument(3);
+            consumer.accept(transaction(minTimestamp.substring(0, 10) + "T12:00:00.000Z"));
+            return 1L;
+        });
+    }
+
+    @Test
+    void storedWindowIsNotFetchedAgainTest() throws Exception {
+        RoundUpWindow window = new RoundUpWindow(JANUARY, JANUARY.plusDays(30));
+
+        assertEquals(50, historyService.calculateRoundUp(account(), window));
+        assertEquals(50, historyService.calculateRoundUp(account(), window));
+
+        verify(starlingClient, times(1)).streamTransactions(eq("1234"), any(), any(), any());
+        assertEquals(Optional.of(new StoredRange(JANUARY, JANUARY.plusDays(30))), transactionStore.getStoredRange("1234"));
+    }
+
+    @Test
+    void onlyPartsOutsideStoredRangeAreFetchedTest() throws Exception {
+        historyService.calculateRoundUp(account(), new RoundUpWindow(JANUARY, JANUARY.plusDays(30)));
+
+        long total = historyService.calculateRoundUp(account(), new RoundUpWindow(JANUARY.minusDays(10), JANUARY.plusDays(40)));
+
+        assertEquals(150, total);
+        verify(starlingClient).streamTransactions(eq("1234"), eq("2023-12-22T00:00:00.000Z"), eq("2024-01-01T00:00:00.000Z"), any());
+        verify(starlingClient).streamTransactions(eq("1234"), eq("2024-01-31T00:00:00.000Z"), eq("2024-02-10T00:00:00.000Z"), any());
+        assertEquals(Optional.of(new StoredRange(JANUARY.minusDays(10), JANUARY.plusDays(40))), transactionStore.getStoredRange("1234"));
+    }
+
+    @Test
+    void unsettledTailIsStoredButNotCoveredTest() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        properties.getTransactionStore().setSettlementLag(Duration.ofDays(3));
+
+        historyService.calculateRoundUp(account(), new RoundUpWindow(now.minusDays(10), now));
+
+        StoredRange storedRange = transactionStore.getStoredRange("1234").orElseThrow();
+        assertEquals(now.minusDays(10), storedRange.start());
+        assertEquals(now.minusDays(3).toLocalDate(), storedRange.end().toLocalDate());
+    }
+
+    @Test
+    void categoryRulesApplyToStoredTransactionsTest() throws Exception {
+        RoundUpProperties.Rule rule = new RoundUpProperties.Rule();
+        rule.setMultiplier(3);
+        properties.getRounding().getCategories().put("GROCERIES", rule);
+        TransactionHistoryService categoryRounding = new TransactionHistoryService(starlingClient, properties,
+                Optional.of(transactionStore), new RoundingStrategyResolver(properties));
+
+        long total = categoryRounding.calculateRoundUp(account(), new RoundUpWindow(JANUARY, JANUARY.plusDays(40)));
+
+        // The January item is a grocery shop, the February one has no category
+        assertEquals(150 + 50, total);
+    }
+
+    @Test
+    void withoutStoreWindowIsDecodedUpstreamTest() throws Exception {
+        TransactionHistoryService upstreamOnly = new TransactionHistoryService(starlingClient, properties, Optional.empty(),
+                new RoundingStrategyResolver(properties));
+
+        upstreamOnly.calculateRoundUp(account(), new RoundUpWindow(JANUARY, JANUARY.plusDays(40)));
+
+        verify(starlingClient, times(2)).decodeTransactions(eq("1234"), any(), any(), any(), any());
+        verify(starlingClient, never()).streamTransactions(any(), any(), any(), any());
+    }
+
+    private static AccountDto account() {
+        AccountDto account = new AccountDto();
+        account.setAccountUid("1234");
+        account.setCurrency("GBP");
+        return account;
+    }
+
+    private static TransactionDto transaction(String transactionTime) {
+        AmountDto amount = new AmountDto();
+        amount.setCurrency("GBP");
+        amount.setMinorUnits(150);
+
+        TransactionDto transaction = new TransactionDto();
+        transaction.setFeedItemUid(transactionTime);
+        transaction.setTransactionTime(transactionTime);
+        transaction.setDirection("OUT");
+        transaction.setAmount(amount);
+        transaction.setSpendingCategory(transactionTime.startsWith("2024-01") ? "GROCERIES" : null);
+        return transaction;
+    }
+}
@@ -0,0 +1,183 @@
+package org.thomasfraser.starlingroundup.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.thomasfraser.starlingroundup.client.StarlingClient;
+import org.thomasfraser.starlingroundup.config.RoundUpProperties;
+import org.thomasfraser.starlingroundup.dto.AccountDto;
+import org.thomasfraser.starlingroundup.dto.SavingsAccountDto;
+import org.thomasfraser.starlingroundup.store.TransferJournal;
+import org.thomasfraser.starlingroundup.store.WatermarkStore;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WriteBehindTransferServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-08T12:00:00Z"), ZoneOffset.UTC);
+    private static final RoundUpWindow WINDOW = new RoundUpWindow(LocalDateTime.of(2025, 1, 1, 12, 0),
+            LocalDateTime.of(2025, 1, 8, 12, 0));
+
+    @Mock
+    private StarlingClient starlingClient;
+
+    @Mock
+    private WatermarkStore watermarkStore;
+
+    @TempDir
+    Path directory;
+
+    private final RoundUpProperties properties = new RoundUpProperties();
+    private final AccountDto account = new AccountDto();
+    private final SavingsAccountDto savingsAccount = new SavingsAccountDto();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties.getWriteBehind().setFlushThreshold(100);
+        properties.getWriteBehind().setMaxDelay(Duration.ofDays(1));
+        account.setAccountUid("1234");
+        account.setCurrency("GBP");
+        savingsAccount.setSavingsGoalUid("goal-1");
+    }
+
+    @Test
+    void roundUpsBelowThresholdAreTransferredTogetherTest() throws Exception {
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+        try (TransferJournal journal = journal()) {
+            WriteBehindTransferService service = service(journal, CLOCK);
+            assertTrue(service.isEnabled());
+
+            service.defer(account, savingsAccount, WINDOW, 40);
+            service.defer(account, savingsAccount, WINDOW, 35);
+            verify(starlingClient, never()).addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong());
+
+            service.defer(account, savingsAccount, WINDOW, 25);
+
+            verify(starlingClient, times(1)).addMoneyToSavingsGoal(eq("1234"), eq("GBP"), eq("goal-1"), any(), eq(100L));
+            assertTrue(journal.getPending().isEmpty());
+        }
+    }
+
+    @Test
+    void roundUpsWaitingLongerThanMaxDelayAreFlushedTest() throws Exception {
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong())).thenReturn(true);
+        try (TransferJournal journal = journal()) {
+            service(journal, CLOCK).defer(account, savingsAccount, WINDOW, 40);
+
+            assertEquals(0, service(journal, Clock.offset(CLOCK, Duration.ofHours(23))).flushDue());
+            assertEquals(1, service(journal, Clock.offset(CLOCK, Duration.ofHours(24))).flushDue());
+
+            verify(starlingClient).addMoneyToSavingsGoal(eq("1234"), eq("GBP"), eq("goal-1"), any(), eq(40L));
+            assertTrue(journal.getPending().isEmpty());
+        }
+    }
+
+    @Test
+    void failedFlushIsRetriedWithSameTransferUidTest() throws Exception {
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), any(), any(), anyLong()))
+                .thenThrow(new RuntimeException("Service unavailable"))
+                .thenReturn(true);
+        try (TransferJournal journal = journal()) {
+            WriteBehindTransferService service = service(journal, CLOCK);
+
+            service.defer(account, savingsAccount, WINDOW, 150);
+            assertEquals(150, journal.getPending().values().iterator().next().inFlight().minorUnits());
+            assertEquals(1, service.flushDue());
+
+            ArgumentCaptor<String> transferUids = ArgumentCaptor.forClass(String.class);
+            verify(starlingClient, times(2)).addMoneyToSavingsGoal(any(), any(), any(), transferUids.capture(), eq(150L));
+            assertEquals(transferUids.getAllValues().get(0), transferUids.getAllValues().get(1));
+            assertTrue(journal.getPending().isEmpty());
+        }
+    }
+
+    @Test
+    void slowFlushDoesNotHoldUpOtherGoalsTest() throws Exception {
+        CountDownLatch firstCallStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCall = new CountDownLatch(1);
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), eq("goal-1"), any(), anyLong())).thenAnswer(invocation -> {
+            firstCallStarted.countDown();
+            return releaseFirstCall.await(10, TimeUnit.SECONDS);
+        });
+        when(starlingClient.addMoneyToSavingsGoal(any(), any(), eq("goal-2"), any(), anyLong())).thenReturn(true);
+        SavingsAccountDto otherSavingsAccount = new SavingsAccountDto();
+        otherSavingsAccount.setSavingsGoalUid("goal-2");
+        try (TransferJournal journal = journal()) {
+            WriteBehindTransferService service = service(journal, CLOCK);
+
+            CompletableFuture<Void> slowFlush = CompletableFuture.runAsync(() -> {
+                try {
+                    service.defer(account, savingsAccount, WINDOW, 150);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertTrue(firstCallStarted.await(10, TimeUnit.SECONDS));
+
+            // Another goal is flushed straight away, and the goal being flushed is skipped rather than waited on
+            service.defer(account, otherSavingsAccount, WINDOW, 150);
+            assertEquals(0, service.flushDue());
+            verify(starlingClient).addMoneyToSavingsGoal(any(), any(), eq("goal-2"), any(), eq(150L));
+
+            releaseFirstCall.countDown();
+            slowFlush.get(10, TimeUnit.SECONDS);
+            assertTrue(journal.getPending().isEmpty());
+        }
+    }
+
+    @Test
+    void disabledWithoutJournalTest() {
+        assertFalse(new WriteBehindTransferService(starlingClient, properties, Optional.empty(), watermarkStore,
+                new SimpleMeterRegistry()).isEnabled());
+    }
+
+    @Test
+    void journaledWindowsAdvanceWatermarksOnStartTest() throws Exception {
+        Path file = directory.resolve("transfers.log");
+        try (TransferJournal journal = new TransferJournal(file, CLOCK)) {
+            service(journal, CLOCK).defer(account, savingsAccount, WINDOW, 40);
+        }
+
+        try (TransferJournal journal = new TransferJournal(file, CLOCK)) {
+            WriteBehindTransferService service = service(journal, CLOCK);
+            service.start();
+            service.stop();
+        }
+
+        verify(watermarkStore).advance("1234", WINDOW.getEnd());
+    }
+
+    private TransferJournal journal() throws Exception {
+        return new TransferJournal(directory.resolve("transfers.log"), CLOCK);
+    }
+
+    private WriteBehindTransferService service(TransferJournal journal, Clock clock) {
+        return new WriteBehindTransferService(starlingClient, properties, Optional.of(journal), watermarkStore,
+                new SimpleMeterRegistry(), clock);
+    }
+}
@@ -0,0 +1,71 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileRoundUpLedgerTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-08T12:00:00Z"), ZoneOffset.UTC);
+    private static final Duration RETENTION = Duration.ofDays(90);
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 1, 8, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordedWindowIsReturnedTest() throws IOException {
+        try (FileRoundUpLedger ledger = new FileRoundUpLedger(directory.resolve("ledger.log"), RETENTION, CLOCK)) {
+            assertEquals(Optional.empty(), ledger.get("1234", START, END));
+
+            ledger.record("1234", START, END, new RoundUpLedger.Entry(201, "transfer-1"));
+
+            assertEquals(Optional.of(new RoundUpLedger.Entry(201, "transfer-1")), ledger.get("1234", START, END));
+            assertEquals(Optional.empty(), ledger.get("1234", START, END.plusDays(1)));
+            assertEquals(Optional.empty(), ledger.get("5678", START, END));
+        }
+    }
+
+    @Test
+    void recordsSurviveRestartTest() throws IOException {
+        Path file = directory.resolve("nested").resolve("ledger.log");
+        try (FileRoundUpLedger ledger = new FileRoundUpLedger(file, RETENTION, CLOCK)) {
+            ledger.record("1234", START, END, new RoundUpLedger.Entry(201, "transfer-1"));
+            ledger.record("1234", END, END.plusDays(1), new RoundUpLedger.Entry(0, null));
+        }
+
+        try (FileRoundUpLedger ledger = new FileRoundUpLedger(file, RETENTION, CLOCK)) {
+            assertEquals(Optional.of(new RoundUpLedger.Entry(201, "transfer-1")), ledger.get("1234", START, END));
+            assertEquals(Optional.of(new RoundUpLedger.Entry(0, null)), ledger.get("1234", END, END.plusDays(1)));
+        }
+    }
+
+    @Test
+    void expiredAndTornRecordsAreDroppedOnRestartTest() throws IOException {
+        Path file = directory.resolve("ledger.log");
+        try (FileRoundUpLedger ledger = new FileRoundUpLedger(file, RETENTION, CLOCK)) {
+            ledger.record("1234", START.minusYears(1), END.minusYears(1), new RoundUpLedger.Entry(99, "transfer-0"));
+            ledger.record("1234", START, END, new RoundUpLedger.Entry(201, "transfer-1"));
+        }
+        Files.writeString(file, "1234 2025-01-08T00:00 2025-01-0", StandardOpenOption.APPEND);
+
+        try (FileRoundUpLedger ledger = new FileRoundUpLedger(file, RETENTION, CLOCK)) {
+            assertEquals(Optional.empty(), ledger.get("1234", START.minusYears(1), END.minusYears(1)));
+            assertEquals(Optional.of(new RoundUpLedger.Entry(201, "transfer-1")), ledger.get("1234", START, END));
+        }
+        assertEquals(1, Files.readAllLines(file).size());
+    }
+}
@@ -0,0 +1,92 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileWatermarkStoreTest {
+
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2025, 1, 8, 12, 0, 0, 123_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void advancedWatermarkIsReturnedTest() throws IOException {
+        try (FileWatermarkStore store = new FileWatermarkStore(directory.resolve("watermarks.log"))) {
+            assertEquals(Optional.empty(), store.get("1234"));
+
+            store.advance("1234", WATERMARK);
+
+            assertEquals(Optional.of(WATERMARK), store.get("1234"));
+        }
+    }
+
+    @Test
+    void watermarkNeverMovesBackwardsTest() throws IOException {
+        try (FileWatermarkStore store = new FileWatermarkStore(directory.resolve("watermarks.log"))) {
+            store.advance("1234", WATERMARK);
+            store.advance("1234", WATERMARK.minusDays(1));
+
+            assertEquals(Optional.of(WATERMARK), store.get("1234"));
+        }
+    }
+
+    @Test
+    void watermarksSurviveRestartTest() throws IOException {
+        Path file = directory.resolve("nested").resolve("watermarks.log");
+        try (FileWatermarkStore store = new FileWatermarkStore(file)) {
+            store.advance("1234", WATERMARK.minusDays(1));
+            store.advance("1234", WATERMARK);
+            store.advance("5678", WATERMARK.minusDays(2));
+        }
+
+        try (FileWatermarkStore store = new FileWatermarkStore(file)) {
+            assertEquals(Optional.of(WATERMARK), store.get("1234"));
+            assertEquals(Optional.of(WATERMARK.minusDays(2)), store.get("5678"));
+        }
+        // Compacted on startup to one line per account
+        assertEquals(2, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void roundedUpItemsSurviveRestartTest() throws IOException {
+        Path file = directory.resolve("watermarks.log");
+        try (FileWatermarkStore store = new FileWatermarkStore(file)) {
+            store.advance("1234", WATERMARK.minusDays(1), Set.of("a"));
+            store.advance("1234", WATERMARK, Set.of("b", "c"));
+            store.advance("5678", WATERMARK);
+        }
+        Files.writeString(file, "1234 " + WATERMARK.plusDays(1) + " d,e", StandardOpenOption.APPEND);
+
+        try (FileWatermarkStore store = new FileWatermarkStore(file)) {
+            // The torn last line is dropped even though it parses, its list of items may have been cut short
+            assertEquals(Optional.of(WATERMARK), store.get("1234"));
+            assertEquals(Set.of("b", "c"), store.getRoundedUp("1234"));
+            assertEquals(Set.of(), store.getRoundedUp("5678"));
+        }
+    }
+
+    @Test
+    void tornLastLineIsIgnoredTest() throws IOException {
+        Path file = directory.resolve("watermarks.log");
+        try (FileWatermarkStore store = new FileWatermarkStore(file)) {
+            store.advance("1234", WATERMARK);
+        }
+        Files.writeString(file, "5678 2025-01-0", StandardOpenOption.APPEND);
+
+        try (FileWatermarkStore store = new FileWatermarkStore(file)) {
+            assertEquals(Optional.of(WATERMARK), store.get("1234"));
+            assertEquals(Optional.empty(), store.get("5678"));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoundUpAccumulatorTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-08T12:00:00Z"), ZoneOffset.UTC);
+    private static final Duration RETENTION = Duration.ofDays(30);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundUpsAccumulateOncePerFeedItemTest() throws IOException {
+        try (RoundUpAccumulator accumulator = new RoundUpAccumulator(directory.resolve("events.checkpoint"), CLOCK, RETENTION)) {
+            assertTrue(accumulator.add("1234", "item-1", "GBP", 40));
+            assertTrue(accumulator.add("1234", "item-2", "GBP", 35));
+            assertFalse(accumulator.add("1234", "item-1", "GBP", 40));
+            assertFalse(accumulator.add("1234", "item-3", "EUR", 10));
+
+            assertEquals(Optional.of(new RoundUpAccumulator.Tally("GBP", 75, null)), accumulator.get("1234"));
+            assertEquals(Optional.empty(), accumulator.get("5678"));
+        }
+    }
+
+    @Test
+    void checkpointSurvivesRestartTest() throws IOException {
+        Path file = directory.resolve("nested").resolve("events.checkpoint");
+        try (RoundUpAccumulator accumulator = new RoundUpAccumulator(file, CLOCK, RETENTION)) {
+            accumulator.add("1234", "item-1", "GBP", 40);
+            accumulator.checkpoint();
+            accumulator.add("1234", "item-2", "GBP", 35);
+        }
+
+        try (RoundUpAccumulator accumulator = new RoundUpAccumulator(file, CLOCK, RETENTION)) {
+            assertEquals(75, accumulator.get("1234").orElseThrow().minorUnits());
+            assertFalse(accumulator.add("1234", "item-1", "GBP", 40));
+        }
+    }
+
+    @Test
+    void unconfirmedDrainIsResumedWithSameUidAfterRestartTest() throws IOException {
+        Path file = directory.resolve("events.checkpoint");
+        RoundUpAccumulator.Drain drain;
+        try (RoundUpAccumulator accumulator = new RoundUpAccumulator(file, CLOCK, RETENTION)) {
+            accumulator.add("1234", "item-1", "GBP", 40);
+            drain = accumulator.beginDrain("1234").orElseThrow();
+            accumulator.add("1234", "item-2", "GBP", 35);
+        }
+
+        try (RoundUpAccumulator accumulator = new RoundUpAccumulator(file, CLOCK, RETENTION)) {
+            assertEquals(Optional.of(new RoundUpAccumulator.Tally("GBP", 35, drain)), accumulator.get("1234"));
+            assertEquals(Optional.of(drain), accumulator.beginDrain("1234"));
+
+            accumulator.completeDrain("1234", drain);
+            assertEquals(35, accumulator.beginDrain("1234").orElseThrow().minorUnits());
+        }
+    }
+
+    @Test
+    void expiredFeedItemUidsAreDroppedOnCheckpointTest() throws IOException {
+        Path file = directory.resolve("events.checkpoint");
+        try (RoundUpAccumulator accumulator = new RoundUpAccumulator(file, CLOCK, RETENTION)) {
+            accumulator.add("1234", "item-1", "GBP", 40);
+        }
+
+        Clock later = Clock.offset(CLOCK, RETENTION.plusMinutes(1));
+        try (RoundUpAccumulator accumulator = new RoundUpAccumulator(file, later, RETENTION)) {
+            accumulator.add("1234", "item-2", "GBP", 35);
+        }
+
+        assertEquals(2, Files.readAllLines(file).size());
+        assertTrue(Files.readString(file).contains("item-2"));
+    }
+}
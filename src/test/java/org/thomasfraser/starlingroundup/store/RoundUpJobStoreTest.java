@@ -0,0 +1,56 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.junit.jupiter.api.Test;
+import org.thomasfraser.starlingroundup.dto.RoundUpJobDto;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoundUpJobStoreTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final RoundUpJobStore jobStore = new RoundUpJobStore(Duration.ofMinutes(15), nanos::get);
+
+    @Test
+    void finishedJobIsEvictedAfterRetentionTest() {
+        jobStore.put(job("1", RoundUpJobStore.COMPLETED));
+
+        advance(Duration.ofMinutes(14));
+        assertTrue(jobStore.get("1").isPresent());
+
+        advance(Duration.ofMinutes(2));
+        assertTrue(jobStore.get("1").isEmpty());
+        assertEquals(0, jobStore.size());
+    }
+
+    @Test
+    void unfinishedJobIsKeptUntilItFinishesTest() {
+        jobStore.put(job("1", RoundUpJobStore.RUNNING));
+
+        advance(Duration.ofDays(1));
+        assertEquals(RoundUpJobStore.RUNNING, jobStore.get("1").orElseThrow().getStatus());
+
+        // Retention starts when the job finishes
+        jobStore.put(job("1", RoundUpJobStore.FAILED));
+        advance(Duration.ofMinutes(14));
+        assertEquals(RoundUpJobStore.FAILED, jobStore.get("1").orElseThrow().getStatus());
+
+        advance(Duration.ofMinutes(2));
+        assertTrue(jobStore.get("1").isEmpty());
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(TimeUnit.NANOSECONDS.convert(duration));
+    }
+
+    private static RoundUpJobDto job(String jobId, String status) {
+        RoundUpJobDto job = new RoundUpJobDto();
+        job.setJobId(jobId);
+        job.setStatus(status);
+        return job;
+    }
+}
@@ -0,0 +1,160 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.thomasfraser.starlingroundup.aggregation.RoundUpAggregator;
+import org.thomasfraser.starlingroundup.aggregation.TransactionColumns;
+import org.thomasfraser.starlingroundup.dto.AmountDto;
+import org.thomasfraser.starlingroundup.dto.TransactionDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SegmentTransactionStoreTest {
+
+    private static final String ACCOUNT_UID = "1234";
+    private static final LocalDateTime DAY_ONE = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void scanOnlyReturnsTransactionsInWindowTest() throws IOException {
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            store.append(ACCOUNT_UID, List.of(
+                    transaction("a", "2025-01-01T09:00:00.000Z", 150),
+                    transaction("b", "2025-01-02T09:00:00.000Z", 275),
+                    transaction("c", "2025-01-03T09:00:00.000Z", 310)));
+
+            RoundUpAggregator aggregator = new RoundUpAggregator("GBP");
+            long scanned = store.scan(ACCOUNT_UID, DAY_ONE.plusHours(12), DAY_ONE.plusDays(2).plusHours(10),
+                    new TransactionColumns(2), aggregator);
+
+            assertEquals(2, scanned);
+            assertEquals(25 + 90, aggregator.getRoundUpTotal());
+        }
+    }
+
+    @Test
+    void sameFeedItemIsOnlyStoredOnceTest() throws IOException {
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            store.append(ACCOUNT_UID, List.of(transaction("a", "2025-01-01T09:00:00.000Z", 150)));
+            store.append(ACCOUNT_UID, List.of(
+                    transaction("a", "2025-01-01T09:00:00.000Z", 150),
+                    transaction("b", "2025-01-01T10:00:00.000Z", 120)));
+
+            RoundUpAggregator aggregator = new RoundUpAggregator("GBP");
+            store.scan(ACCOUNT_UID, DAY_ONE, DAY_ONE.plusDays(1), new TransactionColumns(16), aggregator);
+
+            assertEquals(2, aggregator.getTransactionsScanned());
+            assertEquals(50 + 80, aggregator.getRoundUpTotal());
+        }
+    }
+
+    @Test
+    void tornRecordAtEndOfSegmentIsIgnoredTest() throws IOException {
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            store.append(ACCOUNT_UID, List.of(transaction("a", "2025-01-01T09:00:00.000Z", 150)));
+        }
+        Files.write(directory.resolve(ACCOUNT_UID).resolve("2025-01-01.seg"), new byte[SegmentTransactionStore.RECORD_SIZE / 2],
+                StandardOpenOption.APPEND);
+
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            RoundUpAggregator aggregator = new RoundUpAggregator("GBP");
+            assertEquals(1, store.scan(ACCOUNT_UID, DAY_ONE, DAY_ONE.plusDays(1), new TransactionColumns(16), aggregator));
+            assertEquals(50, aggregator.getRoundUpTotal());
+        }
+    }
+
+    @Test
+    void appendAfterTornRecordStaysAlignedTest() throws IOException {
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            store.append(ACCOUNT_UID, List.of(transaction("a", "2025-01-01T09:00:00.000Z", 150)));
+        }
+        Files.write(directory.resolve(ACCOUNT_UID).resolve("2025-01-01.seg"), new byte[SegmentTransactionStore.RECORD_SIZE / 2],
+                StandardOpenOption.APPEND);
+
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            store.append(ACCOUNT_UID, List.of(transaction("b", "2025-01-01T10:00:00.000Z", 220)));
+
+            RoundUpAggregator aggregator = new RoundUpAggregator("GBP");
+            assertEquals(2, store.scan(ACCOUNT_UID, DAY_ONE, DAY_ONE.plusDays(1), new TransactionColumns(16), aggregator));
+            assertEquals(50 + 80, aggregator.getRoundUpTotal());
+        }
+        assertEquals(2L * SegmentTransactionStore.RECORD_SIZE, Files.size(directory.resolve(ACCOUNT_UID).resolve("2025-01-01.seg")));
+    }
+
+    @Test
+    void identicalTransactionsWithoutUidAreBothStoredTest() throws IOException {
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            List<TransactionDto> transactions = List.of(
+                    transaction(null, "2025-01-01T09:00:00.000Z", 150),
+                    transaction(null, "2025-01-01T09:00:00.000Z", 150));
+            store.append(ACCOUNT_UID, transactions);
+            // Fetching the same items again stores nothing more
+            store.append(ACCOUNT_UID, transactions);
+
+            RoundUpAggregator aggregator = new RoundUpAggregator("GBP");
+            assertEquals(2, store.scan(ACCOUNT_UID, DAY_ONE, DAY_ONE.plusDays(1), new TransactionColumns(16), aggregator));
+            assertEquals(100, aggregator.getRoundUpTotal());
+        }
+    }
+
+    @Test
+    void identicalTransactionsWithoutUidInSeparateBatchesAreBothStoredTest() throws IOException {
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            TransactionDto transaction = transaction(null, "2025-01-01T09:00:00.000Z", 150);
+            TransactionStore.Appender appender = store.appender(ACCOUNT_UID);
+            appender.append(List.of(transaction));
+            appender.append(List.of(transaction));
+            // Fetching the same items again, batched differently, stores nothing more
+            store.append(ACCOUNT_UID, List.of(transaction, transaction));
+
+            RoundUpAggregator aggregator = new RoundUpAggregator("GBP");
+            assertEquals(2, store.scan(ACCOUNT_UID, DAY_ONE, DAY_ONE.plusDays(1), new TransactionColumns(16), aggregator));
+            assertEquals(100, aggregator.getRoundUpTotal());
+        }
+    }
+
+    @Test
+    void storedRangeIsExtendedAndSurvivesRestartTest() throws IOException {
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            assertEquals(Optional.empty(), store.getStoredRange(ACCOUNT_UID));
+
+            store.extendStoredRange(ACCOUNT_UID, new StoredRange(DAY_ONE, DAY_ONE.plusDays(7)));
+            store.extendStoredRange(ACCOUNT_UID, new StoredRange(DAY_ONE.minusDays(7), DAY_ONE));
+        }
+
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            assertEquals(Optional.of(new StoredRange(DAY_ONE.minusDays(7), DAY_ONE.plusDays(7))), store.getStoredRange(ACCOUNT_UID));
+        }
+    }
+
+    @Test
+    void accountUidCannotEscapeDirectoryTest() throws IOException {
+        try (SegmentTransactionStore store = new SegmentTransactionStore(directory)) {
+            assertThrows(IllegalArgumentException.class, () -> store.getStoredRange("../1234"));
+        }
+    }
+
+    private static TransactionDto transaction(String feedItemUid, String transactionTime, long minorUnits) {
+        AmountDto amount = new AmountDto();
+        amount.setCurrency("GBP");
+        amount.setMinorUnits(minorUnits);
+
+        TransactionDto transaction = new TransactionDto();
+        transaction.setFeedItemUid(feedItemUid);
+        transaction.setTransactionTime(transactionTime);
+        transaction.setDirection("OUT");
+        transaction.setAmount(amount);
+        return transaction;
+    }
+}
@@ -0,0 +1,66 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SharedWatermarkStoreTest {
+
+    private static final LocalDateTime WATERMARK = LocalDateTime.of(2025, 1, 8, 12, 0, 0, 123_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void watermarkAdvancedByOneNodeIsSeenByAnotherTest() throws IOException {
+        SharedWatermarkStore nodeA = new SharedWatermarkStore(directory);
+        SharedWatermarkStore nodeB = new SharedWatermarkStore(directory);
+        assertEquals(Optional.empty(), nodeB.get("1234"));
+
+        nodeA.advance("1234", WATERMARK);
+        assertEquals(Optional.of(WATERMARK), nodeB.get("1234"));
+
+        nodeB.advance("1234", WATERMARK.plusDays(1));
+        assertEquals(Optional.of(WATERMARK.plusDays(1)), nodeA.get("1234"));
+    }
+
+    @Test
+    void roundedUpItemsAreSharedWithTheWatermarkTest() throws IOException {
+        SharedWatermarkStore nodeA = new SharedWatermarkStore(directory);
+        SharedWatermarkStore nodeB = new SharedWatermarkStore(directory);
+
+        nodeA.advance("1234", WATERMARK, Set.of("a", "b"));
+        assertEquals(Set.of("a", "b"), nodeB.getRoundedUp("1234"));
+
+        nodeB.advance("1234", WATERMARK.minusDays(1), Set.of("c"));
+        assertEquals(Set.of("a", "b"), nodeA.getRoundedUp("1234"));
+        assertEquals(Set.of(), nodeA.getRoundedUp("5678"));
+    }
+
+    @Test
+    void watermarkNeverMovesBackwardsTest() throws IOException {
+        SharedWatermarkStore store = new SharedWatermarkStore(directory);
+        store.advance("1234", WATERMARK);
+        store.advance("1234", WATERMARK.minusDays(1));
+
+        assertEquals(Optional.of(WATERMARK), store.get("1234"));
+    }
+
+    @Test
+    void unreadableWatermarkFailsInsteadOfFallingBackTest() throws IOException {
+        SharedWatermarkStore store = new SharedWatermarkStore(directory);
+        Files.writeString(directory.resolve("1234.watermark"), "2025-01-0");
+
+        assertThrows(IllegalStateException.class, () -> store.get("1234"));
+        assertThrows(IllegalArgumentException.class, () -> store.get("../1234"));
+    }
+}
@@ -0,0 +1,95 @@
+package org.thomasfraser.starlingroundup.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransferJournalTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2025-01-08T12:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDateTime WINDOW_END = LocalDateTime.of(2025, 1, 8, 12, 0);
+    private static final TransferJournal.Goal GOAL = new TransferJournal.Goal("1234", "goal-1", "GBP");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundUpsAccumulatePerGoalTest() throws IOException {
+        try (TransferJournal journal = new TransferJournal(directory.resolve("transfers.log"), CLOCK)) {
+            assertEquals(40, journal.record(GOAL, 40, WINDOW_END.minusDays(1)));
+            assertEquals(100, journal.record(GOAL, 60, WINDOW_END));
+
+            TransferJournal.Pending pending = journal.getPending().get(GOAL);
+            assertEquals(100, pending.minorUnits());
+            assertEquals(CLOCK.millis(), pending.oldestRecordedAtMillis());
+            assertNull(pending.inFlight());
+            assertEquals(Map.of("1234", WINDOW_END), journal.getJournaledUpTo());
+        }
+    }
+
+    @Test
+    void completedFlushClearsGoalTest() throws IOException {
+        try (TransferJournal journal = new TransferJournal(directory.resolve("transfers.log"), CLOCK)) {
+            journal.record(GOAL, 100, WINDOW_END);
+
+            TransferJournal.Flush flush = journal.beginFlush(GOAL).orElseThrow();
+            assertEquals(100, flush.minorUnits());
+            journal.record(GOAL, 30, WINDOW_END.plusDays(1));
+            journal.completeFlush(GOAL, flush);
+
+            assertEquals(new TransferJournal.Pending(30, CLOCK.millis(), null), journal.getPending().get(GOAL));
+            assertEquals(30, journal.beginFlush(GOAL).orElseThrow().minorUnits());
+            assertEquals(Optional.empty(), journal.beginFlush(new TransferJournal.Goal("5678", "goal-2", "GBP")));
+        }
+    }
+
+    @Test
+    void unconfirmedFlushIsResumedWithSameUidAfterRestartTest() throws IOException {
+        Path file = directory.resolve("nested").resolve("transfers.log");
+        TransferJournal.Flush flush;
+        try (TransferJournal journal = new TransferJournal(file, CLOCK)) {
+            journal.record(GOAL, 100, WINDOW_END);
+            flush = journal.beginFlush(GOAL).orElseThrow();
+            journal.record(GOAL, 25, WINDOW_END.plusDays(1));
+        }
+
+        try (TransferJournal journal = new TransferJournal(file, CLOCK)) {
+            TransferJournal.Pending pending = journal.getPending().get(GOAL);
+            assertEquals(flush, pending.inFlight());
+            assertEquals(25, pending.minorUnits());
+            assertEquals(Optional.of(flush), journal.beginFlush(GOAL));
+            assertEquals(Map.of("1234", WINDOW_END.plusDays(1)), journal.getJournaledUpTo());
+        }
+        // Compacted on startup to the watermark, the unconfirmed flush and what has accumulated since
+        assertEquals(3, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void completedFlushesAreDroppedOnRestartTest() throws IOException {
+        Path file = directory.resolve("transfers.log");
+        try (TransferJournal journal = new TransferJournal(file, CLOCK)) {
+            journal.record(GOAL, 100, WINDOW_END);
+            journal.completeFlush(GOAL, journal.beginFlush(GOAL).orElseThrow());
+        }
+        Files.writeString(file, "ADD 1234 goal-1 GBP 5", StandardOpenOption.APPEND);
+
+        try (TransferJournal journal = new TransferJournal(file, CLOCK)) {
+            assertTrue(journal.getPending().isEmpty());
+            assertEquals(Map.of("1234", WINDOW_END), journal.getJournaledUpTo());
+        }
+    }
+}